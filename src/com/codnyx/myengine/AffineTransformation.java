@@ -1,5 +1,7 @@
 package com.codnyx.myengine;
 
+import java.util.Arrays;
+
 /**
  * Represents a 4x4 matrix for affine transformations in 3D space.
  * This class provides methods to create and manipulate transformations
@@ -42,6 +44,8 @@ public class AffineTransformation {
 	
 	/** The head of the matrix state stack. */
 	MatrixState state = null;
+	/** Number of changes of the matrix, see {@link #getVersion()}. */
+	private int version;
 	
 	/**
 	 * Constructs a new AffineTransformation and initializes it to the identity matrix.
@@ -51,6 +55,17 @@ public class AffineTransformation {
 		loadIdentity();
 	}
 
+	/**
+	 * Gets the version of this transformation, incremented by every method changing the matrix,
+	 * so that a cached result computed with it can be checked cheaply for staleness. The version
+	 * changes even if the new matrix happens to equal the old one.
+	 * 
+	 * @return The number of changes of the matrix so far.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
 	/**
 	 * Resets this transformation to the identity matrix.
 	 * If the internal matrices are not yet initialized, they are created.
@@ -67,6 +82,7 @@ public class AffineTransformation {
 		}
 		System.arraycopy(identity, 0, m, 0, 16);
 		System.arraycopy(identity, 0, m_inv, 0, 16);
+		version++;
 		return this;
 	}
 	
@@ -207,9 +223,46 @@ public class AffineTransformation {
 		this.state = oldState.next;
 		this.m = oldState.m;
 		this.m_inv = oldState.m_inv;
+		version++;
 		return true;
 	}
 	
+	/**
+	 * Copies the matrix and the inverse matrix of another transformation into this one.
+	 * The state stack is not copied.
+	 * 
+	 * @param t The transformation to copy.
+	 * @return This AffineTransformation instance for chaining.
+	 */
+	public AffineTransformation setTo(AffineTransformation t)
+	{
+		System.arraycopy(t.m, 0, m, 0, 16);
+		System.arraycopy(t.m_inv, 0, m_inv, 0, 16);
+		version++;
+		return this;
+	}
+	
+	/**
+	 * Tests whether another transformation has the same matrix as this one.
+	 * 
+	 * @param t The transformation to compare with.
+	 * @return {@code true} if both matrices are equal element by element.
+	 */
+	boolean hasSameMatrix(AffineTransformation t)
+	{
+		return Arrays.equals(m, t.m);
+	}
+	
+	/**
+	 * Returns the matrix of this transformation, row-major, without copying it.
+	 * 
+	 * @return The 4x4 matrix, which must not be modified.
+	 */
+	float[] getMatrix()
+	{
+		return m;
+	}
+	
 	/**
 	 * Applies a rotation around the Z-axis to the current transformation.
 	 * Both the transformation matrix and its inverse are updated.
@@ -301,6 +354,7 @@ public class AffineTransformation {
 			}
 		}
 		System.arraycopy(temp_inv, 0, m_inv, 0, 16);
+		version++;
 		return this;
 	}
 	
@@ -357,6 +411,7 @@ public class AffineTransformation {
 		}
 		System.arraycopy(temp_inv, 0, m_inv, 0, 16);
 		
+		version++;
 		return this;
 	}
 
@@ -412,6 +467,7 @@ public class AffineTransformation {
 			}
 		}
 		System.arraycopy(temp_inv, 0, m_inv, 0, 16);
+		version++;
 		return this;
 	}
 	
@@ -510,6 +566,7 @@ public class AffineTransformation {
 		m_buffer[12] = m_inv[12]; m_buffer[13] = m_inv[13]; m_buffer[14] = m_inv[14]; m_buffer[15] = m_inv[15];
 		System.arraycopy(m_buffer, 0, m_inv, 0, 16);
 		
+		version++;
 		return this;	
 	}
 	
@@ -570,6 +627,7 @@ public class AffineTransformation {
 		for(int i=0; i<4; ++i) m_buffer[12+i] = m_inv[12+i];
 		System.arraycopy(m_buffer, 0, m_inv, 0, 16);		
 		
+		version++;
 		return this;
 	}
 }
@@ -0,0 +1,353 @@
+package com.codnyx.myengine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Renders frames too large for a full-frame {@link PolygonRenderer}, such as posters at 8K or 16K,
+ * one horizontal band at a time.
+ * <p>
+ * Polygons are added with the model transformation current at the time ({@link #getModelT()}), and
+ * binned once into the bands their projection overlaps. {@link #render(BandSink)} then draws the bands
+ * from top to bottom with a single {@link PolygonRenderer} the size of a band, whose color and depth
+ * buffers are reused for every band, and hands each finished band to a {@link BandSink}, which can
+ * stream it to a file. Peak memory thus depends on the width of the frame and the band height, not
+ * on its height, and bands small enough to stay in the processor caches are cleared and drawn without
+ * going to main memory.
+ * <p>
+ * Since the renderer projects with the perspective of the full frame and only shifts the result
+ * (see {@link PolygonRenderer#setYOffset(int)}), the bands put together are identical to the frame
+ * a full-frame renderer would draw.
+ */
+public class BandedRenderer
+{
+	/** Default number of bytes of color and depth buffers per band: about the size of a second level cache. */
+	public static final long DEFAULT_BAND_BYTES = 2L << 20;
+
+	/** Width of the frame. */
+	private final int width;
+	/** Height of the frame. */
+	private final int height;
+	/** Number of rows of each band; the last band may be shorter. */
+	private final int bandHeight;
+	/** The renderer drawing one band. */
+	private final PolygonRenderer renderer;
+	/** The model transformation applied to the polygons being added. */
+	private final AffineTransformation modelT = new AffineTransformation();
+	/** The perspective transformation of the full frame. */
+	private PerspectiveTransformation projT;
+
+	/** Polygons added since the last frame, in order. */
+	private Polygon[] polygons = new Polygon[64];
+	/** Model transformation of each polygon; consecutive polygons added with the same matrix share it. */
+	private AffineTransformation[] transforms = new AffineTransformation[64];
+	/** Number of polygons added since the last frame. */
+	private int count;
+	/** Indices of the polygons overlapping each band, in order. */
+	private int[][] bins;
+	/** Number of polygons in each band. */
+	private int[] binSizes;
+
+	/** Scratch eye-space point. */
+	private float[] point = {0,0,0};
+	/** Scratch eye-space normal. */
+	private float[] normal = {0,0,0};
+	/** Scratch projected point. */
+	private int[] projection = {0,0};
+
+	/**
+	 * Constructs a banded renderer whose bands fit in {@link #DEFAULT_BAND_BYTES}.
+	 * @param width The width of the frame.
+	 * @param height The height of the frame.
+	 */
+	public BandedRenderer(int width, int height)
+	{
+		this(width, height, getBandHeight(width, DepthFormat.FLOAT32, DEFAULT_BAND_BYTES));
+	}
+
+	/**
+	 * Constructs a banded renderer.
+	 * @param width The width of the frame.
+	 * @param height The height of the frame.
+	 * @param bandHeight The number of rows of each band.
+	 */
+	public BandedRenderer(int width, int height, int bandHeight)
+	{
+		this.width = width;
+		this.height = height;
+		this.bandHeight = Math.max(1, Math.min(bandHeight, height));
+		this.renderer = new PolygonRenderer(width, this.bandHeight);
+		int bands = (height + this.bandHeight - 1) / this.bandHeight;
+		bins = new int[bands][16];
+		binSizes = new int[bands];
+	}
+
+	/**
+	 * Computes the number of rows of a band whose color and depth buffers fit in a number of bytes.
+	 * @param width The width of the frame.
+	 * @param format The format of the depth buffer.
+	 * @param bytes The number of bytes of the buffers of a band, for instance the size of a cache.
+	 * @return The band height, at least 1.
+	 */
+	public static int getBandHeight(int width, DepthFormat format, long bytes)
+	{
+		long rowBytes = (long)width * (4 + format.getBytes());
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, bytes / rowBytes));
+	}
+
+	/**
+	 * Sets up the perspective transformation of the full frame.
+	 * @param yangle The vertical field of view angle in radians.
+	 * @param z_min The distance to the near clipping plane.
+	 * @param z_max The distance to the far clipping plane.
+	 */
+	public void setPerspective(double yangle, float z_min, float z_max)
+	{
+		this.projT = new PerspectiveTransformation(yangle, width, height, 0, 0, z_min, z_max);
+		renderer.setProjT(projT);
+	}
+
+	/**
+	 * Gets the model transformation applied to the polygons when they are added.
+	 * @return The model-to-eye transformation.
+	 */
+	public AffineTransformation getModelT() {
+		return modelT;
+	}
+
+	/**
+	 * Gets the perspective transformation of the full frame.
+	 * @return The perspective transformation, or null before {@link #setPerspective(double, float, float)}.
+	 */
+	public PerspectiveTransformation getProjT() {
+		return projT;
+	}
+
+	/**
+	 * Gets the renderer drawing the bands, to change its settings such as the depth format.
+	 * Its viewport is a single band.
+	 * @return The band renderer.
+	 */
+	public PolygonRenderer getRenderer() {
+		return renderer;
+	}
+
+	/**
+	 * Gets the width of the frame.
+	 * @return The width in pixels.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the frame.
+	 * @return The height in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the number of rows of each band.
+	 * @return The band height in pixels.
+	 */
+	public int getBandHeight() {
+		return bandHeight;
+	}
+
+	/**
+	 * Adds all the polygons of a mesh to the frame, with the current model transformation.
+	 * @param m The mesh.
+	 */
+	public void add(Mesh m)
+	{
+		for(Polygon p: m.polygons)
+			add(p);
+	}
+
+	/**
+	 * Adds a polygon to the frame, with the current model transformation. Polygons facing away from
+	 * the eye or outside the depth range are dropped; the others are binned into the bands which
+	 * their projection overlaps, or into all bands if they cross the near plane.
+	 * @param p The polygon.
+	 */
+	public void add(Polygon p)
+	{
+		modelT.normal_transform(p.normal, normal);
+		modelT.transform(p.center, point);
+		if(MyMath.dotProduct(normal, point) >= 0)
+			return;
+		// Eye z is negative: z_max is the near plane and z_min the far one
+		float zNear = projT.getZMax(), zFar = projT.getZMin();
+		int yMin = Integer.MAX_VALUE, yMax = Integer.MIN_VALUE;
+		boolean allNear = true, allFar = true, crossesNear = false;
+		for(Vertex v: p.vertices)
+		{
+			modelT.transform(v.point, point);
+			allNear &= point[2] > zNear;
+			allFar &= point[2] < zFar;
+			if(point[2] > zNear)
+			{
+				crossesNear = true;
+				continue;
+			}
+			projT.project(point, projection);
+			yMin = Math.min(yMin, projection[1]);
+			yMax = Math.max(yMax, projection[1]);
+		}
+		if(allNear || allFar)
+			return;
+		if(crossesNear)
+		{
+			// Clipping at the near plane may extend the polygon anywhere on screen
+			yMin = 0;
+			yMax = height - 1;
+		}
+		// Vertices added by far plane clipping project between the others, give or take rounding
+		yMin--;
+		yMax++;
+		if(yMax < 0 || yMin >= height)
+			return;
+
+		if(count == polygons.length)
+		{
+			polygons = Arrays.copyOf(polygons, 2 * count);
+			transforms = Arrays.copyOf(transforms, 2 * count);
+		}
+		AffineTransformation t = count > 0 ? transforms[count - 1] : null;
+		if(t == null || !t.hasSameMatrix(modelT))
+			t = new AffineTransformation().setTo(modelT);
+		polygons[count] = p;
+		transforms[count] = t;
+		for(int b = Math.max(0, yMin) / bandHeight, last = Math.min(height - 1, yMax) / bandHeight; b <= last; b++)
+		{
+			if(binSizes[b] == bins[b].length)
+				bins[b] = Arrays.copyOf(bins[b], 2 * binSizes[b]);
+			bins[b][binSizes[b]++] = count;
+		}
+		count++;
+	}
+
+	/**
+	 * Renders the polygons added since the last frame, band by band from the top, passing each finished
+	 * band to a sink, then forgets the polygons for the next frame.
+	 * @param sink The receiver of the bands.
+	 * @throws IOException If the sink fails; the polygons are forgotten nonetheless.
+	 */
+	public void render(BandSink sink) throws IOException
+	{
+		try
+		{
+			int[] data = renderer.getColorBuffer();
+			AffineTransformation bandT = renderer.getModelT();
+			for(int b = 0; b < binSizes.length; b++)
+			{
+				int top = b * bandHeight;
+				renderer.clean();
+				renderer.setYOffset(top);
+				AffineTransformation current = null;
+				for(int i = 0; i < binSizes[b]; i++)
+				{
+					int index = bins[b][i];
+					if(transforms[index] != current)
+					{
+						current = transforms[index];
+						bandT.setTo(current);
+					}
+					renderer.render(polygons[index]);
+				}
+				sink.band(top, Math.min(bandHeight, height - top), data, width);
+			}
+		}
+		finally
+		{
+			clear();
+		}
+	}
+
+	/**
+	 * Forgets the polygons added since the last frame.
+	 */
+	public void clear()
+	{
+		Arrays.fill(polygons, 0, count, null);
+		Arrays.fill(transforms, 0, count, null);
+		Arrays.fill(binSizes, 0);
+		count = 0;
+	}
+
+	/**
+	 * Receives the bands of a frame rendered by a {@link BandedRenderer}, from top to bottom.
+	 */
+	public static interface BandSink
+	{
+		/**
+		 * Called when a band is finished. The pixels are only valid during the call: the buffer
+		 * is reused for the next band.
+		 * @param y The row of the frame of the first row of the band.
+		 * @param rows The number of rows of the band.
+		 * @param argb The ARGB pixels of the band, row by row, from its first row.
+		 * @param scanline The number of pixels per row, the width of the frame.
+		 * @throws IOException If the band cannot be written.
+		 */
+		public void band(int y, int rows, int[] argb, int scanline) throws IOException;
+	}
+
+	/**
+	 * A {@link BandSink} writing the frame as a binary PPM image (P6, 8-bit RGB) to a stream, one band
+	 * at a time. Alpha is dropped: pixels not drawn are black.
+	 */
+	public static class PpmSink implements BandSink
+	{
+		/** The destination stream. */
+		private final OutputStream out;
+		/** Width of the image. */
+		private final int width;
+		/** Height of the image. */
+		private final int height;
+		/** Row of the next band expected. */
+		private int next;
+		/** Scratch RGB bytes of one row. */
+		private final byte[] row;
+
+		/**
+		 * Constructs a sink writing a frame of the given size. The header is written with the first band.
+		 * @param out The destination stream, which is neither buffered nor closed by the sink.
+		 * @param width The width of the frame.
+		 * @param height The height of the frame.
+		 */
+		public PpmSink(OutputStream out, int width, int height)
+		{
+			this.out = out;
+			this.width = width;
+			this.height = height;
+			this.row = new byte[3 * width];
+		}
+
+		@Override
+		public void band(int y, int rows, int[] argb, int scanline) throws IOException
+		{
+			if(y != next)
+				throw new IOException("PpmSink: expected the band at row " + next + ", got " + y);
+			if(y == 0)
+				out.write(("P6\n" + width + " " + height + "\n255\n").getBytes("US-ASCII"));
+			for(int r = 0; r < rows; r++)
+			{
+				for(int x = 0, i = r * scanline; x < width; x++, i++)
+				{
+					int c = argb[i];
+					row[3*x] = (byte)(c >> 16);
+					row[3*x + 1] = (byte)(c >> 8);
+					row[3*x + 2] = (byte)c;
+				}
+				out.write(row);
+			}
+			next = y + rows;
+			if(next >= height)
+				next = 0;
+			out.flush();
+		}
+	}
+}
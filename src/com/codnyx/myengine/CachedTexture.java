@@ -0,0 +1,175 @@
+package com.codnyx.myengine;
+
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * A texture whose texels are owned by a {@link TextureCache} and loaded on demand.
+ * <p>
+ * The handle itself only knows the location and the dimensions of its image, which are read from
+ * the image header when the handle is created; materials and polygons can therefore hold handles
+ * to any number of textures without keeping their texels in memory. The texels are decoded when the
+ * texture is first used, and may later be dropped again by the cache to stay within its memory
+ * budget: first the full resolution level, keeping the reduced ones, then the whole texture.
+ * <p>
+ * While the texels are not resident, sampling returns the placeholder color of the cache, or,
+ * if only the full resolution level was dropped, the nearest texel of the first reduced level.
+ * With a cache loading in the background, the renderer thus never waits for a decoder.
+ */
+public class CachedTexture extends Texture
+{
+	/**
+	 * The texels currently held for a handle: a texture standing for level {@code shift} and
+	 * below of the full chain. Replaced as a whole, so that samplers never see a partial update.
+	 */
+	static final class Resident
+	{
+		final ImageTexture texture;
+		final int shift;
+		final long bytes;
+
+		Resident(ImageTexture texture, int shift)
+		{
+			this.texture = texture;
+			this.shift = shift;
+			this.bytes = texture.getMemorySize();
+		}
+	}
+
+	/** The cache owning the texels. */
+	private final TextureCache cache;
+	/** The location of the image. */
+	private final URL location;
+	/** Dimensions of the full resolution image. */
+	private final int w, h;
+	/** Number of levels of the full chain. */
+	private final int levels;
+	/** The resident texels, or null if none are loaded. */
+	volatile Resident resident;
+	/** True while a load of the full resolution texels is pending. Set while holding this handle. */
+	volatile boolean loading;
+	/**
+	 * True if decoding failed or the handle was removed from its cache; the texture then stays a
+	 * placeholder. Set while holding this handle.
+	 */
+	volatile boolean failed;
+
+	/**
+	 * Constructs a handle. Handles are created by {@link TextureCache#get(URL)}.
+	 */
+	CachedTexture(TextureCache cache, URL location, int w, int h)
+	{
+		this.cache = cache;
+		this.location = location;
+		this.w = w;
+		this.h = h;
+		int levels = 1;
+		for(int s = Math.max(w, h); s > 1; s >>= 1)
+			levels++;
+		this.levels = levels;
+	}
+
+	/**
+	 * Records a use of this texture and, if its full resolution texels are not resident,
+	 * starts loading them.
+	 */
+	@Override
+	public void prepare()
+	{
+		cache.use(this);
+	}
+
+	/**
+	 * Returns the texels of this texture at full resolution, decoding them in the calling thread if
+	 * they are not resident. The returned texture remains valid after the cache drops it.
+	 *
+	 * @return The decoded texture, or null if the image could not be decoded.
+	 */
+	public ImageTexture load()
+	{
+		return cache.loadNow(this);
+	}
+
+	/**
+	 * Checks whether the full resolution texels are in memory.
+	 *
+	 * @return True if sampling returns the texels of the image at every level.
+	 */
+	public boolean isResident()
+	{
+		Resident r = resident;
+		return r != null && r.shift == 0;
+	}
+
+	@Override
+	public int getColor(int x, int y)
+	{
+		return getColor(x, y, 0);
+	}
+
+	@Override
+	public int getColor(int x, int y, int level)
+	{
+		Resident r = resident;
+		if(r == null || (r.shift > 0 && level < r.shift))
+		{
+			r = cache.miss(this);
+			if(r == null)
+				return cache.getPlaceholderColor();
+		}
+		if(level >= r.shift)
+			return r.texture.getColor(x, y, level - r.shift);
+		int s = r.shift - level;
+		return r.texture.getColor(x >> s, y >> s, 0);
+	}
+
+	@Override
+	public void sampleSpan(int u, int v, int du, int dv, int count, int level, int[] dst, int dstOff)
+	{
+		Resident r = resident;
+		if(r == null || (r.shift > 0 && level < r.shift))
+		{
+			r = cache.miss(this);
+			if(r == null)
+			{
+				Arrays.fill(dst, dstOff, dstOff + count, cache.getPlaceholderColor());
+				return;
+			}
+		}
+		if(level >= r.shift)
+		{
+			r.texture.sampleSpan(u, v, du, dv, count, level - r.shift, dst, dstOff);
+			return;
+		}
+		int s = r.shift - level;
+		r.texture.sampleSpan(u >> s, v >> s, du >> s, dv >> s, count, 0, dst, dstOff);
+	}
+
+	@Override
+	public int getLevelCount()
+	{
+		return levels;
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return w;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return h;
+	}
+
+	/**
+	 * Returns the location of the image of this texture.
+	 *
+	 * @return The URL of the image.
+	 */
+	public URL getLocation()
+	{
+		return location;
+	}
+}
@@ -0,0 +1,51 @@
+package com.codnyx.myengine;
+
+/**
+ * Storage formats of the depth buffer of a {@link PolygonRenderer}.
+ * <p>
+ * Depth values are in [0, 1], 0 being the near plane. The integer formats store them normalized to
+ * their full range and interpolate them along spans in fixed point, with {@link FixedPoint16#SCALE_BITS}
+ * fractional bits, so that the depth test is an integer compare. They take less memory, and thus
+ * less bandwidth per pixel, than floats, at the cost of precision: two surfaces closer than one
+ * depth unit may fight.
+ */
+public enum DepthFormat
+{
+	/** 32-bit floats; the most precise. */
+	FLOAT32(4, 0),
+	/** 24-bit unsigned integers, stored in ints. */
+	INT24(4, 0xFFFFFF),
+	/** 16-bit unsigned integers, stored in shorts; for low-memory targets. */
+	SHORT16(2, 0xFFFF);
+
+	/** Number of bytes per pixel. */
+	private final int bytes;
+	/** The integer stored for depth 1 (the far plane); 0 for floats. */
+	private final int maxValue;
+
+	private DepthFormat(int bytes, int maxValue)
+	{
+		this.bytes = bytes;
+		this.maxValue = maxValue;
+	}
+
+	/**
+	 * Returns the number of bytes used per pixel.
+	 *
+	 * @return The size of a depth value in bytes.
+	 */
+	public int getBytes()
+	{
+		return bytes;
+	}
+
+	/**
+	 * Returns the integer stored for the far plane, which is also the value the buffer is cleared to.
+	 *
+	 * @return The maximum depth value, or 0 for {@link #FLOAT32}.
+	 */
+	public int getMaxValue()
+	{
+		return maxValue;
+	}
+}
@@ -38,5 +38,22 @@ public class DirectionalLight
 	 */
 	public float specular_coeff = 0;
 	
-
+	/** Number of changes of this light, see {@link #getVersion()}. */
+	private int version;
+	
+	/**
+	 * Gets the version of this light, incremented by {@link #markChanged()}, so that a frame lit by it
+	 * can be reused while it is unchanged.
+	 * @return The number of changes of the light so far.
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Records a change of the fields of this light.
+	 */
+	public void markChanged() {
+		version++;
+	}
 }
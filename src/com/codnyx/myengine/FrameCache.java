@@ -0,0 +1,285 @@
+package com.codnyx.myengine;
+
+import java.util.ArrayList;
+
+/**
+ * Renders a scene of meshes, each placed by its own {@link AffineTransformation}, redrawing only
+ * what changed since the previous frame.
+ * <p>
+ * Each frame lists its meshes with {@link #add(Mesh, AffineTransformation)}, and its lights with
+ * {@link #add(DirectionalLight)}, between {@link #begin()} and {@link #render()}. The version counters of
+ * the meshes, transformations and lights ({@link Mesh#getVersion()}, {@link AffineTransformation#getVersion()},
+ * {@link DirectionalLight#getVersion()}) tell which changed since they were last drawn:
+ * <ul>
+ *   <li>if none did, the color and depth buffers of the previous frame are reused as they are;</li>
+ *   <li>if some meshes did, only the rectangle covering their previous and new screen bounds is cleared
+ *   and redrawn, with a {@link PolygonRenderer#setScissor(int, int, int, int) scissor rectangle},
+ *   from all the meshes of the frame in order;</li>
+ *   <li>the frame is drawn whole if the list of meshes or the lights changed, if the renderer changed
+ *   (perspective, buffers, depth format, resolution scale), if the rectangle covers most of the viewport, or with
+ *   {@link PolygonRenderer#setAlternatingDepth(boolean) alternating depth ranges} or
+ *   {@link PolygonRenderer#setInterlacing(Interlacing) interlaced frames}.</li>
+ * </ul>
+ * The frame is then committed as usual; its bounds ({@link PolygonRenderer#getBounds(int[])}) are those
+ * of the pixels redrawn, so that {@link PolygonRenderer#commit(java.awt.Graphics)} only presents these.
+ * <p>
+ * The buffers must keep the previous frame: the renderer is only drawn into by this cache, and its
+ * color buffer is not swapped between frames, which makes every frame whole.
+ * Changes the cache cannot observe, such as to the vertices of a mesh, must be recorded with
+ * {@link Mesh#markChanged()}, or the whole frame redrawn after {@link #invalidate()}.
+ */
+public class FrameCache
+{
+	/** How the frame was rendered. */
+	public static enum Result
+	{
+		/** Nothing changed: the previous frame was kept. */
+		REUSED,
+		/** Part of the frame was redrawn. */
+		PARTIAL,
+		/** The whole frame was redrawn. */
+		FULL
+	}
+
+	/** Fraction of the viewport above which the frame is drawn whole rather than in part. */
+	private static final float MAX_PARTIAL_AREA = 0.5f;
+	/** Bounds of no pixel. */
+	private static final int[] EMPTY = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
+
+	/** A mesh of the scene, with what it was last drawn with. */
+	private static final class Item
+	{
+		/** The mesh. */
+		Mesh mesh;
+		/** Its transformation. */
+		AffineTransformation transformation;
+		/** Version of the mesh when last drawn. */
+		int meshVersion;
+		/** Version of the transformation when last drawn. */
+		int transformationVersion;
+		/** Screen bounds of the mesh when last drawn. */
+		final int[] bounds = new int[4];
+
+		boolean isChanged()
+		{
+			return mesh.getVersion() != meshVersion || transformation.getVersion() != transformationVersion;
+		}
+	}
+
+	/** The renderer. */
+	private final PolygonRenderer renderer;
+	/** The meshes of the scene, in drawing order. */
+	private final ArrayList<Item> items = new ArrayList<Item>();
+	/** Number of meshes added to the current frame. */
+	private int count;
+	/** The lights of the scene. */
+	private final ArrayList<DirectionalLight> lights = new ArrayList<DirectionalLight>();
+	/** Versions of the lights when the last frame was drawn. */
+	private int[] lightVersions = new int[0];
+	/** Number of lights added to the current frame. */
+	private int lightCount;
+	/** True if the list of meshes or lights changed since the last frame. */
+	private boolean changed = true;
+	/** The perspective of the last frame. */
+	private PerspectiveTransformation projT;
+	/** The color buffer of the last frame. */
+	private int[] pixels;
+	/** The depth format of the last frame. */
+	private DepthFormat depthFormat;
+	/** The vertical offset of the last frame. */
+	private int yOffset;
+	/** The resolution scale of the last frame. */
+	private float renderScale;
+	/** Scratch bounds. */
+	private final int[] dirty = new int[4];
+
+	/**
+	 * Constructs a cache drawing into a renderer.
+	 * @param renderer The renderer, only drawn into by this cache.
+	 */
+	public FrameCache(PolygonRenderer renderer)
+	{
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Starts listing the meshes and lights of a frame.
+	 */
+	public void begin()
+	{
+		count = 0;
+		lightCount = 0;
+	}
+
+	/**
+	 * Adds a mesh to the frame, drawn after those added before.
+	 * @param mesh The mesh.
+	 * @param transformation The transformation placing the mesh in eye space, which belongs to the mesh:
+	 *        it is compared with that of the previous frame by identity and version.
+	 */
+	public void add(Mesh mesh, AffineTransformation transformation)
+	{
+		if(count == items.size())
+		{
+			items.add(new Item());
+			changed = true;
+		}
+		Item item = items.get(count++);
+		if(item.mesh != mesh || item.transformation != transformation)
+		{
+			item.mesh = mesh;
+			item.transformation = transformation;
+			changed = true;
+		}
+	}
+
+	/**
+	 * Adds a light to the frame. A change of a light redraws the whole frame.
+	 * @param light The light.
+	 */
+	public void add(DirectionalLight light)
+	{
+		if(lightCount == lights.size())
+		{
+			lights.add(light);
+			changed = true;
+		}
+		else if(lights.get(lightCount) != light)
+		{
+			lights.set(lightCount, light);
+			changed = true;
+		}
+		lightCount++;
+	}
+
+	/**
+	 * Makes the next frame drawn whole.
+	 */
+	public void invalidate()
+	{
+		changed = true;
+	}
+
+	/**
+	 * Renders the frame listed since {@link #begin()}, redrawing only what changed, see {@link FrameCache}.
+	 * The model transformation of the renderer is overwritten.
+	 * @return How the frame was rendered.
+	 */
+	public Result render()
+	{
+		if(count < items.size())
+		{
+			items.subList(count, items.size()).clear();
+			changed = true;
+		}
+		if(lightCount < lights.size())
+		{
+			lights.subList(lightCount, lights.size()).clear();
+			changed = true;
+		}
+		boolean full = changed || renderer.isAlternatingDepth() || renderer.getInterlacing() != Interlacing.NONE
+				|| renderer.getProjT() != projT
+				|| renderer.getColorBuffer() != pixels || renderer.getDepthFormat() != depthFormat
+				|| renderer.getYOffset() != yOffset || renderer.getRenderScale() != renderScale;
+		for(int i = 0; i < lightCount && !full; i++)
+			full = lights.get(i).getVersion() != lightVersions[i];
+		if(!full)
+		{
+			Result result = renderChanges();
+			if(result != null)
+				return result;
+		}
+
+		// Draw the whole frame
+		renderer.clean();
+		System.arraycopy(EMPTY, 0, dirty, 0, 4);
+		for(Item item: items)
+		{
+			draw(item);
+			union(dirty, item.bounds);
+		}
+		renderer.setBounds(dirty);
+		changed = false;
+		projT = renderer.getProjT();
+		pixels = renderer.getColorBuffer();
+		depthFormat = renderer.getDepthFormat();
+		yOffset = renderer.getYOffset();
+		renderScale = renderer.getRenderScale();
+		if(lightVersions.length < lightCount)
+			lightVersions = new int[lightCount];
+		for(int i = 0; i < lightCount; i++)
+			lightVersions[i] = lights.get(i).getVersion();
+		return Result.FULL;
+	}
+
+	/**
+	 * Redraws the rectangle covering the previous and new bounds of the meshes which changed.
+	 * @return How the frame was rendered, or null if it must be drawn whole.
+	 */
+	private Result renderChanges()
+	{
+		// Find the new bounds of the changed meshes without writing any pixel
+		System.arraycopy(EMPTY, 0, dirty, 0, 4);
+		renderer.setScissor(0, 0, 0, 0);
+		for(Item item: items)
+		{
+			if(!item.isChanged())
+				continue;
+			union(dirty, item.bounds);
+			draw(item);
+			union(dirty, item.bounds);
+		}
+		renderer.resetScissor();
+
+		int width = renderer.getRasterWidth(), height = renderer.getRasterHeight();
+		int x0 = Math.max(0, dirty[0]), y0 = Math.max(0, dirty[1]);
+		int x1 = Math.min(width - 1, dirty[2]), y1 = Math.min(height - 1, dirty[3]);
+		if(x0 > x1 || y0 > y1)
+		{
+			// Nothing changed on screen
+			renderer.setBounds(EMPTY);
+			return Result.REUSED;
+		}
+		if((float)(x1 - x0 + 1) * (y1 - y0 + 1) > MAX_PARTIAL_AREA * width * height)
+			return null;
+
+		renderer.clean(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+		renderer.setScissor(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+		for(Item item: items)
+		{
+			// Meshes entirely outside the rectangle draw nothing in it, and keep their bounds
+			int[] b = item.bounds;
+			if(b[0] <= x1 && b[2] >= x0 && b[1] <= y1 && b[3] >= y0)
+				draw(item);
+		}
+		renderer.resetScissor();
+		dirty[0] = x0;
+		dirty[1] = y0;
+		dirty[2] = x1;
+		dirty[3] = y1;
+		renderer.setBounds(dirty);
+		return Result.PARTIAL;
+	}
+
+	/**
+	 * Draws a mesh and records its screen bounds and versions.
+	 * @param item The mesh.
+	 */
+	private void draw(Item item)
+	{
+		renderer.setBounds(EMPTY);
+		renderer.getModelT().setTo(item.transformation);
+		item.mesh.render(renderer);
+		renderer.getBounds(item.bounds);
+		item.meshVersion = item.mesh.getVersion();
+		item.transformationVersion = item.transformation.getVersion();
+	}
+
+	private static void union(int[] bounds, int[] b)
+	{
+		bounds[0] = Math.min(bounds[0], b[0]);
+		bounds[1] = Math.min(bounds[1], b[1]);
+		bounds[2] = Math.max(bounds[2], b[2]);
+		bounds[3] = Math.max(bounds[3], b[3]);
+	}
+}
@@ -0,0 +1,180 @@
+package com.codnyx.myengine;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a render loop and runs its simulation with a fixed time step, decoupled from the frame rate.
+ * <p>
+ * The loop thread calls {@link #awaitFrame()} before each frame, runs the simulation as many steps of
+ * {@link #getStepSeconds()} as it returns, then renders. {@code awaitFrame} waits until the frame is due:
+ * <ul>
+ *   <li>with a target frame rate ({@link #setTargetFps(double)}), frames are due at regular deadlines.
+ *   The thread parks until just before the deadline and spins the rest of the way, as parking alone
+ *   overshoots by up to tens of microseconds; a loop falling behind skips the missed deadlines instead
+ *   of rendering a burst of frames to catch up;</li>
+ *   <li>without one, frames are due at once and the loop runs flat out;</li>
+ *   <li>on demand ({@link #setOnDemand(boolean)}), a frame is also only due once requested with
+ *   {@link #requestFrame()}, on input or when the scene changed: an idle loop parks and draws no power.
+ *   A scene which still changes after its update, an animation, requests the next frame itself.</li>
+ * </ul>
+ * Simulation time only advances while frames are rendered: after waiting for a request, the loop
+ * resumes where it stopped, and a loop which stalled runs at most {@link #MAX_STEPS} steps.
+ * <p>
+ * The loop methods are called from one thread; the setters and {@link #requestFrame()} from any.
+ */
+public class FrameScheduler
+{
+	/** Maximum number of simulation steps run before a frame. */
+	public static final int MAX_STEPS = 8;
+	/** How long before a deadline the loop stops parking and spins, in nanoseconds. */
+	private static final long SPIN_NANOS = 200000L;
+
+	/** Duration of a simulation step, in nanoseconds. */
+	private final long stepNanos;
+	/** Interval between frames with a target frame rate, in nanoseconds, or 0. */
+	private volatile long frameNanos;
+	/** Whether frames are only rendered on request. */
+	private volatile boolean onDemand;
+	/** Whether a frame was requested. */
+	private final AtomicBoolean requested = new AtomicBoolean(true);
+	/** The loop thread, while waiting for a request. */
+	private volatile Thread waiting;
+	/** Deadline of the next frame, with a target frame rate. */
+	private long deadline;
+	/** Time of the previous frame, or 0 before the first one. */
+	private long lastFrame;
+	/** Simulation time not yet run, in nanoseconds. */
+	private long accumulated;
+
+	/**
+	 * Constructs a scheduler rendering flat out.
+	 * @param updatesPerSecond The number of simulation steps per second of simulated time.
+	 */
+	public FrameScheduler(double updatesPerSecond)
+	{
+		if(updatesPerSecond <= 0)
+			throw new IllegalArgumentException("The update rate must be positive");
+		this.stepNanos = Math.max(1, Math.round(1e9 / updatesPerSecond));
+	}
+
+	/**
+	 * Sets the target frame rate.
+	 * @param fps The number of frames per second, or 0 to render as fast as possible.
+	 */
+	public void setTargetFps(double fps) {
+		if(fps < 0)
+			throw new IllegalArgumentException("The frame rate must not be negative");
+		this.frameNanos = fps == 0 ? 0 : Math.max(1, Math.round(1e9 / fps));
+	}
+
+	/**
+	 * Gets the target frame rate.
+	 * @return The number of frames per second, or 0 if frames are rendered as fast as possible.
+	 */
+	public double getTargetFps() {
+		long frameNanos = this.frameNanos;
+		return frameNanos == 0 ? 0 : 1e9 / frameNanos;
+	}
+
+	/**
+	 * Sets whether frames are only rendered on request.
+	 * @param onDemand true to render a frame only after {@link #requestFrame()}.
+	 */
+	public void setOnDemand(boolean onDemand) {
+		this.onDemand = onDemand;
+		if(!onDemand)
+			LockSupport.unpark(waiting);
+	}
+
+	/**
+	 * Tests whether frames are only rendered on request.
+	 * @return true if frames are rendered on request.
+	 */
+	public boolean isOnDemand() {
+		return onDemand;
+	}
+
+	/**
+	 * Gets the duration of a simulation step.
+	 * @return The duration, in seconds.
+	 */
+	public float getStepSeconds() {
+		return stepNanos / 1e9f;
+	}
+
+	/**
+	 * Requests a frame, in on-demand mode. Never waits: it may be called from input handlers.
+	 */
+	public void requestFrame()
+	{
+		if(!requested.getAndSet(true))
+			LockSupport.unpark(waiting);
+	}
+
+	/**
+	 * Waits until the next frame is due, see {@link FrameScheduler}.
+	 * @return The number of simulation steps to run before rendering the frame, at most {@link #MAX_STEPS}.
+	 * @throws InterruptedException If the thread is interrupted while waiting.
+	 */
+	public int awaitFrame() throws InterruptedException
+	{
+		if(onDemand && !requested.get())
+		{
+			waiting = Thread.currentThread();
+			while(onDemand && !requested.get())
+			{
+				LockSupport.park(this);
+				if(Thread.interrupted())
+				{
+					waiting = null;
+					throw new InterruptedException();
+				}
+			}
+			waiting = null;
+			// Simulation time does not run while idle
+			lastFrame = 0;
+		}
+		requested.set(false);
+
+		long frameNanos = this.frameNanos;
+		long now = System.nanoTime();
+		if(frameNanos > 0 && lastFrame != 0)
+		{
+			deadline += frameNanos;
+			if(deadline - now < -frameNanos)
+				deadline = now; // Too late: drop the missed frames rather than catching up
+			long wait;
+			while((wait = deadline - now) > 0)
+			{
+				if(wait > SPIN_NANOS)
+					LockSupport.parkNanos(this, wait - SPIN_NANOS);
+				else
+					Thread.onSpinWait();
+				if(Thread.interrupted())
+					throw new InterruptedException();
+				now = System.nanoTime();
+			}
+		}
+		else
+			deadline = now;
+
+		if(lastFrame != 0)
+			accumulated += now - lastFrame;
+		lastFrame = now;
+		int steps = (int)Math.min(MAX_STEPS, accumulated / stepNanos);
+		accumulated -= steps * stepNanos;
+		if(steps == MAX_STEPS)
+			accumulated %= stepNanos; // A stalled loop drops the time it cannot catch up
+		return steps;
+	}
+
+	/**
+	 * Gets how far the simulation time not yet run reaches into the next step, to interpolate the
+	 * state rendered between the last two steps.
+	 * @return The fraction of a step, between 0 and 1.
+	 */
+	public float getInterpolation() {
+		return (float)accumulated / stepNanos;
+	}
+}
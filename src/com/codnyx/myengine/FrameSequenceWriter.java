@@ -0,0 +1,243 @@
+package com.codnyx.myengine;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes the frames of an animation in the background while the next ones are rendered.
+ * <p>
+ * The writer owns a fixed pool of color buffers. {@link #swap(PolygonRenderer)} hands the finished
+ * frame of a renderer to the encoding threads and gives the renderer a free buffer to draw the next
+ * frame into ({@link PolygonRenderer#setColorBuffer(int[])}), so that frames are never copied and
+ * rasterization overlaps with encoding. A buffer returns to the pool once its frame is written. When
+ * the encoders fall behind and every buffer holds a frame waiting to be written, {@code swap} waits
+ * for one, which bounds memory and paces the renderer to the encoders.
+ * <p>
+ * Frames are numbered from 0 in the order they are handed over, and written by a {@link FrameEncoder},
+ * several at a time: encoders must not depend on the order of the frames, as those of
+ * {@link #png(File, String)} and {@link #raw(File, String)}, which write one file per frame, do not.
+ * <p>
+ * A writer is used by one rendering thread. The first encoding error is thrown by the next call of
+ * {@code swap}, {@link #submit(int[])} or {@link #close()}.
+ */
+public class FrameSequenceWriter implements Closeable
+{
+	/**
+	 * Encodes and writes one frame. Called from the encoding threads, concurrently for different frames.
+	 */
+	public static interface FrameEncoder
+	{
+		/**
+		 * Writes a frame. The pixels are only valid during the call.
+		 * @param frame The number of the frame, from 0.
+		 * @param argb The ARGB pixels of the frame, row by row.
+		 * @param width The width of the frame.
+		 * @param height The height of the frame.
+		 * @throws IOException If the frame cannot be written.
+		 */
+		public void encode(int frame, int[] argb, int width, int height) throws IOException;
+	}
+
+	/** Width of the frames. */
+	private final int width;
+	/** Height of the frames. */
+	private final int height;
+	/** The encoder of the frames. */
+	private final FrameEncoder encoder;
+	/** The buffers not holding a frame to write. */
+	private final BlockingQueue<int[]> free;
+	/** The encoding threads. */
+	private final ExecutorService encoders;
+	/** Number of the next frame handed over. */
+	private int next;
+	/** Number of frames written. */
+	private final AtomicInteger written = new AtomicInteger();
+	/** The first encoding error. */
+	private final AtomicReference<IOException> error = new AtomicReference<IOException>();
+
+	/**
+	 * Constructs a writer.
+	 * @param width The width of the frames.
+	 * @param height The height of the frames.
+	 * @param buffers The number of color buffers, at least 2: one being drawn, the others being
+	 *        written or waiting to be. One more than the number of threads keeps every encoder busy.
+	 * @param threads The number of encoding threads.
+	 * @param encoder The encoder of the frames.
+	 */
+	public FrameSequenceWriter(int width, int height, int buffers, int threads, FrameEncoder encoder)
+	{
+		if(buffers < 2 || threads < 1)
+			throw new IllegalArgumentException("At least 2 buffers and 1 thread are required");
+		this.width = width;
+		this.height = height;
+		this.encoder = encoder;
+		this.free = new ArrayBlockingQueue<int[]>(buffers);
+		for(int i = 0; i < buffers; i++)
+			free.add(new int[width * height]);
+		this.encoders = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "FrameSequenceWriter encoder");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Creates a renderer drawing into a buffer of this writer, to be handed over with
+	 * {@link #swap(PolygonRenderer)}.
+	 * @param config The configuration of the renderer, whose viewport must be the size of the frames.
+	 * @return The renderer.
+	 * @throws IOException If a previous frame could not be written.
+	 * @throws InterruptedIOException If interrupted while waiting for a free buffer.
+	 */
+	public PolygonRenderer newContext(RenderConfig config) throws IOException
+	{
+		return config.newContext(acquire(), null);
+	}
+
+	/**
+	 * Takes a free buffer, waiting while every buffer holds a frame to write.
+	 * @return A buffer of width*height pixels, to be handed back with {@link #submit(int[])}.
+	 * @throws IOException If a previous frame could not be written.
+	 * @throws InterruptedIOException If interrupted while waiting.
+	 */
+	public int[] acquire() throws IOException
+	{
+		checkError();
+		try {
+			return free.take();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a free buffer");
+		}
+	}
+
+	/**
+	 * Hands a finished frame over to the encoding threads. The buffer returns to the pool once written.
+	 * @param argb A buffer of this writer holding the frame.
+	 * @return The number of the frame.
+	 * @throws IOException If a previous frame could not be written.
+	 */
+	public int submit(int[] argb) throws IOException
+	{
+		checkError();
+		int frame = next++;
+		encoders.execute(() -> {
+			try {
+				if(error.get() == null)
+				{
+					encoder.encode(frame, argb, width, height);
+					written.incrementAndGet();
+				}
+			} catch(IOException e) {
+				error.compareAndSet(null, e);
+			} catch(RuntimeException e) {
+				error.compareAndSet(null, new IOException("Frame " + frame + " could not be encoded", e));
+			} finally {
+				free.add(argb);
+			}
+		});
+		return frame;
+	}
+
+	/**
+	 * Hands the finished frame of a renderer over to the encoding threads, after
+	 * {@link PolygonRenderer#commit()}, and makes the renderer draw the next frame into a free buffer.
+	 * @param renderer A renderer drawing into a buffer of this writer.
+	 * @return The number of the frame.
+	 * @throws IOException If a previous frame could not be written.
+	 * @throws InterruptedIOException If interrupted while waiting for a free buffer.
+	 */
+	public int swap(PolygonRenderer renderer) throws IOException
+	{
+		int[] next = acquire();
+		int frame = submit(renderer.getColorBuffer());
+		renderer.setColorBuffer(next);
+		return frame;
+	}
+
+	/**
+	 * Gets the number of frames written so far.
+	 * @return The number of frames.
+	 */
+	public int getWrittenFrames() {
+		return written.get();
+	}
+
+	/**
+	 * Waits until all the frames handed over are written and stops the encoding threads.
+	 * @throws IOException If a frame could not be written.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		encoders.shutdown();
+		try {
+			encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the frames to be written");
+		}
+		checkError();
+	}
+
+	private void checkError() throws IOException
+	{
+		IOException e = error.get();
+		if(e != null)
+			throw e;
+	}
+
+	/**
+	 * Returns an encoder writing each frame to a PNG file.
+	 * @param directory The directory of the files.
+	 * @param pattern The name of the files, formatted with the frame number, such as "frame%05d.png".
+	 * @return The encoder.
+	 */
+	public static FrameEncoder png(File directory, String pattern)
+	{
+		DirectColorModel model = (DirectColorModel)ColorModel.getRGBdefault();
+		return (frame, argb, width, height) -> {
+			BufferedImage image = new BufferedImage(model, Raster.createPackedRaster(new DataBufferInt(argb, width * height),
+					width, height, width, model.getMasks(), null), false, null);
+			File file = new File(directory, String.format(pattern, frame));
+			if(!ImageIO.write(image, "png", file))
+				throw new IOException("No PNG writer for " + file);
+		};
+	}
+
+	/**
+	 * Returns an encoder writing each frame to a raw file: the ARGB pixels row by row, as big-endian ints.
+	 * @param directory The directory of the files.
+	 * @param pattern The name of the files, formatted with the frame number, such as "frame%05d.argb".
+	 * @return The encoder.
+	 */
+	public static FrameEncoder raw(File directory, String pattern)
+	{
+		return (frame, argb, width, height) -> {
+			ByteBuffer bytes = ByteBuffer.allocate(4 * width * height);
+			bytes.asIntBuffer().put(argb, 0, width * height);
+			try(FileOutputStream out = new FileOutputStream(new File(directory, String.format(pattern, frame))))
+			{
+				out.write(bytes.array());
+			}
+		};
+	}
+}
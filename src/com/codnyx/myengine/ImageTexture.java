@@ -0,0 +1,245 @@
+package com.codnyx.myengine;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A {@link Texture} backed by a decoded image and addressed through per-vertex texture coordinates.
+ * Unlike {@link VertexTexture}, an ImageTexture holds no polygon-specific mapping: the renderer
+ * interpolates the (u,v) coordinates stored on each {@link Vertex} and scales them by the texture
+ * size, so a single instance (and its texel array) can be shared by every polygon of a material.
+ * <p>
+ * Texel coordinates outside the image wrap around (texture repeat). Power-of-two dimensions
+ * use a bitmask for wrapping; other sizes fall back to a modulo.
+ * <p>
+ * A chain of reduced resolution levels (mipmaps) is built whenever the image is set, so that the
+ * renderer can sample minified textures without aliasing. The texels of all levels can optionally
+ * be stored in a swizzled {@link TexelLayout}, which keeps 2D neighbourhoods in the same cache lines
+ * for spans that do not run along the rows of the texture. A swizzled texture keeps no row-major copy
+ * of its texels: the image is dropped once the chain is built, and {@link #getImage()} rebuilds one
+ * from the swizzled texels.
+ */
+public class ImageTexture extends Texture
+{
+	/**
+	 * The source image, always of type {@link BufferedImage#TYPE_INT_ARGB}, or null if the layout is
+	 * swizzled or the texture was built from the reduced levels of another.
+	 */
+	protected BufferedImage image;
+	/** Direct access to the ARGB texels of the full resolution level, row-major, or null if the layout is swizzled. */
+	protected int[] data;
+	/** Width of the texture in texels. */
+	private int w;
+	/** Height of the texture in texels. */
+	private int h;
+	/** Bitmask for wrapping x (w - 1), valid when {@link #pow2} is true. */
+	private int xmask;
+	/** Bitmask for wrapping y (h - 1), valid when {@link #pow2} is true. */
+	private int ymask;
+	/** True if both dimensions are powers of two, enabling mask-based wrapping. */
+	private boolean pow2;
+	/** The reduced resolution levels of the image; level 0 is {@link #data} if the layout is row-major. */
+	private MipChain mips;
+	/** The order in which the texels are stored for sampling. */
+	private TexelLayout layout = TexelLayout.ROW_MAJOR;
+
+	/**
+	 * Constructs a new ImageTexture from the given image.
+	 * Images not of type {@link BufferedImage#TYPE_INT_ARGB} are converted.
+	 *
+	 * @param image The source image.
+	 */
+	public ImageTexture(BufferedImage image)
+	{
+		setImage(image);
+	}
+
+	/**
+	 * Constructs a new ImageTexture from the given image, with its texels stored in the given layout.
+	 *
+	 * @param image The source image.
+	 * @param layout The order in which to store the texels for sampling.
+	 */
+	public ImageTexture(BufferedImage image, TexelLayout layout)
+	{
+		this.layout = layout;
+		setImage(image);
+	}
+
+	/**
+	 * Constructs a texture from the levels of a chain, sharing their texels.
+	 */
+	private ImageTexture(MipChain mips)
+	{
+		this.layout = mips.layout;
+		setSize(mips.widths[0], mips.heights[0]);
+		this.mips = mips;
+		if(layout == TexelLayout.ROW_MAJOR)
+			this.data = mips.data[0];
+	}
+
+	/**
+	 * Sets the image backing this texture, converting it to {@link BufferedImage#TYPE_INT_ARGB} if needed.
+	 * With a swizzled layout, the texture does not keep the image once its texels are stored.
+	 *
+	 * @param image The source image.
+	 */
+	public void setImage(BufferedImage image)
+	{
+		this.image = toARGB(image);
+		setSize(this.image.getWidth(), this.image.getHeight());
+		this.data = ((DataBufferInt)this.image.getRaster().getDataBuffer()).getData();
+		this.mips = new MipChain(data, w, h, layout);
+		if(mips.layout != TexelLayout.ROW_MAJOR)
+		{
+			// The swizzled level 0 is a copy: keeping the image would double the memory
+			this.image = null;
+			this.data = null;
+		}
+	}
+
+	/**
+	 * Sets the dimensions of the texture and its wrapping masks.
+	 */
+	private void setSize(int w, int h)
+	{
+		this.w = w;
+		this.h = h;
+		this.xmask = w - 1;
+		this.ymask = h - 1;
+		this.pow2 = (w & xmask) == 0 && (h & ymask) == 0;
+	}
+
+	/**
+	 * Sets the order in which texels are stored for sampling, rebuilding the stored texels.
+	 *
+	 * @param layout The texel layout.
+	 */
+	public void setLayout(TexelLayout layout)
+	{
+		this.layout = layout;
+		setImage(getImage());
+	}
+
+	/**
+	 * Returns the order in which texels are actually stored. Z-order requested for an image whose
+	 * dimensions are not powers of two is stored as {@link TexelLayout#TILED}.
+	 *
+	 * @return The texel layout in use.
+	 */
+	public TexelLayout getLayout()
+	{
+		return mips.layout;
+	}
+
+	/**
+	 * Returns the number of bytes of texels held by this texture: all its levels, the first of which is
+	 * the image if the layout is row-major.
+	 *
+	 * @return The size of the texture in bytes.
+	 */
+	public long getMemorySize()
+	{
+		return mips.getMemorySize();
+	}
+
+	/**
+	 * Returns a texture of half the size made of the reduced levels of this one, sharing their texels
+	 * in the same layout.
+	 *
+	 * @return The texture of the first reduced level and below.
+	 */
+	ImageTexture reduce()
+	{
+		return new ImageTexture(new MipChain(mips, 1));
+	}
+
+	/**
+	 * Returns the image backing this texture. With a swizzled layout, or for a texture of reduced
+	 * levels, a new image is rebuilt from the texels on each call.
+	 *
+	 * @return The ARGB image.
+	 */
+	public BufferedImage getImage()
+	{
+		if(image != null)
+			return image;
+		BufferedImage rebuilt = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		mips.copyLevel(0, ((DataBufferInt)rebuilt.getRaster().getDataBuffer()).getData());
+		return rebuilt;
+	}
+
+	/**
+	 * Retrieves the ARGB color at the given texel coordinates, wrapping them into the image.
+	 *
+	 * @param x The x-coordinate in texel space.
+	 * @param y The y-coordinate in texel space.
+	 * @return The ARGB color value of the texel.
+	 */
+	@Override
+	public int getColor(int x, int y)
+	{
+		if(layout != TexelLayout.ROW_MAJOR)
+			return mips.getColor(x, y, 0);
+		if(pow2)
+		{
+			x &= xmask;
+			y &= ymask;
+		}
+		else
+		{
+			x = Math.floorMod(x, w);
+			y = Math.floorMod(y, h);
+		}
+		return data[w * y + x];
+	}
+
+	@Override
+	public int getColor(int x, int y, int level)
+	{
+		return mips.getColor(x, y, level);
+	}
+
+	@Override
+	public void sampleSpan(int u, int v, int du, int dv, int count, int level, int[] dst, int dstOff)
+	{
+		mips.sampleSpan(u, v, du, dv, count, level, dst, dstOff);
+	}
+
+	@Override
+	public int getLevelCount()
+	{
+		return mips.getLevelCount();
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return w;
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return h;
+	}
+
+	/**
+	 * Returns an image of type {@link BufferedImage#TYPE_INT_ARGB} with the contents of the given image.
+	 * The image itself is returned if it already has the right type.
+	 *
+	 * @param image The image to convert.
+	 * @return An ARGB image.
+	 */
+	public static BufferedImage toARGB(BufferedImage image)
+	{
+		if(image.getType() == BufferedImage.TYPE_INT_ARGB)
+			return image;
+		BufferedImage argb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = argb.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return argb;
+	}
+}
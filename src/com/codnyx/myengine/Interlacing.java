@@ -0,0 +1,22 @@
+package com.codnyx.myengine;
+
+/**
+ * Patterns of the pixels a {@link PolygonRenderer} rasterizes in each frame, see
+ * {@link PolygonRenderer#setInterlacing(Interlacing)}.
+ * <p>
+ * The interlaced patterns rasterize half of the pixels of each frame, alternating between the two
+ * halves from frame to frame; the other half is reconstructed from the previous frame, reprojected,
+ * or from the neighboring pixels rasterized.
+ */
+public enum Interlacing
+{
+	/** Every pixel is rasterized. */
+	NONE,
+	/** Every other row is rasterized: even rows in one frame, odd rows in the next. */
+	ROWS,
+	/**
+	 * Every other pixel of each row is rasterized, shifted by one from row to row: the dark squares
+	 * of a checkerboard in one frame, the light ones in the next.
+	 */
+	CHECKERBOARD
+}
@@ -0,0 +1,238 @@
+package com.codnyx.myengine;
+
+import java.util.ArrayList;
+
+/**
+ * A mesh with a chain of levels of detail, from the full resolution mesh down to coarse
+ * simplifications of it.
+ * <p>
+ * When rendered, the level is chosen each frame from the projected size of the bounding sphere of
+ * the mesh: the finest level whose triangles still cover about {@link #getPixelsPerTriangle()}
+ * pixels each is used, so that distant objects do not pay for triangles smaller than a pixel.
+ * The polygons of this mesh are those of the full resolution level.
+ */
+public class LodMesh extends Mesh
+{
+	/** Default ratio between the triangle counts of two successive levels. */
+	public static final float DEFAULT_RATIO = 0.5f;
+
+	/** The levels of detail, from finest to coarsest. */
+	private final Mesh[] levels;
+	/** Number of triangles of each level. */
+	private final int[] triangleCounts;
+	/** Center of the bounding sphere, in model coordinates. */
+	private final float[] center = new float[3];
+	/** Radius of the bounding sphere, in model coordinates. */
+	private float radius;
+	/** The screen area, in pixels, each triangle should cover at least. */
+	private float pixelsPerTriangle = 8;
+	/**
+	 * The level selected by the last call to {@link #selectLevel(AffineTransformation, PerspectiveTransformation)},
+	 * by any thread: informational only, rendering uses the level it selected itself.
+	 */
+	private volatile int currentLevel = 0;
+
+	/**
+	 * Constructs a LodMesh from precomputed levels.
+	 *
+	 * @param levels The levels of detail, from finest to coarsest. Must contain at least one mesh.
+	 */
+	public LodMesh(Mesh[] levels)
+	{
+		if(levels.length == 0)
+			throw new IllegalArgumentException("At least one level is required");
+		this.levels = levels.clone();
+		this.polygons = levels[0].polygons;
+		triangleCounts = new int[levels.length];
+		for(int i = 0; i < levels.length; i++)
+			triangleCounts[i] = countTriangles(levels[i]);
+		computeBounds(levels[0]);
+	}
+
+	/**
+	 * Generates the levels of detail of a mesh by quadric error simplification. Each level has
+	 * {@code ratio} times the triangles of the previous one; generation stops when a level would have
+	 * fewer than {@code minTriangles} triangles or when the simplifier can no longer reduce the mesh.
+	 *
+	 * @param base The full resolution mesh, used as level 0.
+	 * @param maxLevels The maximum number of levels, including the base mesh.
+	 * @param ratio The ratio between the triangle counts of successive levels, in (0, 1).
+	 * @param minTriangles The minimum number of triangles of the coarsest level.
+	 * @return The new LodMesh.
+	 */
+	public static LodMesh generate(Mesh base, int maxLevels, float ratio, int minTriangles)
+	{
+		ArrayList<Mesh> levels = new ArrayList<Mesh>();
+		levels.add(base);
+		MeshSimplifier simplifier = new MeshSimplifier();
+		int triangles = countTriangles(base);
+		while(levels.size() < maxLevels)
+		{
+			int target = (int)(triangles * ratio);
+			if(target < minTriangles)
+				break;
+			// Each level is simplified from the base mesh, so errors do not accumulate
+			Mesh level = simplifier.simplify(base, target);
+			int count = countTriangles(level);
+			if(count >= triangles)
+				break;
+			levels.add(level);
+			triangles = count;
+		}
+		return new LodMesh(levels.toArray(new Mesh[levels.size()]));
+	}
+
+	/**
+	 * Selects the level of detail to use for the given transformations. Safe to call from
+	 * several threads rendering this mesh at once.
+	 *
+	 * @param modelT The transformation from model to eye coordinates.
+	 * @param projT The projection to the screen.
+	 * @return The index of the selected level.
+	 */
+	public int selectLevel(AffineTransformation modelT, PerspectiveTransformation projT)
+	{
+		float[] m = modelT.getMatrix();
+		float distance = -(m[8]*center[0] + m[9]*center[1] + m[10]*center[2] + m[11]);
+		// The model transformation may scale: measure the radius along each axis
+		float r = 0;
+		for(int i = 0; i < 3; i++)
+		{
+			float dx = m[i], dy = m[4 + i], dz = m[8 + i];
+			r = Math.max(r, (float)Math.sqrt(dx*dx + dy*dy + dz*dz));
+		}
+		r *= radius;
+		if(distance <= r) {
+			// The eye is inside the bounding sphere
+			currentLevel = 0;
+			return 0;
+		}
+		float projectedRadius = r * projT.getFocalLength() / distance;
+		float budget = (float)(Math.PI * projectedRadius * projectedRadius) / pixelsPerTriangle;
+		int level = levels.length - 1;
+		for(int i = 0; i < levels.length; i++)
+		{
+			if(triangleCounts[i] <= budget) {
+				level = i;
+				break;
+			}
+		}
+		currentLevel = level;
+		return level;
+	}
+
+	/**
+	 * Renders the level of detail matching the current transformations of the renderer.
+	 *
+	 * @param renderer The polygon renderer to use.
+	 */
+	@Override
+	public void render(PolygonRenderer renderer)
+	{
+		int level = selectLevel(renderer.getModelT(), renderer.getProjT());
+		levels[level].render(renderer);
+	}
+
+	/**
+	 * Builds the meshlets of every level of detail.
+	 *
+	 * @param builder The builder used to cluster the polygons.
+	 */
+	@Override
+	public void buildMeshlets(MeshletBuilder builder)
+	{
+		for(Mesh level: levels)
+			level.buildMeshlets(builder);
+	}
+
+	private void computeBounds(Mesh mesh)
+	{
+		float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+		float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+		for(Polygon p: mesh.polygons)
+		{
+			if(p == null)
+				continue;
+			for(Vertex v: p.vertices)
+				for(int i = 0; i < 3; i++) {
+					min[i] = Math.min(min[i], v.point[i]);
+					max[i] = Math.max(max[i], v.point[i]);
+				}
+		}
+		if(min[0] > max[0])
+			return; // Empty mesh
+		for(int i = 0; i < 3; i++)
+			center[i] = (min[i] + max[i]) / 2;
+		float r2 = 0;
+		for(Polygon p: mesh.polygons)
+		{
+			if(p == null)
+				continue;
+			for(Vertex v: p.vertices)
+			{
+				float dx = v.point[0] - center[0], dy = v.point[1] - center[1], dz = v.point[2] - center[2];
+				r2 = Math.max(r2, dx*dx + dy*dy + dz*dz);
+			}
+		}
+		radius = (float)Math.sqrt(r2);
+	}
+
+	private static int countTriangles(Mesh mesh)
+	{
+		int count = 0;
+		for(Polygon p: mesh.polygons)
+			if(p != null)
+				count += p.vertices.length - 2;
+		return count;
+	}
+
+	/**
+	 * Gets the number of levels of detail.
+	 * @return The number of levels.
+	 */
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	/**
+	 * Gets a level of detail.
+	 * @param level The index of the level, 0 being the full resolution mesh.
+	 * @return The mesh of the level.
+	 */
+	public Mesh getLevel(int level) {
+		return levels[level];
+	}
+
+	/**
+	 * Gets the number of triangles of a level of detail.
+	 * @param level The index of the level.
+	 * @return The number of triangles.
+	 */
+	public int getTriangleCount(int level) {
+		return triangleCounts[level];
+	}
+
+	/**
+	 * Gets the level selected for the last rendered frame.
+	 * @return The index of the level.
+	 */
+	public int getCurrentLevel() {
+		return currentLevel;
+	}
+
+	/**
+	 * Gets the radius of the bounding sphere, in model coordinates.
+	 * @return The radius.
+	 */
+	public float getRadius() {
+		return radius;
+	}
+
+	public float getPixelsPerTriangle() {
+		return pixelsPerTriangle;
+	}
+
+	public void setPixelsPerTriangle(float pixelsPerTriangle) {
+		this.pixelsPerTriangle = pixelsPerTriangle;
+	}
+}
@@ -0,0 +1,27 @@
+package com.codnyx.myengine;
+
+/**
+ * Surface properties shared by a group of polygons, as declared in a Wavefront MTL file.
+ * Only the properties used by the renderer are kept: the diffuse color ({@code Kd}), which is
+ * applied as vertex color, and the diffuse texture map ({@code map_Kd}).
+ * The texture is shared by every polygon using the material.
+ */
+public class Material
+{
+	/** The name of the material, as referenced by {@code usemtl}. */
+	public final String name;
+	/** The diffuse color (ARGB integer). Defaults to white. */
+	public int diffuseColor = Vertex.COLOR_WHITE;
+	/** The diffuse texture map, or null if the material is untextured. */
+	public Texture diffuseMap;
+
+	/**
+	 * Constructs a new untextured, white Material.
+	 *
+	 * @param name The name of the material.
+	 */
+	public Material(String name)
+	{
+		this.name = name;
+	}
+}
@@ -14,13 +14,25 @@ public class Mesh
 	public LinkedList<Polygon> polygons = new LinkedList<Polygon>();
 	
 	/**
-	 * Adds a single polygon to this mesh.
+	 * The clusters the polygons are split into for culling, or null to render polygons one by one.
+	 * Dropped when polygons are added; must be rebuilt after other changes of the polygons.
+	 */
+	private Meshlet[] meshlets;
+	
+	/** Number of changes of this mesh, see {@link #getVersion()}. */
+	private int version;
+	
+	/**
+	 * Adds a single polygon to this mesh. The meshlets, which would not draw it, are dropped until
+	 * {@link #buildMeshlets(MeshletBuilder)} is called again.
 	 * 
 	 * @param polygon The polygon to add.
 	 */
 	public void addPolygon(Polygon polygon)
 	{
 		polygons.add(polygon);
+		meshlets = null;
+		version++;
 	}
 	
 	/**
@@ -35,15 +47,80 @@ public class Mesh
 	}
 	
 	/**
-	 * Renders all polygons in this mesh using the provided renderer and graphics context.
+	 * Splits the polygons of this mesh into meshlets, so that rendering culls whole clusters
+	 * that are back-facing or outside the frustum before testing their polygons.
+	 * 
+	 * @param builder The builder used to cluster the polygons.
+	 */
+	public void buildMeshlets(MeshletBuilder builder)
+	{
+		this.meshlets = builder.build(this);
+		version++;
+	}
+	
+	/**
+	 * Gets the meshlets of this mesh.
+	 * @return The meshlets, or null if they have not been built.
+	 */
+	public Meshlet[] getMeshlets() {
+		return meshlets;
+	}
+	
+	/**
+	 * Sets the meshlets of this mesh.
+	 * @param meshlets The meshlets, covering every polygon of the mesh, or null to render polygons one by one.
+	 */
+	public void setMeshlets(Meshlet[] meshlets) {
+		this.meshlets = meshlets;
+		version++;
+	}
+	
+	/**
+	 * Gets the version of this mesh, incremented when polygons are added, when the meshlets change,
+	 * and by {@link #markChanged()}, so that a frame drawn with it can be reused while it is unchanged.
+	 * @return The number of changes of the mesh so far.
+	 */
+	public int getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Records a change made directly to the polygons of this mesh, their vertices, colors or textures,
+	 * which the mesh cannot observe. Polygons added to or removed from {@link #polygons} directly also
+	 * require the meshlets to be built again with {@link #buildMeshlets(MeshletBuilder)}, or dropped
+	 * with {@link #setMeshlets(Meshlet[])}.
+	 */
+	public void markChanged() {
+		version++;
+	}
+	
+	/**
+	 * Renders all polygons in this mesh using the provided renderer and graphics context,
+	 * see {@link #render(PolygonRenderer)}.
 	 * 
 	 * @param renderer The polygon renderer to use.
-	 * @param g The graphics context to render on.
+	 * @param g The graphics context to render on (unused, rendering is to the renderer's color buffer).
 	 */
 	public void render(PolygonRenderer renderer, Graphics g)
 	{
+		render(renderer);
+	}
+	
+	/**
+	 * Renders all polygons in this mesh into the color buffer of the provided renderer.
+	 * If the mesh has meshlets, they are rendered instead, culling whole clusters where possible.
+	 * 
+	 * @param renderer The polygon renderer to use.
+	 */
+	public void render(PolygonRenderer renderer)
+	{
+		if(meshlets != null) {
+			for(Meshlet m: meshlets)
+				renderer.render(m);
+			return;
+		}
 		for(Polygon p: polygons)
-			renderer.render(g, p);
+			renderer.render(p);
 	}
 
 }
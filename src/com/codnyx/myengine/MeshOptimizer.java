@@ -0,0 +1,493 @@
+package com.codnyx.myengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+
+/**
+ * Reorders the triangles of an indexed mesh for vertex reuse and reduced overdraw.
+ * <p>
+ * Triangles are first sorted with Forsyth's "linear-speed vertex cache optimisation": a simulated
+ * LRU cache scores each vertex by its cache position and the number of triangles still using it,
+ * and the triangle with the best score is emitted next. Consecutive triangles then share most of
+ * their corners, which improves the hit rate of any post-transform vertex cache and keeps the
+ * vertex data touched by neighbouring triangles close together.
+ * <p>
+ * The cache-friendly sequence is then split into clusters (Tipsify-style: at cache restarts, and
+ * wherever a cluster already reuses vertices about as well as the whole mesh) and the clusters are
+ * sorted by their occlusion potential, the dot product of their outward offset from the mesh
+ * centroid and their average normal. Outward-facing clusters on the hull of the mesh come first, so
+ * from most viewpoints near surfaces are drawn before the ones they hide and more pixels fail the
+ * depth test before being shaded.
+ * <p>
+ * Finally {@link #reorderVertices(int[], int)} renumbers vertices in the order triangles first
+ * use them, so vertex data can be laid out in the same order it is read.
+ * <p>
+ * The optimizer can be used on raw index arrays, on a {@link Mesh} ({@link #optimize(Mesh)}), or at
+ * load time through {@link ObjParser#setOptimizeMesh(boolean)}.
+ */
+public class MeshOptimizer
+{
+	/** Default size of the FIFO vertex cache used to find cluster boundaries and measure ACMR. */
+	public static final int DEFAULT_CACHE_SIZE = 16;
+	/** Size of the LRU cache used for vertex scoring, as recommended by Forsyth. */
+	private static final int SCORE_CACHE_SIZE = 32;
+	/** Minimum number of triangles in a cluster; smaller clusters cost more vertex reuse than they save in overdraw. */
+	private static final int MIN_CLUSTER_SIZE = 64;
+
+	/** Size of the simulated FIFO vertex cache. */
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+	/**
+	 * A cluster may end once its ACMR is no worse than this factor times the ACMR of the whole mesh.
+	 * Larger values give smaller clusters: better overdraw ordering, worse vertex reuse.
+	 */
+	private float overdrawThreshold = 1.0f;
+	/** If true, clusters are sorted to reduce overdraw after the vertex cache pass. */
+	private boolean optimizeOverdraw = true;
+
+	/**
+	 * Reorders the triangles of an indexed triangle list.
+	 *
+	 * @param indices The triangle list, three vertex indices per triangle. It is not modified.
+	 * @param positions The positions of the vertices, indexed like {@code indices}. May be null,
+	 *                  in which case only the vertex cache pass is run.
+	 * @param vertexCount The number of vertices referenced by the indices.
+	 * @return A new triangle list with the same triangles in optimized order.
+	 */
+	public int[] reorderTriangles(int[] indices, float[][] positions, int vertexCount)
+	{
+		int[] order = computeTriangleOrder(indices, positions, vertexCount);
+		int[] result = new int[order.length * 3];
+		for(int i = 0; i < order.length; i++)
+			System.arraycopy(indices, order[i] * 3, result, i * 3, 3);
+		return result;
+	}
+
+	/**
+	 * Computes the optimized order of the triangles of an indexed triangle list.
+	 *
+	 * @param indices The triangle list, three vertex indices per triangle. It is not modified.
+	 * @param positions The positions of the vertices, indexed like {@code indices}. May be null,
+	 *                  in which case only the vertex cache pass is run.
+	 * @param vertexCount The number of vertices referenced by the indices.
+	 * @return The triangle order: element {@code i} is the index of the triangle to draw {@code i}-th.
+	 */
+	public int[] computeTriangleOrder(int[] indices, float[][] positions, int vertexCount)
+	{
+		int[] order = optimizeVertexCache(indices, vertexCount);
+		if(optimizeOverdraw && positions != null)
+			order = optimizeOverdraw(indices, order, positions, vertexCount);
+		return order;
+	}
+
+	/**
+	 * Renumbers the vertices of a triangle list in the order in which the triangles first use them.
+	 * The indices are rewritten in place; vertices not referenced by any triangle keep their relative
+	 * order after the referenced ones.
+	 *
+	 * @param indices The triangle list to renumber.
+	 * @param vertexCount The number of vertices.
+	 * @return The new vertex order: element {@code i} is the old index of the vertex now numbered {@code i}.
+	 */
+	public int[] reorderVertices(int[] indices, int vertexCount)
+	{
+		int[] remap = new int[vertexCount];
+		Arrays.fill(remap, -1);
+		int[] order = new int[vertexCount];
+		int next = 0;
+		for(int i = 0; i < indices.length; i++)
+		{
+			int v = indices[i];
+			if(remap[v] < 0)
+			{
+				remap[v] = next;
+				order[next++] = v;
+			}
+			indices[i] = remap[v];
+		}
+		for(int v = 0; v < vertexCount; v++)
+			if(remap[v] < 0)
+				order[next++] = v;
+		return order;
+	}
+
+	/**
+	 * Reorders the triangles of a mesh in place. Polygons are matched by vertex identity, so the
+	 * mesh should share {@link Vertex} objects between adjacent polygons (as meshes built by
+	 * {@link ObjParser} do). Polygons that are not triangles keep their relative order at the end.
+	 *
+	 * @param mesh The mesh whose polygon list is reordered.
+	 */
+	public void optimize(Mesh mesh)
+	{
+		IdentityHashMap<Vertex, Integer> ids = new IdentityHashMap<Vertex, Integer>();
+		ArrayList<float[]> positions = new ArrayList<float[]>();
+		ArrayList<Polygon> triangles = new ArrayList<Polygon>();
+		LinkedList<Polygon> others = new LinkedList<Polygon>();
+		int[] indices = new int[mesh.polygons.size() * 3];
+		for(Polygon p: mesh.polygons)
+		{
+			if(p == null || p.vertices.length != 3) {
+				others.add(p);
+				continue;
+			}
+			for(int k = 0; k < 3; k++)
+			{
+				Integer id = ids.get(p.vertices[k]);
+				if(id == null) {
+					id = positions.size();
+					ids.put(p.vertices[k], id);
+					positions.add(p.vertices[k].point);
+				}
+				indices[triangles.size() * 3 + k] = id;
+			}
+			triangles.add(p);
+		}
+		if(triangles.size() < 2)
+			return;
+
+		int vertexCount = positions.size();
+		int[] order = computeTriangleOrder(Arrays.copyOf(indices, triangles.size() * 3),
+				positions.toArray(new float[vertexCount][]), vertexCount);
+		LinkedList<Polygon> sorted = new LinkedList<Polygon>();
+		for(int t: order)
+			sorted.add(triangles.get(t));
+		sorted.addAll(others);
+		mesh.polygons = sorted;
+	}
+
+	/**
+	 * Computes the average cache miss ratio (ACMR) of a triangle list: the number of vertices
+	 * that miss a FIFO post-transform cache of the given size, per triangle. It ranges from 3
+	 * (no reuse) down to about 0.5 for large regular meshes.
+	 *
+	 * @param indices The triangle list.
+	 * @param cacheSize The number of entries in the simulated cache.
+	 * @return The average number of cache misses per triangle, or 0 for an empty list.
+	 */
+	public static float computeACMR(int[] indices, int cacheSize)
+	{
+		int triangles = indices.length / 3;
+		if(triangles == 0)
+			return 0;
+		int misses = 0;
+		FifoCache cache = new FifoCache(cacheSize, maxIndex(indices) + 1);
+		for(int i = 0; i < triangles * 3; i++)
+			if(!cache.access(indices[i]))
+				misses++;
+		return (float)misses / triangles;
+	}
+
+	/**
+	 * Forsyth's greedy vertex cache optimization.
+	 * @return The triangle order.
+	 */
+	private int[] optimizeVertexCache(int[] indices, int vertexCount)
+	{
+		int triCount = indices.length / 3;
+		int[] result = new int[triCount];
+
+		// Triangle adjacency per vertex: adjacency[adjOffset[v] .. adjOffset[v] + live[v]]
+		int[] live = new int[vertexCount];
+		for(int i = 0; i < triCount * 3; i++)
+			live[indices[i]]++;
+		int[] adjOffset = new int[vertexCount + 1];
+		for(int v = 0; v < vertexCount; v++)
+			adjOffset[v + 1] = adjOffset[v] + live[v];
+		int[] adjacency = new int[triCount * 3];
+		int[] fill = Arrays.copyOf(adjOffset, vertexCount);
+		for(int i = 0; i < triCount * 3; i++)
+			adjacency[fill[indices[i]]++] = i / 3;
+
+		int[] cachePos = new int[vertexCount];
+		Arrays.fill(cachePos, -1);
+		float[] vertexScore = new float[vertexCount];
+		for(int v = 0; v < vertexCount; v++)
+			vertexScore[v] = vertexScore(cachePos[v], live[v]);
+		float[] triScore = new float[triCount];
+		boolean[] emitted = new boolean[triCount];
+		int best = -1;
+		float bestScore = -1;
+		for(int t = 0; t < triCount; t++)
+		{
+			triScore[t] = vertexScore[indices[t*3]] + vertexScore[indices[t*3+1]] + vertexScore[indices[t*3+2]];
+			if(triScore[t] > bestScore) {
+				bestScore = triScore[t];
+				best = t;
+			}
+		}
+
+		int[] cache = new int[SCORE_CACHE_SIZE + 3];
+		int[] newCache = new int[SCORE_CACHE_SIZE + 3];
+		int cacheCount = 0;
+		int cursor = 0;
+		for(int out = 0; out < triCount; out++)
+		{
+			if(best < 0)
+			{
+				// No candidate around the cache: continue with the next triangle in input order
+				while(emitted[cursor])
+					cursor++;
+				best = cursor;
+			}
+			emitted[best] = true;
+			result[out] = best;
+			int newCount = 0;
+			for(int k = 0; k < 3; k++)
+			{
+				int v = indices[best*3 + k];
+				removeAdjacency(adjacency, adjOffset[v], live[v], best);
+				live[v]--;
+				if(!contains(newCache, newCount, v))
+					newCache[newCount++] = v;
+			}
+			for(int i = 0; i < cacheCount; i++)
+			{
+				int v = cache[i];
+				if(!contains(newCache, newCount, v))
+					newCache[newCount++] = v;
+			}
+			// Vertices pushed out of the scoring cache lose their cache bonus
+			for(int i = SCORE_CACHE_SIZE; i < newCount; i++)
+			{
+				int v = newCache[i];
+				cachePos[v] = -1;
+				vertexScore[v] = vertexScore(-1, live[v]);
+				updateTriangleScores(v, adjacency, adjOffset, live, indices, vertexScore, triScore);
+			}
+			cacheCount = Math.min(newCount, SCORE_CACHE_SIZE);
+			int[] swap = cache;
+			cache = newCache;
+			newCache = swap;
+			for(int i = 0; i < cacheCount; i++)
+			{
+				int v = cache[i];
+				cachePos[v] = i;
+				vertexScore[v] = vertexScore(i, live[v]);
+			}
+			// Pick the next triangle among those touching the cache
+			best = -1;
+			bestScore = -1;
+			for(int i = 0; i < cacheCount; i++)
+			{
+				int v = cache[i];
+				updateTriangleScores(v, adjacency, adjOffset, live, indices, vertexScore, triScore);
+				for(int a = adjOffset[v], end = adjOffset[v] + live[v]; a < end; a++)
+				{
+					int t = adjacency[a];
+					if(triScore[t] > bestScore) {
+						bestScore = triScore[t];
+						best = t;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static void updateTriangleScores(int v, int[] adjacency, int[] adjOffset, int[] live, int[] indices, float[] vertexScore, float[] triScore)
+	{
+		for(int a = adjOffset[v], end = adjOffset[v] + live[v]; a < end; a++)
+		{
+			int t = adjacency[a];
+			triScore[t] = vertexScore[indices[t*3]] + vertexScore[indices[t*3+1]] + vertexScore[indices[t*3+2]];
+		}
+	}
+
+	private static void removeAdjacency(int[] adjacency, int offset, int count, int triangle)
+	{
+		for(int a = offset, end = offset + count; a < end; a++)
+		{
+			if(adjacency[a] == triangle) {
+				adjacency[a] = adjacency[end - 1];
+				return;
+			}
+		}
+	}
+
+	private static boolean contains(int[] values, int count, int value)
+	{
+		for(int i = 0; i < count; i++)
+			if(values[i] == value)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Forsyth's vertex score: a bonus for recently used vertices (flat for the last triangle's
+	 * corners, decaying with cache position) plus a bonus for vertices with few remaining triangles,
+	 * so that isolated triangles are not left behind.
+	 */
+	private static float vertexScore(int cachePos, int liveTriangles)
+	{
+		if(liveTriangles == 0)
+			return -1;
+		float score = 0;
+		if(cachePos >= 0)
+		{
+			if(cachePos < 3)
+				score = 0.75f;
+			else
+				score = (float)Math.pow(1.0f - (cachePos - 3) / (float)(SCORE_CACHE_SIZE - 3), 1.5f);
+		}
+		return score + 2.0f / (float)Math.sqrt(liveTriangles);
+	}
+
+	/**
+	 * Splits a cache-optimized triangle order into clusters and sorts them by occlusion potential.
+	 * @return The new triangle order.
+	 */
+	private int[] optimizeOverdraw(int[] indices, int[] order, float[][] positions, int vertexCount)
+	{
+		int triCount = order.length;
+		int[] misses = new int[triCount];
+		int totalMisses = 0;
+		FifoCache cache = new FifoCache(cacheSize, vertexCount);
+		for(int t = 0; t < triCount; t++)
+		{
+			for(int k = 0; k < 3; k++)
+				if(!cache.access(indices[order[t]*3 + k]))
+					misses[t]++;
+			totalMisses += misses[t];
+		}
+		float acmr = (float)totalMisses / triCount;
+
+		// Split at hard boundaries where the cache restarts (all corners missed) and at soft ones
+		// where the cluster already reuses vertices as well as the mesh as a whole
+		ArrayList<Integer> starts = new ArrayList<Integer>();
+		int start = 0, clusterMisses = 0;
+		starts.add(0);
+		for(int t = 0; t < triCount; t++)
+		{
+			if(t - start >= MIN_CLUSTER_SIZE && misses[t] == 3) {
+				starts.add(t);
+				start = t;
+				clusterMisses = 0;
+			}
+			clusterMisses += misses[t];
+			int size = t - start + 1;
+			if(size >= MIN_CLUSTER_SIZE && t + 1 < triCount && clusterMisses <= overdrawThreshold * acmr * size) {
+				starts.add(t + 1);
+				start = t + 1;
+				clusterMisses = 0;
+			}
+		}
+		int clusterCount = starts.size();
+		if(clusterCount < 2)
+			return order;
+
+		// Area-weighted centroid and normal of each cluster, and of the whole mesh
+		float[][] centroids = new float[clusterCount][3];
+		float[][] normals = new float[clusterCount][3];
+		float[] meshCentroid = {0,0,0};
+		float meshArea = 0;
+		float[] e1 = {0,0,0}, e2 = {0,0,0}, n = {0,0,0};
+		for(int c = 0; c < clusterCount; c++)
+		{
+			int end = c + 1 < clusterCount ? starts.get(c + 1) : triCount;
+			float area = 0;
+			for(int t = starts.get(c); t < end; t++)
+			{
+				int tri = order[t] * 3;
+				float[] p0 = positions[indices[tri]], p1 = positions[indices[tri+1]], p2 = positions[indices[tri+2]];
+				MyMath.subtract(p1, p0, e1);
+				MyMath.subtract(p2, p0, e2);
+				MyMath.crossProduct(e1, e2, n);
+				float a = MyMath.length(n);
+				MyMath.add(normals[c], n, normals[c]);
+				for(int k = 0; k < 3; k++)
+					centroids[c][k] += a * (p0[k] + p1[k] + p2[k]) / 3;
+				area += a;
+			}
+			MyMath.add(meshCentroid, centroids[c], meshCentroid);
+			meshArea += area;
+			if(area > 0)
+				MyMath.multiply(centroids[c], 1.0f / area, centroids[c]);
+		}
+		if(meshArea > 0)
+			MyMath.multiply(meshCentroid, 1.0f / meshArea, meshCentroid);
+
+		Integer[] clusters = new Integer[clusterCount];
+		final float[] sortKey = new float[clusterCount];
+		for(int c = 0; c < clusterCount; c++)
+		{
+			clusters[c] = c;
+			MyMath.subtract(centroids[c], meshCentroid, e1);
+			sortKey[c] = MyMath.dotProduct(e1, normals[c]);
+		}
+		Arrays.sort(clusters, (a, b) -> Float.compare(sortKey[b], sortKey[a]));
+
+		int[] result = new int[triCount];
+		int out = 0;
+		for(int c: clusters)
+		{
+			int from = starts.get(c);
+			int to = c + 1 < clusterCount ? starts.get(c + 1) : triCount;
+			System.arraycopy(order, from, result, out, to - from);
+			out += to - from;
+		}
+		return result;
+	}
+
+	private static int maxIndex(int[] indices)
+	{
+		int max = -1;
+		for(int i: indices)
+			if(i > max)
+				max = i;
+		return max;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public float getOverdrawThreshold() {
+		return overdrawThreshold;
+	}
+
+	public void setOverdrawThreshold(float overdrawThreshold) {
+		this.overdrawThreshold = overdrawThreshold;
+	}
+
+	public boolean isOptimizeOverdraw() {
+		return optimizeOverdraw;
+	}
+
+	public void setOptimizeOverdraw(boolean optimizeOverdraw) {
+		this.optimizeOverdraw = optimizeOverdraw;
+	}
+
+	/**
+	 * A FIFO post-transform vertex cache simulation.
+	 */
+	private static class FifoCache
+	{
+		private final int size;
+		/** Insertion number of each vertex's latest entry; the cache holds the last {@link #size} insertions. */
+		private final int[] inserted;
+		/** Number of insertions so far. */
+		private int time;
+
+		FifoCache(int size, int vertexCount)
+		{
+			this.size = size;
+			this.inserted = new int[vertexCount];
+			Arrays.fill(inserted, Integer.MIN_VALUE / 2);
+		}
+
+		/** Returns true on a cache hit; on a miss the vertex is inserted. */
+		boolean access(int v)
+		{
+			if(time - inserted[v] <= size)
+				return true;
+			inserted[v] = time++;
+			return false;
+		}
+	}
+}
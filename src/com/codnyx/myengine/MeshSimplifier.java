@@ -0,0 +1,517 @@
+package com.codnyx.myengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Simplifies triangle meshes by iterative edge collapse with the quadric error metric of
+ * Garland and Heckbert.
+ * <p>
+ * Vertices are first welded by position, so that meshes whose corners carry different normals or
+ * texture coordinates still collapse as one surface. Every welded vertex accumulates the
+ * area-weighted quadrics of the planes of its triangles (plus constraint planes along open
+ * boundaries, which keep silhouettes of open meshes in place). Edges are collapsed cheapest first,
+ * each into the position minimizing the summed quadric, until the requested number of triangles
+ * remains. Collapses that would flip a triangle are skipped.
+ * <p>
+ * Corners keep the color, normal and texture coordinates of the original vertex they came from,
+ * moved to the position of the vertex they were collapsed into. Polygons with more than three
+ * vertices are triangulated as fans.
+ * <p>
+ * Away from attribute seams, corners collapsed into a vertex take its attributes, so that the
+ * simplified mesh shares its vertices.
+ */
+public class MeshSimplifier
+{
+	/** Weight of the constraint planes along boundary edges, relative to face planes. */
+	private float boundaryWeight = 100.0f;
+
+	// Working state of the current simplification
+	private int vertexCount;
+	private double[] px, py, pz;
+	/** Symmetric 4x4 quadrics, 10 coefficients per vertex: a2 ab ac ad b2 bc bd c2 cd d2. */
+	private double[] quadrics;
+	private boolean[] vertexAlive;
+	private int[] version;
+	private int[][] adjacency;
+	private int[] adjacencyCount;
+	private int[] triangles;
+	/** The original vertex whose attributes each corner of {@link #triangles} carries. */
+	private Vertex[] cornerVertices;
+	private boolean[] triangleAlive;
+	private int liveTriangles;
+
+	/**
+	 * Simplifies a mesh. The input mesh is not modified.
+	 *
+	 * @param mesh The mesh to simplify.
+	 * @param targetTriangles The number of triangles to reduce the mesh to. The result may have
+	 *                        more triangles if no further collapse is possible without flipping triangles.
+	 * @return A new, simplified mesh.
+	 */
+	public Mesh simplify(Mesh mesh, int targetTriangles)
+	{
+		// Fan-triangulate and weld corners by position
+		ArrayList<Vertex> corners = new ArrayList<Vertex>();
+		ArrayList<Texture> textures = new ArrayList<Texture>();
+		for(Polygon p: mesh.polygons)
+		{
+			if(p == null)
+				continue;
+			for(int i = 1; i < p.vertices.length - 1; i++)
+			{
+				corners.add(p.vertices[0]);
+				corners.add(p.vertices[i]);
+				corners.add(p.vertices[i+1]);
+				textures.add(p.texture);
+			}
+		}
+		HashMap<PositionKey, Integer> ids = new HashMap<PositionKey, Integer>();
+		ArrayList<float[]> positions = new ArrayList<float[]>();
+		triangles = new int[corners.size()];
+		for(int c = 0; c < triangles.length; c++)
+		{
+			float[] point = corners.get(c).point;
+			PositionKey key = new PositionKey(point);
+			Integer id = ids.get(key);
+			if(id == null) {
+				id = positions.size();
+				ids.put(key, id);
+				positions.add(point);
+			}
+			triangles[c] = id;
+		}
+		cornerVertices = corners.toArray(new Vertex[corners.size()]);
+		init(positions);
+		collapse(Math.max(0, targetTriangles));
+
+		// Build the simplified mesh, sharing output vertices between triangles like the input did
+		Mesh result = new Mesh();
+		IdentityHashMap<Vertex, Vertex> moved = new IdentityHashMap<Vertex, Vertex>();
+		for(int t = 0; t < triangleAlive.length; t++)
+		{
+			if(!triangleAlive[t])
+				continue;
+			Vertex[] vs = new Vertex[3];
+			for(int k = 0; k < 3; k++)
+			{
+				Vertex original = cornerVertices[t*3 + k];
+				Vertex v = moved.get(original);
+				if(v == null) {
+					int id = triangles[t*3 + k];
+					v = new Vertex(new float[]{(float)px[id], (float)py[id], (float)pz[id]}, original.normal);
+					v.color = original.color;
+					v.texCoord = original.texCoord;
+					moved.put(original, v);
+				}
+				vs[k] = v;
+			}
+			Polygon polygon = new Polygon(vs);
+			polygon.texture = textures.get(t);
+			result.addPolygon(polygon);
+		}
+		release();
+		return result;
+	}
+
+	/**
+	 * Sets up positions, adjacency and quadrics for the triangle list in {@link #triangles}.
+	 */
+	private void init(ArrayList<float[]> positions)
+	{
+		vertexCount = positions.size();
+		px = new double[vertexCount];
+		py = new double[vertexCount];
+		pz = new double[vertexCount];
+		for(int v = 0; v < vertexCount; v++)
+		{
+			px[v] = positions.get(v)[0];
+			py[v] = positions.get(v)[1];
+			pz[v] = positions.get(v)[2];
+		}
+		quadrics = new double[vertexCount * 10];
+		vertexAlive = new boolean[vertexCount];
+		Arrays.fill(vertexAlive, true);
+		version = new int[vertexCount];
+		adjacencyCount = new int[vertexCount];
+		int triCount = triangles.length / 3;
+		triangleAlive = new boolean[triCount];
+		liveTriangles = 0;
+		for(int c = 0; c < triangles.length; c++)
+			adjacencyCount[triangles[c]]++;
+		adjacency = new int[vertexCount][];
+		for(int v = 0; v < vertexCount; v++)
+			adjacency[v] = new int[Math.max(4, adjacencyCount[v])];
+		Arrays.fill(adjacencyCount, 0);
+
+		HashMap<Long, Integer> edgeUse = new HashMap<Long, Integer>();
+		double[] n = new double[4];
+		for(int t = 0; t < triCount; t++)
+		{
+			int a = triangles[t*3], b = triangles[t*3+1], c = triangles[t*3+2];
+			if(a == b || b == c || a == c)
+				continue; // Degenerate input triangles are dropped
+			triangleAlive[t] = true;
+			liveTriangles++;
+			for(int k = 0; k < 3; k++)
+			{
+				int v = triangles[t*3 + k];
+				adjacency[v][adjacencyCount[v]++] = t;
+				int w = triangles[t*3 + (k+1) % 3];
+				edgeUse.merge(edgeKey(v, w), 1, Integer::sum);
+			}
+			double area = plane(a, b, c, n);
+			if(area > 0)
+				for(int k = 0; k < 3; k++)
+					addQuadric(triangles[t*3 + k], n, area);
+		}
+
+		// Constraint planes through boundary edges, perpendicular to their triangle
+		for(int t = 0; t < triCount; t++)
+		{
+			if(!triangleAlive[t])
+				continue;
+			double[] fn = new double[4];
+			if(plane(triangles[t*3], triangles[t*3+1], triangles[t*3+2], fn) <= 0)
+				continue;
+			for(int k = 0; k < 3; k++)
+			{
+				int a = triangles[t*3 + k], b = triangles[t*3 + (k+1) % 3];
+				if(edgeUse.get(edgeKey(a, b)) != 1)
+					continue;
+				double ex = px[b] - px[a], ey = py[b] - py[a], ez = pz[b] - pz[a];
+				double length2 = ex*ex + ey*ey + ez*ez;
+				n[0] = ey*fn[2] - ez*fn[1];
+				n[1] = ez*fn[0] - ex*fn[2];
+				n[2] = ex*fn[1] - ey*fn[0];
+				double l = Math.sqrt(n[0]*n[0] + n[1]*n[1] + n[2]*n[2]);
+				if(l == 0)
+					continue;
+				n[0] /= l; n[1] /= l; n[2] /= l;
+				n[3] = -(n[0]*px[a] + n[1]*py[a] + n[2]*pz[a]);
+				addQuadric(a, n, boundaryWeight * length2);
+				addQuadric(b, n, boundaryWeight * length2);
+			}
+		}
+	}
+
+	/**
+	 * Collapses edges, cheapest first, until the target number of triangles is reached.
+	 */
+	private void collapse(int targetTriangles)
+	{
+		PriorityQueue<Collapse> queue = new PriorityQueue<Collapse>();
+		for(int t = 0; t < triangleAlive.length; t++)
+		{
+			if(!triangleAlive[t])
+				continue;
+			for(int k = 0; k < 3; k++)
+			{
+				int a = triangles[t*3 + k], b = triangles[t*3 + (k+1) % 3];
+				if(a < b || edgeUseOnce(a, b, t)) // Each interior edge is queued from one side only
+					queue.add(evaluate(a, b));
+			}
+		}
+		double[] target = new double[3];
+		while(liveTriangles > targetTriangles && !queue.isEmpty())
+		{
+			Collapse e = queue.poll();
+			if(!vertexAlive[e.a] || !vertexAlive[e.b] || version[e.a] != e.versionA || version[e.b] != e.versionB)
+				continue; // Stale entry
+			target[0] = e.x; target[1] = e.y; target[2] = e.z;
+			if(flips(e.a, e.b, target) || flips(e.b, e.a, target))
+				continue;
+			merge(e.a, e.b, target);
+			// Re-evaluate the edges around the merged vertex
+			int a = e.a;
+			for(int i = 0; i < adjacencyCount[a]; i++)
+			{
+				int t = adjacency[a][i];
+				for(int k = 0; k < 3; k++)
+				{
+					int w = triangles[t*3 + k];
+					if(w != a)
+						queue.add(evaluate(a, w));
+				}
+			}
+		}
+	}
+
+	/** True if the edge a-b of triangle t has no other triangle on its other side (a boundary edge seen from a > b). */
+	private boolean edgeUseOnce(int a, int b, int t)
+	{
+		for(int i = 0; i < adjacencyCount[a]; i++)
+		{
+			int other = adjacency[a][i];
+			if(other == t)
+				continue;
+			for(int k = 0; k < 3; k++)
+				if(triangles[other*3 + k] == b)
+					return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the cost and optimal position of collapsing edge a-b.
+	 */
+	private Collapse evaluate(int a, int b)
+	{
+		double[] q = new double[10];
+		for(int i = 0; i < 10; i++)
+			q[i] = quadrics[a*10 + i] + quadrics[b*10 + i];
+		Collapse c = new Collapse();
+		c.a = a;
+		c.b = b;
+		c.versionA = version[a];
+		c.versionB = version[b];
+		// Solve the 3x3 system for the position minimizing the quadric
+		double a11 = q[0], a12 = q[1], a13 = q[2], a22 = q[4], a23 = q[5], a33 = q[7];
+		double b1 = -q[3], b2 = -q[6], b3 = -q[8];
+		double det = a11*(a22*a33 - a23*a23) - a12*(a12*a33 - a23*a13) + a13*(a12*a23 - a22*a13);
+		double scale = Math.abs(a11) + Math.abs(a22) + Math.abs(a33);
+		if(Math.abs(det) > 1e-9 * scale * scale * scale && scale > 0)
+		{
+			c.x = (b1*(a22*a33 - a23*a23) - a12*(b2*a33 - a23*b3) + a13*(b2*a23 - a22*b3)) / det;
+			c.y = (a11*(b2*a33 - a23*b3) - b1*(a12*a33 - a23*a13) + a13*(a12*b3 - b2*a13)) / det;
+			c.z = (a11*(a22*b3 - b2*a23) - a12*(a12*b3 - b2*a13) + b1*(a12*a23 - a22*a13)) / det;
+			c.cost = error(q, c.x, c.y, c.z);
+		}
+		else
+		{
+			// Singular quadric (flat or linear neighbourhood): pick the best of the endpoints and midpoint
+			c.cost = Double.POSITIVE_INFINITY;
+			for(int i = 0; i < 3; i++)
+			{
+				double f = i * 0.5;
+				double x = px[a] + (px[b] - px[a]) * f, y = py[a] + (py[b] - py[a]) * f, z = pz[a] + (pz[b] - pz[a]) * f;
+				double err = error(q, x, y, z);
+				if(err < c.cost) {
+					c.cost = err;
+					c.x = x;
+					c.y = y;
+					c.z = z;
+				}
+			}
+		}
+		return c;
+	}
+
+	private static double error(double[] q, double x, double y, double z)
+	{
+		double e = q[0]*x*x + 2*q[1]*x*y + 2*q[2]*x*z + 2*q[3]*x
+				 + q[4]*y*y + 2*q[5]*y*z + 2*q[6]*y
+				 + q[7]*z*z + 2*q[8]*z
+				 + q[9];
+		return Math.max(0, e);
+	}
+
+	/**
+	 * Checks whether moving vertex v to the target position would flip any of its triangles that
+	 * do not also contain vertex other (those disappear in the collapse).
+	 */
+	private boolean flips(int v, int other, double[] target)
+	{
+		for(int i = 0; i < adjacencyCount[v]; i++)
+		{
+			int t = adjacency[v][i];
+			int a = triangles[t*3], b = triangles[t*3+1], c = triangles[t*3+2];
+			if(a == other || b == other || c == other)
+				continue;
+			double[] before = corner(t, v, px[v], py[v], pz[v]);
+			double[] after = corner(t, v, target[0], target[1], target[2]);
+			double dot = before[0]*after[0] + before[1]*after[1] + before[2]*after[2];
+			double lb = Math.sqrt(before[0]*before[0] + before[1]*before[1] + before[2]*before[2]);
+			double la = Math.sqrt(after[0]*after[0] + after[1]*after[1] + after[2]*after[2]);
+			if(lb > 0 && (la == 0 || dot < 0.2 * lb * la))
+				return true;
+		}
+		return false;
+	}
+
+	/** Normal (non normalized) of triangle t with its corner v placed at (x, y, z). */
+	private double[] corner(int t, int v, double x, double y, double z)
+	{
+		double[] p = new double[9];
+		for(int k = 0; k < 3; k++)
+		{
+			int w = triangles[t*3 + k];
+			p[k*3] = w == v ? x : px[w];
+			p[k*3+1] = w == v ? y : py[w];
+			p[k*3+2] = w == v ? z : pz[w];
+		}
+		double e1x = p[3] - p[0], e1y = p[4] - p[1], e1z = p[5] - p[2];
+		double e2x = p[6] - p[0], e2y = p[7] - p[1], e2z = p[8] - p[2];
+		return new double[]{e1y*e2z - e1z*e2y, e1z*e2x - e1x*e2z, e1x*e2y - e1y*e2x};
+	}
+
+	/**
+	 * Collapses vertex b into vertex a, moving a to the target position.
+	 * If neither vertex lies on an attribute seam, the corners of b take the attributes of a, so
+	 * that they can share one output vertex.
+	 */
+	private void merge(int a, int b, double[] target)
+	{
+		Vertex attributesA = uniqueAttributes(a), attributesB = uniqueAttributes(b);
+		if(attributesA != null && attributesB != null)
+			for(int i = 0; i < adjacencyCount[b]; i++)
+				for(int k = 0; k < 3; k++)
+				{
+					int c = adjacency[b][i]*3 + k;
+					if(triangles[c] == b)
+						cornerVertices[c] = attributesA;
+				}
+		px[a] = target[0];
+		py[a] = target[1];
+		pz[a] = target[2];
+		for(int i = 0; i < 10; i++)
+			quadrics[a*10 + i] += quadrics[b*10 + i];
+		for(int i = 0; i < adjacencyCount[b]; i++)
+		{
+			int t = adjacency[b][i];
+			int base = t*3;
+			if(triangles[base] == a || triangles[base+1] == a || triangles[base+2] == a)
+			{
+				// The triangle contains the collapsed edge and degenerates
+				triangleAlive[t] = false;
+				liveTriangles--;
+				continue;
+			}
+			for(int k = 0; k < 3; k++)
+				if(triangles[base + k] == b)
+					triangles[base + k] = a;
+			addAdjacency(a, t);
+		}
+		vertexAlive[b] = false;
+		adjacency[b] = null;
+		adjacencyCount[b] = 0;
+		version[a]++;
+		// Drop the triangles that degenerated from the adjacency of a and of the other vertices
+		compactAdjacency(a);
+		for(int i = 0; i < adjacencyCount[a]; i++)
+		{
+			int t = adjacency[a][i];
+			for(int k = 0; k < 3; k++)
+			{
+				int w = triangles[t*3 + k];
+				if(w != a)
+					compactAdjacency(w);
+			}
+		}
+	}
+
+	/**
+	 * Returns the original vertex providing the attributes of all corners at vertex v, or null if
+	 * its corners carry attributes of different vertices (v is on a seam).
+	 */
+	private Vertex uniqueAttributes(int v)
+	{
+		Vertex unique = null;
+		for(int i = 0; i < adjacencyCount[v]; i++)
+			for(int k = 0; k < 3; k++)
+			{
+				int c = adjacency[v][i]*3 + k;
+				if(triangles[c] != v)
+					continue;
+				if(unique == null)
+					unique = cornerVertices[c];
+				else if(unique != cornerVertices[c])
+					return null;
+			}
+		return unique;
+	}
+
+	private void addAdjacency(int v, int t)
+	{
+		if(adjacencyCount[v] == adjacency[v].length)
+			adjacency[v] = Arrays.copyOf(adjacency[v], adjacency[v].length * 2);
+		adjacency[v][adjacencyCount[v]++] = t;
+	}
+
+	private void compactAdjacency(int v)
+	{
+		int[] list = adjacency[v];
+		int count = 0;
+		for(int i = 0; i < adjacencyCount[v]; i++)
+			if(triangleAlive[list[i]])
+				list[count++] = list[i];
+		adjacencyCount[v] = count;
+	}
+
+	/**
+	 * Computes the unit plane (a, b, c, d) of a triangle.
+	 * @return The area of the triangle.
+	 */
+	private double plane(int a, int b, int c, double[] n)
+	{
+		double e1x = px[b] - px[a], e1y = py[b] - py[a], e1z = pz[b] - pz[a];
+		double e2x = px[c] - px[a], e2y = py[c] - py[a], e2z = pz[c] - pz[a];
+		n[0] = e1y*e2z - e1z*e2y;
+		n[1] = e1z*e2x - e1x*e2z;
+		n[2] = e1x*e2y - e1y*e2x;
+		double l = Math.sqrt(n[0]*n[0] + n[1]*n[1] + n[2]*n[2]);
+		if(l == 0)
+			return 0;
+		n[0] /= l; n[1] /= l; n[2] /= l;
+		n[3] = -(n[0]*px[a] + n[1]*py[a] + n[2]*pz[a]);
+		return l / 2;
+	}
+
+	private void addQuadric(int v, double[] n, double weight)
+	{
+		int o = v * 10;
+		quadrics[o]     += weight * n[0]*n[0];
+		quadrics[o + 1] += weight * n[0]*n[1];
+		quadrics[o + 2] += weight * n[0]*n[2];
+		quadrics[o + 3] += weight * n[0]*n[3];
+		quadrics[o + 4] += weight * n[1]*n[1];
+		quadrics[o + 5] += weight * n[1]*n[2];
+		quadrics[o + 6] += weight * n[1]*n[3];
+		quadrics[o + 7] += weight * n[2]*n[2];
+		quadrics[o + 8] += weight * n[2]*n[3];
+		quadrics[o + 9] += weight * n[3]*n[3];
+	}
+
+	private static long edgeKey(int a, int b)
+	{
+		return a < b ? ((long)a << 32) | b : ((long)b << 32) | a;
+	}
+
+	/** Releases the working state of the last simplification. */
+	private void release()
+	{
+		px = py = pz = quadrics = null;
+		vertexAlive = triangleAlive = null;
+		version = adjacencyCount = triangles = null;
+		cornerVertices = null;
+		adjacency = null;
+	}
+
+	public float getBoundaryWeight() {
+		return boundaryWeight;
+	}
+
+	public void setBoundaryWeight(float boundaryWeight) {
+		this.boundaryWeight = boundaryWeight;
+	}
+
+	/**
+	 * A candidate edge collapse, ordered by cost.
+	 */
+	private static class Collapse implements Comparable<Collapse>
+	{
+		int a, b;
+		int versionA, versionB;
+		double x, y, z;
+		double cost;
+
+		@Override
+		public int compareTo(Collapse o)
+		{
+			return Double.compare(cost, o.cost);
+		}
+	}
+}
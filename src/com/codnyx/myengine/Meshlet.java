@@ -0,0 +1,125 @@
+package com.codnyx.myengine;
+
+/**
+ * A small cluster of neighbouring polygons of a mesh, with the bounds needed to cull the whole
+ * cluster at once: a bounding sphere, tested against the viewing frustum, and a cone containing
+ * the normals of its polygons, tested for back-facing clusters.
+ * <p>
+ * Meshlets are built by {@link MeshletBuilder} and rendered with
+ * {@link PolygonRenderer#render(java.awt.Graphics, Meshlet)}.
+ */
+public class Meshlet
+{
+	/** The polygons of the cluster. */
+	final Polygon[] polygons;
+	/** Center of the bounding sphere, in model coordinates. */
+	final float[] center = {0,0,0};
+	/** Radius of the bounding sphere. */
+	float radius;
+	/** Unit axis of the normal cone, in model coordinates. */
+	final float[] coneAxis = {0,0,0};
+	/**
+	 * Sine of the half angle of the normal cone. The cluster is back-facing when the direction from
+	 * the eye to it makes an angle of less than 90 degrees minus the half angle with the axis.
+	 * Greater than 1 if the cone is too wide for the cluster to ever be back-facing as a whole.
+	 */
+	float coneCutoff;
+
+	/**
+	 * Constructs a meshlet and computes its bounds.
+	 *
+	 * @param polygons The polygons of the cluster. Must not contain null.
+	 */
+	public Meshlet(Polygon[] polygons)
+	{
+		this.polygons = polygons;
+		computeSphere();
+		computeCone();
+	}
+
+	private void computeSphere()
+	{
+		float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+		float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+		for(Polygon p: polygons)
+			for(Vertex v: p.vertices)
+				for(int i = 0; i < 3; i++) {
+					min[i] = Math.min(min[i], v.point[i]);
+					max[i] = Math.max(max[i], v.point[i]);
+				}
+		if(min[0] > max[0])
+			return; // No vertices
+		for(int i = 0; i < 3; i++)
+			center[i] = (min[i] + max[i]) / 2;
+		float r2 = 0;
+		for(Polygon p: polygons)
+			for(Vertex v: p.vertices)
+			{
+				float dx = v.point[0] - center[0], dy = v.point[1] - center[1], dz = v.point[2] - center[2];
+				r2 = Math.max(r2, dx*dx + dy*dy + dz*dz);
+			}
+		radius = (float)Math.sqrt(r2);
+	}
+
+	private void computeCone()
+	{
+		coneCutoff = 2; // No cone unless all normals fit in less than a hemisphere
+		for(Polygon p: polygons)
+			MyMath.add(coneAxis, p.normal, coneAxis);
+		float length = (float)Math.sqrt(MyMath.dotProduct(coneAxis, coneAxis));
+		if(length == 0)
+			return;
+		MyMath.multiply(coneAxis, 1.0f/length, coneAxis);
+		float minDot = 1;
+		for(Polygon p: polygons)
+		{
+			// Degenerate polygons have no normal; the renderer always culls them
+			if(p.normal[0] == 0 && p.normal[1] == 0 && p.normal[2] == 0)
+				continue;
+			minDot = Math.min(minDot, MyMath.dotProduct(coneAxis, p.normal));
+		}
+		if(minDot > 0)
+			coneCutoff = (float)Math.sqrt(1 - minDot*minDot);
+	}
+
+	/**
+	 * Returns the polygons of this meshlet.
+	 * @return The polygons.
+	 */
+	public Polygon[] getPolygons() {
+		return polygons;
+	}
+
+	/**
+	 * Returns the center of the bounding sphere, in model coordinates.
+	 * @return The center.
+	 */
+	public float[] getCenter() {
+		return center;
+	}
+
+	/**
+	 * Returns the radius of the bounding sphere, in model coordinates.
+	 * @return The radius.
+	 */
+	public float getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Returns the unit axis of the normal cone, in model coordinates.
+	 * @return The axis.
+	 */
+	public float[] getConeAxis() {
+		return coneAxis;
+	}
+
+	/**
+	 * Returns the sine of the half angle of the normal cone, or a value greater than 1 if the
+	 * normals span a hemisphere or more.
+	 * @return The cone cutoff.
+	 */
+	public float getConeCutoff() {
+		return coneCutoff;
+	}
+}
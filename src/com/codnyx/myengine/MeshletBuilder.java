@@ -0,0 +1,175 @@
+package com.codnyx.myengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Splits the polygons of a mesh into {@link Meshlet}s, small clusters of neighbouring polygons that
+ * the renderer can cull as a whole.
+ * <p>
+ * Clusters are grown greedily across shared vertex positions, starting from the first polygon not
+ * yet assigned in mesh order. Among the polygons bordering the cluster, the one sharing the most
+ * vertices with it is added next, which keeps clusters compact and their bounding spheres small;
+ * ties are broken by how close the polygon's normal is to the average normal of the cluster, which
+ * keeps normal cones narrow. Polygons too far from that normal are left for another cluster, so that
+ * clusters on curved surfaces remain cullable as back-facing.
+ */
+public class MeshletBuilder
+{
+	/** Default maximum number of polygons per meshlet. */
+	public static final int DEFAULT_MAX_POLYGONS = 64;
+
+	/** Maximum number of polygons per meshlet. */
+	private int maxPolygons = DEFAULT_MAX_POLYGONS;
+	/** Weight of the normal similarity, relative to one shared vertex, when choosing the next polygon. */
+	private float coneWeight = 0.5f;
+	/**
+	 * Polygons whose normal makes a wider angle with the average normal of a cluster are left for
+	 * another cluster. Pi disables the limit.
+	 */
+	private float maxConeAngle = (float)Math.toRadians(45);
+
+	/**
+	 * Builds the meshlets of a mesh. Null polygons are skipped.
+	 *
+	 * @param mesh The mesh to split.
+	 * @return The meshlets, covering every non-null polygon of the mesh exactly once.
+	 */
+	public Meshlet[] build(Mesh mesh)
+	{
+		ArrayList<Polygon> list = new ArrayList<Polygon>(mesh.polygons.size());
+		for(Polygon p: mesh.polygons)
+			if(p != null)
+				list.add(p);
+		Polygon[] polygons = list.toArray(new Polygon[list.size()]);
+
+		// Weld positions and build the position -> polygons adjacency
+		HashMap<PositionKey, Integer> ids = new HashMap<PositionKey, Integer>();
+		int[][] polygonPositions = new int[polygons.length][];
+		for(int i = 0; i < polygons.length; i++)
+		{
+			Vertex[] vs = polygons[i].vertices;
+			polygonPositions[i] = new int[vs.length];
+			for(int k = 0; k < vs.length; k++)
+			{
+				PositionKey key = new PositionKey(vs[k].point);
+				Integer id = ids.get(key);
+				if(id == null) {
+					id = ids.size();
+					ids.put(key, id);
+				}
+				polygonPositions[i][k] = id;
+			}
+		}
+		int positionCount = ids.size();
+		int[] offsets = new int[positionCount + 1];
+		for(int[] ps: polygonPositions)
+			for(int id: ps)
+				offsets[id + 1]++;
+		for(int v = 0; v < positionCount; v++)
+			offsets[v + 1] += offsets[v];
+		int[] adjacency = new int[offsets[positionCount]];
+		int[] fill = offsets.clone();
+		for(int i = 0; i < polygons.length; i++)
+			for(int id: polygonPositions[i])
+				adjacency[fill[id]++] = i;
+
+		ArrayList<Meshlet> meshlets = new ArrayList<Meshlet>();
+		boolean[] assigned = new boolean[polygons.length];
+		int[] frontierStamp = new int[polygons.length];
+		int[] clusterStamp = new int[positionCount];
+		ArrayList<Integer> frontier = new ArrayList<Integer>();
+		ArrayList<Polygon> cluster = new ArrayList<Polygon>(Math.min(maxPolygons, polygons.length));
+		float[] normalSum = new float[3];
+		float minDot = maxConeAngle < Math.PI ? (float)Math.cos(maxConeAngle) : Float.NEGATIVE_INFINITY;
+		int stamp = 0;
+		int seed = 0;
+		while(true)
+		{
+			while(seed < polygons.length && assigned[seed])
+				seed++;
+			if(seed == polygons.length)
+				break;
+			stamp++;
+			cluster.clear();
+			frontier.clear();
+			normalSum[0] = normalSum[1] = normalSum[2] = 0;
+			frontier.add(seed);
+			frontierStamp[seed] = stamp;
+			while(cluster.size() < maxPolygons && !frontier.isEmpty())
+			{
+				// Pick the bordering polygon sharing the most vertices and facing the same way
+				float length = (float)Math.sqrt(MyMath.dotProduct(normalSum, normalSum));
+				int best = -1;
+				float bestScore = Float.NEGATIVE_INFINITY;
+				for(int f = 0; f < frontier.size(); f++)
+				{
+					int i = frontier.get(f);
+					int shared = 0;
+					for(int id: polygonPositions[i])
+						if(clusterStamp[id] == stamp)
+							shared++;
+					float score = shared;
+					if(length > 0) {
+						float dot = MyMath.dotProduct(normalSum, polygons[i].normal) / length;
+						if(dot < minDot)
+							continue;
+						score += coneWeight * dot;
+					}
+					if(score > bestScore) {
+						bestScore = score;
+						best = f;
+					}
+				}
+				if(best < 0)
+					break; // Every bordering polygon would widen the normal cone too much
+				int i = frontier.get(best);
+				frontier.set(best, frontier.get(frontier.size() - 1));
+				frontier.remove(frontier.size() - 1);
+				assigned[i] = true;
+				cluster.add(polygons[i]);
+				MyMath.add(normalSum, polygons[i].normal, normalSum);
+				for(int id: polygonPositions[i])
+				{
+					if(clusterStamp[id] == stamp)
+						continue;
+					clusterStamp[id] = stamp;
+					for(int a = offsets[id]; a < offsets[id + 1]; a++)
+					{
+						int n = adjacency[a];
+						if(!assigned[n] && frontierStamp[n] != stamp) {
+							frontierStamp[n] = stamp;
+							frontier.add(n);
+						}
+					}
+				}
+			}
+			meshlets.add(new Meshlet(cluster.toArray(new Polygon[cluster.size()])));
+		}
+		return meshlets.toArray(new Meshlet[meshlets.size()]);
+	}
+
+	public float getMaxConeAngle() {
+		return maxConeAngle;
+	}
+
+	public void setMaxConeAngle(float maxConeAngle) {
+		this.maxConeAngle = maxConeAngle;
+	}
+
+	public int getMaxPolygons() {
+		return maxPolygons;
+	}
+
+	public void setMaxPolygons(int maxPolygons) {
+		this.maxPolygons = maxPolygons;
+	}
+
+	public float getConeWeight() {
+		return coneWeight;
+	}
+
+	public void setConeWeight(float coneWeight) {
+		this.coneWeight = coneWeight;
+	}
+}
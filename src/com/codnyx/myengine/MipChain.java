@@ -0,0 +1,278 @@
+package com.codnyx.myengine;
+
+import java.util.Arrays;
+
+/**
+ * A chain of successively half-sized copies of a texel array, down to a single texel.
+ * Level 0 is the original array; each further level averages 2x2 blocks of the previous one
+ * (per ARGB channel), so that minified textures can be sampled from a level whose texels are
+ * about the size of a pixel instead of skipping over most of the full resolution texels.
+ * <p>
+ * Coordinates passed to {@link #getColor(int, int, int)} are in texels of the requested level
+ * and wrap around like those of the full resolution texture.
+ * <p>
+ * Levels can be stored in a swizzled {@link TexelLayout}, in which case every level, including
+ * the full resolution one, is a reordered copy and texel addresses are looked up in per-level
+ * tables of x and y offsets whose sum is the index of the texel.
+ */
+class MipChain
+{
+	/** Texels of each level, in {@link #layout} order. */
+	final int[][] data;
+	/** Width of each level. */
+	final int[] widths;
+	/** Height of each level. */
+	final int[] heights;
+	/** Wrapping masks of each level (size - 1), or -1 if the level is not a power of two in that dimension. */
+	private final int[] xmasks, ymasks;
+	/** The order of the texels of each level. */
+	final TexelLayout layout;
+	/** Per-level offsets of columns and rows in a swizzled layout; null when row-major. */
+	private final int[][] xOffsets, yOffsets;
+
+	/**
+	 * Builds the row-major chain of a texel array. The array is used as level 0 without being copied.
+	 *
+	 * @param texels The full resolution ARGB texels, row-major.
+	 * @param w The width of the full resolution level.
+	 * @param h The height of the full resolution level.
+	 */
+	MipChain(int[] texels, int w, int h)
+	{
+		this(texels, w, h, TexelLayout.ROW_MAJOR);
+	}
+
+	/**
+	 * Builds the chain of a texel array, stored in the given layout. The array is used as level 0
+	 * without being copied only if the layout is row-major.
+	 *
+	 * @param texels The full resolution ARGB texels, row-major.
+	 * @param w The width of the full resolution level.
+	 * @param h The height of the full resolution level.
+	 * @param layout The order in which to store the texels of each level.
+	 */
+	MipChain(int[] texels, int w, int h, TexelLayout layout)
+	{
+		int levels = 1;
+		for(int s = Math.max(w, h); s > 1; s >>= 1)
+			levels++;
+		data = new int[levels][];
+		widths = new int[levels];
+		heights = new int[levels];
+		xmasks = new int[levels];
+		ymasks = new int[levels];
+		data[0] = texels;
+		widths[0] = w;
+		heights[0] = h;
+		for(int l = 1; l < levels; l++)
+		{
+			int pw = widths[l-1], ph = heights[l-1];
+			int nw = Math.max(1, pw >> 1), nh = Math.max(1, ph >> 1);
+			int[] src = data[l-1];
+			int[] dst = new int[nw * nh];
+			for(int y = 0; y < nh; y++)
+			{
+				int y0 = Math.min(2*y, ph - 1) * pw, y1 = Math.min(2*y + 1, ph - 1) * pw;
+				for(int x = 0; x < nw; x++)
+				{
+					int x0 = Math.min(2*x, pw - 1), x1 = Math.min(2*x + 1, pw - 1);
+					dst[y * nw + x] = average(src[y0 + x0], src[y0 + x1], src[y1 + x0], src[y1 + x1]);
+				}
+			}
+			data[l] = dst;
+			widths[l] = nw;
+			heights[l] = nh;
+		}
+		for(int l = 0; l < levels; l++)
+		{
+			xmasks[l] = (widths[l] & (widths[l] - 1)) == 0 ? widths[l] - 1 : -1;
+			ymasks[l] = (heights[l] & (heights[l] - 1)) == 0 ? heights[l] - 1 : -1;
+		}
+
+		// Z-order needs power-of-two dimensions, which all levels then have
+		if(layout == TexelLayout.MORTON && (xmasks[0] < 0 || ymasks[0] < 0))
+			layout = TexelLayout.TILED;
+		this.layout = layout;
+		if(layout == TexelLayout.ROW_MAJOR)
+		{
+			xOffsets = yOffsets = null;
+			return;
+		}
+		xOffsets = new int[levels][];
+		yOffsets = new int[levels][];
+		for(int l = 0; l < levels; l++)
+		{
+			int lw = widths[l], lh = heights[l];
+			int[] xo = new int[lw], yo = new int[lh];
+			int size;
+			if(layout == TexelLayout.MORTON)
+			{
+				// Interleave the bits of x and y within squares of the smaller dimension,
+				// laid out one after the other along the larger one
+				int k = Integer.numberOfTrailingZeros(Math.min(lw, lh));
+				int mask = (1 << k) - 1;
+				for(int x = 0; x < lw; x++)
+					xo[x] = spread(x & mask) | ((x >> k) << (2*k));
+				for(int y = 0; y < lh; y++)
+					yo[y] = (spread(y & mask) << 1) | ((y >> k) << (2*k));
+				size = lw * lh;
+			}
+			else
+			{
+				// 4x4 blocks, each stored row-major, in row-major order of blocks
+				int paddedW = (lw + 3) & ~3, paddedH = (lh + 3) & ~3;
+				for(int x = 0; x < lw; x++)
+					xo[x] = ((x >> 2) << 4) | (x & 3);
+				for(int y = 0; y < lh; y++)
+					yo[y] = (y >> 2) * (paddedW << 2) | ((y & 3) << 2);
+				size = paddedW * paddedH;
+			}
+			int[] swizzled = new int[size];
+			int[] src = data[l];
+			for(int y = 0; y < lh; y++)
+				for(int x = 0; x < lw; x++)
+					swizzled[xo[x] + yo[y]] = src[y * lw + x];
+			data[l] = swizzled;
+			xOffsets[l] = xo;
+			yOffsets[l] = yo;
+		}
+	}
+
+	/**
+	 * Builds the chain of the levels of another from a reduced one down, sharing their texels and
+	 * swizzle tables: each level is filtered from the previous one whatever the first.
+	 *
+	 * @param chain The chain whose levels to share.
+	 * @param first The level of the chain that is the full resolution level of the new one.
+	 */
+	MipChain(MipChain chain, int first)
+	{
+		int levels = chain.data.length;
+		data = Arrays.copyOfRange(chain.data, first, levels);
+		widths = Arrays.copyOfRange(chain.widths, first, levels);
+		heights = Arrays.copyOfRange(chain.heights, first, levels);
+		xmasks = Arrays.copyOfRange(chain.xmasks, first, levels);
+		ymasks = Arrays.copyOfRange(chain.ymasks, first, levels);
+		layout = chain.layout;
+		xOffsets = chain.xOffsets == null ? null : Arrays.copyOfRange(chain.xOffsets, first, levels);
+		yOffsets = chain.yOffsets == null ? null : Arrays.copyOfRange(chain.yOffsets, first, levels);
+	}
+
+	/**
+	 * Spreads the bits of a value to the even bit positions (bit i moves to bit 2i).
+	 */
+	private static int spread(int v)
+	{
+		v &= 0xffff;
+		v = (v | (v << 8)) & 0x00ff00ff;
+		v = (v | (v << 4)) & 0x0f0f0f0f;
+		v = (v | (v << 2)) & 0x33333333;
+		v = (v | (v << 1)) & 0x55555555;
+		return v;
+	}
+
+	/**
+	 * Returns the number of levels, including the full resolution one.
+	 * @return The number of levels.
+	 */
+	int getLevelCount()
+	{
+		return data.length;
+	}
+
+	/**
+	 * Returns the number of bytes held by the levels and the swizzle tables.
+	 *
+	 * @return The size of the chain in bytes.
+	 */
+	long getMemorySize()
+	{
+		long size = 0;
+		for(int l = 0; l < data.length; l++)
+		{
+			size += 4L * data[l].length;
+			if(xOffsets != null)
+				size += 4L * (xOffsets[l].length + yOffsets[l].length);
+		}
+		return size;
+	}
+
+	/**
+	 * Retrieves a texel of a level, wrapping the coordinates into it.
+	 *
+	 * @param x The x-coordinate in texels of the level.
+	 * @param y The y-coordinate in texels of the level.
+	 * @param level The level, 0 being the full resolution.
+	 * @return The ARGB color of the texel.
+	 */
+	int getColor(int x, int y, int level)
+	{
+		int w = widths[level];
+		x = xmasks[level] >= 0 ? x & xmasks[level] : Math.floorMod(x, w);
+		y = ymasks[level] >= 0 ? y & ymasks[level] : Math.floorMod(y, heights[level]);
+		if(xOffsets == null)
+			return data[level][w * y + x];
+		return data[level][xOffsets[level][x] + yOffsets[level][y]];
+	}
+
+	/**
+	 * Copies the texels of a level, in row-major order whatever the layout of the chain.
+	 *
+	 * @param level The level, 0 being the full resolution.
+	 * @param dst The array receiving the texels, of at least the width times the height of the level.
+	 */
+	void copyLevel(int level, int[] dst)
+	{
+		int w = widths[level], h = heights[level];
+		if(xOffsets == null)
+		{
+			System.arraycopy(data[level], 0, dst, 0, w * h);
+			return;
+		}
+		int[] texels = data[level], xo = xOffsets[level], yo = yOffsets[level];
+		for(int y = 0; y < h; y++)
+			for(int x = 0; x < w; x++)
+				dst[y * w + x] = texels[xo[x] + yo[y]];
+	}
+
+	/**
+	 * Samples a run of pixels along which texel coordinates change linearly, see
+	 * {@link Texture#sampleSpan(int, int, int, int, int, int, int[], int)}.
+	 */
+	void sampleSpan(int u, int v, int du, int dv, int count, int level, int[] dst, int dstOff)
+	{
+		int xmask = xmasks[level], ymask = ymasks[level];
+		if(xmask < 0 || ymask < 0)
+		{
+			for(int i = 0; i < count; i++, u += du, v += dv)
+				dst[dstOff + i] = getColor(u >> 16, v >> 16, level);
+			return;
+		}
+		int[] texels = data[level];
+		int end = dstOff + count;
+		if(xOffsets == null)
+		{
+			int shift = Integer.numberOfTrailingZeros(widths[level]);
+			for(int i = dstOff; i < end; i++, u += du, v += dv)
+				dst[i] = texels[(((v >> 16) & ymask) << shift) | ((u >> 16) & xmask)];
+		}
+		else
+		{
+			int[] xo = xOffsets[level], yo = yOffsets[level];
+			for(int i = dstOff; i < end; i++, u += du, v += dv)
+				dst[i] = texels[xo[(u >> 16) & xmask] + yo[(v >> 16) & ymask]];
+		}
+	}
+
+	/**
+	 * Averages four ARGB colors channel by channel, with rounding.
+	 */
+	private static int average(int c0, int c1, int c2, int c3)
+	{
+		int a = ((c0 >>> 24) + (c1 >>> 24) + (c2 >>> 24) + (c3 >>> 24) + 2) >> 2;
+		int r = (((c0 >> 16) & 0xff) + ((c1 >> 16) & 0xff) + ((c2 >> 16) & 0xff) + ((c3 >> 16) & 0xff) + 2) >> 2;
+		int g = (((c0 >> 8) & 0xff) + ((c1 >> 8) & 0xff) + ((c2 >> 8) & 0xff) + ((c3 >> 8) & 0xff) + 2) >> 2;
+		int b = ((c0 & 0xff) + (c1 & 0xff) + (c2 & 0xff) + (c3 & 0xff) + 2) >> 2;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+}
@@ -0,0 +1,153 @@
+package com.codnyx.myengine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.HashMap;
+
+/**
+ * Parses Wavefront MTL files into {@link Material} objects.
+ * The diffuse color ('Kd') and diffuse texture map ('map_Kd') are read; other statements are ignored.
+ * Texture maps are resolved relative to the location of the MTL file and decoded through a
+ * {@link TextureCache}, so materials referring to the same image share one texture.
+ */
+public class MtlParser
+{
+	/** The cache used to decode and share texture maps. */
+	private TextureCache textureCache;
+
+	/**
+	 * Constructs an MtlParser that decodes textures through the default {@link TextureCache}.
+	 */
+	public MtlParser()
+	{
+		this(TextureCache.getDefault());
+	}
+
+	/**
+	 * Constructs an MtlParser that decodes textures through the given cache.
+	 *
+	 * @param textureCache The texture cache to use.
+	 */
+	public MtlParser(TextureCache textureCache)
+	{
+		this.textureCache = textureCache;
+	}
+
+	/**
+	 * Parses the MTL file at the given location.
+	 *
+	 * @param location The location of the MTL file; texture maps are resolved relative to it.
+	 * @return The materials declared in the file, by name.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public HashMap<String, Material> parse(URL location) throws IOException
+	{
+		BufferedReader stream = new BufferedReader(new InputStreamReader(location.openStream()));
+		try {
+			return parseStream(stream, location);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Parses MTL statements from a stream.
+	 *
+	 * @param stream The stream to read from.
+	 * @param base The location texture map names are relative to. May be null, in which case
+	 *             names are resolved against the classpath root.
+	 * @return The materials declared in the stream, by name.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public HashMap<String, Material> parseStream(BufferedReader stream, URL base) throws IOException
+	{
+		HashMap<String, Material> materials = new HashMap<String, Material>();
+		Material current = null;
+		String line;
+		int lineindex = 0;
+		while((line = stream.readLine()) != null)
+		{
+			lineindex++;
+			String[] tokens = line.trim().split("\\s+");
+			if (tokens.length == 0 || tokens[0].length() == 0 || tokens[0].startsWith("#"))
+				continue;
+
+			if(tokens[0].equals("newmtl"))
+			{
+				if(tokens.length < 2) {
+					System.err.println("MtlParser: Unnamed material at line " + lineindex + ". Skipping.");
+					current = null;
+					continue;
+				}
+				current = new Material(tokens[1]);
+				materials.put(current.name, current);
+			}
+			else if(current == null)
+			{
+				System.err.println("MtlParser: Statement '" + tokens[0] + "' before any 'newmtl' at line " + lineindex + ". Skipping.");
+			}
+			else if(tokens[0].equals("Kd"))
+			{
+				current.diffuseColor = parseColor(tokens);
+			}
+			else if(tokens[0].equals("map_Kd"))
+			{
+				// Options such as "-s 1 1 1" may precede the file name, which is always last
+				String name = tokens[tokens.length - 1];
+				URL location = resolve(base, name);
+				if(location == null) {
+					System.err.println("MtlParser: Texture map '" + name + "' of material '" + current.name + "' not found. Material will be untextured.");
+					continue;
+				}
+				try {
+					current.diffuseMap = textureCache.get(location);
+				} catch (IOException e) {
+					System.err.println("MtlParser: Error decoding texture map '" + name + "': " + e.getMessage() + ". Material will be untextured.");
+				}
+			}
+		}
+		return materials;
+	}
+
+	/**
+	 * Resolves a file name referenced by an OBJ or MTL file.
+	 *
+	 * @param base The location of the referencing file, or null to use the classpath root.
+	 * @param name The referenced name.
+	 * @return The location of the referenced file, or null if it cannot be found.
+	 */
+	static URL resolve(URL base, String name)
+	{
+		if(base != null) {
+			try {
+				return new URL(base, name);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return MtlParser.class.getResource(name.startsWith("/") ? name : "/" + name);
+	}
+
+	private int parseColor(String[] tokens)
+	{
+		int[] rgb = {255, 255, 255};
+		for(int i = 1; i < Math.min(4, tokens.length); i++) {
+			try {
+				rgb[i-1] = Math.max(0, Math.min(255, Math.round(Float.parseFloat(tokens[i]) * 255)));
+			} catch (NumberFormatException e) {
+				System.err.println("MtlParser: Error parsing color value '" + tokens[i] + "' in line: " + String.join(" ", tokens) + ". Using 1.0.");
+			}
+		}
+		return ColorUtils.getRGB(255, rgb[0], rgb[1], rgb[2]);
+	}
+
+	public TextureCache getTextureCache() {
+		return textureCache;
+	}
+
+	public void setTextureCache(TextureCache textureCache) {
+		this.textureCache = textureCache;
+	}
+}
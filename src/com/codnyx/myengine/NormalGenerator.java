@@ -0,0 +1,380 @@
+package com.codnyx.myengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Generates vertex normals for triangle meshes that do not provide them.
+ * <p>
+ * Positions closer than {@link #getWeldTolerance()} are first welded through a spatial hash
+ * (expected O(n)), so that seams where an exporter duplicated vertices are smoothed like the rest
+ * of the surface. Each corner of a triangle then receives the normalized sum of the area-weighted
+ * normals of the triangles around its welded position that
+ * <ul>
+ *   <li>belong to the same smoothing group (the OBJ 's' statement); triangles in group 0 are flat
+ *       and simply use their own face normal, and</li>
+ *   <li>deviate from the corner's own triangle by no more than the crease angle.</li>
+ * </ul>
+ * Without a crease angle the normal of a corner only depends on its welded position and group, and
+ * is accumulated in parallel: each worker sums the face normals of its stripe of triangles into a
+ * private accumulator, and the accumulators are then reduced. With a crease angle every corner
+ * gathers the compatible face normals around it, again in parallel over stripes of triangles.
+ * <p>
+ * Corners that end up with identical normals share one entry of the resulting normal list, so
+ * indexed meshes keep sharing vertices across smooth regions.
+ */
+public class NormalGenerator
+{
+	/** Below this number of triangles per worker, work is not split. */
+	private static final int MIN_TRIANGLES_PER_WORKER = 2048;
+
+	/** Maximum angle, in radians, between triangles whose normals are averaged. Pi disables creases. */
+	private float creaseAngle = (float)Math.PI;
+	/** Positions closer than this (on every axis) are welded. Zero welds identical positions only. */
+	private float weldTolerance = 1e-6f;
+	/** Maximum number of worker threads. */
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Generated normals: a list of unique normals and, for every triangle corner, the index of its normal.
+	 */
+	public static class Result
+	{
+		/** The unique unit normals. */
+		public final float[][] normals;
+		/** For each corner (in the order of the input triangle list), the index of its normal in {@link #normals}. */
+		public final int[] cornerNormals;
+
+		Result(float[][] normals, int[] cornerNormals)
+		{
+			this.normals = normals;
+			this.cornerNormals = cornerNormals;
+		}
+	}
+
+	/**
+	 * Generates normals for every corner of a triangle list.
+	 *
+	 * @param positions The vertex positions.
+	 * @param triangles The triangle list, three indices into {@code positions} per triangle.
+	 * @param smoothingGroups The smoothing group of each triangle, 0 for flat triangles. May be null,
+	 *                        in which case all triangles are smoothed together.
+	 * @return The generated normals.
+	 */
+	public Result generate(float[][] positions, int[] triangles, int[] smoothingGroups)
+	{
+		int triCount = triangles.length / 3;
+		int[] groups = smoothingGroups;
+		if(groups == null) {
+			groups = new int[triCount];
+			Arrays.fill(groups, 1);
+		}
+		int[] weld = weld(positions);
+		float[] faceNormals = new float[triCount * 3];
+		float[] cornerNormals;
+		if(creaseAngle >= Math.PI)
+			cornerNormals = accumulate(positions, triangles, groups, weld, faceNormals);
+		else
+			cornerNormals = gather(positions, triangles, groups, weld, faceNormals);
+		return share(cornerNormals);
+	}
+
+	/**
+	 * Welds coincident positions.
+	 *
+	 * @param positions The vertex positions.
+	 * @return For each position, the index of the first position it was welded to (possibly itself).
+	 */
+	int[] weld(float[][] positions)
+	{
+		int n = positions.length;
+		int[] weld = new int[n];
+		int[] next = new int[n];
+		float cell = Math.max(weldTolerance, Float.MIN_NORMAL) * 2;
+		HashMap<Long, Integer> heads = new HashMap<Long, Integer>(n * 2);
+		for(int i = 0; i < n; i++)
+		{
+			float[] p = positions[i];
+			long cx = (long)Math.floor(p[0] / cell), cy = (long)Math.floor(p[1] / cell), cz = (long)Math.floor(p[2] / cell);
+			weld[i] = i;
+			// A point within the tolerance lies in the same cell or in an adjacent one
+			search:
+			for(long dx = -1; dx <= 1; dx++)
+				for(long dy = -1; dy <= 1; dy++)
+					for(long dz = -1; dz <= 1; dz++)
+					{
+						Integer head = heads.get(cellKey(cx + dx, cy + dy, cz + dz));
+						for(int j = head == null ? -1 : head; j >= 0; j = next[j])
+						{
+							float[] q = positions[j];
+							if(Math.abs(p[0] - q[0]) <= weldTolerance && Math.abs(p[1] - q[1]) <= weldTolerance && Math.abs(p[2] - q[2]) <= weldTolerance)
+							{
+								weld[i] = weld[j];
+								break search;
+							}
+						}
+					}
+			if(weld[i] == i)
+			{
+				// Only representatives are inserted, so chains stay short
+				Long key = cellKey(cx, cy, cz);
+				Integer head = heads.get(key);
+				next[i] = head == null ? -1 : head;
+				heads.put(key, i);
+			}
+		}
+		return weld;
+	}
+
+	private static long cellKey(long x, long y, long z)
+	{
+		return (x * 73856093L) ^ (y * 19349663L) ^ (z * 83492791L);
+	}
+
+	/**
+	 * Smooth normals without creases: normals are accumulated per (welded position, smoothing group)
+	 * slot, into one accumulator per worker.
+	 */
+	private float[] accumulate(final float[][] positions, final int[] triangles, final int[] groups, int[] weld, final float[] faceNormals)
+	{
+		final int triCount = groups.length;
+		// Assign a slot to every (welded position, group) pair used by a smooth corner
+		final int[] cornerSlots = new int[triCount * 3];
+		HashMap<Long, Integer> slotIds = new HashMap<Long, Integer>();
+		for(int c = 0; c < cornerSlots.length; c++)
+		{
+			int group = groups[c / 3];
+			if(group == 0) {
+				cornerSlots[c] = -1;
+				continue;
+			}
+			Long key = ((long)weld[triangles[c]] << 32) | (group & 0xFFFFFFFFL);
+			Integer slot = slotIds.get(key);
+			if(slot == null) {
+				slot = slotIds.size();
+				slotIds.put(key, slot);
+			}
+			cornerSlots[c] = slot;
+		}
+		final int slotCount = slotIds.size();
+		final int workers = workers(triCount);
+		final float[][] accumulators = new float[workers][slotCount * 3];
+		IntStream.range(0, workers).parallel().forEach(w -> {
+			float[] acc = accumulators[w];
+			for(int t = w * triCount / workers, end = (w + 1) * triCount / workers; t < end; t++)
+			{
+				faceNormal(positions, triangles, t, faceNormals);
+				for(int k = 0; k < 3; k++)
+				{
+					int slot = cornerSlots[t*3 + k];
+					if(slot >= 0) {
+						acc[slot*3] += faceNormals[t*3];
+						acc[slot*3 + 1] += faceNormals[t*3 + 1];
+						acc[slot*3 + 2] += faceNormals[t*3 + 2];
+					}
+				}
+			}
+		});
+		// Reduce the accumulators into the first one, in parallel over slot ranges
+		final float[] sum = accumulators[0];
+		IntStream.range(0, workers).parallel().forEach(w -> {
+			for(int i = w * slotCount / workers * 3, end = (w + 1) * slotCount / workers * 3; i < end; i++)
+				for(int a = 1; a < workers; a++)
+					sum[i] += accumulators[a][i];
+		});
+
+		float[] cornerNormals = new float[triCount * 9];
+		for(int c = 0; c < cornerSlots.length; c++)
+		{
+			int slot = cornerSlots[c];
+			if(slot >= 0)
+				setNormalized(cornerNormals, c, sum[slot*3], sum[slot*3 + 1], sum[slot*3 + 2], faceNormals, c / 3);
+			else
+				setNormalized(cornerNormals, c, faceNormals[c/3*3], faceNormals[c/3*3 + 1], faceNormals[c/3*3 + 2], faceNormals, c / 3);
+		}
+		return cornerNormals;
+	}
+
+	/**
+	 * Smooth normals with creases: each corner gathers the compatible face normals around its
+	 * welded position.
+	 */
+	private float[] gather(final float[][] positions, final int[] triangles, final int[] groups, final int[] weld, final float[] faceNormals)
+	{
+		final int triCount = groups.length;
+		final int workers = workers(triCount);
+		IntStream.range(0, workers).parallel().forEach(w -> {
+			for(int t = w * triCount / workers, end = (w + 1) * triCount / workers; t < end; t++)
+				faceNormal(positions, triangles, t, faceNormals);
+		});
+
+		// Triangles around each welded position: adjacency[offsets[v] .. offsets[v+1]]
+		final int[] offsets = new int[positions.length + 1];
+		for(int c = 0; c < triCount * 3; c++)
+			offsets[weld[triangles[c]] + 1]++;
+		for(int v = 0; v < positions.length; v++)
+			offsets[v + 1] += offsets[v];
+		final int[] adjacency = new int[triCount * 3];
+		int[] fill = Arrays.copyOf(offsets, positions.length);
+		for(int c = 0; c < triCount * 3; c++)
+			adjacency[fill[weld[triangles[c]]]++] = c / 3;
+
+		final float cosCrease = (float)Math.cos(creaseAngle);
+		final float[] cornerNormals = new float[triCount * 9];
+		IntStream.range(0, workers).parallel().forEach(w -> {
+			for(int t = w * triCount / workers, end = (w + 1) * triCount / workers; t < end; t++)
+			{
+				float nx = faceNormals[t*3], ny = faceNormals[t*3 + 1], nz = faceNormals[t*3 + 2];
+				float len = (float)Math.sqrt(nx*nx + ny*ny + nz*nz);
+				for(int k = 0; k < 3; k++)
+				{
+					int c = t*3 + k;
+					if(groups[t] == 0 || len == 0) {
+						setNormalized(cornerNormals, c, nx, ny, nz, faceNormals, t);
+						continue;
+					}
+					float sx = 0, sy = 0, sz = 0;
+					int v = weld[triangles[c]];
+					for(int a = offsets[v]; a < offsets[v + 1]; a++)
+					{
+						int f = adjacency[a];
+						if(groups[f] != groups[t])
+							continue;
+						float fx = faceNormals[f*3], fy = faceNormals[f*3 + 1], fz = faceNormals[f*3 + 2];
+						float flen = (float)Math.sqrt(fx*fx + fy*fy + fz*fz);
+						if(f != t && (nx*fx + ny*fy + nz*fz) < cosCrease * len * flen)
+							continue;
+						sx += fx;
+						sy += fy;
+						sz += fz;
+					}
+					setNormalized(cornerNormals, c, sx, sy, sz, faceNormals, t);
+				}
+			}
+		});
+		return cornerNormals;
+	}
+
+	/**
+	 * Computes the area-weighted (non normalized) normal of a triangle.
+	 */
+	private static void faceNormal(float[][] positions, int[] triangles, int t, float[] faceNormals)
+	{
+		float[] p0 = positions[triangles[t*3]], p1 = positions[triangles[t*3 + 1]], p2 = positions[triangles[t*3 + 2]];
+		float e1x = p1[0] - p0[0], e1y = p1[1] - p0[1], e1z = p1[2] - p0[2];
+		float e2x = p2[0] - p0[0], e2y = p2[1] - p0[1], e2z = p2[2] - p0[2];
+		faceNormals[t*3] = e1y*e2z - e1z*e2y;
+		faceNormals[t*3 + 1] = e1z*e2x - e1x*e2z;
+		faceNormals[t*3 + 2] = e1x*e2y - e1y*e2x;
+	}
+
+	/**
+	 * Stores the normalized vector (x, y, z) as the normal of corner c, falling back to the normal
+	 * of face t when the sum cancels out (and to zero for degenerate faces).
+	 */
+	private static void setNormalized(float[] cornerNormals, int c, float x, float y, float z, float[] faceNormals, int t)
+	{
+		float len = (float)Math.sqrt(x*x + y*y + z*z);
+		if(len == 0) {
+			x = faceNormals[t*3];
+			y = faceNormals[t*3 + 1];
+			z = faceNormals[t*3 + 2];
+			len = (float)Math.sqrt(x*x + y*y + z*z);
+			if(len == 0)
+				len = 1;
+		}
+		cornerNormals[c*3] = x / len;
+		cornerNormals[c*3 + 1] = y / len;
+		cornerNormals[c*3 + 2] = z / len;
+	}
+
+	/**
+	 * Builds the list of unique normals and indexes every corner into it.
+	 */
+	private static Result share(float[] cornerNormals)
+	{
+		int corners = cornerNormals.length / 3;
+		int[] indices = new int[corners];
+		HashMap<NormalKey, Integer> ids = new HashMap<NormalKey, Integer>();
+		ArrayList<float[]> normals = new ArrayList<float[]>();
+		for(int c = 0; c < corners; c++)
+		{
+			NormalKey key = new NormalKey(cornerNormals[c*3], cornerNormals[c*3 + 1], cornerNormals[c*3 + 2]);
+			Integer id = ids.get(key);
+			if(id == null) {
+				id = normals.size();
+				ids.put(key, id);
+				normals.add(new float[]{key.x, key.y, key.z});
+			}
+			indices[c] = id;
+		}
+		return new Result(normals.toArray(new float[normals.size()][]), indices);
+	}
+
+	private int workers(int triCount)
+	{
+		return Math.max(1, Math.min(parallelism, triCount / MIN_TRIANGLES_PER_WORKER));
+	}
+
+	public float getCreaseAngle() {
+		return creaseAngle;
+	}
+
+	/**
+	 * Sets the crease angle.
+	 * @param creaseAngle The maximum angle in radians between triangles whose normals are averaged;
+	 *                    Pi (the default) or more disables creases.
+	 */
+	public void setCreaseAngle(float creaseAngle) {
+		this.creaseAngle = creaseAngle;
+	}
+
+	public float getWeldTolerance() {
+		return weldTolerance;
+	}
+
+	public void setWeldTolerance(float weldTolerance) {
+		this.weldTolerance = weldTolerance;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Hash key comparing normals by exact value, as {@link MyMath#areEqual(float[], float[])} does.
+	 */
+	private static class NormalKey
+	{
+		final float x, y, z;
+
+		NormalKey(float x, float y, float z)
+		{
+			// Adding zero turns -0 into +0, so that equal keys have equal hash codes
+			this.x = x + 0.0f;
+			this.y = y + 0.0f;
+			this.z = z + 0.0f;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof NormalKey))
+				return false;
+			NormalKey other = (NormalKey)o;
+			return x == other.x && y == other.y && z == other.z;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (Float.floatToIntBits(x) * 31 + Float.floatToIntBits(y)) * 31 + Float.floatToIntBits(z);
+		}
+	}
+}
@@ -1,23 +1,34 @@
 package com.codnyx.myengine;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.regex.Pattern;
 
 /**
  * Parses Wavefront OBJ files to create {@link Mesh} objects.
- * This parser handles vertex positions ('v'), vertex normals ('vn'), and face definitions ('f').
+ * This parser handles vertex positions ('v'), vertex normals ('vn'), texture coordinates ('vt'),
+ * face definitions ('f') and materials ('mtllib', 'usemtl', see {@link MtlParser}).
  * It supports different face formats:
  * <ul>
  *   <li>f v1 v2 v3 ... (vertex indices only)</li>
  *   <li>f v1//vn1 v2//vn2 v3//vn3 ... (vertex and normal indices)</li>
- *   <li>f v1/vt1/vn1 v2/vt2/vn2 v3/vt3/vn3 ... (vertex, texture, and normal indices - texture coordinate currently ignored)</li>
+ *   <li>f v1/vt1 v2/vt2 v3/vt3 ... (vertex and texture indices)</li>
+ *   <li>f v1/vt1/vn1 v2/vt2/vn2 v3/vt3/vn3 ... (vertex, texture, and normal indices)</li>
  * </ul>
- * The parser can optionally center the mesh around the origin (balanceVertices) and
- * compute face normals if they are not provided (computeNormals).
+ * Texture coordinates are stored on the resulting vertices and interpolated by the renderer.
+ * Polygons take the diffuse texture map of their material as {@link Polygon#texture}, and vertices its
+ * diffuse color; texture maps are shared through a {@link TextureCache}.
+ * The parser can optionally center the mesh around the origin (balanceVertices),
+ * compute normals if they are not provided (computeNormals, see {@link NormalGenerator}), and reorder
+ * triangles and vertices for vertex reuse and reduced overdraw (optimizeMesh, see {@link MeshOptimizer}).
+ * Computed normals follow the smoothing groups set by 's' statements: faces in group 0 ('s off') are
+ * flat shaded, faces sharing a group are smoothed across their shared positions.
  */
 public class ObjParser 
 {
@@ -28,27 +39,53 @@ public class ObjParser
 	private boolean balanceVertices = true;
 	/** 
 	 * If true, and if faces are defined without normals (e.g., "f v1 v2 v3"), 
-	 * face normals will be computed. Defaults to true.
+	 * normals will be computed. Defaults to true.
 	 */
 	private boolean computeNormals = true;
+	/** Generator used for faces without normals when {@link #computeNormals} is set. */
+	private NormalGenerator normalGenerator = new NormalGenerator();
+	/** 
+	 * Smoothing group of the faces preceding any 's' statement. Defaults to 0, which gives flat
+	 * normals as the OBJ format specifies; a non-zero group smooths files without smoothing groups,
+	 * such as scanned meshes.
+	 */
+	private int defaultSmoothingGroup = 0;
+	/** 
+	 * Location that 'mtllib' file names are resolved against. Set by {@link #parseFile(String)};
+	 * when null, material libraries are looked up at the classpath root. 
+	 */
+	private URL baseLocation;
+	/** Cache through which material texture maps are decoded and shared. */
+	private TextureCache textureCache = TextureCache.getDefault();
+	/** 
+	 * If true, triangles are reordered with a {@link MeshOptimizer} and vertices are created in
+	 * the order the triangles first use them. Defaults to false, which keeps the file order.
+	 */
+	private boolean optimizeMesh = false;
 
 	public Mesh parseFile(String filename) throws IOException
 	{
 		BufferedReader stream = new BufferedReader(new FileReader(filename));
-		return parseStream(stream);
-		
+		URL previous = baseLocation;
+		baseLocation = new File(filename).getAbsoluteFile().toURI().toURL();
+		try {
+			return parseStream(stream);
+		} finally {
+			baseLocation = previous;
+			stream.close();
+		}
 	}
 
 	public Mesh parseStream(BufferedReader stream) throws IOException
 	{
 		String line = null;
 		ScanData sd = new ScanData(); 
+		sd.smoothingGroup = defaultSmoothingGroup;
 		MeshData md = new MeshData(); 
 		Mesh currentMesh = new Mesh(); 
 		int lineindex = 0;
 		
 		stream.mark(10000000); 
-		boolean markedAfterVertexScan = false; 
 		
 		while((line = stream.readLine()) != null)
 		{
@@ -62,33 +99,10 @@ public class ObjParser
 				sd.vertexList.add(parseVector(tokens));
 			else if(tokens[0].equalsIgnoreCase("vn"))
 				sd.normalList.add(parseVector(tokens));
-			else if (tokens[0].equalsIgnoreCase("f")) {
-				if (!markedAfterVertexScan) {
-					stream.reset(); 
-					stream.mark(10000000); 
-					markedAfterVertexScan = true; 
-					
-					String firstFaceLine = line; // Save the current line
-					// Need to re-process this first face line in the second pass
-					// One way is to just let the second pass re-read it.
-					// The current structure will re-read the stream from the new mark.
-					// However, if the mark was set *after* reading some v/vn lines,
-					// and then reset() to global mark, then a new mark *before* the first 'f',
-					// the current line needs to be re-processed in the *second* pass.
-					// The logic here is a bit complex. A simpler way:
-					// 1. Read all v, vn.
-					// 2. stream.reset() to the *very beginning*.
-					// 3. Read all f.
-					// The current two-pass logic with one initial mark should work if the reset()
-					// correctly brings it back to the start, and the second loop correctly
-					// ignores v/vn and only processes f.
-					// The issue with 'tokens = stream.readLine().trim().split("\\s+");' here is that
-					// it consumes a line that the *second pass* is supposed to read.
-					// This part of the logic regarding `markedAfterVertexScan` seems overly complex
-					// and potentially buggy for files with interleaved v/vn/f.
-					// For now, assume files have all v/vn before f or the single initial mark is enough.
-				}
-			}
+			else if(tokens[0].equalsIgnoreCase("vt"))
+				sd.texCoordList.add(parseTexCoord(tokens));
+			else if(tokens[0].equalsIgnoreCase("mtllib"))
+				loadMaterials(tokens, sd);
 			else
 			{
 				if(!tokens[0].equals("f") && !tokens[0].equalsIgnoreCase("v") && !tokens[0].equalsIgnoreCase("vn") && !tokens[0].equalsIgnoreCase("vt") && !tokens[0].startsWith("#") && !tokens[0].equalsIgnoreCase("o") && !tokens[0].equalsIgnoreCase("g") && !tokens[0].equalsIgnoreCase("s") && !tokens[0].equalsIgnoreCase("mtllib") && !tokens[0].equalsIgnoreCase("usemtl")) {
@@ -114,9 +128,20 @@ public class ObjParser
 			if(tokens[0].equalsIgnoreCase("f")) {
 				parseFace(tokens, md, sd);				
 			}
+			else if(tokens[0].equalsIgnoreCase("usemtl")) {
+				useMaterial(tokens, sd, lineindex);
+			}
+			else if(tokens[0].equalsIgnoreCase("s")) {
+				useSmoothingGroup(tokens, sd, lineindex);
+			}
 		}
+		
+		if(computeNormals) {
+			generateNormals(sd);
+		}
+		sd.faces.addTo(md, sd);
 				
-		md.populateMesh(currentMesh); 
+		md.populateMesh(currentMesh, optimizeMesh ? new MeshOptimizer() : null); 
 		return currentMesh;
 	}
 
@@ -157,7 +182,6 @@ public class ObjParser
 		else if(Pattern.matches("\\d+/\\d+/\\d+", sample)) 
 			parseFullFace(tokens,md, sd);
 		else if(Pattern.matches("\\d+/\\d+", sample)) { 
-			System.out.println("ObjParser: Face format v/vt found. Texture coordinates are read but normals will be computed if not available via v/vt/vn or v//vn.");
 			parseVNTFace_TextureOnly(tokens, md, sd); 
 		} else {
 			System.err.println("ObjParser: Unknown or unsupported face format for token '" + sample + "' in line: " + String.join(" ", tokens) + ". Skipping face.");
@@ -167,9 +191,9 @@ public class ObjParser
 	private void parseFullFace(String[] tokens, MeshData md, ScanData sd)  
 	{
 		int numVertices = tokens.length - 1;
-		short[] vIndices = new short[numVertices];
-		short[] tIndices = new short[numVertices]; 
-		short[] nIndices = new short[numVertices];
+		int[] vIndices = new int[numVertices];
+		int[] tIndices = new int[numVertices]; 
+		int[] nIndices = new int[numVertices];
 
 		for(int i = 0; i < numVertices; i++)
 		{
@@ -179,32 +203,27 @@ public class ObjParser
 				return;
 			}
 			try {
-				vIndices[i] = (short) (Short.parseShort(parts[0])-1); 
+				vIndices[i] = Integer.parseInt(parts[0]) - 1; 
 				if (!parts[1].isEmpty()) { 
-					tIndices[i] = (short) (Short.parseShort(parts[1])-1);
+					tIndices[i] = Integer.parseInt(parts[1]) - 1;
 				} else {
 					tIndices[i] = -1; 
 				}
-				nIndices[i] = (short) (Short.parseShort(parts[2])-1);
+				nIndices[i] = Integer.parseInt(parts[2]) - 1;
 			} catch (NumberFormatException e) {
                 System.err.println("ObjParser: Error parsing face index in '" + tokens[i+1] + "': " + e.getMessage() + ". Skipping face.");
                 return;
             }
 		}
 		
-		for(int i = 1; i < numVertices - 1; i++) 
-		{
-			md.addIndex(vIndices[0], nIndices[0], tIndices[0], sd);
-			md.addIndex(vIndices[i], nIndices[i], tIndices[i], sd);
-			md.addIndex(vIndices[i+1], nIndices[i+1], tIndices[i+1], sd);
-		}
+		sd.faces.addPolygon(vIndices, tIndices, nIndices, sd);
 	}
 
 	private void parseVNFace(String[] tokens, MeshData md, ScanData sd) 
 	{
 		int numVertices = tokens.length - 1;
-		short[] vIndices = new short[numVertices];
-		short[] nIndices = new short[numVertices];
+		int[] vIndices = new int[numVertices];
+		int[] nIndices = new int[numVertices];
 
 		for(int i = 0; i < numVertices; i++)
 		{
@@ -214,94 +233,37 @@ public class ObjParser
 				return;
 			}
 			try {
-				vIndices[i] = (short) (Short.parseShort(parts[0])-1);
-				nIndices[i] = (short) (Short.parseShort(parts[1])-1);
+				vIndices[i] = Integer.parseInt(parts[0]) - 1;
+				nIndices[i] = Integer.parseInt(parts[1]) - 1;
 			} catch (NumberFormatException e) {
                 System.err.println("ObjParser: Error parsing face index in '" + tokens[i+1] + "': " + e.getMessage() + ". Skipping face.");
                 return;
             }
 		}
 		
-		for(int i = 1; i < numVertices - 1; i++)
-		{
-			md.addIndex(vIndices[0], nIndices[0], (short)-1, sd); 
-			md.addIndex(vIndices[i], nIndices[i], (short)-1, sd);
-			md.addIndex(vIndices[i+1], nIndices[i+1], (short)-1, sd);
-		}
+		sd.faces.addPolygon(vIndices, null, nIndices, sd);
 	}
 	
 	private void parseSimpleFace(String[] tokens, MeshData md, ScanData sd) 
 	{
 		int numVertices = tokens.length - 1;
-		short[] vertexIndices = new short[numVertices];
+		int[] vertexIndices = new int[numVertices];
 		for(int i = 0; i < numVertices; i++) {
 			try {
-				vertexIndices[i] = (short) (Short.parseShort(tokens[i+1])-1); 
+				vertexIndices[i] = Integer.parseInt(tokens[i+1]) - 1; 
 			} catch (NumberFormatException e) {
                 System.err.println("ObjParser: Error parsing face index in '" + tokens[i+1] + "': " + e.getMessage() + ". Skipping face.");
                 return;
             }
 		}
 		
-		short normalIndexToUse = -1;
-		boolean canComputeNormal = computeNormals; // Assume we can unless checks fail
-
-		if(computeNormals)
-		{
-			if (numVertices < 3) {
-				System.err.println("ObjParser: Cannot compute normal for a face with less than 3 vertices. Skipping face: " + String.join(" ", tokens));
-				return; // Skip face entirely if too few vertices for normal calculation
-			}
-			
-			// Validate indices before using them for normal computation
-			if (vertexIndices[0] < 0 || vertexIndices[0] >= sd.vertexList.size() ||
-			    vertexIndices[1] < 0 || vertexIndices[1] >= sd.vertexList.size() ||
-			    vertexIndices[2] < 0 || vertexIndices[2] >= sd.vertexList.size()) {
-				System.err.println("ObjParser: Vertex index out of bounds during normal computation for face: " + String.join(" ", tokens) + ". Skipping normal computation for this face.");
-				canComputeNormal = false; // Don't compute normal, normalIndexToUse will remain -1
-			}
-
-			if (canComputeNormal) {
-				float[] normal = {0,0,0};
-				float[] edge1 = {0,0,0};
-				float[] edge2 = {0,0,0};
-				float[] v0 = sd.vertexList.get(vertexIndices[0]);
-				float[] v1 = sd.vertexList.get(vertexIndices[1]);
-				float[] v2 = sd.vertexList.get(vertexIndices[2]);
-
-				MyMath.subtract(v1, v0, edge1);
-				MyMath.subtract(v2, v0, edge2); 
-				
-				MyMath.crossProduct(edge1, edge2, normal);
-				MyMath.normalize(normal); 
-
-				boolean found = false;
-				for(int k=0; k < sd.normalList.size(); k++) { 
-					if(MyMath.areEqual(sd.normalList.get(k), normal)) {
-						normalIndexToUse = (short)k;
-						found = true;
-						break;
-					}
-				}
-				if(!found) {
-					normalIndexToUse = (short) sd.normalList.size();
-					sd.normalList.add(normal);
-				}
-			}
-		}
-		
-		for(int i = 1; i < numVertices - 1; i++)
-		{
-			md.addIndex(vertexIndices[0], normalIndexToUse, (short)-1, sd);
-			md.addIndex(vertexIndices[i], normalIndexToUse, (short)-1, sd);
-			md.addIndex(vertexIndices[i+1], normalIndexToUse, (short)-1, sd);
-		}
+		sd.faces.addPolygon(vertexIndices, null, null, sd);
 	}
 
 	private void parseVNTFace_TextureOnly(String[] tokens, MeshData md, ScanData sd) {
 		int numVertices = tokens.length - 1;
-		short[] vIndices = new short[numVertices];
-		short[] tIndices = new short[numVertices]; 
+		int[] vIndices = new int[numVertices];
+		int[] tIndices = new int[numVertices]; 
 
 		for (int i = 0; i < numVertices; i++) {
 			String[] parts = tokens[i + 1].split("/");
@@ -310,64 +272,110 @@ public class ObjParser
 				return;
 			}
 			try {
-				vIndices[i] = (short) (Short.parseShort(parts[0]) - 1);
-				tIndices[i] = (short) (Short.parseShort(parts[1]) - 1);
+				vIndices[i] = Integer.parseInt(parts[0]) - 1;
+				tIndices[i] = Integer.parseInt(parts[1]) - 1;
 			} catch (NumberFormatException e) {
                 System.err.println("ObjParser: Error parsing face index in '" + tokens[i+1] + "': " + e.getMessage() + ". Skipping face.");
                 return;
             }
 		}
 
-		short normalIndexToUse = -1;
-		boolean canComputeNormal = computeNormals;
+		sd.faces.addPolygon(vIndices, tIndices, null, sd);
+	}
 
-		if (computeNormals) {
-			if (numVertices < 3) {
-				System.err.println("ObjParser: Cannot compute normal for a face with less than 3 vertices (v/vt format). Skipping face: " + String.join(" ", tokens));
-				return; // Skip face entirely
+	/**
+	 * Parses a 'vt' statement. OBJ texture coordinates have their origin at the bottom-left
+	 * corner of the image, so v is flipped to match the top-left origin used by {@link Vertex#getTexCoord()}.
+	 */
+	private float[] parseTexCoord(String[] tokens) {
+		float[] t = {0,0};
+		for(int i = 1; i < Math.min(3, tokens.length); i++) {
+			try {
+				t[i-1] = Float.parseFloat(tokens[i]);
+			} catch (NumberFormatException e) {
+				System.err.println("ObjParser: Error parsing float value '" + tokens[i] + "' in line: " + String.join(" ", tokens) + ". Using 0.0.");
 			}
-			
-			if (vIndices[0] < 0 || vIndices[0] >= sd.vertexList.size() ||
-			    vIndices[1] < 0 || vIndices[1] >= sd.vertexList.size() ||
-			    vIndices[2] < 0 || vIndices[2] >= sd.vertexList.size()) {
-				System.err.println("ObjParser: Vertex index out of bounds during normal computation for v/vt face: " + String.join(" ", tokens) + ". Skipping normal computation for this face.");
-				canComputeNormal = false;
+		}
+		t[1] = 1.0f - t[1];
+		return t;
+	}
+
+	private void loadMaterials(String[] tokens, ScanData sd) {
+		MtlParser mtlParser = new MtlParser(textureCache);
+		for(int i = 1; i < tokens.length; i++) {
+			URL location = MtlParser.resolve(baseLocation, tokens[i]);
+			if(location == null) {
+				System.err.println("ObjParser: Material library '" + tokens[i] + "' not found. Skipping.");
+				continue;
+			}
+			try {
+				sd.materials.putAll(mtlParser.parse(location));
+			} catch (IOException e) {
+				System.err.println("ObjParser: Error reading material library '" + tokens[i] + "': " + e.getMessage() + ". Skipping.");
 			}
+		}
+	}
 
-			if (canComputeNormal) {
-				float[] normal = {0,0,0};
-				float[] edge1 = {0,0,0};
-				float[] edge2 = {0,0,0};
-				float[] v0 = sd.vertexList.get(vIndices[0]);
-				float[] v1 = sd.vertexList.get(vIndices[1]);
-				float[] v2 = sd.vertexList.get(vIndices[2]);
+	private void useSmoothingGroup(String[] tokens, ScanData sd, int lineindex) {
+		if(tokens.length < 2 || tokens[1].equalsIgnoreCase("off")) {
+			sd.smoothingGroup = 0;
+			return;
+		}
+		try {
+			sd.smoothingGroup = Integer.parseInt(tokens[1]);
+		} catch (NumberFormatException e) {
+			System.err.println("ObjParser: Invalid smoothing group '" + tokens[1] + "' at line " + lineindex + ". Using flat normals.");
+			sd.smoothingGroup = 0;
+		}
+	}
 
-				MyMath.subtract(v1, v0, edge1);
-				MyMath.subtract(v2, v0, edge2);
-				
-				MyMath.crossProduct(edge1, edge2, normal);
-				MyMath.normalize(normal);
-
-				boolean found = false;
-				for(int k=0; k < sd.normalList.size(); k++) { 
-					if(MyMath.areEqual(sd.normalList.get(k), normal)) {
-						normalIndexToUse = (short)k;
-						found = true;
-						break;
-					}
-				}
-				if(!found) {
-					normalIndexToUse = (short) sd.normalList.size();
-					sd.normalList.add(normal);
-				}
+	/**
+	 * Computes normals for the faces defined without them, and appends them to the normal list.
+	 */
+	private void generateNormals(ScanData sd) {
+		FaceList faces = sd.faces;
+		int pending = 0;
+		for(int t = 0; t < faces.count; t++) {
+			if(faces.n[t*3] != FaceList.PENDING_NORMAL)
+				continue;
+			if(!faces.hasValidVertices(t, sd.vertexList.size())) {
+				System.err.println("ObjParser: Vertex index out of bounds during normal computation for face: " + faces.toString(t) + ". Skipping normal computation for this face.");
+				faces.n[t*3] = faces.n[t*3+1] = faces.n[t*3+2] = -1;
+				continue;
 			}
+			pending++;
 		}
+		if(pending == 0)
+			return;
 
-		for (int i = 1; i < numVertices - 1; i++) {
-			md.addIndex(vIndices[0], normalIndexToUse, tIndices[0], sd);
-			md.addIndex(vIndices[i], normalIndexToUse, tIndices[i], sd);
-			md.addIndex(vIndices[i+1], normalIndexToUse, tIndices[i+1], sd);
+		int[] triangles = new int[pending * 3];
+		int[] groups = new int[pending];
+		int k = 0;
+		for(int t = 0; t < faces.count; t++) {
+			if(faces.n[t*3] != FaceList.PENDING_NORMAL)
+				continue;
+			System.arraycopy(faces.v, t*3, triangles, k*3, 3);
+			groups[k++] = faces.groups[t];
 		}
+		NormalGenerator.Result result = normalGenerator.generate(sd.vertexList.toArray(new float[sd.vertexList.size()][]), triangles, groups);
+
+		int offset = sd.normalList.size();
+		for(float[] normal: result.normals)
+			sd.normalList.add(normal);
+		k = 0;
+		for(int t = 0; t < faces.count; t++) {
+			if(faces.n[t*3] != FaceList.PENDING_NORMAL)
+				continue;
+			for(int c = 0; c < 3; c++)
+				faces.n[t*3 + c] = offset + result.cornerNormals[k*3 + c];
+			k++;
+		}
+	}
+
+	private void useMaterial(String[] tokens, ScanData sd, int lineindex) {
+		sd.currentMaterial = tokens.length > 1 ? sd.materials.get(tokens[1]) : null;
+		if(tokens.length > 1 && sd.currentMaterial == null)
+			System.err.println("ObjParser: Unknown material '" + tokens[1] + "' at line " + lineindex + ". Using default material.");
 	}
 
 	private float[] parseVector(String[] tokens) {
@@ -398,17 +406,65 @@ public class ObjParser
 	public void setComputeNormals(boolean computeNormals) {
 		this.computeNormals = computeNormals;
 	}
+
+	public URL getBaseLocation() {
+		return baseLocation;
+	}
+
+	public void setBaseLocation(URL baseLocation) {
+		this.baseLocation = baseLocation;
+	}
+
+	public TextureCache getTextureCache() {
+		return textureCache;
+	}
+
+	public void setTextureCache(TextureCache textureCache) {
+		this.textureCache = textureCache;
+	}
+
+	public NormalGenerator getNormalGenerator() {
+		return normalGenerator;
+	}
+
+	public void setNormalGenerator(NormalGenerator normalGenerator) {
+		this.normalGenerator = normalGenerator;
+	}
+
+	public int getDefaultSmoothingGroup() {
+		return defaultSmoothingGroup;
+	}
+
+	public void setDefaultSmoothingGroup(int defaultSmoothingGroup) {
+		this.defaultSmoothingGroup = defaultSmoothingGroup;
+	}
+
+	public boolean isOptimizeMesh() {
+		return optimizeMesh;
+	}
+
+	public void setOptimizeMesh(boolean optimizeMesh) {
+		this.optimizeMesh = optimizeMesh;
+	}
 }
 
 class MeshData
 {
-	HashMap<VertexData, Short> ids = new HashMap<VertexData, Short>();
+	HashMap<VertexData, Integer> ids = new HashMap<VertexData, Integer>();
 	ArrayList<float[]> vertices = new ArrayList<float[]>();
 	ArrayList<float[]> normals = new ArrayList<float[]>();
-	ArrayList<Short> indices = new ArrayList<Short>();
+	ArrayList<float[]> texCoords = new ArrayList<float[]>();
+	ArrayList<Material> materials = new ArrayList<Material>();
+	ArrayList<Integer> indices = new ArrayList<Integer>();
 	
-	void populateMesh(Mesh m)
+	void populateMesh(Mesh m, MeshOptimizer optimizer)
 	{
+		int[] triangles = new int[indices.size() - indices.size() % 3];
+		for(int i = 0; i < triangles.length; i++)
+			triangles[i] = indices.get(i);
+		if(optimizer != null && triangles.length > 3)
+			optimize(triangles, optimizer);
+
 		Boolean hasNormalsConsistently = null; // This logic can be simplified or removed if Vertex.normal can be null
         if (!normals.isEmpty() && vertices.size() == normals.size()) { // Ensure normals list matches vertices if used
             boolean firstNormalPresent = normals.get(0) != null;
@@ -432,41 +488,74 @@ class MeshData
             if (i < normals.size() && normals.get(i) != null) { // Check size and null for safety
 				finalVertices[i].setNormal(normals.get(i)); 
 			}
+			finalVertices[i].setTexCoord(texCoords.get(i));
+			if (materials.get(i) != null) {
+				finalVertices[i].setRGBColor(materials.get(i).diffuseColor);
+			}
 		}
 		
-		for(int i = 0; i < indices.size(); i+=3)
+		for(int i = 0; i < triangles.length; i+=3)
 		{
-			if (i + 2 < indices.size()) { 
-				Vertex[] triVertices = new Vertex[]{
-						finalVertices[indices.get(i)], 
-						finalVertices[indices.get(i+1)], 
-						finalVertices[indices.get(i+2)]
-				};
-				m.addPolygon(new Polygon(triVertices));
-			} else {
-				System.err.println("ObjParser.MeshData: Incomplete triangle at end of index list. Expected 3 indices, found " + (indices.size() - i));
+			Vertex[] triVertices = new Vertex[]{
+					finalVertices[triangles[i]], 
+					finalVertices[triangles[i+1]], 
+					finalVertices[triangles[i+2]]
+			};
+			Polygon polygon = new Polygon(triVertices);
+			// Vertices are keyed by material, so all three corners share the same one
+			Material material = materials.get(triangles[i]);
+			if (material != null) {
+				polygon.texture = material.diffuseMap;
 			}
+			m.addPolygon(polygon);
+		}
+		if (triangles.length < indices.size()) {
+			System.err.println("ObjParser.MeshData: Incomplete triangle at end of index list. Expected 3 indices, found " + (indices.size() - triangles.length));
 		}
 	}
 
-	void addIndex(short vertexIndex, ScanData sd) 
+	/**
+	 * Reorders the triangles for vertex reuse and overdraw, then renumbers the vertices (and
+	 * permutes their attribute lists) in the order the reordered triangles first use them.
+	 */
+	private void optimize(int[] triangles, MeshOptimizer optimizer)
+	{
+		int vertexCount = vertices.size();
+		int[] sorted = optimizer.reorderTriangles(triangles, vertices.toArray(new float[vertexCount][]), vertexCount);
+		int[] order = optimizer.reorderVertices(sorted, vertexCount);
+		System.arraycopy(sorted, 0, triangles, 0, triangles.length);
+		vertices = permute(vertices, order);
+		normals = permute(normals, order);
+		texCoords = permute(texCoords, order);
+		materials = permute(materials, order);
+	}
+
+	private static <T> ArrayList<T> permute(ArrayList<T> list, int[] order)
+	{
+		ArrayList<T> result = new ArrayList<T>(order.length);
+		for(int i: order)
+			result.add(list.get(i));
+		return result;
+	}
+
+	void addIndex(int vertexIndex, ScanData sd) 
 	{
-		addIndex(vertexIndex, (short)-1, (short)-1, sd);
+		addIndex(vertexIndex, -1, -1, sd);
 	}
 	
-	void addIndex(short vertexIndex, short normalIndex, ScanData sd) 
+	void addIndex(int vertexIndex, int normalIndex, ScanData sd) 
 	{
-		addIndex(vertexIndex, normalIndex, (short)-1, sd); 
+		addIndex(vertexIndex, normalIndex, -1, sd); 
 	}
 
-	void addIndex(short vIdx, short nIdx, short tIdx, ScanData sd)
+	void addIndex(int vIdx, int nIdx, int tIdx, ScanData sd)
 	{
-		VertexData key = new VertexData(vIdx, tIdx, nIdx); 
-		Short finalIndex = ids.get(key);
+		VertexData key = new VertexData(vIdx, tIdx, nIdx, sd.currentMaterial); 
+		Integer finalIndex = ids.get(key);
 
 		if(finalIndex == null)
 		{
-			finalIndex = (short) vertices.size();
+			finalIndex = vertices.size();
 			ids.put(key, finalIndex);
 			
 			if (vIdx >= sd.vertexList.size() || vIdx < 0) {
@@ -489,17 +578,17 @@ class MeshData
 				normals.add(null); 
 			}
 			
-            // TODO: Add texture coordinate handling similarly if sd.texCoordList is populated
-            // if(tIdx != -1) {
-            //    if (tIdx < 0 || tIdx >= sd.texCoordList.size()) {
-            //        System.err.println("ObjParser.MeshData: Texture index " + (tIdx + 1) + " out of bounds. Using null texCoord.");
-            //        texCoords.add(null);
-            //    } else {
-            //        texCoords.add(sd.texCoordList.get(tIdx));
-            //    }
-            // } else {
-            //    texCoords.add(null);
-            // }
+			if(tIdx != -1) {
+				if (tIdx < 0 || tIdx >= sd.texCoordList.size()) {
+					System.err.println("ObjParser.MeshData: Texture index " + (tIdx + 1) + " (0-based " + tIdx + ") out of bounds for texCoordList (size " + sd.texCoordList.size() + "). Using no texture coordinates for this vertex instance.");
+					texCoords.add(null);
+				} else {
+					texCoords.add(sd.texCoordList.get(tIdx));
+				}
+			} else {
+				texCoords.add(null);
+			}
+			materials.add(sd.currentMaterial);
 		}
 		indices.add(finalIndex);
 	}
@@ -510,19 +599,102 @@ class ScanData
 {
 	ArrayList<float[]> vertexList = new ArrayList<float[]>();
 	ArrayList<float[]> normalList = new ArrayList<float[]>();
+	ArrayList<float[]> texCoordList = new ArrayList<float[]>();
+	HashMap<String, Material> materials = new HashMap<String, Material>();
+	Material currentMaterial;
+	int smoothingGroup;
+	FaceList faces = new FaceList();
+}
+
+/**
+ * Triangulated faces collected while scanning, so that missing normals can be generated for the
+ * whole mesh before the faces are indexed.
+ */
+class FaceList
+{
+	/** Normal index of corners whose normal is still to be generated. */
+	static final int PENDING_NORMAL = -2;
+
+	int count;
+	int[] v = new int[3 * 64];
+	int[] t = new int[3 * 64];
+	int[] n = new int[3 * 64];
+	int[] groups = new int[64];
+	Material[] materials = new Material[64];
+
+	/**
+	 * Adds a polygon as a fan of triangles.
+	 * @param tIndices Texture indices, or null if the face has none.
+	 * @param nIndices Normal indices, or null if the face has none (the normal is then generated if enabled).
+	 */
+	void addPolygon(int[] vIndices, int[] tIndices, int[] nIndices, ScanData sd)
+	{
+		for(int i = 1; i < vIndices.length - 1; i++)
+		{
+			if(count == groups.length)
+				grow();
+			int c = count * 3;
+			int[] corners = {0, i, i+1};
+			for(int k = 0; k < 3; k++)
+			{
+				v[c+k] = vIndices[corners[k]];
+				t[c+k] = tIndices != null ? tIndices[corners[k]] : -1;
+				n[c+k] = nIndices != null ? nIndices[corners[k]] : PENDING_NORMAL;
+			}
+			groups[count] = sd.smoothingGroup;
+			materials[count] = sd.currentMaterial;
+			count++;
+		}
+	}
+
+	boolean hasValidVertices(int triangle, int vertexCount)
+	{
+		for(int k = 0; k < 3; k++)
+			if(v[triangle*3+k] < 0 || v[triangle*3+k] >= vertexCount)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Indexes all triangles into the mesh data. Normals still pending are left out.
+	 */
+	void addTo(MeshData md, ScanData sd)
+	{
+		for(int i = 0; i < count * 3; i++)
+		{
+			sd.currentMaterial = materials[i / 3];
+			md.addIndex(v[i], Math.max(-1, n[i]), t[i], sd);
+		}
+	}
+
+	String toString(int triangle)
+	{
+		return "f " + (v[triangle*3] + 1) + " " + (v[triangle*3+1] + 1) + " " + (v[triangle*3+2] + 1);
+	}
+
+	private void grow()
+	{
+		v = Arrays.copyOf(v, v.length * 2);
+		t = Arrays.copyOf(t, t.length * 2);
+		n = Arrays.copyOf(n, n.length * 2);
+		groups = Arrays.copyOf(groups, groups.length * 2);
+		materials = Arrays.copyOf(materials, materials.length * 2);
+	}
 }
 
 class VertexData
 {
-	short vindex;
-	short tindex;
-	short nindex;
+	int vindex;
+	int tindex;
+	int nindex;
+	Material material;
 
-	public VertexData(short vindex, short tindex, short nindex)
+	public VertexData(int vindex, int tindex, int nindex, Material material)
 	{
 		this.vindex = vindex;
 		this.tindex = tindex;
 		this.nindex = nindex;
+		this.material = material;
 	}
 	
 	@Override
@@ -531,7 +703,7 @@ class VertexData
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		VertexData other = (VertexData)o;
-		return other.vindex == vindex && other.tindex == tindex && other.nindex == nindex;
+		return other.vindex == vindex && other.tindex == tindex && other.nindex == nindex && other.material == material;
 	}
 	
 	@Override
@@ -539,6 +711,7 @@ class VertexData
 		int result = vindex;
 		result = 31 * result + tindex;
 		result = 31 * result + nindex;
+		result = 31 * result + System.identityHashCode(material);
 		return result;
 	}
 }
@@ -0,0 +1,102 @@
+package com.codnyx.myengine;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Base class of textures addressed through per-vertex texture coordinates, like
+ * {@link ImageTexture}, whose texels are stored in a compact format instead of 32-bit ARGB.
+ * The image is converted when the texture is constructed; sampling expands texels back to ARGB.
+ * <p>
+ * Reduced resolution levels are filtered in ARGB (see {@link MipChain}) and then converted like the
+ * full resolution, so that every level is stored in the compact format. Texel coordinates wrap
+ * around like those of an {@link ImageTexture}.
+ */
+abstract class PackedTexture extends Texture
+{
+	/** Width of each level. */
+	final int[] widths;
+	/** Height of each level. */
+	final int[] heights;
+	/** Wrapping masks of each level (size - 1), or -1 if the level is not a power of two in that dimension. */
+	private final int[] xmasks, ymasks;
+
+	/**
+	 * Constructs the level geometry of a texture from its ARGB chain.
+	 *
+	 * @param chain The ARGB levels, from {@link #chainOf(BufferedImage)}.
+	 */
+	PackedTexture(MipChain chain)
+	{
+		int levels = chain.getLevelCount();
+		widths = chain.widths.clone();
+		heights = chain.heights.clone();
+		xmasks = new int[levels];
+		ymasks = new int[levels];
+		for(int l = 0; l < levels; l++)
+		{
+			xmasks[l] = (widths[l] & (widths[l] - 1)) == 0 ? widths[l] - 1 : -1;
+			ymasks[l] = (heights[l] & (heights[l] - 1)) == 0 ? heights[l] - 1 : -1;
+		}
+	}
+
+	/**
+	 * Builds the row-major ARGB levels of an image, to be converted by subclasses.
+	 *
+	 * @param image The source image, of any type.
+	 * @return The chain of levels.
+	 */
+	static MipChain chainOf(BufferedImage image)
+	{
+		BufferedImage argb = ImageTexture.toARGB(image);
+		int[] texels = ((DataBufferInt)argb.getRaster().getDataBuffer()).getData();
+		return new MipChain(texels, argb.getWidth(), argb.getHeight());
+	}
+
+	/**
+	 * Returns the index of a texel in the row-major storage of a level, wrapping the coordinates.
+	 *
+	 * @param x The x-coordinate in texels of the level.
+	 * @param y The y-coordinate in texels of the level.
+	 * @param level The level.
+	 * @return The index of the texel.
+	 */
+	final int index(int x, int y, int level)
+	{
+		int w = widths[level];
+		x = xmasks[level] >= 0 ? x & xmasks[level] : Math.floorMod(x, w);
+		y = ymasks[level] >= 0 ? y & ymasks[level] : Math.floorMod(y, heights[level]);
+		return w * y + x;
+	}
+
+	/**
+	 * Returns the number of bytes of texels held by this texture, all levels included.
+	 *
+	 * @return The size of the texture in bytes.
+	 */
+	public abstract long getMemorySize();
+
+	@Override
+	public int getColor(int x, int y)
+	{
+		return getColor(x, y, 0);
+	}
+
+	@Override
+	public int getLevelCount()
+	{
+		return widths.length;
+	}
+
+	@Override
+	public int getWidth()
+	{
+		return widths[0];
+	}
+
+	@Override
+	public int getHeight()
+	{
+		return heights[0];
+	}
+}
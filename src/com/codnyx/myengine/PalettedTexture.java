@@ -0,0 +1,225 @@
+package com.codnyx.myengine;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A texture addressed through per-vertex texture coordinates, like {@link ImageTexture}, storing
+ * each texel as an 8-bit index into a palette of up to 256 colors. It takes a quarter of the
+ * memory of an ARGB texture.
+ * <p>
+ * The palette is chosen by median cut over the colors of the full resolution image, quantized to
+ * 5 bits per channel: the box of colors with the most texels is repeatedly split at the median of
+ * its longest side, and each final box contributes the average of its texels. Every level is then
+ * mapped to the nearest palette colors. Images with at most 256 distinct colors (at that precision)
+ * are therefore stored without further loss.
+ * <p>
+ * Alpha is not stored: the palette is opaque.
+ */
+public class PalettedTexture extends PackedTexture
+{
+	/** Maximum number of palette colors. */
+	public static final int MAX_COLORS = 256;
+
+	/** The opaque ARGB colors of the palette. */
+	private final int[] palette;
+	/** Palette indices of the texels of each level, row-major. */
+	private final byte[][] indices;
+
+	/**
+	 * Constructs a texture from an image, choosing a palette and converting its texels to indices.
+	 *
+	 * @param image The source image.
+	 */
+	public PalettedTexture(BufferedImage image)
+	{
+		this(chainOf(image));
+	}
+
+	private PalettedTexture(MipChain chain)
+	{
+		super(chain);
+		palette = medianCut(chain.data[0]);
+		// Nearest palette index of each 5-bit-per-channel cell, found on first use (-1 until then)
+		int[] nearest = new int[1 << 15];
+		Arrays.fill(nearest, -1);
+		indices = new byte[chain.getLevelCount()][];
+		for(int l = 0; l < indices.length; l++)
+		{
+			int[] argb = chain.data[l];
+			byte[] packed = new byte[widths[l] * heights[l]];
+			for(int i = 0; i < packed.length; i++)
+			{
+				int cell = cell(argb[i]);
+				if(nearest[cell] < 0)
+					nearest[cell] = nearestColor(argb[i]);
+				packed[i] = (byte)nearest[cell];
+			}
+			indices[l] = packed;
+		}
+	}
+
+	/**
+	 * Returns the 15-bit histogram cell of a color.
+	 */
+	private static int cell(int argb)
+	{
+		return ((argb >> 9) & 0x7c00) | ((argb >> 6) & 0x3e0) | ((argb >> 3) & 0x1f);
+	}
+
+	/**
+	 * Chooses a palette for the given texels by median cut over their 15-bit histogram.
+	 */
+	private static int[] medianCut(int[] argb)
+	{
+		int[] counts = new int[1 << 15];
+		long[] sums = new long[3 << 15];
+		for(int c: argb)
+		{
+			int cell = cell(c);
+			counts[cell]++;
+			sums[3*cell] += (c >> 16) & 0xff;
+			sums[3*cell + 1] += (c >> 8) & 0xff;
+			sums[3*cell + 2] += c & 0xff;
+		}
+		ArrayList<int[]> boxes = new ArrayList<int[]>();
+		int[] all = {0, 31, 0, 31, 0, 31, 0};
+		shrink(all, counts);
+		boxes.add(all);
+		while(boxes.size() < MAX_COLORS)
+		{
+			// Split the most populated box that still spans more than one cell
+			int[] box = null;
+			for(int[] b: boxes)
+				if((b[1] > b[0] || b[3] > b[2] || b[5] > b[4]) && (box == null || b[6] > box[6]))
+					box = b;
+			if(box == null)
+				break;
+			int longest = 0;
+			for(int a = 1; a < 3; a++)
+				if(box[2*a + 1] - box[2*a] > box[2*longest + 1] - box[2*longest])
+					longest = a;
+			final int axis = longest;
+			// Accumulate the texels of the box slice by slice along the axis, up to half of them
+			int lo = box[2*axis], hi = box[2*axis + 1];
+			int[] slices = new int[32];
+			forEachCell(box, (cell, r, g, b) -> slices[axis == 0 ? r : axis == 1 ? g : b] += counts[cell]);
+			int split = lo, accumulated = slices[lo];
+			while(split + 1 < hi && 2 * (accumulated + slices[split + 1]) <= box[6])
+				accumulated += slices[++split];
+			int[] upper = box.clone();
+			box[2*axis + 1] = split;
+			upper[2*axis] = split + 1;
+			shrink(box, counts);
+			shrink(upper, counts);
+			boxes.add(upper);
+		}
+		int[] palette = new int[boxes.size()];
+		for(int i = 0; i < palette.length; i++)
+		{
+			long[] total = new long[4];
+			forEachCell(boxes.get(i), (cell, r, g, b) -> {
+				total[0] += sums[3*cell];
+				total[1] += sums[3*cell + 1];
+				total[2] += sums[3*cell + 2];
+				total[3] += counts[cell];
+			});
+			long n = Math.max(1, total[3]);
+			palette[i] = 0xFF000000 | (int)((total[0] + n/2) / n) << 16 | (int)((total[1] + n/2) / n) << 8 | (int)((total[2] + n/2) / n);
+		}
+		return palette;
+	}
+
+	/** Receives the histogram cells of a box. */
+	private interface CellVisitor
+	{
+		void visit(int cell, int r, int g, int b);
+	}
+
+	/**
+	 * Visits the cells of a box {rmin, rmax, gmin, gmax, bmin, bmax, count}.
+	 */
+	private static void forEachCell(int[] box, CellVisitor visitor)
+	{
+		for(int r = box[0]; r <= box[1]; r++)
+			for(int g = box[2]; g <= box[3]; g++)
+				for(int b = box[4]; b <= box[5]; b++)
+					visitor.visit((r << 10) | (g << 5) | b, r, g, b);
+	}
+
+	/**
+	 * Shrinks a box to the bounds of its non-empty cells and updates its texel count.
+	 */
+	private static void shrink(int[] box, int[] counts)
+	{
+		int[] bounds = {31, 0, 31, 0, 31, 0, 0};
+		forEachCell(box, (cell, r, g, b) -> {
+			if(counts[cell] == 0)
+				return;
+			bounds[0] = Math.min(bounds[0], r);
+			bounds[1] = Math.max(bounds[1], r);
+			bounds[2] = Math.min(bounds[2], g);
+			bounds[3] = Math.max(bounds[3], g);
+			bounds[4] = Math.min(bounds[4], b);
+			bounds[5] = Math.max(bounds[5], b);
+			bounds[6] += counts[cell];
+		});
+		if(bounds[6] == 0)
+			bounds[1] = bounds[3] = bounds[5] = 0; // Empty image: a single black cell
+		System.arraycopy(bounds, 0, box, 0, box.length);
+	}
+
+	/**
+	 * Returns the index of the palette color closest to the given color.
+	 */
+	private int nearestColor(int argb)
+	{
+		int r = (argb >> 16) & 0xff, g = (argb >> 8) & 0xff, b = argb & 0xff;
+		int best = 0, bestDistance = Integer.MAX_VALUE;
+		for(int i = 0; i < palette.length; i++)
+		{
+			int p = palette[i];
+			int dr = ((p >> 16) & 0xff) - r, dg = ((p >> 8) & 0xff) - g, db = (p & 0xff) - b;
+			int distance = dr*dr + dg*dg + db*db;
+			if(distance < bestDistance) {
+				bestDistance = distance;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public int getColor(int x, int y, int level)
+	{
+		return palette[indices[level][index(x, y, level)] & 0xff];
+	}
+
+	@Override
+	public void sampleSpan(int u, int v, int du, int dv, int count, int level, int[] dst, int dstOff)
+	{
+		byte[] t = indices[level];
+		for(int i = dstOff, end = dstOff + count; i < end; i++, u += du, v += dv)
+			dst[i] = palette[t[index(u >> 16, v >> 16, level)] & 0xff];
+	}
+
+	/**
+	 * Returns the palette of this texture.
+	 *
+	 * @return The opaque ARGB colors, at most {@link #MAX_COLORS}.
+	 */
+	public int[] getPalette()
+	{
+		return palette;
+	}
+
+	@Override
+	public long getMemorySize()
+	{
+		long size = 4L * palette.length;
+		for(byte[] level: indices)
+			size += level.length;
+		return size;
+	}
+}
@@ -15,6 +15,8 @@ public class PerspectiveTransformation
 	private float z_min;
 	/** The far clipping plane distance. */
 	private float z_max;
+	/** Tangents of the horizontal and vertical half angles of the field of view. */
+	private float tanX, tanY;
 	
 	/**
 	 * Constructs a new PerspectiveTransformation.
@@ -43,6 +45,8 @@ public class PerspectiveTransformation
 		// a13 and a23 relate to principal point offset.
 		this.a11 = (float) (h_2 / Math.tan(yangle / 2.0)); // More standard to use yangle/2 for cot(fov/2)
 		this.a22 = -this.a11; // Assuming y points downwards in screen space or similar convention
+		this.tanX = w_2 / this.a11;
+		this.tanY = h_2 / this.a11;
 		
 		// These components a13, a23 seem to incorporate viewport mapping directly.
 		// If standard projection, principal point (cx,cy) is usually width/2, height/2.
@@ -85,6 +89,39 @@ public class PerspectiveTransformation
 		// this.z_min = z_min; // Moved to the beginning
 	}
 	
+	/**
+	 * Constructs a copy of a transformation projecting to a scaled screen, see {@link #scaled(float, float)}.
+	 */
+	private PerspectiveTransformation(PerspectiveTransformation t, float sx, float sy)
+	{
+		this.z_min = t.z_min;
+		this.z_max = t.z_max;
+		this.a11 = t.a11 * sx;
+		this.a13 = t.a13 * sx;
+		this.a22 = t.a22 * sy;
+		this.a23 = t.a23 * sy;
+		this.a33 = t.a33;
+		this.a34 = t.a34;
+		this.tanX = t.tanX;
+		this.tanY = t.tanY;
+		this.i11 = 1.0f / this.a11;
+		this.i13 = this.a13 / this.a11;
+		this.i22 = 1.0f / this.a22;
+		this.i23 = this.a23 / this.a22;
+	}
+	
+	/**
+	 * Creates the same projection onto a screen of a different resolution: the frustum and depths are
+	 * unchanged, and screen coordinates are multiplied by the scale factors.
+	 * @param sx The horizontal scale factor, such as the ratio of the new width to the current one.
+	 * @param sy The vertical scale factor.
+	 * @return The scaled projection.
+	 */
+	public PerspectiveTransformation scaled(float sx, float sy)
+	{
+		return new PerspectiveTransformation(this, sx, sy);
+	}
+	
 	/**
 	 * Projects 3D eye coordinates to 2D screen coordinates and calculates depth.
 	 * Eye coordinates are assumed to be in a system where -Z is into the screen.
@@ -145,6 +182,49 @@ public class PerspectiveTransformation
 		 result[2] = z; // z_eye is directly given
 	}
 
+	/**
+	 * Unprojects a point of the screen, with sub-pixel coordinates, at a given Z depth in eye space,
+	 * see {@link #unproject(int[], float, float[])}.
+	 * @param x The screen x-coordinate; the center of pixel i is at i + 0.5.
+	 * @param y The screen y-coordinate.
+	 * @param z The Z depth of the point in eye space (negative in front of the camera).
+	 * @param result A float array {x_eye, y_eye, z_eye} to store the unprojected 3D point.
+	 */
+	public void unproject(float x, float y, float z, float[] result)
+	{
+		result[0] = -z * (i11 * x + i13);
+		result[1] = -z * (i22 * y + i23);
+		result[2] = z;
+	}
+	
+	/**
+	 * Recovers the Z coordinate in eye space of a point from the depth computed by {@link #project(float[], int[])}.
+	 * @param depth The depth.
+	 * @return The Z coordinate in eye space, negative in front of the camera.
+	 */
+	public float getEyeZ(float depth)
+	{
+		return -a34 / (depth + a33);
+	}
+
+	/**
+	 * Gets the coefficients of the projection of a point (x, y, z) of eye space, see
+	 * {@link #project(float[], int[])}: x_screen = -(a11 * x + a13 * z) / z, y_screen = -(a22 * y + a23 * z) / z,
+	 * and depth = -(a33 * z + a34) / z.
+	 * @param result An array receiving {a11, a13, a22, a23, a33, a34}.
+	 * @return The result array.
+	 */
+	public float[] getCoefficients(float[] result)
+	{
+		result[0] = a11;
+		result[1] = a13;
+		result[2] = a22;
+		result[3] = a23;
+		result[4] = a33;
+		result[5] = a34;
+		return result;
+	}
+
 	/**
 	 * This method name 'aTrasform' is unclear. It seems to perform some transformation
 	 * using the inverse projection components and screen coordinates.
@@ -193,4 +273,37 @@ public class PerspectiveTransformation
 		return z_max;
 	}
 	
+	/**
+	 * Gets the focal length of the projection, i.e. the number of pixels covered by one unit
+	 * of eye space at distance 1 from the eye.
+	 * @return The focal length in pixels.
+	 */
+	public float getFocalLength()
+	{
+		return a11;
+	}
+	
+	/**
+	 * Tests whether a sphere lies entirely outside the viewing frustum, i.e. beyond the near or far
+	 * clipping plane or beyond one of the four side planes through the edges of the viewport.
+	 * The test is conservative: spheres near the corners of the frustum may be reported as visible.
+	 * 
+	 * @param center The center of the sphere in eye coordinates.
+	 * @param radius The radius of the sphere.
+	 * @return true if no part of the sphere can be visible.
+	 */
+	public boolean isSphereOutside(float[] center, float radius)
+	{
+		float x = center[0], y = center[1], z = center[2];
+		// Eye z is negative: z_max is the near plane and z_min the far one
+		if(z - radius > z_max || z + radius < z_min)
+			return true;
+		// Side planes x = +-tanX * -z, at signed distance (+-x + tanX*z) / sqrt(1 + tanX^2)
+		float lx = (float)Math.sqrt(1 + tanX*tanX);
+		if(x + tanX*z > radius*lx || -x + tanX*z > radius*lx)
+			return true;
+		float ly = (float)Math.sqrt(1 + tanY*tanY);
+		return y + tanY*z > radius*ly || -y + tanY*z > radius*ly;
+	}
+	
 }
@@ -1,17 +1,32 @@
 package com.codnyx.myengine;
 
 import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
+import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
 import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
 import java.awt.image.ImageObserver;
+import java.awt.image.Raster;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 
 /**
  * Renders 3D polygons to a 2D image using scanline conversion and Z-buffering.
  * It supports perspective transformation, model transformation, backface culling,
  * frustum clipping (near and far Z planes), Gouraud shading (color interpolation),
- * and basic texture mapping.
+ * and texture mapping.
+ * <p>
+ * Textured polygons whose vertices carry texture coordinates ({@link Vertex#getTexCoord()}) are
+ * rasterized with perspective-correct interpolation of (u/w, v/w, 1/w) along edges and spans.
+ * Polygons textured with a per-polygon mapping ({@link VertexTexture}) instead intersect each
+ * pixel's view ray with the polygon plane. Textures with reduced resolution levels
+ * ({@link Texture#getLevelCount()}) are sampled, span by span, from the level whose texels best
+ * match the size of a pixel, which avoids aliasing and cache misses on minified polygons.
+ * Texels are fetched with one {@link Texture#sampleSpan} call per run of visible pixels, or per
+ * {@value #SUBSPAN} pixels of it, between whose ends texel coordinates are interpolated linearly.
  * <p>
  * The rendering process for each polygon involves:
  * <ol>
@@ -26,11 +41,49 @@ import java.util.Arrays;
  * </ol>
  * The renderer maintains an internal {@link BufferedImage} and a Z-buffer.
  * After rendering polygons, {@link #commit(Graphics)} is used to draw the updated portion of the
- * internal image to a target {@link Graphics} context.
- * {@link #clean()} should be called to clear the image and Z-buffer for the next frame.
+ * internal image to a target {@link Graphics} context. To display frames, render into an opaque image
+ * in the pixel format of the display ({@link #createCompatibleImage(GraphicsConfiguration, int, int)}):
+ * presenting it is then a plain copy of the areas which changed, with neither conversion nor blending.
+ * <p>
+ * Renderers constructed over caller-provided color and depth buffers
+ * ({@link #PolygonRenderer(int, int, int[], float[])}) render headless: {@link #render(Polygon)} and
+ * {@link #commit()} use no AWT class, and no image is created unless {@link #getImage()} is called.
+ * The methods taking a {@link Graphics} are thin adapters over these.
+ * {@link #clean()} should be called to clear the image and Z-buffer for the next frame, unless
+ * {@link #setAlternatingDepth(boolean) alternating depth ranges} make the clears unnecessary.
+ * <p>
+ * Frames may be rasterized at a reduced resolution and upscaled by {@link #commit()}, at a fixed
+ * {@link #setRenderScale(float) scale} or at one chosen frame after frame by a
+ * {@link #setResolutionController(ResolutionController) controller} to hold a target frame time.
+ * {@link #setInterlacing(Interlacing) Interlaced} frames rasterize half of their pixels, and
+ * {@link #commit()} reconstructs the other half from the previous frame.
+ * <p>
+ * A renderer keeps per-polygon scratch state and is not thread-safe. To render several views
+ * concurrently, share an immutable {@link RenderConfig} and give each thread its own renderer, a
+ * render context created by {@link RenderConfig#newContext()}: meshes, polygons and textures are
+ * only read while rendering, and can be drawn by any number of contexts at once.
  */
 public class PolygonRenderer 
 {
+	/** Maximum age of the contents of the destination of {@link #commit(Graphics)}, see {@link #setBufferAge(int)}. */
+	public static final int MAX_BUFFER_AGE = 3;
+	/**
+	 * Length, in pixels, of the sub-spans along which texel coordinates are interpolated linearly
+	 * between their exact perspective values at the sub-span ends.
+	 */
+	private static final int SUBSPAN = 16;
+	/** Log2 of the size of the square tiles whose coverage is tracked with alternating depth ranges. */
+	private static final int TILE_SHIFT = 5;
+	/** Mask of the x-coordinate within a tile. */
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	/**
+	 * Width of the depth range used by each frame with alternating depth ranges, for float depth buffers:
+	 * even frames store [0, ALTERNATE_RANGE], odd frames [1 - ALTERNATE_RANGE, 1], and 0.5 is cleared.
+	 */
+	private static final float ALTERNATE_RANGE = 0.5f - 0x1p-12f;
+	/** Relative difference of eye-space depths within which a reprojected pixel is the same surface. */
+	private static final float REPROJECTION_TOLERANCE = 0.05f;
+
 	/** Array of {@link Scan} objects, one for each horizontal line of the render target. */
 	Scan[] scanLines;
 	/** Height of the rendering viewport. */
@@ -41,18 +94,117 @@ public class PolygonRenderer
 	private int top;
 	/** X-coordinate of the left edge of the viewport. */
 	private int left;
+	/** Scissor rectangle, {xmin, ymin, xmax, ymax} inclusive: pixels outside are never written. */
+	private final int[] scissor = {0, 0, -1, -1};
+	/** Width of the part of the buffers rasterized in the current frame, see {@link #setRenderScale(float)}. */
+	private int rasterWidth;
+	/** Height of the part of the buffers rasterized in the current frame. */
+	private int rasterHeight;
+	/** Resolution scale of the next frames. */
+	private float renderScale = 1;
+	/** Resolution scale of the current frame. */
+	private float frameScale = 1;
+	/** Chooses the resolution scale after each frame, or null. */
+	private ResolutionController resolutionController;
+	/** Time the current frame was started, with a resolution controller, or 0. */
+	private long frameStart;
+	/** The pattern of the pixels rasterized in each frame. */
+	private Interlacing interlacing = Interlacing.NONE;
+	/** Which half of the pixels the current interlaced frame rasterizes, 0 or 1. */
+	private int phase;
+	/** Distance, in pixels of the frame, between consecutive pixels of the row being filled: 2 in checkerboard frames. */
+	private int packStep = 1;
+	/** X-coordinate, in the frame, of the first pixel of the row being filled. */
+	private int packOffset;
+	/** Colors of the last two reconstructed interlaced frames. */
+	private int[][] historyColors;
+	/** Depths of the last two reconstructed interlaced frames, positive infinity where nothing was drawn. */
+	private float[][] historyDepths;
+	/** Bounds of the pixels of each frame of the history which are not the background. */
+	private int[][] historyBounds;
+	/** Index of the previous frame in the history. */
+	private int history;
+	/** The color buffers the last interlaced frames were reconstructed into, most recent first, or null. */
+	private final int[][] reconstructedInto = new int[3][];
+	/** Bounds of the pixels of the frames left in {@link #reconstructedInto} which are not the background. */
+	private final int[][] reconstructedBounds = new int[3][4];
+	/** The projection of the previous frame, or null if there is none to reconstruct from. */
+	private PerspectiveTransformation historyProjT;
+	/** The transformation of the scene of the current frame, see {@link #setSceneTransformation(AffineTransformation)}. */
+	private final AffineTransformation sceneT = new AffineTransformation();
+	/** True if the transformation of the scene was set for the current frame. */
+	private boolean sceneSet;
+	/** The transformation of the scene of the previous frame. */
+	private final AffineTransformation previousSceneT = new AffineTransformation();
+	/** True if the transformation of the scene was set for the previous frame. */
+	private boolean previousSceneSet;
+	/**
+	 * The transformation from the eye space of the current frame to that of the previous one, row by row:
+	 * the 3x3 linear part followed by the translation.
+	 */
+	private final float[] reprojection = new float[12];
+	/** Point of the eye space of the current frame being reprojected. */
+	private final float[] reprojectPoint = {0,0,0};
+	/** The reprojected point, in the eye space of the previous frame. */
+	private final float[] reprojectResult = {0,0,0};
+	/** Coefficients of the projection of the reprojected frames, see {@link PerspectiveTransformation#getCoefficients(float[])}. */
+	private final float[] reprojectProjection = new float[6];
+	/** Coefficients of the reprojection of the row of pixels being reconstructed, see {@link #prepareRow(int)}. */
+	private final float[] reprojectRow = new float[9];
 	/** Minimum Y-coordinate touched by the current polygon being rendered, clipped to viewport bounds. */
 	private int yMinBound;
 	/** Maximum Y-coordinate touched by the current polygon being rendered, clipped to viewport bounds. */
 	private int yMaxBound;
 	/** The perspective transformation to apply to vertices. */
 	private PerspectiveTransformation projT;
+	/** The projection of the polygon being rasterized: {@link #projT}, scaled to the current resolution. */
+	private PerspectiveTransformation rasterT;
+	/** The last projection scaled to a reduced resolution, and the one it was scaled from. */
+	private PerspectiveTransformation scaledT, scaledFrom;
+	/** Row of the projected frame drawn at the top of the viewport, when rendering a band of a taller frame. */
+	private int yOffset;
 	/** The model-to-world/eye transformation to apply to vertices and normals. */
 	private AffineTransformation modelT;
-	/** The {@link BufferedImage} used as the rendering target and Z-buffer canvas. */
+	/** The {@link BufferedImage} used as the rendering target and Z-buffer canvas; created on demand by headless renderers. */
 	private BufferedImage image;
-	/** Z-buffer to store depth values for hidden surface removal. Lower values are closer. */
+	/** The ARGB pixels polygons are drawn into, row by row: the data of {@link #image}, or the caller's buffer. */
+	private int[] pixels;
+	/** The caller's color buffer, copied to by {@link #commit()} when it has no accessible array; null otherwise. */
+	private IntBuffer colorTarget;
+	/** The buffer polygons are rasterized into: {@link #pixels}, or the one upscaled into it at a reduced resolution. */
+	private int[] target;
+	/** The color buffer last upscaled into, or null if its contents are unknown. */
+	private int[] upscaledInto;
+	/** Bounds of the rasterized pixels which may not be transparent black, at the last upscale. */
+	private final int[] upscaledBounds = new int[4];
+	/** True if the buffers were cleared since the last upscale. */
+	private boolean cleared;
+	/** True if the current frame was upscaled, and its bounds are those of the upscaled pixels, or reconstructed. */
+	private boolean upscaled;
+	/** Source column and weight of the next one for each upscaled column, 8-bit fixed point. */
+	private int[] upscaleColumns, upscaleWeights;
+	/** The caller's depth buffer, used when the depth format is {@link DepthFormat#FLOAT32}; null if allocated by the renderer. */
+	private float[] depthTarget;
+	/** What the destination of {@link #commit(Graphics)} still shows of the previous frames, with an opaque image. */
+	private final PresentHistory presentHistory = new PresentHistory();
+	/** Z-buffer to store depth values for hidden surface removal. Lower values are closer. Null unless the depth format is {@link DepthFormat#FLOAT32}. */
 	private float[] zBuffer;
+	/** Depth buffer in {@link DepthFormat#INT24} format, or null. */
+	private int[] zBuffer24;
+	/** Depth buffer in {@link DepthFormat#SHORT16} format (unsigned), or null. */
+	private short[] zBuffer16;
+	/** The storage format of the depth buffer. */
+	private DepthFormat depthFormat = DepthFormat.FLOAT32;
+	/** True if frames alternate between two depth ranges instead of clearing the buffers. */
+	private boolean alternatingDepth;
+	/** True if the current frame uses the upper, reversed, depth range. */
+	private boolean oddFrame;
+	/** True if the deferred clears of the current frame are done. */
+	private boolean resolved = true;
+	/** Number of tiles per row. */
+	private int tilesX;
+	/** Number of pixels of each tile written for the first time in the current frame, or null. */
+	private int[] tileWrites;
 	/** Temporary array to store projected vertices of a polygon after clipping. */
 	private ProjectedVertex[] vertices;
 	/** Number of valid vertices currently in the {@link #vertices} array for the polygon being processed. */
@@ -73,7 +225,58 @@ public class PolygonRenderer
 	 */
 	public PolygonRenderer(int width, int height)
 	{
-		init(0, 0, width, height);
+		init(0, 0, width, height, null, null);
+	}
+	
+	/**
+	 * Constructs a headless PolygonRenderer drawing into caller-provided buffers, which are cleared.
+	 * @param width The width of the rendering viewport.
+	 * @param height The height of the rendering viewport.
+	 * @param colorBuffer The ARGB color buffer, row by row, of at least width*height pixels.
+	 * @param depthBuffer The depth buffer, of at least width*height values, or null to allocate one.
+	 * @throws IllegalArgumentException if a buffer is too small.
+	 */
+	public PolygonRenderer(int width, int height, int[] colorBuffer, float[] depthBuffer)
+	{
+		init(0, 0, width, height, colorBuffer, depthBuffer);
+	}
+	
+	/**
+	 * Constructs a headless PolygonRenderer drawing into a caller-provided color buffer, from its
+	 * position. An array-backed buffer starting at the beginning of its array is drawn into directly;
+	 * other buffers, such as direct ones, receive a copy of the pixels on {@link #commit()}.
+	 * @param width The width of the rendering viewport.
+	 * @param height The height of the rendering viewport.
+	 * @param colorBuffer The ARGB color buffer, row by row, of at least width*height remaining pixels.
+	 * @param depthBuffer The depth buffer, of at least width*height values, or null to allocate one.
+	 * @throws IllegalArgumentException if a buffer is too small.
+	 */
+	public PolygonRenderer(int width, int height, IntBuffer colorBuffer, float[] depthBuffer)
+	{
+		if(colorBuffer.remaining() < width * height)
+			throw new IllegalArgumentException("The color buffer has less than " + width * height + " pixels");
+		boolean direct = colorBuffer.hasArray() && colorBuffer.arrayOffset() + colorBuffer.position() == 0;
+		init(0, 0, width, height, direct ? colorBuffer.array() : new int[width * height], depthBuffer);
+		if(!direct)
+			colorTarget = colorBuffer;
+	}
+	
+	/**
+	 * Constructs a render context for a shared configuration, drawing into caller-provided buffers,
+	 * which are cleared. Contexts are usually created by {@link RenderConfig#newContext()}.
+	 * @param config The configuration: viewport, perspective and depth buffer settings.
+	 * @param colorBuffer The ARGB color buffer, row by row, of at least width*height pixels, or null
+	 *        to draw into an image.
+	 * @param depthBuffer The depth buffer, of at least width*height values, or null to allocate one.
+	 * @throws IllegalArgumentException if a buffer is too small.
+	 */
+	public PolygonRenderer(RenderConfig config, int[] colorBuffer, float[] depthBuffer)
+	{
+		this.depthFormat = config.getDepthFormat();
+		init(config.getLeft(), config.getTop(), config.getWidth(), config.getHeight(), colorBuffer, depthBuffer);
+		this.projT = config.getProjT();
+		if(config.isAlternatingDepth())
+			setAlternatingDepth(true);
 	}
 	
 	/**
@@ -85,7 +288,43 @@ public class PolygonRenderer
 	 */
 	public PolygonRenderer(int left, int top, int width, int height)
 	{
-		init(left, top, width, height);
+		init(left, top, width, height, null, null);
+	}
+	
+	/**
+	 * Constructs a PolygonRenderer drawing directly into an image, which is cleared, such as one
+	 * created by {@link #createCompatibleImage(GraphicsConfiguration, int, int)}. With an opaque image,
+	 * {@link #commit(Graphics)} presents frames without blending, and only the areas which changed.
+	 * @param image The image, of type {@link BufferedImage#TYPE_INT_RGB} or {@link BufferedImage#TYPE_INT_ARGB}.
+	 * @throws IllegalArgumentException if the image is of another type.
+	 */
+	public PolygonRenderer(BufferedImage image)
+	{
+		if(image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB)
+			throw new IllegalArgumentException("The image must be of type TYPE_INT_RGB or TYPE_INT_ARGB");
+		init(0, 0, image.getWidth(), image.getHeight(), ((DataBufferInt)image.getRaster().getDataBuffer()).getData(), null);
+		this.image = image;
+	}
+	
+	/**
+	 * Creates an opaque image to render into with {@link #PolygonRenderer(BufferedImage)}, in the pixel
+	 * format of a display if the renderer can draw into it, so that presenting it is a plain copy
+	 * with no conversion: {@link BufferedImage#TYPE_INT_RGB} on usual 24 and 32-bit displays.
+	 * Polygons are drawn opaque, and pixels not drawn are black.
+	 * @param gc The configuration of the display, or null for a {@link BufferedImage#TYPE_INT_RGB} image.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 * @return The image.
+	 */
+	public static BufferedImage createCompatibleImage(GraphicsConfiguration gc, int width, int height)
+	{
+		if(gc != null)
+		{
+			BufferedImage image = gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+			if(image.getType() == BufferedImage.TYPE_INT_RGB)
+				return image;
+		}
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 	}
 	
 	/**
@@ -106,13 +345,22 @@ public class PolygonRenderer
 	 * @param top The y-coordinate of the top edge of the viewport.
 	 * @param width The width of the rendering viewport.
 	 * @param height The height of the rendering viewport.
+	 * @param colorBuffer The caller's color buffer, or null to draw into an image.
+	 * @param depthBuffer The caller's depth buffer, or null to allocate one.
 	 */
-	private void init(int left, int top, int width, int height) 
+	private void init(int left, int top, int width, int height, int[] colorBuffer, float[] depthBuffer) 
 	{
+		if(colorBuffer != null && colorBuffer.length < width * height)
+			throw new IllegalArgumentException("The color buffer has less than " + width * height + " pixels");
+		if(depthBuffer != null && depthBuffer.length < width * height)
+			throw new IllegalArgumentException("The depth buffer has less than " + width * height + " values");
 		this.left = left;
 		this.top = top;
 		this.width = width;
 		this.height = height;
+		this.rasterWidth = width;
+		this.rasterHeight = height;
+		resetScissor();
 		this.scanLines = new Scan[this.height];
 		for(int i = 0; i < scanLines.length; i++)
 			this.scanLines[i] = new Scan();
@@ -124,9 +372,302 @@ public class PolygonRenderer
 		numVertices = 0;
 		
 		this.modelT = new AffineTransformation(); // Initialize with identity
-		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-		this.zBuffer = new float[width*height];
-		Arrays.fill(zBuffer, Float.POSITIVE_INFINITY); // Initialize Z-buffer to farthest depth
+		if(colorBuffer == null)
+		{
+			this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			this.pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		}
+		else
+		{
+			this.pixels = colorBuffer;
+			Arrays.fill(pixels, 0, width * height, 0);
+		}
+		this.target = pixels;
+		this.depthTarget = depthBuffer;
+		allocateDepthBuffer();
+	}
+	
+	/**
+	 * Allocates the depth buffer in the current format, cleared to the farthest depth,
+	 * and releases the buffers of the other formats.
+	 */
+	private void allocateDepthBuffer()
+	{
+		zBuffer = null;
+		zBuffer24 = null;
+		zBuffer16 = null;
+		switch(depthFormat)
+		{
+		case FLOAT32:
+			zBuffer = depthTarget != null ? depthTarget : new float[width*height];
+			break;
+		case INT24:
+			zBuffer24 = new int[width*height];
+			break;
+		case SHORT16:
+			zBuffer16 = new short[width*height];
+			break;
+		}
+		clearDepth();
+	}
+	
+	/**
+	 * Clears the depth buffer to the farthest depth, or to the middle of the depth range, which is
+	 * farther than both ranges, with alternating depth ranges.
+	 */
+	private void clearDepth()
+	{
+		clearDepth(width * height);
+	}
+	
+	/**
+	 * Clears the beginning of the depth buffer, see {@link #clearDepth()}.
+	 * @param count The number of values to clear.
+	 */
+	private void clearDepth(int count)
+	{
+		if(zBuffer != null)
+			Arrays.fill(zBuffer, 0, count, alternatingDepth ? 0.5f : Float.POSITIVE_INFINITY);
+		else if(zBuffer24 != null)
+			Arrays.fill(zBuffer24, 0, count, alternatingDepth ? DepthFormat.INT24.getMaxValue() >> 1 : DepthFormat.INT24.getMaxValue());
+		else
+			Arrays.fill(zBuffer16, 0, count, (short)(alternatingDepth ? DepthFormat.SHORT16.getMaxValue() >> 1 : DepthFormat.SHORT16.getMaxValue()));
+	}
+	
+	/**
+	 * Gets the storage format of the depth buffer.
+	 * @return The depth format.
+	 */
+	public DepthFormat getDepthFormat() {
+		return depthFormat;
+	}
+	
+	/**
+	 * Sets the storage format of the depth buffer. The buffer is reallocated and cleared, so this
+	 * should be called between frames.
+	 * @param depthFormat The depth format.
+	 */
+	public void setDepthFormat(DepthFormat depthFormat) {
+		this.depthFormat = depthFormat;
+		allocateDepthBuffer();
+	}
+	
+	/**
+	 * Tells whether frames alternate between two depth ranges instead of clearing the buffers.
+	 * @return True if alternating depth ranges are used.
+	 */
+	public boolean isAlternatingDepth() {
+		return alternatingDepth;
+	}
+	
+	/**
+	 * Sets whether frames alternate between two depth ranges instead of clearing the buffers in {@link #clean()}.
+	 * <p>
+	 * Even frames store depths in the lower half of the depth range, nearer being lower, and odd frames
+	 * in the upper half, reversed, with the depth comparison flipped: whatever the previous frame left in
+	 * the buffer is then farther than anything drawn, and the depth buffer needs no clearing. Each depth
+	 * format loses one bit of precision.
+	 * <p>
+	 * The color clear is deferred as well: the renderer counts the pixels of each 32x32 tile drawn for
+	 * the first time in the frame, and {@link #resolve()} only visits the tiles which were not fully
+	 * covered, clearing their pixels not drawn in the frame. When most of the screen is covered by
+	 * geometry, this saves writing the whole color and depth buffers every frame.
+	 * <p>
+	 * Both buffers are cleared when the mode changes, so this should be called between frames.
+	 * @param alternatingDepth True to use alternating depth ranges.
+	 * @throws IllegalStateException With {@link #setInterlacing(Interlacing) interlaced} frames.
+	 */
+	public void setAlternatingDepth(boolean alternatingDepth) {
+		if(alternatingDepth && interlacing != Interlacing.NONE)
+			throw new IllegalStateException("Frames cannot be interlaced with alternating depth ranges");
+		this.alternatingDepth = alternatingDepth;
+		tilesX = (width + (1 << TILE_SHIFT) - 1) >> TILE_SHIFT;
+		tileWrites = alternatingDepth ? new int[tilesX * ((height + (1 << TILE_SHIFT) - 1) >> TILE_SHIFT)] : null;
+		oddFrame = false;
+		resolved = !alternatingDepth;
+		Arrays.fill(pixels, 0, width * height, 0);
+		if(target != pixels)
+			Arrays.fill(target, 0, width * height, 0);
+		upscaledInto = null;
+		clearDepth();
+	}
+	
+	/**
+	 * Gets the width of the viewport.
+	 * @return The width, in pixels.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Gets the height of the viewport.
+	 * @return The height, in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Gets the width of the part of the buffers rasterized in the current frame, at its
+	 * {@link #setRenderScale(float) resolution scale}.
+	 * @return The width, in pixels, at most {@link #getWidth()}.
+	 */
+	public int getRasterWidth() {
+		return rasterWidth;
+	}
+	
+	/**
+	 * Gets the height of the part of the buffers rasterized in the current frame.
+	 * @return The height, in pixels, at most {@link #getHeight()}.
+	 */
+	public int getRasterHeight() {
+		return rasterHeight;
+	}
+	
+	/**
+	 * Gets the resolution scale of the frames started by the next {@link #clean()}.
+	 * @return The ratio of the rasterized resolution to the viewport's.
+	 */
+	public float getRenderScale() {
+		return renderScale;
+	}
+	
+	/**
+	 * Sets the resolution at which the frames started by the next {@link #clean()} are rasterized.
+	 * <p>
+	 * Below 1, polygons are projected onto, and rasterized into, the top-left {@link #getRasterWidth()} by
+	 * {@link #getRasterHeight()} pixels of a separate color buffer and of the depth buffer, and
+	 * {@link #commit()} upscales them bilinearly into the color buffer: the fill cost of the frame
+	 * falls with the square of the scale, for a blurrier image. Only the rectangle of the frame which
+	 * may have changed since the last upscale into the same color buffer is upscaled.
+	 * Until the frame is committed, the pixel coordinates of the scissor rectangle, of the rectangles
+	 * cleared and of the bounds of the frame are in the rasterized resolution, as are the depths of the
+	 * depth buffer; the bounds of a committed frame are those of the upscaled pixels. Hit tests and
+	 * the projection ({@link #getProjT()}) are in the resolution of the viewport.
+	 * @param scale The ratio of the rasterized resolution to the viewport's, between
+	 *        {@link ResolutionController#MIN_SCALE} and {@link ResolutionController#MAX_SCALE}.
+	 * @throws IllegalArgumentException if the scale is out of range.
+	 */
+	public void setRenderScale(float scale) {
+		if(!(scale >= ResolutionController.MIN_SCALE && scale <= ResolutionController.MAX_SCALE))
+			throw new IllegalArgumentException("The resolution scale must be between "
+					+ ResolutionController.MIN_SCALE + " and " + ResolutionController.MAX_SCALE);
+		this.renderScale = scale;
+	}
+	
+	/**
+	 * Gets the controller choosing the resolution scale after each frame.
+	 * @return The controller, or null if the scale is fixed.
+	 */
+	public ResolutionController getResolutionController() {
+		return resolutionController;
+	}
+	
+	/**
+	 * Sets a controller choosing the {@link #setRenderScale(float) resolution scale} of each frame to
+	 * hold a target frame time: the time from {@link #clean()} to the end of {@link #commit()} is
+	 * measured, and the controller's scale applied from the next frame on.
+	 * @param resolutionController The controller, or null to keep the current scale.
+	 */
+	public void setResolutionController(ResolutionController resolutionController) {
+		this.resolutionController = resolutionController;
+		this.frameStart = 0;
+		if(resolutionController != null)
+			this.renderScale = resolutionController.getScale();
+	}
+	
+	/**
+	 * Gets the pattern of the pixels rasterized in each frame.
+	 * @return The interlacing pattern.
+	 */
+	public Interlacing getInterlacing() {
+		return interlacing;
+	}
+	
+	/**
+	 * Sets the pattern of the pixels rasterized in the frames started by the next {@link #clean()}.
+	 * <p>
+	 * Interlaced frames rasterize half of the pixels, which halves the fill cost of a frame, and
+	 * the other half in the next frame. The pixels rasterized are packed together into a separate
+	 * color buffer and into the depth buffer: every other row for {@link Interlacing#ROWS}, every
+	 * other pixel of each row for {@link Interlacing#CHECKERBOARD}. {@link #commit()} then
+	 * reconstructs the whole frame in the color buffer. Each pixel not rasterized is given the
+	 * depth of the nearest of its rasterized neighbors, and reprojected to the previous frame with
+	 * this depth and the transformations of the scene of both frames
+	 * (see {@link #setSceneTransformation(AffineTransformation)}): if the previous frame showed a
+	 * surface at this depth there, the pixel takes its color; otherwise, on a surface just uncovered,
+	 * in the first frame, or when the transformation of the scene was not set for both frames, it takes
+	 * the average color of its rasterized neighbors. Only the bounds of the pixels drawn in either frame
+	 * are reconstructed.
+	 * <p>
+	 * The reconstruction costs a few operations per pixel, fewer while the scene transformation does
+	 * not change, and reprojecting a pixel costs about as much as filling it with a texture: interlacing
+	 * pays off with overdraw and with costlier fills, see the InterlacingBenchmark launcher.
+	 * <p>
+	 * Interlaced frames are rasterized at full resolution, whatever the
+	 * {@link #setRenderScale(float) resolution scale}, and the depth buffer holds the packed pixels.
+	 * The color buffers given to {@link #setColorBuffer(int[])} must keep the frames reconstructed into
+	 * them, as only what changed since is copied to them.
+	 * @param interlacing The interlacing pattern, {@link Interlacing#NONE} by default.
+	 * @throws IllegalStateException With alternating depth ranges, which need every pixel to be drawn.
+	 */
+	public void setInterlacing(Interlacing interlacing) {
+		if(interlacing != Interlacing.NONE && alternatingDepth)
+			throw new IllegalStateException("Frames cannot be interlaced with alternating depth ranges");
+		this.interlacing = interlacing;
+		historyProjT = null;
+		if(interlacing == Interlacing.NONE)
+		{
+			historyColors = null;
+			historyDepths = null;
+			frameScale = Float.NaN; // The resolution scale applies again from the next frame
+			return;
+		}
+		if(historyColors == null)
+		{
+			historyColors = new int[2][width * height];
+			historyDepths = new float[2][width * height];
+			Arrays.fill(historyDepths[0], Float.POSITIVE_INFINITY);
+			Arrays.fill(historyDepths[1], Float.POSITIVE_INFINITY);
+			historyBounds = new int[2][4];
+			for(int[] b : historyBounds)
+			{
+				b[0] = b[1] = Integer.MAX_VALUE;
+				b[2] = b[3] = Integer.MIN_VALUE;
+			}
+			Arrays.fill(reconstructedInto, null);
+		}
+		frameScale = 1;
+		rasterWidth = width;
+		rasterHeight = height;
+		resetScissor();
+		if(target == pixels)
+			target = new int[width * height];
+	}
+	
+	/**
+	 * Sets the transformation of the scene of the current frame, from world space to eye space, with
+	 * which {@link #setInterlacing(Interlacing) interlaced} frames reproject the pixels not rasterized
+	 * to the previous frame; it is copied. It must be set again for each frame, before {@link #commit()}:
+	 * the pixels of a frame are reprojected only if the transformation was set for both this frame and
+	 * the previous one, and interpolated from their neighbors otherwise. Surfaces moving in world space
+	 * are not followed: where their pixels of the previous frame do not match the depths of the current
+	 * one, they are interpolated too.
+	 * @param transformation The transformation of the scene.
+	 */
+	public void setSceneTransformation(AffineTransformation transformation) {
+		sceneT.setTo(transformation);
+		sceneSet = true;
+	}
+	
+	/**
+	 * Gets the width of the packed rows of checkerboard frames.
+	 * @return The number of pixels rasterized per row.
+	 */
+	private int packedWidth()
+	{
+		return (width + 1) >> 1;
 	}
 	
 	/**
@@ -145,6 +686,84 @@ public class PolygonRenderer
 		return projT;
 	}
 	
+	/**
+	 * Sets the perspective transformation, which may project to a frame larger than the viewport,
+	 * see {@link #setYOffset(int)}.
+	 * @param projT The {@link PerspectiveTransformation} used for eye-to-screen projection.
+	 */
+	public void setProjT(PerspectiveTransformation projT) {
+		this.projT = projT;
+	}
+	
+	/**
+	 * Gets the row of the projected frame drawn at the top of the viewport.
+	 * @return The vertical offset of the viewport in the frame.
+	 */
+	public int getYOffset() {
+		return yOffset;
+	}
+	
+	/**
+	 * Sets the row of the projected frame drawn at the top of the viewport, to render a horizontal band
+	 * of a frame taller than the viewport: projected y-coordinates are shifted up by this offset after
+	 * projection, so that spans are computed exactly as in the full frame. Hit test coordinates are
+	 * relative to the viewport.
+	 * @param yOffset The vertical offset of the viewport in the frame, 0 by default.
+	 * @see BandedRenderer
+	 */
+	public void setYOffset(int yOffset) {
+		this.yOffset = yOffset;
+	}
+	
+	/**
+	 * Gets the image the polygons are drawn into, of the size of the viewport. Headless renderers
+	 * create it on the first call, sharing the pixels of their color buffer.
+	 * @return The internal ARGB image.
+	 */
+	public BufferedImage getImage() {
+		if(image == null)
+		{
+			DirectColorModel model = (DirectColorModel)ColorModel.getRGBdefault();
+			image = new BufferedImage(model, Raster.createPackedRaster(new DataBufferInt(pixels, width * height),
+					width, height, width, model.getMasks(), null), false, null);
+		}
+		return image;
+	}
+	
+	/**
+	 * Gets the color buffer the polygons are drawn into: ARGB pixels, row by row.
+	 * @return The color buffer, the caller's one if it was given as an array.
+	 */
+	public int[] getColorBuffer() {
+		return pixels;
+	}
+
+	/**
+	 * Swaps the color buffer the polygons are drawn into, for instance to hand the finished frame
+	 * over to another thread without copying it. Call it between frames, after {@link #commit()}:
+	 * the contents of the new buffer do not matter, since {@link #clean()} or, with alternating depth
+	 * ranges, {@link #resolve()} clear the pixels not drawn in the next frame.
+	 * @param colorBuffer The ARGB color buffer, row by row, of at least width*height pixels.
+	 * @throws IllegalArgumentException if the buffer is too small.
+	 */
+	public void setColorBuffer(int[] colorBuffer) {
+		if(colorBuffer.length < width * height)
+			throw new IllegalArgumentException("The color buffer has less than " + width * height + " pixels");
+		if(target == pixels)
+			target = colorBuffer;
+		this.pixels = colorBuffer;
+		this.image = null;
+	}
+	
+	/**
+	 * Gets the depth buffer, if its format is {@link DepthFormat#FLOAT32}. At a reduced
+	 * {@link #setRenderScale(float) resolution scale}, only its top-left part is used.
+	 * @return The depth buffer, the caller's one if it was given, or null for the integer depth formats.
+	 */
+	public float[] getDepthBuffer() {
+		return zBuffer;
+	}
+	
 	/**
 	 * Resets the Y-bounds tracking for the current polygon.
 	 * Called before processing each new polygon.
@@ -159,6 +778,25 @@ public class PolygonRenderer
 	float[] vecBuffer = {0,0,0};
 	/** Another temporary buffer for vector calculations. */
 	float[] vecBuffer2 = {0,0,0};
+	/** Eye-space texture origin of the polygon being rendered with a per-polygon texture mapping. */
+	private float[] texO = {0,0,0};
+	/** Eye-space texture U axis of the polygon being rendered with a per-polygon texture mapping. */
+	private float[] texU = {0,0,0};
+	/** Eye-space texture V axis of the polygon being rendered with a per-polygon texture mapping. */
+	private float[] texV = {0,0,0};
+	/**
+	 * Screen-space gradients of 1/w, u/w and v/w over the polygon being rendered with per-vertex
+	 * texture coordinates: {d(1/w)/dx, d(1/w)/dy, d(u/w)/dx, d(u/w)/dy, d(v/w)/dx, d(v/w)/dy}.
+	 */
+	private float[] texGradients = {0,0,0,0,0,0};
+	/** Texel coordinates sampled around a span of a polygon with a per-polygon texture mapping. */
+	private float[] texelBuffer = {0,0};
+	/** First pixel of the run found by {@link #claimVisibleRun}. */
+	private int runStart;
+	/** Steps of 1/w, u/w and v/w per pixel along the span being filled with per-vertex texture coordinates. */
+	private float[] spanSteps = {0,0,0};
+	/** 16.16 fixed point texel coordinates of a pixel of the span being filled, at the sampled level. */
+	private int[] fixedTexel = {0,0};
 	// float[] vecBuffer3 = {0,0,0}; // Seems unused, can be removed if confirmed.
 	
 	/** Dummy ImageObserver, not actively used for rendering updates. */
@@ -172,22 +810,100 @@ public class PolygonRenderer
 	/** Stores the bounding box [minX, minY, maxX, maxY] of the area updated in the current frame for optimized commit. */
 	private int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE};
 	
+	/** Eye-space center of the meshlet being culled. */
+	private float[] clusterCenter = {0,0,0};
+	/** Eye-space normal cone axis of the meshlet being culled. */
+	private float[] clusterAxis = {0,0,0};
+	
 	/**
-	 * Renders a single polygon.
+	 * Renders the polygons of a meshlet, unless the whole meshlet can be culled.
+	 * 
+	 * @param gc The graphics context (unused, rendering is to the color buffer).
+	 * @param m The {@link Meshlet} to render.
+	 * @see #isCulled(Meshlet)
+	 */
+	public void render(Graphics gc, Meshlet m)
+	{
+		render(m);
+	}
+	
+	/**
+	 * Renders the polygons of a meshlet, unless the whole meshlet can be culled.
+	 * 
+	 * @param m The {@link Meshlet} to render.
+	 * @see #isCulled(Meshlet)
+	 */
+	public void render(Meshlet m)
+	{
+		if(isCulled(m))
+			return;
+		for(Polygon p: m.polygons)
+			render(p);
+	}
+	
+	/**
+	 * Tests whether a meshlet can be skipped as a whole with the current transformations: either
+	 * its bounding sphere is outside the viewing frustum, or its normal cone shows that all of its
+	 * polygons face away from the eye, so the backface test of {@link #render(Polygon)}
+	 * would reject each of them.
+	 * 
+	 * @param m The meshlet to test.
+	 * @return true if no polygon of the meshlet can be visible.
+	 */
+	public boolean isCulled(Meshlet m)
+	{
+		float[] c = modelT.transform(m.center, clusterCenter);
+		// The model transformation may scale: measure the radius along each axis
+		float radius = 0;
+		for(int i = 0; i < 3; i++)
+		{
+			vecBuffer[0] = m.center[0];
+			vecBuffer[1] = m.center[1];
+			vecBuffer[2] = m.center[2];
+			vecBuffer[i] += m.radius;
+			modelT.transform(vecBuffer, vecBuffer);
+			MyMath.subtract(vecBuffer, c, vecBuffer);
+			radius = Math.max(radius, (float)Math.sqrt(MyMath.dotProduct(vecBuffer, vecBuffer)));
+		}
+		if(projT.isSphereOutside(c, radius))
+			return true;
+		if(m.coneCutoff > 1)
+			return false;
+		// Back-facing if every direction from the eye to the sphere is within 90 degrees
+		// of every normal in the cone
+		modelT.normal_transform(m.coneAxis, clusterAxis);
+		float axisLength = (float)Math.sqrt(MyMath.dotProduct(clusterAxis, clusterAxis));
+		float distance = (float)Math.sqrt(MyMath.dotProduct(c, c));
+		return MyMath.dotProduct(c, clusterAxis) >= axisLength * (m.coneCutoff * distance + radius);
+	}
+	
+	/**
+	 * Renders a single polygon, see {@link #render(Polygon)}.
+	 * 
+	 * @param gc The graphics context (unused, rendering is to the color buffer).
+	 * @param p The {@link Polygon} to render.
+	 */
+	public void render(Graphics gc, Polygon p)
+	{
+		render(p);
+	}
+	
+	/**
+	 * Renders a single polygon into the color buffer.
 	 * This involves backface culling, transformation, clipping, projection, and scanline conversion
 	 * with Z-buffering and texture/color interpolation.
 	 * 
-	 * @param gc The graphics context (currently unused directly in this method, rendering is to an internal buffer).
 	 * @param p The {@link Polygon} to render.
 	 */
-	public void render(Graphics gc, Polygon p)
+	public void render(Polygon p)
 	{
 		// Transformed normal of the polygon
 		float[] tnormal = {0,0,0}; // Using a local variable is fine
 		
 		// Texture related variables
-		float[] tu = null, tv = null, to = null;
+		float[] tu = texU, tv = texV, to = texO;
 		int tx, ty; // Texture coordinates in the image
+		float texW = 0, texH = 0; // Texture size, used to scale per-vertex (u,v) to texels
 		
 		// Z-buffer related values for edge interpolation
 		float zb0, zb1;
@@ -207,20 +923,39 @@ public class PolygonRenderer
 		}
 		reset(); // Reset yMinBound, yMaxBound for the new polygon
 		
-		// Get direct access to the image's pixel data array
-		int[] data = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		int[] data = target;
+		PerspectiveTransformation projT = rasterT = rasterProjT();
+		// Hit test pixel, in the rasterized resolution, or the nearest one rasterized in interlaced frames
+		int hitX = htx, hitY = hty;
+		if(handler != null && rasterWidth != width)
+		{
+			hitX = htx * rasterWidth / width;
+			hitY = hty * rasterHeight / height;
+		}
+		else if(interlacing == Interlacing.ROWS)
+			hitY = (hty & ~1) + phase;
+		else if(interlacing == Interlacing.CHECKERBOARD)
+			hitX = htx >> 1;
 		
-		boolean textureEnabled = p.texture != null;
+		if(p.texture != null)
+			p.texture.prepare();
+
+		// Per-vertex texture coordinates take precedence over a per-polygon texture mapping.
+		// Polygons with a texture but neither kind of mapping are Gouraud shaded.
+		boolean uvMapped = p.texture != null && hasTexCoords(p.vertices);
+		boolean textureEnabled = p.texture != null && !uvMapped && p.texture.O != null;
 		
 		if(textureEnabled)
 		{
-			// Clone and transform texture basis vectors
-			to = p.texture.O.clone(); // Texture origin
-			modelT.transform(to);
-			tu = p.texture.U.clone(); // Texture U vector
-			modelT.normal_transform(tu); // Normals are transformed without translation
-			tv = p.texture.V.clone(); // Texture V vector
-			modelT.normal_transform(tv);
+			// Transform texture basis vectors into the scratch buffers
+			modelT.transform(p.texture.O, to); // Texture origin
+			modelT.normal_transform(p.texture.U, tu); // Normals are transformed without translation
+			modelT.normal_transform(p.texture.V, tv);
+		}
+		else if(uvMapped)
+		{
+			texW = p.texture.getWidth();
+			texH = p.texture.getHeight();
 		}
 		
 		// --- Frustum Clipping (Near and Far Z planes) ---
@@ -237,6 +972,7 @@ public class PolygonRenderer
 		// Note: The loop for edges starts from the second vertex, so the first one is projected here.
 		// It might be cleaner to project all vertices first, then iterate edges.
 		this.vertices[0].depth = projT.project(this.vertices[0].point, this.vertices[0].projection);
+		this.vertices[0].projection[1] -= yOffset;
 		
 		// Scan all edges of the (clipped) polygon
 		for(int i = 1; i <= numVertices; i++) // Loop from 1 up to and including numVertices (using modulo for last edge)
@@ -250,6 +986,7 @@ public class PolygonRenderer
 			// Assuming frustumClipping results in eye-space vertices in this.vertices.
 			if (i % numVertices != 0) { // Avoid re-projecting the first vertex, which was done above
 			    cur.depth = projT.project(cur.point, cur.projection);
+			    cur.projection[1] -= yOffset;
 			}
 			
 			zb0 = prev.depth; // Depth of previous vertex
@@ -280,10 +1017,15 @@ public class PolygonRenderer
 			// Handle horizontal lines separately or as part of general case
 			if(p1_screen[1] == p0_screen[1]) // Horizontal edge
 			{
-				// Ensure y_start is within viewport bounds
-				y_start = Math.max(0, Math.min(y_start, height - 1));
+				// Skip edges outside the viewport, which would otherwise widen its first or last span
+				if(y_start < 0 || y_start >= rasterHeight)
+					continue;
 				
-				if(!textureEnabled) {
+				if(uvMapped) {
+					float iz0 = -1.0f / c0.point[2], iz1 = -1.0f / c1.point[2]; // 1/w of each endpoint
+					scanLines[y_start].touch(p0_screen[0], zb0, iz0, c0.texCoord[0] * texW * iz0, c0.texCoord[1] * texH * iz0);
+					scanLines[y_start].touch(p1_screen[0], zb1, iz1, c1.texCoord[0] * texW * iz1, c1.texCoord[1] * texH * iz1);
+				} else if(!textureEnabled) {
 					scanLines[y_start].touch(p0_screen[0], c0.color, zb0);
 					scanLines[y_start].touch(p1_screen[0], c1.color, zb1);
 				} else {
@@ -306,8 +1048,22 @@ public class PolygonRenderer
 				// The current 'dd' seems to be a screen-space quadratic interpolation of depth, which is unusual.
 				// For simplicity, let's assume linear interpolation of screen-space depth for now along the edge.
 				float z_edge_step = (zb1 - zb0) / (p1_screen[1] - p0_screen[1]);
+				
+				// Perspective-correct attributes: 1/w, u/w and v/w are linear in screen space
+				float iz0 = 0, uz0 = 0, vz0 = 0, iz_step = 0, uz_step = 0, vz_step = 0;
+				if(uvMapped)
+				{
+					float iz1 = -1.0f / c1.point[2];
+					float dy = p1_screen[1] - p0_screen[1];
+					iz0 = -1.0f / c0.point[2];
+					uz0 = c0.texCoord[0] * texW * iz0;
+					vz0 = c0.texCoord[1] * texH * iz0;
+					iz_step = (iz1 - iz0) / dy;
+					uz_step = (c1.texCoord[0] * texW * iz1 - uz0) / dy;
+					vz_step = (c1.texCoord[1] * texH * iz1 - vz0) / dy;
+				}
 
-				for(int y = Math.max(0, y_start); y <= y_end && y < height; y++)
+				for(int y = Math.max(0, y_start); y <= y_end && y < rasterHeight; y++)
 				{
 					// Interpolate X along the edge for current scanline y
 					// int x = FixedPoint16.ToInt(m_fp*(y-p0_screen[1])) + p0_screen[0]; // Original fixed point
@@ -316,7 +1072,10 @@ public class PolygonRenderer
 					// Interpolate depth along the edge
 					float zb_edge = zb0 + z_edge_step * (y - p0_screen[1]);
 					
-					if(!textureEnabled) {
+					if(uvMapped) {
+						int dy = y - p0_screen[1];
+						scanLines[y].touch(x, zb_edge, iz0 + iz_step * dy, uz0 + uz_step * dy, vz0 + vz_step * dy);
+					} else if(!textureEnabled) {
 						scanLines[y].touch(x,
 								interpolateColor(y - y_start, n, step_fp, c0.color, c1.color), zb_edge);
 					} else {
@@ -326,6 +1085,11 @@ public class PolygonRenderer
 			}
 		}
 		
+		// Mipmap level selection needs the texel footprint of a pixel
+		int mipLevels = p.texture != null ? p.texture.getLevelCount() : 1;
+		if(uvMapped && mipLevels > 1 && !computeTexGradients(texW, texH))
+			mipLevels = 1; // Degenerate on screen: sample the full resolution
+		
 		// --- Fill Polygon Scanlines ---
 		Scan scan;
 		int xMinBoundOverall = Integer.MAX_VALUE; // Track overall X bounds for dirty rect
@@ -343,87 +1107,114 @@ public class PolygonRenderer
 			if(scan.x0 < xMinBoundOverall) xMinBoundOverall = scan.x0;
 			if(scan.x1 > xMaxBoundOverall) xMaxBoundOverall = scan.x1;
 			
-			// Clip scanline X to viewport
-			int x_start_fill = Math.max(0, scan.x0);
-			int x_end_fill = Math.min(width - 1, scan.x1);
+			// Clip scanline X to viewport and scissor
+			int x_start_fill = Math.max(scissor[0], scan.x0);
+			int x_end_fill = Math.min(scissor[2], scan.x1);
+			if(x_start_fill > x_end_fill || y < scissor[1] || y > scissor[3]) {
+				scan.reset();
+				continue;
+			}
+			
+			// Interlaced frames rasterize half of the pixels, packed together, see setInterlacing
+			int row = y * width;
+			packStep = 1;
+			packOffset = 0;
+			if(interlacing != Interlacing.NONE)
+			{
+				int parity = (y + phase) & 1;
+				if(interlacing == Interlacing.ROWS)
+				{
+					if(parity != 0) {
+						scan.reset();
+						continue;
+					}
+					row = (y >> 1) * width;
+				}
+				else
+				{
+					row = y * packedWidth();
+					packStep = 2;
+					packOffset = parity;
+				}
+			}
 
-			if(!textureEnabled) // Gouraud shading
+			if(uvMapped || textureEnabled) // Texture mapping, perspective-correct
 			{
-				n = scan.x1 - scan.x0 + 1; // Number of pixels in the full span
-				step_fp = (n > 0) ? FixedPoint16.FromFloat(1.0f / n) : 0;
-				float z_scan_step = scan.computeZStep(); // Depth step across the scanline
-	
-				for(int x = x_start_fill; x <= x_end_fill; x++)
+				float z_scan_step = scan.computeZStep();
+				
+				// One mipmap level per span, from the texel footprint at its center
+				int level = 0;
+				if(uvMapped)
 				{
-					// No need for y bounds check here as we are iterating yMinBound to yMaxBound (already clipped)
-					float zb_pixel = scan.depth0 + z_scan_step * (x - scan.x0); // Interpolated depth at (x,y)
-					
-					int zBufferIndex = y * width + x;
-					if(zb_pixel < zBuffer[zBufferIndex]) // Check against Z-buffer
+					int span = scan.x1 - scan.x0;
+					float inv_span = span > 0 ? 1.0f / span : 0;
+					spanSteps[0] = (scan.iz1 - scan.iz0) * inv_span;
+					spanSteps[1] = (scan.uz1 - scan.uz0) * inv_span;
+					spanSteps[2] = (scan.vz1 - scan.vz0) * inv_span;
+					if(mipLevels > 1)
 					{
-						// Interpolate color across the scanline
-						data[zBufferIndex] = interpolateColor(x - scan.x0, n, step_fp, scan.min_color, scan.max_color);
-						zBuffer[zBufferIndex] = zb_pixel; // Update Z-buffer
-						
-						// Hit testing
-						if(handler != null && x == htx && y == hty) {
-							handler.hit(x, y, zb_pixel, data[zBufferIndex], p);
-						}
+						float fc = (x_start_fill + x_end_fill) * 0.5f - scan.x0;
+						level = selectMipLevel(scan.iz0 + spanSteps[0] * fc, scan.uz0 + spanSteps[1] * fc, scan.vz0 + spanSteps[2] * fc, mipLevels);
 					}
 				}
+				else if(mipLevels > 1)
+					level = selectMipLevel((x_start_fill + x_end_fill) >> 1, y, tnormal, p.texture, mipLevels);
+				
+				if(packStep == 2)
+				{
+					z_scan_step = packSpan(scan, z_scan_step, uvMapped);
+					x_start_fill = (x_start_fill - packOffset + 1) >> 1;
+					x_end_fill = (x_end_fill - packOffset) >> 1;
+				}
+				int x = x_start_fill;
+				while(x <= x_end_fill)
+				{
+					// Claim the depth of the next run of visible pixels
+					x = claimVisibleRun(scan, z_scan_step, row, x, x_end_fill, false);
+					int start = runStart;
+					// Sample the run one sub-span at a time, interpolating linearly between the exact
+					// texel coordinates of the sub-span ends; packed pixels are twice as far apart
+					int subspan = SUBSPAN / packStep;
+					for(int s0 = start; s0 < x; s0 += subspan)
+					{
+						int s1 = Math.min(s0 + subspan, x);
+						spanTexel(scan, s0, y, uvMapped, tnormal, p.texture, level);
+						tx = fixedTexel[0];
+						ty = fixedTexel[1];
+						spanTexel(scan, s1, y, uvMapped, tnormal, p.texture, level);
+						int count = s1 - s0;
+						p.texture.sampleSpan(tx, ty, (fixedTexel[0] - tx) / count, (fixedTexel[1] - ty) / count, count, level, data, row + s0);
+					}
+					if(handler != null && y == hitY && hitX >= start && hitX < x) {
+						handler.hit(htx, hty, scan.depth0 + z_scan_step * (hitX - scan.x0), data[row + hitX], p);
+					}
+					x++; // The pixel ending the run is hidden
+				}
 			}
-			else // Texture mapping
+			else // Gouraud shading
 			{
+				n = scan.x1 - scan.x0 + 1; // Number of pixels in the full span
+				step_fp = (n > 0) ? FixedPoint16.FromFloat(1.0f / n) : 0;
 				float z_scan_step = scan.computeZStep(); // Depth step across the scanline
-
-				for(int x = x_start_fill; x <= x_end_fill; x++)
+				int x0 = scan.x0;
+				if(packStep == 2)
 				{
-					float zb_pixel = scan.depth0 + z_scan_step * (x - scan.x0); // Interpolated depth at (x,y)
-					int zBufferIndex = y * width + x;
-
-					if(zb_pixel <= zBuffer[zBufferIndex]) // Check against Z-buffer (use <= for textures to avoid precision artifacts if needed)
-					{
-						// Perspective correct texture mapping requires 1/w interpolation.
-						// This implementation uses a simplified approach that might not be fully perspective correct.
-						// It seems to unproject screen (x,y) to a point on the polygon plane in eye space.
-						
-						// vecBuffer will hold a direction vector on the view plane for pixel (x,y)
-						MyMath.init(-1, vecBuffer); // Initialize vecBuffer, purpose of -1 is unclear in this context of aTrasform
-						this.projT.aTrasform(x, y, vecBuffer); // Transforms (x,y) based on inverse projection parts
-						
-						// Calculate intersection of view ray for (x,y) with polygon plane in eye space
-						// P = O_eye + t * D_eye, where D_eye is related to vecBuffer
-						// Plane: N_eye . (X - C_eye) = 0 => N_eye . X = N_eye . C_eye
-						// Here, tnormal is polygon normal in eye space, to is transformed texture origin in eye space.
-						// MyMath.scale computes: t = (tnormal . to) / (vecBuffer . tnormal)
-						// Then intersection P_eye = t * vecBuffer (if vecBuffer is direction from eye, and O_eye is origin)
-						// This is a common way to find intersection if vecBuffer is ray direction and tnormal.to is related to plane equation.
-						float dot_tnormal_vecBuffer = MyMath.dotProduct(vecBuffer, tnormal);
-						if (Math.abs(dot_tnormal_vecBuffer) < 1e-6f) continue; // Ray parallel to polygon, skip
-						
-						float t_intersect = MyMath.dotProduct(tnormal, to) / dot_tnormal_vecBuffer;
-						MyMath.scale(t_intersect, vecBuffer, vecBuffer); // vecBuffer now holds P_eye (intersection point)
-						
-						// vecBuffer = P_eye - O_texture_eye (vector from texture origin to intersection point, in eye space)
-						MyMath.subtract(vecBuffer, to, vecBuffer);
-	
-						// Project this vector onto texture U and V axes (in eye space)
-						float tex_u_coord = MyMath.dotProduct(vecBuffer, tu); // tu is transformed texture U vector
-						float tex_v_coord = MyMath.dotProduct(vecBuffer, tv); // tv is transformed texture V vector
-						
-						// Final texture image coordinates
-						tx = (int) (tex_u_coord * p.texture.u[0] + tex_v_coord * p.texture.v[0] + p.texture.o[0]);
-						ty = (int) (tex_u_coord * p.texture.u[1] + tex_v_coord * p.texture.v[1] + p.texture.o[1]);
-						// Note: p.texture.u/v/o seem to be original texture space mapping factors, not vectors.
-						// This implies tex_u_coord and tex_v_coord are scalar projections, and then mapped to final pixel coords.
-						
-						data[zBufferIndex] = p.texture.getColor(tx, ty);
-						zBuffer[zBufferIndex] = zb_pixel;
-						
-						if(handler != null && x == htx && y == hty) {
-							handler.hit(x, y, zb_pixel, data[zBufferIndex], p);
-						}
+					z_scan_step = packSpan(scan, z_scan_step, false);
+					x_start_fill = (x_start_fill - packOffset + 1) >> 1;
+					x_end_fill = (x_end_fill - packOffset) >> 1;
+				}
+	
+				int x = x_start_fill;
+				while(x <= x_end_fill)
+				{
+					x = claimVisibleRun(scan, z_scan_step, row, x, x_end_fill, true);
+					int start = runStart;
+					for(int i = start; i < x; i++) // Interpolate color across the scanline
+						data[row + i] = interpolateColor(i * packStep + packOffset - x0, n, step_fp, scan.min_color, scan.max_color);
+					if(handler != null && y == hitY && hitX >= start && hitX < x) {
+						handler.hit(htx, hty, scan.depth0 + z_scan_step * (hitX - scan.x0), data[row + hitX], p);
 					}
+					x++; // The pixel ending the run is hidden
 				}
 			}
 			scan.reset(); // Reset scanline for next polygon or frame
@@ -436,7 +1227,405 @@ public class PolygonRenderer
 		if(yMaxBound > bounds[3]) bounds[3] = yMaxBound; // yMaxBound is already clipped overall max Y for this poly
 			
 	}
-
+
+	/**
+	 * Moves a span to the coordinates of the pixels rasterized in a checkerboard frame, packed
+	 * together: pixel i of the packed row is pixel 2 * i + {@link #packOffset} of the frame row.
+	 * Depths, and the perspective-correct texture attributes, are made linear in i from x0 = 0.
+	 * @param scan The span being filled.
+	 * @param z_step The depth step per pixel of the frame.
+	 * @param uvMapped True to move the texture attributes, and {@link #spanSteps}, too.
+	 * @return The depth step per packed pixel.
+	 */
+	private final float packSpan(Scan scan, float z_step, boolean uvMapped)
+	{
+		int f = packOffset - scan.x0;
+		scan.depth0 += z_step * f;
+		if(uvMapped)
+		{
+			scan.iz0 += spanSteps[0] * f;
+			scan.uz0 += spanSteps[1] * f;
+			scan.vz0 += spanSteps[2] * f;
+			spanSteps[0] *= 2;
+			spanSteps[1] *= 2;
+			spanSteps[2] *= 2;
+		}
+		scan.x0 = 0;
+		return z_step * 2;
+	}
+	
+	/**
+	 * Computes {@link #texGradients} from the first three vertices of the clipped polygon, whose
+	 * 1/w, u/w and v/w are planar in screen space.
+	 * @param texW The texture width, scaling u to texels.
+	 * @param texH The texture height, scaling v to texels.
+	 * @return False if the vertices are collinear on screen.
+	 */
+	private final boolean computeTexGradients(float texW, float texH)
+	{
+		if(numVertices < 3)
+			return false;
+		ProjectedVertex v0 = vertices[0], v1 = vertices[1], v2 = vertices[2];
+		float dx1 = v1.projection[0] - v0.projection[0], dy1 = v1.projection[1] - v0.projection[1];
+		float dx2 = v2.projection[0] - v0.projection[0], dy2 = v2.projection[1] - v0.projection[1];
+		float det = dx1 * dy2 - dx2 * dy1;
+		if(det == 0)
+			return false;
+		float iz0 = -1.0f / v0.point[2], iz1 = -1.0f / v1.point[2], iz2 = -1.0f / v2.point[2];
+		float u0 = v0.texCoord[0] * texW * iz0, u1 = v1.texCoord[0] * texW * iz1, u2 = v2.texCoord[0] * texW * iz2;
+		float w0 = v0.texCoord[1] * texH * iz0, w1 = v1.texCoord[1] * texH * iz1, w2 = v2.texCoord[1] * texH * iz2;
+		setTexGradient(0, iz1 - iz0, iz2 - iz0, dx1, dy1, dx2, dy2, det);
+		setTexGradient(1, u1 - u0, u2 - u0, dx1, dy1, dx2, dy2, det);
+		setTexGradient(2, w1 - w0, w2 - w0, dx1, dy1, dx2, dy2, det);
+		return true;
+	}
+	
+	/**
+	 * Sets the screen space gradient of one of the planar quantities of {@link #texGradients}.
+	 * @param i The index of the quantity: 1/w, u/w or v/w.
+	 * @param df1 The change of the quantity from the first vertex to the second.
+	 * @param df2 The change of the quantity from the first vertex to the third.
+	 * @param det The determinant of the screen space edges from the first vertex.
+	 */
+	private final void setTexGradient(int i, float df1, float df2, float dx1, float dy1, float dx2, float dy2, float det)
+	{
+		texGradients[2*i] = (df1 * dy2 - df2 * dy1) / det;
+		texGradients[2*i+1] = (df2 * dx1 - df1 * dx2) / det;
+	}
+	
+	/**
+	 * Finds the next run of visible pixels of a span, from a given pixel on, and writes their depth.
+	 * Integer depth formats interpolate depth in fixed point along the span.
+	 * The first pixel of the run is stored in {@link #runStart}.
+	 * @param scan The span being filled.
+	 * @param z_step The depth step per pixel along the span.
+	 * @param row The index of the first pixel of the scanline in the buffers.
+	 * @param x The x-coordinate from which to look for visible pixels.
+	 * @param x_end The x-coordinate of the last pixel of the span to fill.
+	 * @param strict True if a pixel at the same depth as the buffer is hidden, false if it is visible.
+	 * @return The x-coordinate following the run: the first hidden pixel after it, or x_end + 1.
+	 *         The run is empty if no pixel is visible.
+	 */
+	private final int claimVisibleRun(Scan scan, float z_step, int row, int x, int x_end, boolean strict)
+	{
+		if(alternatingDepth)
+			return claimAlternatingRun(scan, z_step, row, x, x_end, strict);
+		if(zBuffer != null)
+		{
+			float[] zb = zBuffer;
+			for(; x <= x_end; x++) // Skip hidden pixels
+			{
+				float z = scan.depth0 + z_step * (x - scan.x0);
+				if(strict ? z < zb[row + x] : z <= zb[row + x])
+					break;
+			}
+			runStart = x;
+			for(; x <= x_end; x++)
+			{
+				float z = scan.depth0 + z_step * (x - scan.x0);
+				if(strict ? z >= zb[row + x] : z > zb[row + x])
+					break;
+				zb[row + x] = z;
+			}
+			return x;
+		}
+		int max = depthFormat.getMaxValue();
+		double scale = (double)max * FixedPoint16.SCALE;
+		long z = (long)((scan.depth0 + (double)z_step * (x - scan.x0)) * scale), dz = (long)(z_step * scale);
+		int bias = strict ? 0 : 1;
+		if(zBuffer24 != null)
+		{
+			int[] zb = zBuffer24;
+			for(; x <= x_end; x++, z += dz)
+				if(Math.max(0, Math.min(max, (int)(z >> FixedPoint16.SCALE_BITS))) < zb[row + x] + bias)
+					break;
+			runStart = x;
+			for(; x <= x_end; x++, z += dz)
+			{
+				int d = Math.max(0, Math.min(max, (int)(z >> FixedPoint16.SCALE_BITS)));
+				if(d >= zb[row + x] + bias)
+					break;
+				zb[row + x] = d;
+			}
+		}
+		else
+		{
+			short[] zb = zBuffer16;
+			for(; x <= x_end; x++, z += dz)
+				if(Math.max(0, Math.min(max, (int)(z >> FixedPoint16.SCALE_BITS))) < (zb[row + x] & 0xFFFF) + bias)
+					break;
+			runStart = x;
+			for(; x <= x_end; x++, z += dz)
+			{
+				int d = Math.max(0, Math.min(max, (int)(z >> FixedPoint16.SCALE_BITS)));
+				if(d >= (zb[row + x] & 0xFFFF) + bias)
+					break;
+				zb[row + x] = (short)d;
+			}
+		}
+		return x;
+	}
+	
+	/**
+	 * {@link #claimVisibleRun} with alternating depth ranges. Integer depths are compared as keys,
+	 * increasing with depth in both ranges: the stored value in even frames, its complement in odd
+	 * frames. A pixel whose previous value is not nearer than the cleared value was not drawn yet in
+	 * the frame, and counts towards the coverage of its tile; counts are added to the tiles once per
+	 * tile crossed.
+	 */
+	private final int claimAlternatingRun(Scan scan, float z_step, int row, int x, int x_end, boolean strict)
+	{
+		int[] writes = tileWrites;
+		int tileRow = ((row / width) >> TILE_SHIFT) * tilesX;
+		if(zBuffer != null)
+		{
+			float[] zb = zBuffer;
+			// Stored values are linear along the span, like depths: s0 + ds * (x - x0)
+			float s0 = oddFrame ? 1 - ALTERNATE_RANGE * scan.depth0 : ALTERNATE_RANGE * scan.depth0;
+			float ds = oddFrame ? -ALTERNATE_RANGE * z_step : ALTERNATE_RANGE * z_step;
+			int x0 = scan.x0;
+			if(oddFrame)
+			{
+				// Stored values decrease with depth, from 1
+				for(; x <= x_end; x++)
+				{
+					float s = s0 + ds * (x - x0);
+					if(strict ? s > zb[row + x] : s >= zb[row + x])
+						break;
+				}
+				runStart = x;
+				int tile = tileRow + (x >> TILE_SHIFT), count = 0;
+				for(; x <= x_end; x++)
+				{
+					float s = s0 + ds * (x - x0);
+					float old = zb[row + x];
+					if(strict ? s <= old : s < old)
+						break;
+					if(old <= 0.5f)
+						count++;
+					zb[row + x] = s;
+					if((x & TILE_MASK) == TILE_MASK)
+					{
+						writes[tile++] += count;
+						count = 0;
+					}
+				}
+				if(count > 0)
+					writes[tile] += count;
+			}
+			else
+			{
+				for(; x <= x_end; x++)
+				{
+					float s = s0 + ds * (x - x0);
+					if(strict ? s < zb[row + x] : s <= zb[row + x])
+						break;
+				}
+				runStart = x;
+				int tile = tileRow + (x >> TILE_SHIFT), count = 0;
+				for(; x <= x_end; x++)
+				{
+					float s = s0 + ds * (x - x0);
+					float old = zb[row + x];
+					if(strict ? s >= old : s > old)
+						break;
+					if(old >= 0.5f)
+						count++;
+					zb[row + x] = s;
+					if((x & TILE_MASK) == TILE_MASK)
+					{
+						writes[tile++] += count;
+						count = 0;
+					}
+				}
+				if(count > 0)
+					writes[tile] += count;
+			}
+			return x;
+		}
+		// Even frames store [0, half - 1], odd frames [max - half + 1, max], and half is cleared
+		int max = depthFormat.getMaxValue(), half = max >> 1;
+		int mask = oddFrame ? -1 : 0, base = oddFrame ? -max - 1 : 0, cleared = half ^ mask;
+		double scale = (double)(half - 1) * FixedPoint16.SCALE;
+		long z = (long)((scan.depth0 + (double)z_step * (x - scan.x0)) * scale), dz = (long)(z_step * scale);
+		int bias = strict ? 0 : 1;
+		if(zBuffer24 != null)
+		{
+			int[] zb = zBuffer24;
+			for(; x <= x_end; x++, z += dz)
+				if(base + Math.max(0, Math.min(half - 1, (int)(z >> FixedPoint16.SCALE_BITS))) < (zb[row + x] ^ mask) + bias)
+					break;
+			runStart = x;
+			int tile = tileRow + (x >> TILE_SHIFT), count = 0;
+			for(; x <= x_end; x++, z += dz)
+			{
+				int k = base + Math.max(0, Math.min(half - 1, (int)(z >> FixedPoint16.SCALE_BITS)));
+				int old = zb[row + x] ^ mask;
+				if(k >= old + bias)
+					break;
+				if(old >= cleared)
+					count++;
+				zb[row + x] = k ^ mask;
+				if((x & TILE_MASK) == TILE_MASK)
+				{
+					writes[tile++] += count;
+					count = 0;
+				}
+			}
+			if(count > 0)
+				writes[tile] += count;
+		}
+		else
+		{
+			short[] zb = zBuffer16;
+			for(; x <= x_end; x++, z += dz)
+				if(base + Math.max(0, Math.min(half - 1, (int)(z >> FixedPoint16.SCALE_BITS))) < ((zb[row + x] & 0xFFFF) ^ mask) + bias)
+					break;
+			runStart = x;
+			int tile = tileRow + (x >> TILE_SHIFT), count = 0;
+			for(; x <= x_end; x++, z += dz)
+			{
+				int k = base + Math.max(0, Math.min(half - 1, (int)(z >> FixedPoint16.SCALE_BITS)));
+				int old = (zb[row + x] & 0xFFFF) ^ mask;
+				if(k >= old + bias)
+					break;
+				if(old >= cleared)
+					count++;
+				zb[row + x] = (short)(k ^ mask);
+				if((x & TILE_MASK) == TILE_MASK)
+				{
+					writes[tile++] += count;
+					count = 0;
+				}
+			}
+			if(count > 0)
+				writes[tile] += count;
+		}
+		return x;
+	}
+	
+	/**
+	 * Computes the exact texel coordinates of a pixel of the span being filled, as 16.16 fixed point
+	 * coordinates of the given level, into {@link #fixedTexel}.
+	 * @param scan The span being filled.
+	 * @param x The x-coordinate of the pixel.
+	 * @param y The y-coordinate of the pixel.
+	 * @param uvMapped True if the polygon has per-vertex texture coordinates, false if it has a per-polygon texture mapping.
+	 * @param tnormal The eye-space normal of the polygon.
+	 * @param texture The texture of the polygon.
+	 * @param level The sampled level.
+	 */
+	private final void spanTexel(Scan scan, int x, int y, boolean uvMapped, float[] tnormal, Texture texture, int level)
+	{
+		float u, v;
+		if(uvMapped)
+		{
+			int f = x - scan.x0;
+			float w = 1.0f / (scan.iz0 + spanSteps[0] * f); // Recover w to undo the perspective divide
+			u = (scan.uz0 + spanSteps[1] * f) * w;
+			v = (scan.vz0 + spanSteps[2] * f) * w;
+		}
+		else if(planeTexel(x * packStep + packOffset, y, tnormal, texture))
+		{
+			u = texelBuffer[0] + texture.o[0];
+			v = texelBuffer[1] + texture.o[1];
+		}
+		else
+			u = v = 0; // The view ray is parallel to the polygon
+		fixedTexel[0] = (int)Math.floor(Math.scalb(u, 16 - level));
+		fixedTexel[1] = (int)Math.floor(Math.scalb(v, 16 - level));
+	}
+	
+	/**
+	 * Selects the mipmap level for a pixel of a polygon with per-vertex texture coordinates, from
+	 * the number of texels its footprint spans along the screen axes (the largest of the two).
+	 * @param iz The interpolated 1/w at the pixel.
+	 * @param uz The interpolated u/w at the pixel, in texels.
+	 * @param vz The interpolated v/w at the pixel, in texels.
+	 * @param levels The number of levels of the texture.
+	 * @return The level, floor(log2(texels per pixel)) clamped to the available levels.
+	 */
+	private final int selectMipLevel(float iz, float uz, float vz, int levels)
+	{
+		float[] g = texGradients;
+		float w = 1.0f / iz;
+		float u = uz * w, v = vz * w;
+		// Derivatives of u = (u/w) / (1/w) by the quotient rule
+		float dudx = (g[2] - u * g[0]) * w, dudy = (g[3] - u * g[1]) * w;
+		float dvdx = (g[4] - v * g[0]) * w, dvdy = (g[5] - v * g[1]) * w;
+		return mipLevel(Math.max(dudx * dudx + dvdx * dvdx, dudy * dudy + dvdy * dvdy), levels);
+	}
+	
+	/**
+	 * Selects the mipmap level for a pixel of a polygon with a per-polygon texture mapping, from
+	 * the texel coordinates of the pixel and of its right and lower neighbours.
+	 * @param x The x-coordinate of the pixel.
+	 * @param y The y-coordinate of the pixel.
+	 * @param tnormal The eye-space normal of the polygon.
+	 * @param texture The texture of the polygon.
+	 * @param levels The number of levels of the texture.
+	 * @return The level, floor(log2(texels per pixel)) clamped to the available levels.
+	 */
+	private final int selectMipLevel(int x, int y, float[] tnormal, Texture texture, int levels)
+	{
+		if(!planeTexel(x, y, tnormal, texture))
+			return 0;
+		float tx = texelBuffer[0], ty = texelBuffer[1];
+		if(!planeTexel(x + 1, y, tnormal, texture))
+			return 0;
+		float dxx = texelBuffer[0] - tx, dxy = texelBuffer[1] - ty;
+		if(!planeTexel(x, y + 1, tnormal, texture))
+			return 0;
+		float dyx = texelBuffer[0] - tx, dyy = texelBuffer[1] - ty;
+		return mipLevel(Math.max(dxx * dxx + dxy * dxy, dyx * dyx + dyy * dyy), levels);
+	}
+	
+	/**
+	 * Computes the texel coordinates of a pixel of a polygon with a per-polygon texture mapping,
+	 * like the textured scanline loop does, into {@link #texelBuffer}.
+	 * @return False if the view ray of the pixel is parallel to the polygon.
+	 */
+	private final boolean planeTexel(int x, int y, float[] tnormal, Texture texture)
+	{
+		MyMath.init(-1, vecBuffer);
+		rasterT.aTrasform(x, y + yOffset, vecBuffer);
+		float d = MyMath.dotProduct(vecBuffer, tnormal);
+		if(Math.abs(d) < 1e-6f)
+			return false;
+		MyMath.scale(MyMath.dotProduct(tnormal, texO) / d, vecBuffer, vecBuffer);
+		MyMath.subtract(vecBuffer, texO, vecBuffer);
+		float tu = MyMath.dotProduct(vecBuffer, texU), tv = MyMath.dotProduct(vecBuffer, texV);
+		texelBuffer[0] = tu * texture.u[0] + tv * texture.v[0];
+		texelBuffer[1] = tu * texture.u[1] + tv * texture.v[1];
+		return true;
+	}
+	
+	/**
+	 * Converts the squared number of texels per pixel to a mipmap level.
+	 * @param rho2 The squared texel footprint of a pixel.
+	 * @param levels The number of levels of the texture.
+	 * @return floor(log2(sqrt(rho2))) clamped to [0, levels - 1].
+	 */
+	private final static int mipLevel(float rho2, int levels)
+	{
+		if(!(rho2 >= 4)) // Less than 2 texels per pixel (or NaN): full resolution
+			return 0;
+		return Math.min(Math.getExponent(rho2) >> 1, levels - 1);
+	}
+	
+	/**
+	 * Checks whether all the given vertices carry texture coordinates.
+	 * @param vs The vertices to check.
+	 * @return True if every vertex has texture coordinates.
+	 */
+	private final static boolean hasTexCoords(Vertex[] vs)
+	{
+		for(Vertex v: vs)
+			if(v.texCoord == null)
+				return false;
+		return true;
+	}
+	
 	/**
 	 * Interpolates a color between two endpoint colors (color_0, color_1) using fixed-point arithmetic.
 	 * @param i Current step in interpolation.
@@ -499,7 +1688,7 @@ public class PolygonRenderer
 	{
 		int y = v.projection[1];
 		y = Math.max(0, y); // Clamp to min viewport y (0)
-		y = Math.min(scanLines.length - 1, y); // Clamp to max viewport y (height-1)
+		y = Math.min(rasterHeight - 1, y); // Clamp to max rasterized y
 		
 		if(this.yMinBound > y)
 			this.yMinBound = y;
@@ -510,36 +1699,692 @@ public class PolygonRenderer
 	/**
 	 * Clears the rendering buffer (image to transparent black) and the Z-buffer (to positive infinity).
 	 * Resets the dirty bounds for drawing.
+	 * <p>
+	 * With alternating depth ranges (see {@link #setAlternatingDepth(boolean)}), the buffers are not
+	 * cleared: the previous frame is resolved if it was not committed, and the next one uses the other
+	 * depth range.
+	 * <p>
+	 * The frame is rasterized at the current {@link #setRenderScale(float) resolution scale}, and
+	 * is timed if a {@link #setResolutionController(ResolutionController) controller} chooses it.
 	 */
 	public void clean() 
 	{
+		if(resolutionController != null)
+			frameStart = System.nanoTime();
 		// Reset dirty rectangle bounds
 		bounds[0] = Integer.MAX_VALUE; 
 		bounds[1] = Integer.MAX_VALUE;
 		bounds[2] = Integer.MIN_VALUE;
 		bounds[3] = Integer.MIN_VALUE;
+		upscaled = false;
+		cleared = true;
 		
-		// Clear image data (set to transparent black, ARGB = 0x00000000)
-		Arrays.fill(((DataBufferInt)image.getRaster().getDataBuffer()).getBankData()[0], 0);
+		if(alternatingDepth)
+		{
+			resolve();
+			if(renderScale != frameScale)
+				applyRenderScale();
+			oddFrame = !oddFrame;
+			Arrays.fill(tileWrites, 0);
+			resolved = false;
+			return;
+		}
+		int count = width * rasterHeight;
+		if(interlacing != Interlacing.NONE)
+		{
+			// The other half of the pixels, packed
+			phase ^= 1;
+			count = interlacing == Interlacing.ROWS ? width * ((height + 1) >> 1) : packedWidth() * height;
+		}
+		else if(renderScale != frameScale)
+			applyRenderScale();
+		// Clear image data (set to transparent black, ARGB = 0x00000000), in the pixels rasterized
+		Arrays.fill(target, 0, count, 0);
 		// Clear Z-buffer (set to farthest possible depth)
-		Arrays.fill(zBuffer, Float.POSITIVE_INFINITY); 
+		clearDepth(count);
+	}
+	
+	/**
+	 * Starts rasterizing at the resolution scale of the next frames, see {@link #setRenderScale(float)}.
+	 */
+	private void applyRenderScale()
+	{
+		frameScale = renderScale;
+		rasterWidth = Math.max(1, Math.round(width * frameScale));
+		rasterHeight = Math.max(1, Math.round(height * frameScale));
+		if(frameScale < 1)
+		{
+			if(target == pixels)
+				target = new int[width * height];
+		}
+		else
+			target = pixels;
+		resetScissor();
+		upscaledInto = null; // The whole frame must be upscaled
+		if(alternatingDepth)
+		{
+			// Pixels outside the previous resolution hold older frames, in either depth range
+			Arrays.fill(target, 0, width * height, 0);
+			clearDepth();
+		}
+	}
+	
+	/**
+	 * Gets the projection rasterizing at the current resolution scale.
+	 * @return The projection.
+	 */
+	private PerspectiveTransformation rasterProjT()
+	{
+		if(rasterWidth == width && rasterHeight == height)
+			return projT;
+		if(scaledFrom != projT || scaledT == null)
+		{
+			scaledFrom = projT;
+			scaledT = projT.scaled((float)rasterWidth / width, (float)rasterHeight / height);
+		}
+		return scaledT;
 	}
 
 	/**
-	 * Commits the rendered image content within the calculated dirty bounds to the provided {@link Graphics} context.
-	 * If a hit test handler was active, its commit method is called.
-	 * @param g The {@link Graphics} context to draw onto.
+	 * Clears a rectangle of the image to transparent black and of the Z-buffer to the farthest depth,
+	 * to redraw part of the frame with a {@link #setScissor(int, int, int, int) scissor rectangle}.
+	 * The bounds of the frame (see {@link #getBounds(int[])}) are not changed.
+	 * @param x The left of the rectangle.
+	 * @param y The top of the rectangle.
+	 * @param width The width of the rectangle.
+	 * @param height The height of the rectangle.
+	 * @throws IllegalStateException With alternating depth ranges, which do not clear the buffers, or
+	 *         in {@link #setInterlacing(Interlacing) interlaced} frames.
 	 */
-	public void commit(Graphics g) 
+	public void clean(int x, int y, int width, int height)
+	{
+		if(alternatingDepth)
+			throw new IllegalStateException("Rectangles cannot be cleared with alternating depth ranges");
+		if(interlacing != Interlacing.NONE)
+			throw new IllegalStateException("Rectangles cannot be cleared in interlaced frames");
+		int x0 = Math.max(0, x), x1 = Math.min(rasterWidth, x + width);
+		int y0 = Math.max(0, y), y1 = Math.min(rasterHeight, y + height);
+		if(x0 >= x1)
+			return;
+		for(int row = y0; row < y1; row++)
+		{
+			int from = row * this.width + x0, to = row * this.width + x1;
+			Arrays.fill(target, from, to, 0);
+			if(zBuffer != null)
+				Arrays.fill(zBuffer, from, to, Float.POSITIVE_INFINITY);
+			else if(zBuffer24 != null)
+				Arrays.fill(zBuffer24, from, to, DepthFormat.INT24.getMaxValue());
+			else
+				Arrays.fill(zBuffer16, from, to, (short)DepthFormat.SHORT16.getMaxValue());
+		}
+	}
+	
+	/**
+	 * Restricts the pixels written by {@link #render(Polygon)} to a rectangle of the viewport, to redraw
+	 * part of a frame. Polygons are still processed whole: the bounds of the frame
+	 * (see {@link #getBounds(int[])}) include the parts outside the rectangle.
+	 * @param x The left of the rectangle.
+	 * @param y The top of the rectangle.
+	 * @param width The width of the rectangle, 0 to write no pixel.
+	 * @param height The height of the rectangle, 0 to write no pixel.
+	 */
+	public void setScissor(int x, int y, int width, int height)
+	{
+		scissor[0] = Math.max(0, x);
+		scissor[1] = Math.max(0, y);
+		scissor[2] = Math.min(rasterWidth, x + width) - 1;
+		scissor[3] = Math.min(rasterHeight, y + height) - 1;
+	}
+	
+	/**
+	 * Lets {@link #render(Polygon)} write the whole viewport again, see {@link #setScissor(int, int, int, int)}.
+	 */
+	public void resetScissor()
+	{
+		setScissor(0, 0, rasterWidth, rasterHeight);
+	}
+	
+	/**
+	 * Performs the clears deferred by alternating depth ranges (see {@link #setAlternatingDepth(boolean)}):
+	 * in each tile not fully drawn in the current frame, pixels not drawn are cleared to transparent black
+	 * and their depth to the middle of the range. Tiles fully drawn are skipped.
+	 * <p>
+	 * {@link #commit()} calls this method; it only needs to be called directly to read the image
+	 * without committing it. It does nothing without alternating depth ranges, or
+	 * if the frame is already resolved.
+	 */
+	public void resolve()
+	{
+		if(resolved)
+			return;
+		resolved = true;
+		int[] data = target;
+		int tileSize = 1 << TILE_SHIFT;
+		for(int t = 0; t < tileWrites.length; t++)
+		{
+			int x0 = (t % tilesX) << TILE_SHIFT, y0 = (t / tilesX) << TILE_SHIFT;
+			int x1 = Math.min(rasterWidth, x0 + tileSize), y1 = Math.min(rasterHeight, y0 + tileSize);
+			if(x0 >= x1 || y0 >= y1 || tileWrites[t] >= (x1 - x0) * (y1 - y0))
+				continue;
+			for(int y = y0; y < y1; y++)
+				resolveRow(data, y * width, x0, x1);
+		}
+	}
+
+	/**
+	 * Clears the pixels of part of a row which were not drawn in the current frame, see {@link #resolve()}.
+	 */
+	private void resolveRow(int[] data, int row, int x0, int x1)
+	{
+		if(zBuffer != null)
+		{
+			float sign = oddFrame ? -1 : 1, cleared = sign * 0.5f;
+			for(int i = row + x0; i < row + x1; i++)
+				if(sign * zBuffer[i] >= cleared)
+				{
+					zBuffer[i] = 0.5f;
+					data[i] = 0;
+				}
+			return;
+		}
+		int half = depthFormat.getMaxValue() >> 1, mask = oddFrame ? -1 : 0, cleared = half ^ mask;
+		if(zBuffer24 != null)
+		{
+			for(int i = row + x0; i < row + x1; i++)
+				if((zBuffer24[i] ^ mask) >= cleared)
+				{
+					zBuffer24[i] = half;
+					data[i] = 0;
+				}
+		}
+		else
+		{
+			for(int i = row + x0; i < row + x1; i++)
+				if(((zBuffer16[i] & 0xFFFF) ^ mask) >= cleared)
+				{
+					zBuffer16[i] = (short)half;
+					data[i] = 0;
+				}
+		}
+	}
+
+	/**
+	 * Completes the frame in the color buffer: clears deferred by alternating depth ranges are done
+	 * (see {@link #resolve()}), the commit method of an active hit test handler is called, a frame
+	 * rasterized at a reduced {@link #setRenderScale(float) resolution scale} is upscaled, an
+	 * {@link #setInterlacing(Interlacing) interlaced} one is reconstructed, and a color
+	 * buffer without accessible array receives the pixels. With a
+	 * {@link #setResolutionController(ResolutionController) resolution controller}, the time of the
+	 * frame is then reported to it.
+	 */
+	public void commit()
 	{
+		resolve();
 		if(handler != null)
 		{
 			handler.commit();
 			handler = null; // Reset handler after commit
 		}
+		if(interlacing != Interlacing.NONE && !upscaled)
+			reconstruct();
+		else if(target != pixels && !upscaled)
+			upscale();
+		if(colorTarget != null)
+			colorTarget.duplicate().put(pixels, 0, width * height);
+		if(resolutionController != null && frameStart != 0)
+		{
+			renderScale = resolutionController.update(System.nanoTime() - frameStart);
+			frameStart = 0;
+		}
+	}
+	
+	/**
+	 * Upscales the pixels rasterized at a reduced resolution into the color buffer, bilinearly, in the
+	 * rectangle which may have changed since the last upscale into the same buffer, and replaces the
+	 * bounds of the frame with those of the upscaled pixels.
+	 */
+	private void upscale()
+	{
+		upscaled = true;
+		int[] changed = bounds;
+		if(upscaledInto != pixels)
+		{
+			// The color buffer holds another frame, or none: upscale everything
+			changed = new int[] {0, 0, rasterWidth - 1, rasterHeight - 1};
+			System.arraycopy(cleared ? bounds : changed, 0, upscaledBounds, 0, 4);
+			upscaledInto = pixels;
+		}
+		else if(cleared)
+		{
+			// Pixels drawn in the previous frame but not in this one were cleared
+			int[] previous = upscaledBounds.clone();
+			System.arraycopy(bounds, 0, upscaledBounds, 0, 4);
+			changed = previous;
+			changed[0] = Math.min(changed[0], bounds[0]);
+			changed[1] = Math.min(changed[1], bounds[1]);
+			changed[2] = Math.max(changed[2], bounds[2]);
+			changed[3] = Math.max(changed[3], bounds[3]);
+		}
+		else
+		{
+			// Only the pixels within the bounds changed
+			upscaledBounds[0] = Math.min(upscaledBounds[0], bounds[0]);
+			upscaledBounds[1] = Math.min(upscaledBounds[1], bounds[1]);
+			upscaledBounds[2] = Math.max(upscaledBounds[2], bounds[2]);
+			upscaledBounds[3] = Math.max(upscaledBounds[3], bounds[3]);
+		}
+		cleared = false;
+		int rx0 = Math.max(0, changed[0]), ry0 = Math.max(0, changed[1]);
+		int rx1 = Math.min(rasterWidth - 1, changed[2]), ry1 = Math.min(rasterHeight - 1, changed[3]);
+		if(rx0 > rx1 || ry0 > ry1)
+		{
+			bounds[0] = bounds[1] = Integer.MAX_VALUE;
+			bounds[2] = bounds[3] = Integer.MIN_VALUE;
+			return;
+		}
 		
+		// Viewport pixels sampling the rasterized ones: pixel x samples (x + 0.5) * sx - 0.5 and its right neighbor
+		float sx = (float)rasterWidth / width, sy = (float)rasterHeight / height;
+		int x0 = Math.max(0, (int)((rx0 - 0.5f) / sx)), x1 = Math.min(width - 1, (int)Math.ceil((rx1 + 1.5f) / sx));
+		int y0 = Math.max(0, (int)((ry0 - 0.5f) / sy)), y1 = Math.min(height - 1, (int)Math.ceil((ry1 + 1.5f) / sy));
+		if(upscaleColumns == null)
+		{
+			upscaleColumns = new int[width];
+			upscaleWeights = new int[width];
+		}
+		for(int x = x0; x <= x1; x++)
+		{
+			float u = Math.max(0, (x + 0.5f) * sx - 0.5f);
+			int column = Math.min((int)u, rasterWidth - 1);
+			upscaleColumns[x] = column;
+			upscaleWeights[x] = column < rasterWidth - 1 ? (int)((u - column) * 256) : 0;
+		}
+		int[] src = target, dst = pixels;
+		for(int y = y0; y <= y1; y++)
+		{
+			float v = Math.max(0, (y + 0.5f) * sy - 0.5f);
+			int line = Math.min((int)v, rasterHeight - 1);
+			int wy = line < rasterHeight - 1 ? (int)((v - line) * 256) : 0;
+			int row0 = line * width, row1 = wy != 0 ? row0 + width : row0;
+			int row = y * width;
+			for(int x = x0; x <= x1; x++)
+			{
+				int c = upscaleColumns[x], wx = upscaleWeights[x];
+				int c1 = wx != 0 ? c + 1 : c;
+				int top = lerp(src[row0 + c], src[row0 + c1], wx);
+				int bottom = lerp(src[row1 + c], src[row1 + c1], wx);
+				dst[row + x] = lerp(top, bottom, wy);
+			}
+		}
+		bounds[0] = x0;
+		bounds[1] = y0;
+		bounds[2] = x1;
+		bounds[3] = y1;
+	}
+	
+	/**
+	 * Reconstructs an interlaced frame in the color buffer: the pixels rasterized are unpacked, and the
+	 * others reprojected to the previous frame or interpolated, see {@link #setInterlacing(Interlacing)}.
+	 * The bounds of the frame grow by a pixel, to those of the pixels reconstructed.
+	 * <p>
+	 * Each frame of the history holds the background outside its {@link #historyBounds}: only the bounds
+	 * of the frame, and those of the older frame it replaces in the history, are reconstructed, row by
+	 * row. The color buffers of the last frames keep their pixels, so that only the bounds of the frame
+	 * and of the one a buffer last received are copied to it.
+	 */
+	private void reconstruct()
+	{
+		upscaled = true;
+		int[] older = historyBounds[1 - history];
+		if(bounds[0] <= bounds[2] && bounds[1] <= bounds[3])
+		{
+			bounds[0] = Math.max(0, bounds[0] - 1);
+			bounds[1] = Math.max(0, bounds[1] - 1);
+			bounds[2] = Math.min(width - 1, bounds[2] + 1);
+			bounds[3] = Math.min(height - 1, bounds[3] + 1);
+		}
+		int x0 = Math.min(bounds[0], older[0]), y0 = Math.min(bounds[1], older[1]);
+		int x1 = Math.max(bounds[2], older[2]), y1 = Math.max(bounds[3], older[3]);
+		boolean temporal = historyProjT == projT && sceneSet && previousSceneSet;
+		boolean still = temporal && previousSceneT.hasSameMatrix(sceneT);
+		if(temporal)
+		{
+			projT.getCoefficients(reprojectProjection);
+			if(!still)
+				prepareReprojection();
+		}
+		// The pixels of a row are reconstructed once the rows around it are unpacked
+		for(int y = y0; y <= y1 + 1; y++)
+		{
+			if(y <= y1)
+				unpackRow(y, x0, x1);
+			if(y > y0)
+				reconstructRow(y - 1, x0, x1, temporal, still);
+		}
+		System.arraycopy(bounds, 0, older, 0, 4);
+		copyReconstructed(historyColors[1 - history]);
+		history = 1 - history;
+		historyProjT = projT;
+		previousSceneT.setTo(sceneT);
+		previousSceneSet = sceneSet;
+		sceneSet = false;
+	}
+	
+	/**
+	 * Unpacks the pixels rasterized in a row of an interlaced frame, and their depths, into the history.
+	 * @param y The y-coordinate of the row.
+	 * @param x0 The x-coordinate of the first pixel to unpack.
+	 * @param x1 The x-coordinate of the last pixel to unpack.
+	 */
+	private void unpackRow(int y, int x0, int x1)
+	{
+		int[] color = historyColors[1 - history];
+		float[] depth = historyDepths[1 - history];
+		int line = y * width, parity = (y + phase) & 1;
+		if(interlacing == Interlacing.ROWS)
+		{
+			if(parity != 0)
+				return;
+			int i = (y >> 1) * width + x0;
+			System.arraycopy(target, i, color, line + x0, x1 - x0 + 1);
+			unpackDepths(i, depth, line + x0, 1, x1 - x0 + 1);
+		}
+		else
+		{
+			int x = x0 + ((x0 ^ parity) & 1), count = (x1 - x + 2) >> 1;
+			int i = y * packedWidth() + (x >> 1);
+			for(int k = 0, j = line + x; k < count; k++, j += 2)
+				color[j] = target[i + k];
+			unpackDepths(i, depth, line + x, 2, count);
+		}
+	}
+	
+	/**
+	 * Reconstructs the pixels not rasterized in a row of an interlaced frame, once the rows around it are unpacked.
+	 * @param y The y-coordinate of the row.
+	 * @param x0 The x-coordinate of the first pixel to reconstruct.
+	 * @param x1 The x-coordinate of the last pixel to reconstruct.
+	 * @param temporal True to reproject the pixels to the previous frame.
+	 * @param still True if the scene did not move since the previous frame.
+	 */
+	private void reconstructRow(int y, int x0, int x1, boolean temporal, boolean still)
+	{
+		int[] color = historyColors[1 - history], previousColor = historyColors[history];
+		float[] depth = historyDepths[1 - history], previousDepth = historyDepths[history];
+		boolean rows = interlacing == Interlacing.ROWS;
+		int line = y * width, parity = (y + phase) & 1;
+		if(rows && parity == 0)
+			return;
+		if(temporal && !still)
+			prepareRow(y);
+		// Rasterized neighbors: above and below, and left and right in checkerboard frames; the
+		// opposite one stands for a neighbor outside the frame
+		int up = y > 0 ? -width : width, down = y < height - 1 ? width : -width;
+		int step = rows ? 1 : 2;
+		for(int x = rows ? x0 : x0 + ((x0 ^ parity ^ 1) & 1); x <= x1; x += step)
+		{
+			int i = line + x;
+			float near = depth[i + up], far = depth[i + down];
+			if(far < near)
+			{
+				far = near;
+				near = depth[i + down];
+			}
+			int left = 0, right = 0;
+			if(!rows)
+			{
+				left = x > 0 ? -1 : 1;
+				right = x < width - 1 ? 1 : -1;
+				float dl = depth[i + left], dr = depth[i + right];
+				if(dl < near) near = dl;
+				if(dl > far) far = dl;
+				if(dr < near) near = dr;
+				if(dr > far) far = dr;
+			}
+			depth[i] = near;
+			if(temporal)
+			{
+				// The pixel lies on the surface of its nearest neighbor, or else on that of its farthest one
+				int j;
+				if(still)
+				{
+					float previous = previousDepth[i];
+					j = sameSurface(near, previous) ? i : -1;
+					if(j < 0 && far != near && sameSurface(far, previous))
+					{
+						j = i;
+						depth[i] = far;
+					}
+				}
+				else
+				{
+					j = reproject(x, i, near, previousDepth);
+					if(j < 0 && far != near && (j = reproject(x, i, far, previousDepth)) >= 0)
+						depth[i] = far;
+				}
+				if(j >= 0)
+				{
+					color[i] = previousColor[j];
+					continue;
+				}
+			}
+			// Nothing to reproject: interpolate the neighbors
+			int c = average(color[i + up], color[i + down]);
+			color[i] = rows ? c : average(c, average(color[i + left], color[i + right]));
+		}
+	}
+	
+	/**
+	 * Copies a reconstructed frame to the color buffer, where it may differ from the frame the buffer
+	 * last received, and records the bounds of the frame in {@link #reconstructedBounds}.
+	 * @param color The reconstructed frame, holding the background outside the bounds of the frame.
+	 */
+	private void copyReconstructed(int[] color)
+	{
+		int k = 0;
+		while(k < reconstructedInto.length - 1 && reconstructedInto[k] != pixels)
+			k++;
+		int[] last = reconstructedBounds[k];
+		if(reconstructedInto[k] != pixels)
+			System.arraycopy(color, 0, pixels, 0, width * height);
+		else
+		{
+			int x0 = Math.min(bounds[0], last[0]), x1 = Math.max(bounds[2], last[2]);
+			for(int y = Math.min(bounds[1], last[1]), y1 = Math.max(bounds[3], last[3]); y <= y1; y++)
+				System.arraycopy(color, y * width + x0, pixels, y * width + x0, x1 - x0 + 1);
+		}
+		// The buffer moves to the front, most recent first
+		System.arraycopy(reconstructedInto, 0, reconstructedInto, 1, k);
+		System.arraycopy(reconstructedBounds, 0, reconstructedBounds, 1, k);
+		reconstructedInto[0] = pixels;
+		reconstructedBounds[0] = last;
+		System.arraycopy(bounds, 0, last, 0, 4);
+	}
+	
+	/**
+	 * Copies depths of the depth buffer, as computed by {@link PerspectiveTransformation#project(float[], int[])},
+	 * positive infinity where nothing was drawn.
+	 * @param from The index of the first depth in the depth buffer.
+	 * @param to The array receiving the depths.
+	 * @param at The index of the first depth in the array.
+	 * @param step The distance between consecutive depths in the array.
+	 * @param count The number of depths.
+	 */
+	private void unpackDepths(int from, float[] to, int at, int step, int count)
+	{
+		if(zBuffer != null)
+		{
+			for(int k = 0; k < count; k++, at += step)
+				to[at] = zBuffer[from + k];
+			return;
+		}
+		int max = depthFormat.getMaxValue();
+		float scale = 1f / max;
+		for(int k = 0; k < count; k++, at += step)
+		{
+			int d = zBuffer24 != null ? zBuffer24[from + k] : zBuffer16[from + k] & 0xFFFF;
+			to[at] = d == max ? Float.POSITIVE_INFINITY : d * scale;
+		}
+	}
+	
+	/**
+	 * Tests whether the pixel of a still scene showed the same surface in the previous frame.
+	 * @param depth The depth of the pixel, positive infinity for the background.
+	 * @param previous The depth of the pixel in the previous frame.
+	 * @return True if both depths are the background, or within {@link #REPROJECTION_TOLERANCE} in eye space.
+	 */
+	private boolean sameSurface(float depth, float previous)
+	{
+		if(depth == Float.POSITIVE_INFINITY || previous == Float.POSITIVE_INFINITY)
+			return depth == previous;
+		// |z(previous) - z(depth)| <= -z(depth) * tolerance, for z(d) = -a34 / (d + a33), without dividing
+		return Math.abs(previous - depth) <= REPROJECTION_TOLERANCE * Math.abs(previous + reprojectProjection[4]);
+	}
+	
+	/**
+	 * Composes the inverse of the transformation of the scene of the current frame with that of the
+	 * previous frame into {@link #reprojection}.
+	 */
+	private void prepareReprojection()
+	{
+		float[] point = reprojectPoint, result = reprojectResult, m = reprojection;
+		for(int j = 0; j < 4; j++)
+		{
+			// The origin, then the axes
+			point[0] = j == 1 ? 1 : 0;
+			point[1] = j == 2 ? 1 : 0;
+			point[2] = j == 3 ? 1 : 0;
+			sceneT.inverse_transform(point, result);
+			previousSceneT.transform(result, point);
+			for(int r = 0; r < 3; r++)
+				m[j == 0 ? 9 + r : r * 3 + j - 1] = j == 0 ? point[r] : point[r] - m[9 + r];
+		}
+	}
+	
+	/**
+	 * Computes {@link #reprojectRow} for a row of the frame. A pixel at depth d of the current frame
+	 * is the point s * U of its eye space, where U is the point of the pixel at Z = -1 and
+	 * s = a34 / w, w = d + a33. In the eye space of the previous frame, it is s * R * U + T, where R
+	 * and T are the linear part and the translation of {@link #reprojection}, and it projects to the
+	 * screen at x = X / Z and y = Y / Z, and to the eye-space depth Z / w, where (X, Y, Z) is the
+	 * projection of w times that point, a34 * R * U + w * T. The terms a34 * R * U of X, Y and Z are
+	 * linear along the row: the row holds their values at x = 0, their steps per pixel, then the
+	 * terms of T.
+	 * @param y The y-coordinate of the row.
+	 */
+	private void prepareRow(int y)
+	{
+		float[] u = reprojectPoint, m = reprojection;
+		float a34 = reprojectProjection[5];
+		projT.unproject(1.5f, y + 0.5f + yOffset, -1, u);
+		float dx = u[0];
+		projT.unproject(0.5f, y + 0.5f + yOffset, -1, u);
+		dx -= u[0]; // U steps along x only
+		projectTerms(a34 * (m[0] * u[0] + m[1] * u[1] + m[2] * u[2]),
+				a34 * (m[3] * u[0] + m[4] * u[1] + m[5] * u[2]),
+				a34 * (m[6] * u[0] + m[7] * u[1] + m[8] * u[2]), 0);
+		projectTerms(a34 * m[0] * dx, a34 * m[3] * dx, a34 * m[6] * dx, 3);
+		projectTerms(m[9], m[10], m[11], 6);
+	}
+	
+	/**
+	 * Stores the terms of X, Y and Z of a term of a point of eye space in {@link #reprojectRow}, see {@link #prepareRow(int)}.
+	 * @param e0 The x-coordinate of the term.
+	 * @param e1 The y-coordinate of the term.
+	 * @param e2 The z-coordinate of the term.
+	 * @param at The index of its term of X in the row.
+	 */
+	private void projectTerms(float e0, float e1, float e2, int at)
+	{
+		float[] c = reprojectProjection, row = reprojectRow;
+		row[at] = -(c[0] * e0 + c[1] * e2);
+		row[at + 1] = -(c[2] * e1 + c[3] * e2);
+		row[at + 2] = e2;
+	}
+	
+	/**
+	 * Finds the pixel of the previous interlaced frame showing the point of a pixel of the current one.
+	 * @param x The x-coordinate of the pixel, in the row of {@link #reprojectRow}.
+	 * @param i The index of the pixel.
+	 * @param depth The depth of the pixel, positive infinity for the background.
+	 * @param previousDepth The depths of the previous frame.
+	 * @return The index of the pixel of the previous frame, or -1 if it showed another surface.
+	 */
+	private int reproject(int x, int i, float depth, float[] previousDepth)
+	{
+		if(depth == Float.POSITIVE_INFINITY)
+		{
+			// Nothing to reproject: the previous frame must show the background too
+			return previousDepth[i] == Float.POSITIVE_INFINITY ? i : -1;
+		}
+		// The projection of the point in the previous frame, multiplied by w, see prepareRow
+		float[] row = reprojectRow;
+		float a33 = reprojectProjection[4], a34 = reprojectProjection[5];
+		float w = depth + a33;
+		float px = row[0] + x * row[3] + w * row[6];
+		float py = row[1] + x * row[4] + w * row[7];
+		float pz = row[2] + x * row[5] + w * row[8];
+		if(pz * w >= 0)
+			return -1; // Behind the eye of the previous frame
+		float inv = 1 / pz;
+		int sx = (int)(px * inv), sy = (int)(py * inv) - yOffset;
+		if(sx < 0 || sx >= width || sy < 0 || sy >= height)
+			return -1;
+		int j = sy * width + sx;
+		float previous = previousDepth[j];
+		// |z(previous) - pz / w| <= -tolerance * pz / w, multiplied by |w| * |previous + a33|
+		float wp = previous + a33;
+		if(previous == Float.POSITIVE_INFINITY || Math.abs(a34 * w + pz * wp) > REPROJECTION_TOLERANCE * Math.abs(pz * wp))
+			return -1;
+		return j;
+	}
+	
+	/**
+	 * Averages two ARGB colors, channel by channel, rounding down.
+	 * @param c0 The first color.
+	 * @param c1 The second color.
+	 * @return The average color.
+	 */
+	private final static int average(int c0, int c1)
+	{
+		return (c0 & c1) + (((c0 ^ c1) & 0xFEFEFEFE) >>> 1);
+	}
+	
+	/**
+	 * Interpolates linearly between two ARGB colors, two channels at a time.
+	 * @param c0 The first color.
+	 * @param c1 The second color.
+	 * @param w The weight of the second color, from 0 to 256.
+	 * @return The interpolated color.
+	 */
+	private final static int lerp(int c0, int c1, int w)
+	{
+		if(c0 == c1)
+			return c0;
+		int w0 = 256 - w;
+		int rb = (((c0 & 0xFF00FF) * w0 + (c1 & 0xFF00FF) * w) >>> 8) & 0xFF00FF;
+		int ag = (((c0 >>> 8) & 0xFF00FF) * w0 + ((c1 >>> 8) & 0xFF00FF) * w) & 0xFF00FF00;
+		return ag | rb;
+	}
+
+	/**
+	 * Commits the rendered image content within the calculated dirty bounds to the provided {@link Graphics} context,
+	 * after completing the frame with {@link #commit()}.
+	 * <p>
+	 * A translucent image is drawn over the destination within the bounds of the polygons of the frame,
+	 * so the destination must be cleared first. An opaque image ({@link #PolygonRenderer(BufferedImage)})
+	 * is copied without blending, and replaces the destination: only the bounds of the polygons of the
+	 * frame and of the frames the destination may still show, see {@link #setBufferAge(int)}, are copied.
+	 * @param g The {@link Graphics} context to draw onto.
+	 */
+	public void commit(Graphics g) 
+	{
+		commit();
+		BufferedImage image = getImage();
+		if(image.getTransparency() == Transparency.OPAQUE)
+			presentHistory.present(g, image, width, height, bounds, observer);
 		// Only draw if bounds are valid (i.e., something was rendered)
-		if (bounds[0] <= bounds[2] && bounds[1] <= bounds[3]) {
+		else if (bounds[0] <= bounds[2] && bounds[1] <= bounds[3]) {
 			g.drawImage(image, 
 					bounds[0], bounds[1], bounds[2] + 1, bounds[3] + 1, // Destination rectangle (dx1, dy1, dx2, dy2)
 					bounds[0], bounds[1], bounds[2] + 1, bounds[3] + 1, // Source rectangle (sx1, sy1, sx2, sy2)
@@ -547,6 +2392,58 @@ public class PolygonRenderer
 		}
 	}
 	
+	/**
+	 * Gets the bounds of the pixels drawn since the last {@link #clean()}.
+	 * @param dest The array receiving the bounds, {xmin, ymin, xmax, ymax}: xmin is greater than
+	 *        xmax if nothing was drawn.
+	 * @return dest
+	 */
+	public int[] getBounds(int[] dest)
+	{
+		System.arraycopy(bounds, 0, dest, 0, 4);
+		return dest;
+	}
+	
+	/**
+	 * Replaces the bounds of the pixels drawn since the last {@link #clean()}, when a frame is
+	 * composed of parts drawn separately.
+	 * @param bounds The bounds, {xmin, ymin, xmax, ymax}.
+	 */
+	void setBounds(int[] bounds)
+	{
+		System.arraycopy(bounds, 0, this.bounds, 0, 4);
+		upscaled = false;
+	}
+	
+	/**
+	 * Gets the age of the contents of the destination of {@link #commit(Graphics)}.
+	 * @return The number of frames since the destination last received the pixels it shows, or 0.
+	 */
+	public int getBufferAge() {
+		return presentHistory.getBufferAge();
+	}
+	
+	/**
+	 * Sets the age of the contents of the destination of {@link #commit(Graphics)}, with an opaque image:
+	 * the number of frames since the destination last received the pixels it shows. It is 1, the
+	 * default, if the destination holds the previous frame, as the back buffer of a blitting
+	 * {@link java.awt.image.BufferStrategy} or of one copying the front buffer on flips; it is the
+	 * number of buffers for one flipping through buffers which keep their contents; and it is 0 if the
+	 * contents are unknown, in which case the whole viewport is presented on every frame.
+	 * @param bufferAge The age of the destination, between 0 and {@link #MAX_BUFFER_AGE}.
+	 */
+	public void setBufferAge(int bufferAge) {
+		presentHistory.setBufferAge(bufferAge);
+	}
+	
+	/**
+	 * Makes the next {@link #commit(Graphics)} present the whole viewport, when the destination lost
+	 * its contents or was just created.
+	 */
+	public void invalidatePresentation() {
+		presentHistory.invalidate();
+	}
+	
 	/**
 	 * Sets up a hit test for a specific pixel coordinate.
 	 * If a polygon is rendered over this pixel, the provided {@link HitTestHandler} will be notified.
@@ -735,6 +2632,13 @@ public class PolygonRenderer
 		if(p0.color != p1.color) { // Only interpolate if colors are different
 			p0.color = interpolateColor(p0.color, p1.color, t);
 		}
+		
+		// Interpolate texture coordinates (p0.texCoord is a private copy made by setTo)
+		if(p0.texCoord != null && p1.texCoord != null)
+		{
+			p0.texCoord[0] += t * (p1.texCoord[0] - p0.texCoord[0]);
+			p0.texCoord[1] += t * (p1.texCoord[1] - p0.texCoord[1]);
+		}
 	}
 	
 	/**
@@ -791,7 +2695,7 @@ public class PolygonRenderer
  * Helper class for {@link PolygonRenderer}, representing a single horizontal scanline
  * during polygon rasterization. It stores the minimum and maximum X coordinates
  * touched by polygon edges on this scanline, along with their corresponding depth (Z)
- * and color values (for Gouraud shading).
+ * and color values (for Gouraud shading) or perspective-divided texture coordinates.
  */
 class Scan
 {
@@ -807,6 +2711,12 @@ class Scan
 	int  max_color = 0; // Naming is confusing, seems to hold color at x1 (max_x)
 	/** Color (ARGB integer) at the maximum X-coordinate (x1), used for Gouraud shading. */
 	int min_color = 0; // Naming is confusing, seems to hold color at x0 (min_x)
+	/** 1/w at x0 and x1, used for perspective-correct texture mapping. */
+	float iz0, iz1;
+	/** u/w (u in texels) at x0 and x1. */
+	float uz0, uz1;
+	/** v/w (v in texels) at x0 and x1. */
+	float vz0, vz1;
 	
 	/**
 	 * Default constructor. Initializes the scanline by calling {@link #reset()}.
@@ -846,6 +2756,35 @@ class Scan
 		}
 	}
 
+	/**
+	 * Updates the scanline's X extents and associated depth and texture attributes based on a new point.
+	 * Used when rendering polygons with per-vertex texture coordinates.
+	 * @param x The X-coordinate of the point.
+	 * @param zb The depth (Z-value) of the point.
+	 * @param iz 1/w at the point.
+	 * @param uz u/w at the point, with u in texels.
+	 * @param vz v/w at the point, with v in texels.
+	 */
+	void touch(int x, float zb, float iz, float uz, float vz)
+	{
+		if(x > x1)
+		{
+			x1 = x;
+			depth1 = zb;
+			iz1 = iz;
+			uz1 = uz;
+			vz1 = vz;
+		}
+		if(x < x0)
+		{
+			x0 = x;
+			depth0 = zb;
+			iz0 = iz;
+			uz0 = uz;
+			vz0 = vz;
+		}
+	}
+	
 	/**
 	 * Updates the scanline's X extents and associated color/depth based on a new point (x, color, zb).
 	 * Used when rendering Gouraud shaded polygons.
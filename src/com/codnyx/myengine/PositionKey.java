@@ -0,0 +1,31 @@
+package com.codnyx.myengine;
+
+/**
+ * Hash key comparing positions by exact value, with -0 and +0 considered equal.
+ */
+class PositionKey
+{
+	final float x, y, z;
+
+	PositionKey(float[] p)
+	{
+		this.x = p[0] + 0.0f;
+		this.y = p[1] + 0.0f;
+		this.z = p[2] + 0.0f;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof PositionKey))
+			return false;
+		PositionKey other = (PositionKey)o;
+		return x == other.x && y == other.y && z == other.z;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (Float.floatToIntBits(x) * 31 + Float.floatToIntBits(y)) * 31 + Float.floatToIntBits(z);
+	}
+}
@@ -0,0 +1,85 @@
+package com.codnyx.myengine;
+
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.ImageObserver;
+
+/**
+ * Tracks what the destination of a presented opaque image still shows of the previous frames, so that
+ * only the areas which changed are copied: the bounds of the polygons of the new frame, and those of
+ * the frames the destination may still show, which the new frame may have cleared.
+ * See {@link PolygonRenderer#setBufferAge(int)}.
+ */
+final class PresentHistory
+{
+	/** The number of frames since the destination last received the pixels it shows, or 0 if unknown. */
+	private int bufferAge = 1;
+	/** Whether the next frame is presented whole. */
+	private boolean presentAll = true;
+	/** The bounds of the last frames presented, the latest first. */
+	private final int[][] presented = new int[PolygonRenderer.MAX_BUFFER_AGE][];
+
+	int getBufferAge() {
+		return bufferAge;
+	}
+
+	void setBufferAge(int bufferAge) {
+		if(bufferAge < 0 || bufferAge > PolygonRenderer.MAX_BUFFER_AGE)
+			throw new IllegalArgumentException("The buffer age must be between 0 and " + PolygonRenderer.MAX_BUFFER_AGE);
+		this.bufferAge = bufferAge;
+	}
+
+	void invalidate() {
+		presentAll = true;
+	}
+
+	boolean isInvalid() {
+		return presentAll;
+	}
+
+	/**
+	 * Copies the areas of an opaque frame which differ from what the destination shows, and records
+	 * the bounds of the frame.
+	 * @param g The destination.
+	 * @param image The frame.
+	 * @param width The width of the viewport.
+	 * @param height The height of the viewport.
+	 * @param bounds The bounds of the polygons of the frame, {xmin, ymin, xmax, ymax}.
+	 * @param observer The observer of the copy.
+	 */
+	void present(Graphics g, Image image, int width, int height, int[] bounds, ImageObserver observer)
+	{
+		int x0 = bounds[0], y0 = bounds[1], x1 = bounds[2], y1 = bounds[3];
+		if(presentAll || bufferAge <= 0)
+		{
+			x0 = y0 = 0;
+			x1 = width - 1;
+			y1 = height - 1;
+			presentAll = false;
+		}
+		else
+		{
+			// Also repaint what the destination shows of older frames, which this one may have cleared
+			for(int i = 0; i < bufferAge; i++)
+			{
+				int[] b = presented[i];
+				if(b == null)
+					continue;
+				x0 = Math.min(x0, b[0]);
+				y0 = Math.min(y0, b[1]);
+				x1 = Math.max(x1, b[2]);
+				y1 = Math.max(y1, b[3]);
+			}
+		}
+		int[] oldest = presented[presented.length - 1];
+		System.arraycopy(presented, 0, presented, 1, presented.length - 1);
+		presented[0] = oldest != null ? oldest : new int[4];
+		System.arraycopy(bounds, 0, presented[0], 0, 4);
+		x0 = Math.max(x0, 0);
+		y0 = Math.max(y0, 0);
+		x1 = Math.min(x1, width - 1);
+		y1 = Math.min(y1, height - 1);
+		if(x0 <= x1 && y0 <= y1)
+			g.drawImage(image, x0, y0, x1 + 1, y1 + 1, x0, y0, x1 + 1, y1 + 1, observer);
+	}
+}
@@ -0,0 +1,188 @@
+package com.codnyx.myengine;
+
+/**
+ * The immutable configuration of a view: viewport, perspective and depth buffer settings.
+ * <p>
+ * A {@link PolygonRenderer} holds the per-frame scratch state of the rasterizer (scan lines, clipped
+ * vertices, temporary vectors) along with its color and depth buffers and its model transformation,
+ * and must therefore be confined to one thread. A configuration, on the other hand, can be shared by
+ * any number of threads, each creating its own renderer with {@link #newContext()}: a complete
+ * PolygonRenderer, sized like the viewport, which only shares the perspective transformation.
+ * Since rendering only reads meshes, polygons and textures, the renderers can draw the same assets
+ * concurrently, for instance one view per virtual thread on a server, without copying them.
+ * <p>
+ * Configurations are changed by creating modified copies with the {@code with} methods.
+ */
+public final class RenderConfig
+{
+	/** X-coordinate of the left edge of the viewport. */
+	private final int left;
+	/** Y-coordinate of the top edge of the viewport. */
+	private final int top;
+	/** Width of the viewport. */
+	private final int width;
+	/** Height of the viewport. */
+	private final int height;
+	/** The perspective transformation, shared by the contexts since it is never modified. */
+	private final PerspectiveTransformation projT;
+	/** The storage format of the depth buffers. */
+	private final DepthFormat depthFormat;
+	/** True if the contexts alternate depth ranges instead of clearing their buffers. */
+	private final boolean alternatingDepth;
+
+	/**
+	 * Constructs a configuration with the specified width and height, assuming top-left at (0,0),
+	 * without perspective, a {@link DepthFormat#FLOAT32} depth buffer and cleared frames.
+	 * @param width The width of the rendering viewport.
+	 * @param height The height of the rendering viewport.
+	 */
+	public RenderConfig(int width, int height)
+	{
+		this(0, 0, width, height, null, DepthFormat.FLOAT32, false);
+	}
+
+	/**
+	 * Constructs a configuration with the specified viewport dimensions and offset.
+	 * @param left The x-coordinate of the left edge of the viewport.
+	 * @param top The y-coordinate of the top edge of the viewport.
+	 * @param width The width of the rendering viewport.
+	 * @param height The height of the rendering viewport.
+	 */
+	public RenderConfig(int left, int top, int width, int height)
+	{
+		this(left, top, width, height, null, DepthFormat.FLOAT32, false);
+	}
+
+	private RenderConfig(int left, int top, int width, int height, PerspectiveTransformation projT,
+			DepthFormat depthFormat, boolean alternatingDepth)
+	{
+		if(width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Invalid viewport size " + width + "x" + height);
+		if(depthFormat == null)
+			throw new NullPointerException("depthFormat");
+		this.left = left;
+		this.top = top;
+		this.width = width;
+		this.height = height;
+		this.projT = projT;
+		this.depthFormat = depthFormat;
+		this.alternatingDepth = alternatingDepth;
+	}
+
+	/**
+	 * Returns a copy of this configuration with a perspective transformation,
+	 * see {@link PolygonRenderer#setPerspective(double, float, float)}.
+	 * @param yangle The vertical field of view angle in radians.
+	 * @param z_min The distance to the near clipping plane.
+	 * @param z_max The distance to the far clipping plane.
+	 * @return The new configuration.
+	 */
+	public RenderConfig withPerspective(double yangle, float z_min, float z_max)
+	{
+		return new RenderConfig(left, top, width, height,
+				new PerspectiveTransformation(yangle, width, height, top, left, z_min, z_max),
+				depthFormat, alternatingDepth);
+	}
+
+	/**
+	 * Returns a copy of this configuration with another depth buffer format,
+	 * see {@link PolygonRenderer#setDepthFormat(DepthFormat)}.
+	 * @param depthFormat The depth format.
+	 * @return The new configuration.
+	 */
+	public RenderConfig withDepthFormat(DepthFormat depthFormat)
+	{
+		return new RenderConfig(left, top, width, height, projT, depthFormat, alternatingDepth);
+	}
+
+	/**
+	 * Returns a copy of this configuration with alternating depth ranges on or off,
+	 * see {@link PolygonRenderer#setAlternatingDepth(boolean)}.
+	 * @param alternatingDepth True to use alternating depth ranges.
+	 * @return The new configuration.
+	 */
+	public RenderConfig withAlternatingDepth(boolean alternatingDepth)
+	{
+		return new RenderConfig(left, top, width, height, projT, depthFormat, alternatingDepth);
+	}
+
+	/**
+	 * Creates a render context drawing headless into buffers of its own: a new PolygonRenderer, with
+	 * its own rasterizer scratch state. The context must only be used by one thread at a time; it can
+	 * be reused for any number of frames.
+	 * @return The new context.
+	 */
+	public PolygonRenderer newContext()
+	{
+		return new PolygonRenderer(this, new int[width * height], null);
+	}
+
+	/**
+	 * Creates a render context drawing headless into caller-provided buffers, which are cleared.
+	 * @param colorBuffer The ARGB color buffer, row by row, of at least width*height pixels.
+	 * @param depthBuffer The depth buffer, of at least width*height values, or null to allocate one.
+	 *        It is only used with the {@link DepthFormat#FLOAT32} format.
+	 * @return The new context.
+	 * @throws IllegalArgumentException if a buffer is too small.
+	 */
+	public PolygonRenderer newContext(int[] colorBuffer, float[] depthBuffer)
+	{
+		return new PolygonRenderer(this, colorBuffer, depthBuffer);
+	}
+
+	/**
+	 * Gets the x-coordinate of the left edge of the viewport.
+	 * @return The left edge.
+	 */
+	public int getLeft() {
+		return left;
+	}
+
+	/**
+	 * Gets the y-coordinate of the top edge of the viewport.
+	 * @return The top edge.
+	 */
+	public int getTop() {
+		return top;
+	}
+
+	/**
+	 * Gets the width of the viewport.
+	 * @return The width in pixels.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the viewport.
+	 * @return The height in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the perspective transformation shared by the contexts.
+	 * @return The perspective transformation, or null if none was set.
+	 */
+	public PerspectiveTransformation getProjT() {
+		return projT;
+	}
+
+	/**
+	 * Gets the storage format of the depth buffers.
+	 * @return The depth format.
+	 */
+	public DepthFormat getDepthFormat() {
+		return depthFormat;
+	}
+
+	/**
+	 * Tells whether the contexts alternate depth ranges instead of clearing their buffers.
+	 * @return True if alternating depth ranges are used.
+	 */
+	public boolean isAlternatingDepth() {
+		return alternatingDepth;
+	}
+}
@@ -0,0 +1,102 @@
+package com.codnyx.myengine;
+
+/**
+ * Chooses the resolution scale of a {@link PolygonRenderer} frame after frame to hold a target
+ * frame time, see {@link PolygonRenderer#setResolutionController(ResolutionController)}.
+ * <p>
+ * The measured frame times are smoothed, then the scale is corrected by the square root of the ratio
+ * of the target to the smoothed time, since the cost of rasterization is proportional to the number of
+ * pixels, the square of the scale. Times within {@value #TOLERANCE} of the target, relatively, leave the
+ * scale unchanged, and the scale rises by at most {@value #MAX_RISE} per frame while it may fall at
+ * once: a heavy frame is corrected on the next one, and the scale does not oscillate around the target.
+ * The scale stays between {@value #MIN_SCALE} and {@value #MAX_SCALE}.
+ */
+public class ResolutionController
+{
+	/** The lowest scale. */
+	public static final float MIN_SCALE = 0.5f;
+	/** The highest scale, rendering at the full resolution. */
+	public static final float MAX_SCALE = 1f;
+	/** Relative deviation from the target frame time within which the scale is kept. */
+	private static final float TOLERANCE = 0.1f;
+	/** Highest increase of the scale in one frame. */
+	private static final float MAX_RISE = 0.05f;
+	/** Weight of the last frame in the smoothed frame time. */
+	private static final float SMOOTHING = 0.3f;
+
+	/** The target frame time, in nanoseconds. */
+	private volatile long targetNanos;
+	/** The smoothed frame time, in nanoseconds, or 0 before the first frame. */
+	private float averageNanos;
+	/** The current scale. */
+	private float scale = MAX_SCALE;
+
+	/**
+	 * Constructs a controller starting at the full resolution.
+	 * @param targetMillis The target frame time, in milliseconds.
+	 */
+	public ResolutionController(double targetMillis)
+	{
+		setTargetMillis(targetMillis);
+	}
+
+	/**
+	 * Sets the target frame time.
+	 * @param targetMillis The frame time, in milliseconds.
+	 */
+	public void setTargetMillis(double targetMillis) {
+		if(targetMillis <= 0)
+			throw new IllegalArgumentException("The target frame time must be positive");
+		this.targetNanos = Math.max(1, Math.round(targetMillis * 1e6));
+	}
+
+	/**
+	 * Gets the target frame time.
+	 * @return The frame time, in milliseconds.
+	 */
+	public double getTargetMillis() {
+		return targetNanos / 1e6;
+	}
+
+	/**
+	 * Gets the scale of the next frame.
+	 * @return The ratio of the internal resolution to the full one, between {@link #MIN_SCALE} and {@link #MAX_SCALE}.
+	 */
+	public float getScale() {
+		return scale;
+	}
+
+	/**
+	 * Records the time a frame took and corrects the scale of the next one, see {@link ResolutionController}.
+	 * @param frameNanos The time of the frame, in nanoseconds.
+	 * @return The scale of the next frame.
+	 */
+	public float update(long frameNanos)
+	{
+		if(averageNanos == 0)
+			averageNanos = frameNanos;
+		else
+			averageNanos += SMOOTHING * (frameNanos - averageNanos);
+		float ratio = targetNanos / Math.max(1f, averageNanos);
+		if(Math.abs(ratio - 1) <= TOLERANCE)
+			return scale;
+		float next = Math.min(scale * (float)Math.sqrt(ratio), scale + MAX_RISE);
+		next = Math.max(MIN_SCALE, Math.min(MAX_SCALE, next));
+		if(next != scale)
+		{
+			// The frames measured so far were rendered at the previous scale: predict the next ones
+			averageNanos *= (next * next) / (scale * scale);
+			scale = next;
+		}
+		return scale;
+	}
+
+	/**
+	 * Forgets the frame times measured, and returns to the full resolution.
+	 */
+	public void reset()
+	{
+		averageNanos = 0;
+		scale = MAX_SCALE;
+	}
+}
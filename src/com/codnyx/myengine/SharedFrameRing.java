@@ -0,0 +1,359 @@
+package com.codnyx.myengine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A ring of frames in a memory-mapped file, through which rendered frames are handed to other
+ * processes, such as an encoder, without encoding them or copying them through a pipe.
+ * <p>
+ * On Linux, a file under {@code /dev/shm} lives in memory only. The renderer copies each finished
+ * frame into the next slot of the ring with {@link #publish(int[], float[])}, a plain memory copy
+ * with no encoding, and consumers map the same file and read the pixels in place.
+ * <p>
+ * The file starts with a header of {@value #HEADER_BYTES} bytes, followed by the slots. All values are
+ * in the native byte order of the machine, so that consumers can map the pixels as 32-bit integers:
+ * <pre>
+ * offset  0  int   magic, 0x4D594652 ("MYFR") when read in the right byte order
+ *         4  int   version, 1
+ *         8  int   width
+ *        12  int   height
+ *        16  int   number of slots
+ *        20  int   flags: 1 if the slots hold a depth buffer
+ *        24  long  size of a slot in bytes, a multiple of 64
+ *        32  long  sequence number of the last published frame, 0 before the first one
+ * </pre>
+ * Frames are numbered from 1, and frame {@code s} is in slot {@code (s - 1) % slots}, at offset
+ * {@code HEADER_BYTES + slot * slotBytes}. A slot starts with the sequence number of the frame it
+ * holds (a long, 0 while it is being written), followed at offset {@value #SLOT_HEADER_BYTES} by the
+ * ARGB pixels row by row (ints), then, if the ring has depth, by the depth values (floats).
+ * <p>
+ * A frame is published by writing its slot's sequence number, then the sequence number in the header,
+ * both with release semantics. A consumer reads the header's sequence number with acquire semantics
+ * and the slot's one, which must be equal to it, then reads the frame, and finally reads the slot's
+ * sequence number again: if it changed, the writer reused the slot meanwhile and the frame may be torn.
+ * A consumer must thus keep up with the writer within {@code slots - 1} frames.
+ * <p>
+ * A ring has a single writer. The mapping is released when the ring is garbage collected; closing it
+ * only closes the file.
+ */
+public class SharedFrameRing implements Closeable
+{
+	/** Identifies ring files, and their byte order. */
+	public static final int MAGIC = 0x4D594652;
+	/** Version of the file layout. */
+	public static final int VERSION = 1;
+	/** Size of the file header. */
+	public static final int HEADER_BYTES = 64;
+	/** Size of the header of each slot, before the pixels. */
+	public static final int SLOT_HEADER_BYTES = 64;
+
+	/** Offset of the sequence number of the last published frame in the header. */
+	private static final int PUBLISHED = 32;
+	/** Flag of the rings with a depth buffer. */
+	private static final int DEPTH_FLAG = 1;
+	/** Atomic access to the sequence numbers of the mapped file. */
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	/** The file. */
+	private final FileChannel channel;
+	/** The mapped file. */
+	private final MappedByteBuffer buffer;
+	/** Width of the frames. */
+	private final int width;
+	/** Height of the frames. */
+	private final int height;
+	/** Number of slots. */
+	private final int slots;
+	/** Size of a slot in bytes. */
+	private final int slotBytes;
+	/** True if the slots hold a depth buffer. */
+	private final boolean depth;
+	/** The color buffer of each slot. */
+	private final IntBuffer[] colors;
+	/** The depth buffer of each slot, or null. */
+	private final FloatBuffer[] depths;
+	/** Sequence number of the last frame published by this writer. */
+	private long sequence;
+
+	private SharedFrameRing(FileChannel channel, MappedByteBuffer buffer, int width, int height, int slots, boolean depth)
+	{
+		this.channel = channel;
+		this.buffer = buffer;
+		this.width = width;
+		this.height = height;
+		this.slots = slots;
+		this.depth = depth;
+		this.slotBytes = (int)getSlotBytes(width, height, depth);
+		buffer.order(ByteOrder.nativeOrder());
+		colors = new IntBuffer[slots];
+		depths = depth ? new FloatBuffer[slots] : null;
+		int pixels = width * height;
+		for(int i = 0; i < slots; i++)
+		{
+			int offset = HEADER_BYTES + i * slotBytes + SLOT_HEADER_BYTES;
+			colors[i] = slice(offset, 4 * pixels).asIntBuffer();
+			if(depth)
+				depths[i] = slice(offset + 4 * pixels, 4 * pixels).asFloatBuffer();
+		}
+	}
+
+	/**
+	 * Creates a ring file, or resets an existing one, and opens it for writing. Consumers which had
+	 * mapped a previous ring of the same file should open it again.
+	 * @param file The file, for instance under {@code /dev/shm}.
+	 * @param width The width of the frames.
+	 * @param height The height of the frames.
+	 * @param slots The number of frames of the ring, at least 2.
+	 * @param depth True to publish depth buffers along with the color buffers.
+	 * @return The ring, to be written by one thread.
+	 * @throws IOException If the file cannot be created or mapped.
+	 * @throws IllegalArgumentException If a size is invalid or the ring exceeds 2 GB.
+	 */
+	public static SharedFrameRing create(Path file, int width, int height, int slots, boolean depth) throws IOException
+	{
+		if(width <= 0 || height <= 0 || slots < 2)
+			throw new IllegalArgumentException("Invalid ring of " + slots + " frames of " + width + "x" + height);
+		long size = HEADER_BYTES + slots * getSlotBytes(width, height, depth);
+		if(size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("A ring of " + size + " bytes cannot be mapped");
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if(channel.size() > size)
+				channel.truncate(size);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.nativeOrder());
+			// Invalidate the header and the slots first, so that consumers of a previous ring see no frame
+			buffer.putInt(0, 0);
+			LONGS.setRelease(buffer, PUBLISHED, 0L);
+			SharedFrameRing ring = new SharedFrameRing(channel, buffer, width, height, slots, depth);
+			for(int i = 0; i < slots; i++)
+				LONGS.setRelease(buffer, HEADER_BYTES + i * ring.slotBytes, 0L);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, width);
+			buffer.putInt(12, height);
+			buffer.putInt(16, slots);
+			buffer.putInt(20, depth ? DEPTH_FLAG : 0);
+			buffer.putLong(24, ring.slotBytes);
+			VarHandle.storeStoreFence();
+			buffer.putInt(0, MAGIC);
+			return ring;
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an existing ring file for reading, as a consumer in this process.
+	 * @param file The file.
+	 * @return The ring.
+	 * @throws IOException If the file cannot be mapped or is not a ring file of this byte order.
+	 */
+	public static SharedFrameRing open(Path file) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if(channel.size() < HEADER_BYTES)
+				throw new IOException("Not a frame ring: " + file);
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			header.order(ByteOrder.nativeOrder());
+			if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+				throw new IOException("Not a frame ring of version " + VERSION + " in native byte order: " + file);
+			int width = header.getInt(8), height = header.getInt(12), slots = header.getInt(16);
+			boolean depth = (header.getInt(20) & DEPTH_FLAG) != 0;
+			long size = HEADER_BYTES + slots * getSlotBytes(width, height, depth);
+			if(header.getLong(24) != getSlotBytes(width, height, depth) || channel.size() < size)
+				throw new IOException("Truncated frame ring: " + file);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			return new SharedFrameRing(channel, buffer, width, height, slots, depth);
+		} catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Computes the size of a slot: its header and buffers, rounded up to 64 bytes.
+	 */
+	private static long getSlotBytes(int width, int height, boolean depth)
+	{
+		long bytes = SLOT_HEADER_BYTES + (depth ? 8L : 4L) * width * height;
+		return (bytes + 63) & ~63L;
+	}
+
+	/**
+	 * Returns a view of a part of the mapped file, in native byte order.
+	 */
+	private ByteBuffer slice(int offset, int length)
+	{
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset).limit(offset + length);
+		return view.slice().order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Returns the offset of the slot of a frame.
+	 */
+	private int slotOffset(long sequence)
+	{
+		return HEADER_BYTES + (int)((sequence - 1) % slots) * slotBytes;
+	}
+
+	/**
+	 * Copies a frame into the next slot and publishes it. The slot's previous frame is invalidated
+	 * before being overwritten.
+	 * @param argb The ARGB pixels, row by row, of at least width*height values.
+	 * @param depthBuffer The depth values, or null; ignored if the ring has no depth.
+	 * @return The sequence number of the frame.
+	 * @throws IllegalArgumentException If the ring has depth and no depth buffer is given.
+	 */
+	public long publish(int[] argb, float[] depthBuffer)
+	{
+		if(depth && depthBuffer == null)
+			throw new IllegalArgumentException("The ring has depth: a depth buffer is required");
+		long next = sequence + 1;
+		int offset = slotOffset(next);
+		int slot = (int)((next - 1) % slots);
+		int pixels = width * height;
+		LONGS.setOpaque(buffer, offset, 0L);
+		// The invalidation must be visible before any pixel of the new frame
+		VarHandle.storeStoreFence();
+		IntBuffer color = colors[slot];
+		color.clear();
+		color.put(argb, 0, pixels);
+		if(depth)
+		{
+			FloatBuffer z = depths[slot];
+			z.clear();
+			z.put(depthBuffer, 0, pixels);
+		}
+		LONGS.setRelease(buffer, offset, next);
+		LONGS.setRelease(buffer, PUBLISHED, next);
+		sequence = next;
+		return next;
+	}
+
+	/**
+	 * Publishes the frame of a renderer, after {@link PolygonRenderer#commit()}.
+	 * @param renderer The renderer, whose viewport must be the size of the frames.
+	 * @return The sequence number of the frame.
+	 * @throws IllegalArgumentException If the ring has depth and the renderer's depth format is not
+	 *         {@link DepthFormat#FLOAT32}.
+	 */
+	public long publish(PolygonRenderer renderer)
+	{
+		return publish(renderer.getColorBuffer(), depth ? renderer.getDepthBuffer() : null);
+	}
+
+	/**
+	 * Gets the sequence number of the last published frame, with acquire semantics.
+	 * @return The sequence number, 0 if no frame was published.
+	 */
+	public long getLatestSequence()
+	{
+		return (long)LONGS.getAcquire(buffer, PUBLISHED);
+	}
+
+	/**
+	 * Tells whether the slot of a frame still holds it.
+	 * @param sequence The sequence number of the frame.
+	 * @return True if the frame can be read, or was not overwritten while being read.
+	 */
+	public boolean isAvailable(long sequence)
+	{
+		if(sequence <= 0)
+			return false;
+		// Reads of the frame must complete before the check
+		VarHandle.loadLoadFence();
+		return (long)LONGS.getAcquire(buffer, slotOffset(sequence)) == sequence;
+	}
+
+	/**
+	 * Copies a published frame.
+	 * @param sequence The sequence number of the frame.
+	 * @param argb The array receiving the pixels, of at least width*height values.
+	 * @param depthBuffer The array receiving the depth values, or null.
+	 * @return True if the frame was copied; false if it was not published or was overwritten.
+	 */
+	public boolean read(long sequence, int[] argb, float[] depthBuffer)
+	{
+		if(!isAvailable(sequence))
+			return false;
+		int slot = (int)((sequence - 1) % slots);
+		IntBuffer color = colors[slot].duplicate();
+		color.clear();
+		color.get(argb, 0, width * height);
+		if(depth && depthBuffer != null)
+		{
+			FloatBuffer z = depths[slot].duplicate();
+			z.clear();
+			z.get(depthBuffer, 0, width * height);
+		}
+		return isAvailable(sequence);
+	}
+
+	/**
+	 * Gets the pixels of a frame in place, without copying them. The pixels are only valid as long as
+	 * {@link #isAvailable(long)} is true once they are read.
+	 * @param sequence The sequence number of the frame.
+	 * @return A read-only view of the ARGB pixels of the frame's slot.
+	 */
+	public IntBuffer getColor(long sequence)
+	{
+		IntBuffer view = colors[(int)((sequence - 1) % slots)].asReadOnlyBuffer();
+		view.clear();
+		return view;
+	}
+
+	/**
+	 * Gets the width of the frames.
+	 * @return The width in pixels.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the height of the frames.
+	 * @return The height in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the number of frames of the ring.
+	 * @return The number of slots.
+	 */
+	public int getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Tells whether the slots hold depth buffers.
+	 * @return True if frames are published with their depth.
+	 */
+	public boolean hasDepth() {
+		return depth;
+	}
+
+	/**
+	 * Closes the file. The mapping stays valid until the ring is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+}
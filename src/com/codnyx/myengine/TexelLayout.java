@@ -0,0 +1,26 @@
+package com.codnyx.myengine;
+
+/**
+ * Order in which the texels of a texture are stored in memory.
+ * <p>
+ * Row-major storage keeps horizontal neighbours together but puts vertical neighbours a whole row
+ * apart, so spans that walk vertically or diagonally through a texture touch a new cache line for
+ * almost every texel. The swizzled layouts keep 2D neighbourhoods together instead, at the cost of
+ * two table lookups per texel address. A texture stored swizzled keeps no row-major copy of its texels.
+ */
+public enum TexelLayout
+{
+	/** Rows stored one after the other: texel (x, y) at {@code w * y + x}. */
+	ROW_MAJOR,
+	/**
+	 * Z-order (Morton) curve: the bits of x and y are interleaved, so that every aligned square
+	 * of 2^k x 2^k texels is contiguous. Requires power-of-two dimensions; other textures use
+	 * {@link #TILED} instead.
+	 */
+	MORTON,
+	/**
+	 * Blocks of 4x4 texels (64 bytes, one cache line) stored row-major, with texels row-major
+	 * inside each block. Works for any dimensions, which are padded to a multiple of 4.
+	 */
+	TILED
+}
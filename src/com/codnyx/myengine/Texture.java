@@ -18,6 +18,11 @@ package com.codnyx.myengine;
  * while the float arrays would be for higher-precision transformations in world/eye space.
  * The exact interpretation and usage of these fields would depend on the polygon rendering
  * logic (e.g., how {@link PolygonRenderer} uses them).
+ * <p>
+ * When the vertices of a polygon carry texture coordinates (see {@link Vertex#getTexCoord()}),
+ * the renderer ignores the basis fields above and interpolates the per-vertex (u,v) instead,
+ * scaling them by {@link #getWidth()} and {@link #getHeight()} to obtain texel coordinates.
+ * Such textures carry no per-polygon state and can be shared by any number of polygons.
  */
 public abstract class Texture
 {
@@ -64,5 +69,92 @@ public abstract class Texture
 	 * @return The ARGB color value at the specified texture coordinates.
 	 */
 	public abstract int getColor(int x, int y);
+	
+	/**
+	 * Gets the color of a texel of a reduced resolution level of this texture (mipmap level).
+	 * Level {@code l} is {@code 2^l} times smaller than the full resolution in each dimension,
+	 * and its coordinates are the full resolution ones shifted right by {@code l}.
+	 * Textures without reduced levels only have level 0, which is the full resolution.
+	 * 
+	 * @param x The x-coordinate in texels of the level.
+	 * @param y The y-coordinate in texels of the level.
+	 * @param level The level, less than {@link #getLevelCount()}.
+	 * @return The ARGB color value at the specified coordinates.
+	 */
+	public int getColor(int x, int y, int level)
+	{
+		return getColor(x, y);
+	}
+	
+	/**
+	 * Samples a run of consecutive pixels of a scanline, along which texel coordinates change linearly.
+	 * The renderer makes one call per run instead of one {@link #getColor(int, int, int)} call per pixel,
+	 * which keeps its inner loop free of virtual calls; subclasses override this method with a loop
+	 * over their own storage.
+	 * <p>
+	 * Coordinates are in 16.16 fixed point (see {@link FixedPoint16}), in texels of the level: pixel
+	 * {@code i} samples texel {@code ((u + i*du) >> 16, (v + i*dv) >> 16)}, wrapping like
+	 * {@link #getColor(int, int, int)}.
+	 *
+	 * @param u The fixed point x-coordinate of the first pixel.
+	 * @param v The fixed point y-coordinate of the first pixel.
+	 * @param du The fixed point x-coordinate step per pixel.
+	 * @param dv The fixed point y-coordinate step per pixel.
+	 * @param count The number of pixels.
+	 * @param level The level to sample, less than {@link #getLevelCount()}.
+	 * @param dst The array receiving the ARGB colors.
+	 * @param dstOff The index of the first pixel in {@code dst}.
+	 */
+	public void sampleSpan(int u, int v, int du, int dv, int count, int level, int[] dst, int dstOff)
+	{
+		for(int i = 0; i < count; i++)
+		{
+			dst[dstOff + i] = getColor(u >> 16, v >> 16, level);
+			u += du;
+			v += dv;
+		}
+	}
+
+	/**
+	 * Returns the number of resolution levels of this texture, including the full resolution.
+	 * The renderer samples minified textures from the level whose texels best match the pixel size.
+	 * 
+	 * @return The number of levels; 1 for textures without reduced levels.
+	 */
+	public int getLevelCount()
+	{
+		return 1;
+	}
+	
+	/**
+	 * Called by the renderer once per polygon, before sampling this texture for it.
+	 * Textures whose texels are loaded on demand (see {@link CachedTexture}) use it to record
+	 * the use and to start loading; the default implementation does nothing.
+	 */
+	public void prepare()
+	{
+	}
+
+	/**
+	 * Returns the width of this texture in texels. Normalized u coordinates are multiplied
+	 * by this value before sampling. Textures without an intrinsic resolution report 1.
+	 * 
+	 * @return The width of the texture in texels.
+	 */
+	public int getWidth()
+	{
+		return 1;
+	}
+	
+	/**
+	 * Returns the height of this texture in texels. Normalized v coordinates are multiplied
+	 * by this value before sampling. Textures without an intrinsic resolution report 1.
+	 * 
+	 * @return The height of the texture in texels.
+	 */
+	public int getHeight()
+	{
+		return 1;
+	}
 
 }
@@ -0,0 +1,494 @@
+package com.codnyx.myengine;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Cache of image textures, keyed by their location, that keeps the memory used by decoded texels
+ * within a budget.
+ * Every request for the same image returns the same {@link CachedTexture} handle, so materials that
+ * reference a texture file, and all the polygons using those materials, share a single texel array
+ * instead of decoding and storing the image once per use.
+ * <p>
+ * Handles are created from the image header alone; the texels are decoded with {@link ImageIO} the
+ * first time a handle is used, either in the thread using it or, if background loading is enabled,
+ * in a loader thread while the texture is sampled as a placeholder. Whenever the decoded texels
+ * exceed the byte budget, the least recently used textures are reduced: their full resolution level
+ * is dropped first, which frees three quarters of their memory, and the rest on a second pass.
+ * Reduced textures keep the reduced levels already filtered, and are built outside the lock of the
+ * cache, so that samplers are not held up while the budget is fitted.
+ * Hits, misses and evictions are counted to help sizing the budget.
+ * <p>
+ * A process-wide instance, loading in the background, is available through {@link #getDefault()};
+ * independent caches can be created when textures must not be shared (e.g. in tests).
+ */
+public class TextureCache
+{
+	/** Default memory budget of the decoded texels, in bytes. */
+	public static final long DEFAULT_BUDGET = 256L << 20;
+	/** Default color sampled from textures that are not loaded yet: opaque mid gray. */
+	public static final int DEFAULT_PLACEHOLDER_COLOR = 0xFF808080;
+
+	/** The shared, process-wide cache. */
+	private static final TextureCache DEFAULT = new TextureCache(DEFAULT_BUDGET, true);
+
+	/** Texture handles by location (URL in external form). */
+	private final HashMap<String, CachedTexture> textures = new HashMap<String, CachedTexture>();
+	/** The textures with resident texels, least recently used first. Guarded by this cache. */
+	private final LinkedHashMap<CachedTexture, CachedTexture> lru = new LinkedHashMap<CachedTexture, CachedTexture>(16, 0.75f, true);
+	/** The texture used last, whose uses need not be recorded again in {@link #lru}. */
+	private volatile CachedTexture lastUsed;
+	/** The texel layout of newly decoded textures. */
+	private TexelLayout layout = TexelLayout.ROW_MAJOR;
+	/** Maximum number of bytes of decoded texels. Guarded by this cache. */
+	private long budget;
+	/** Number of bytes of decoded texels currently held. Guarded by this cache. */
+	private long residentBytes;
+	/** True if textures are decoded in a loader thread instead of the thread using them. */
+	private final boolean background;
+	/** The loader thread, created on first use. Guarded by this cache. */
+	private ExecutorService loader;
+	/** The color sampled from textures that are not loaded. */
+	private volatile int placeholderColor = DEFAULT_PLACEHOLDER_COLOR;
+
+	/** Number of uses of textures whose texels were resident. */
+	private final LongAdder hits = new LongAdder();
+	/** Number of loads started because a used texture was not resident. */
+	private final LongAdder misses = new LongAdder();
+	/** Number of textures whose full resolution level was dropped. */
+	private final LongAdder reductions = new LongAdder();
+	/** Number of textures whose texels were all dropped. */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Constructs a cache with the default budget, decoding textures in the thread using them.
+	 */
+	public TextureCache()
+	{
+		this(DEFAULT_BUDGET, false);
+	}
+
+	/**
+	 * Constructs a cache.
+	 *
+	 * @param budget The maximum number of bytes of decoded texels.
+	 * @param background If true, textures are decoded in a loader thread and sampled as placeholders
+	 *        until then; otherwise the thread using a texture decodes it.
+	 */
+	public TextureCache(long budget, boolean background)
+	{
+		this.budget = budget;
+		this.background = background;
+	}
+
+	/**
+	 * Returns the process-wide texture cache.
+	 *
+	 * @return The shared TextureCache instance.
+	 */
+	public static TextureCache getDefault()
+	{
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the texture for the image at the given location. On the first request for a location,
+	 * only the image header is read; the texels are decoded on first use.
+	 *
+	 * @param location The location of the image (file or classpath resource URL).
+	 * @return The shared texture for the image.
+	 * @throws IOException If the image cannot be read or no decoder supports its format.
+	 */
+	public synchronized CachedTexture get(URL location) throws IOException
+	{
+		String key = location.toExternalForm();
+		CachedTexture texture = textures.get(key);
+		if(texture == null)
+		{
+			ImageInputStream in = ImageIO.createImageInputStream(location.openStream());
+			if(in == null)
+				throw new IOException("Cannot read " + key);
+			try
+			{
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+				if(!readers.hasNext())
+					throw new IOException("No image decoder found for " + key);
+				ImageReader reader = readers.next();
+				try
+				{
+					reader.setInput(in, true, true);
+					texture = new CachedTexture(this, location, reader.getWidth(0), reader.getHeight(0));
+				}
+				finally
+				{
+					reader.dispose();
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+			textures.put(key, texture);
+		}
+		return texture;
+	}
+
+	/**
+	 * Returns the texture for the image file at the given path. On the first request for a file,
+	 * only the image header is read; the texels are decoded on first use.
+	 *
+	 * @param path The file system path of the image.
+	 * @return The shared texture for the image.
+	 * @throws IOException If the image cannot be read or no decoder supports its format.
+	 */
+	public CachedTexture get(String path) throws IOException
+	{
+		return get(new File(path).getAbsoluteFile().toURI().toURL());
+	}
+
+	/**
+	 * Records a use of a texture, starting to load its full resolution texels if they are not resident.
+	 */
+	void use(CachedTexture texture)
+	{
+		if(texture.isResident())
+		{
+			hits.increment();
+			// Consecutive uses of a texture, e.g. by the polygons of a material, take the lock once
+			if(texture != lastUsed)
+			{
+				lastUsed = texture;
+				synchronized(this)
+				{
+					lru.get(texture);
+				}
+			}
+		}
+		else
+			miss(texture);
+	}
+
+	/**
+	 * Handles a texture sampled at a level that is not resident. Loads the full resolution texels
+	 * in the calling thread, or requests them from the loader thread when loading in the background.
+	 *
+	 * @return The texels to sample, or null if none are resident.
+	 */
+	CachedTexture.Resident miss(CachedTexture texture)
+	{
+		if(texture.failed)
+			return texture.resident;
+		if(!background)
+		{
+			loadNow(texture);
+			return texture.resident;
+		}
+		if(texture.loading)
+			return texture.resident;
+		boolean start;
+		synchronized(texture)
+		{
+			start = !texture.loading && !texture.failed && !texture.isResident();
+			if(start)
+				texture.loading = true;
+		}
+		if(start)
+		{
+			misses.increment();
+			getLoader().execute(() -> decode(texture));
+		}
+		return texture.resident;
+	}
+
+	/**
+	 * Returns the loader thread, creating it on first use.
+	 */
+	private synchronized ExecutorService getLoader()
+	{
+		if(loader == null)
+			loader = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "TextureCache loader");
+				t.setDaemon(true);
+				return t;
+			});
+		return loader;
+	}
+
+	/**
+	 * Returns the full resolution texels of a texture, decoding them in the calling thread if needed.
+	 */
+	ImageTexture loadNow(CachedTexture texture)
+	{
+		synchronized(texture)
+		{
+			CachedTexture.Resident r = texture.resident;
+			if(r != null && r.shift == 0)
+				return r.texture;
+			if(texture.failed)
+				return null;
+			if(!texture.loading)
+				misses.increment();
+			texture.loading = true;
+		}
+		// A concurrent background decode of the same texture is harmless: the last one is kept
+		return decode(texture);
+	}
+
+	/**
+	 * Decodes the texels of a texture and makes them resident, evicting others to fit the budget.
+	 */
+	private ImageTexture decode(CachedTexture texture)
+	{
+		ImageTexture decoded = null;
+		try
+		{
+			BufferedImage image = ImageIO.read(texture.getLocation());
+			if(image == null)
+				throw new IOException("No image decoder found for " + texture.getLocation());
+			decoded = new ImageTexture(image, getLayout());
+		}
+		catch(IOException e)
+		{
+			System.err.println("TextureCache: Error decoding " + texture.getLocation() + ": " + e.getMessage() + ". Texture will be a placeholder.");
+		}
+		synchronized(texture)
+		{
+			texture.loading = false;
+			if(decoded == null)
+				texture.failed = true;
+		}
+		if(decoded != null)
+		{
+			boolean added;
+			synchronized(this)
+			{
+				// A texture removed by clear() while decoding is not accounted for
+				added = textures.get(texture.getLocation().toExternalForm()) == texture;
+				if(added)
+				{
+					setResident(texture, new CachedTexture.Resident(decoded, 0));
+					lru.get(texture);
+					lastUsed = texture;
+				}
+			}
+			if(added)
+				fitBudget(texture);
+		}
+		return decoded;
+	}
+
+	/**
+	 * Replaces the resident texels of a texture, keeping {@link #residentBytes} and {@link #lru} up to
+	 * date. A texture that was resident keeps its place in the order of use.
+	 */
+	private void setResident(CachedTexture texture, CachedTexture.Resident resident)
+	{
+		if(texture.resident != null)
+			residentBytes -= texture.resident.bytes;
+		texture.resident = resident;
+		if(resident == null)
+			lru.remove(texture);
+		else
+		{
+			residentBytes += resident.bytes;
+			if(!lru.containsKey(texture))
+				lru.put(texture, texture);
+		}
+	}
+
+	/**
+	 * Drops texels of the least recently used textures until the resident texels fit the budget.
+	 *
+	 * @param keep A texture that must not be evicted (the one just loaded), or null.
+	 */
+	private void fitBudget(CachedTexture keep)
+	{
+		while(true)
+		{
+			CachedTexture victim = null;
+			CachedTexture.Resident r;
+			synchronized(this)
+			{
+				if(residentBytes <= budget)
+					return;
+				// Iterating the keys does not count as an access
+				for(CachedTexture t: lru.keySet())
+					if(t != keep)
+					{
+						victim = t;
+						break;
+					}
+				if(victim == null)
+					return; // Only the texture being loaded is left; it is kept even if over budget
+				r = victim.resident;
+				if(r.shift != 0 || r.texture.getLevelCount() == 1)
+				{
+					setResident(victim, null);
+					evictions.increment();
+					continue;
+				}
+			}
+			CachedTexture.Resident reduced = new CachedTexture.Resident(r.texture.reduce(), 1);
+			synchronized(this)
+			{
+				// Unless the texture was reloaded, dropped or reduced by another thread meanwhile
+				if(victim.resident == r)
+				{
+					setResident(victim, reduced);
+					reductions.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of textures held by this cache, resident or not.
+	 *
+	 * @return The number of cached textures.
+	 */
+	public synchronized int size()
+	{
+		return textures.size();
+	}
+
+	/**
+	 * Returns the texel layout of textures decoded by this cache.
+	 *
+	 * @return The texel layout.
+	 */
+	public synchronized TexelLayout getLayout()
+	{
+		return layout;
+	}
+
+	/**
+	 * Sets the texel layout of textures decoded from now on. Textures already resident keep theirs.
+	 *
+	 * @param layout The texel layout.
+	 */
+	public synchronized void setLayout(TexelLayout layout)
+	{
+		this.layout = layout;
+	}
+
+	/**
+	 * Returns the maximum number of bytes of decoded texels.
+	 *
+	 * @return The budget in bytes.
+	 */
+	public synchronized long getBudget()
+	{
+		return budget;
+	}
+
+	/**
+	 * Sets the maximum number of bytes of decoded texels, evicting textures if it is exceeded.
+	 *
+	 * @param budget The budget in bytes.
+	 */
+	public void setBudget(long budget)
+	{
+		synchronized(this)
+		{
+			this.budget = budget;
+		}
+		fitBudget(null);
+	}
+
+	/**
+	 * Returns the number of bytes of decoded texels currently held.
+	 *
+	 * @return The resident size in bytes.
+	 */
+	public synchronized long getResidentBytes()
+	{
+		return residentBytes;
+	}
+
+	/**
+	 * Returns whether textures are decoded in a loader thread.
+	 *
+	 * @return True if loading in the background.
+	 */
+	public boolean isBackground()
+	{
+		return background;
+	}
+
+	/**
+	 * Returns the number of uses of textures whose full resolution texels were resident.
+	 *
+	 * @return The hit count.
+	 */
+	public long getHits()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of texture loads caused by uses of textures that were not resident.
+	 *
+	 * @return The miss count.
+	 */
+	public long getMisses()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * Returns the number of times the full resolution level of a texture was dropped to fit the budget.
+	 *
+	 * @return The reduction count.
+	 */
+	public long getReductions()
+	{
+		return reductions.sum();
+	}
+
+	/**
+	 * Returns the number of times all the texels of a texture were dropped to fit the budget.
+	 *
+	 * @return The eviction count.
+	 */
+	public long getEvictions()
+	{
+		return evictions.sum();
+	}
+
+	public int getPlaceholderColor() {
+		return placeholderColor;
+	}
+
+	public void setPlaceholderColor(int placeholderColor) {
+		this.placeholderColor = placeholderColor;
+	}
+
+	/**
+	 * Removes all textures from this cache and releases their texels. Handles already referenced by
+	 * materials keep sampling their placeholder color.
+	 */
+	public synchronized void clear()
+	{
+		for(CachedTexture t: textures.values())
+		{
+			t.failed = true; // Detached: never loaded again
+			t.resident = null;
+		}
+		textures.clear();
+		lru.clear();
+		lastUsed = null;
+		residentBytes = 0;
+	}
+}
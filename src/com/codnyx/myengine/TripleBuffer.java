@@ -0,0 +1,147 @@
+package com.codnyx.myengine;
+
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands frames from a rendering thread to a presenting thread through three opaque images, so that
+ * neither thread ever waits for the other: the renderer draws the next frame into the back image while
+ * the presenter copies the front one to the screen, and the third image holds the latest finished
+ * frame. {@link #publish(PolygonRenderer)} swaps the back image with the latest one,
+ * {@link #present(Graphics)} the latest one with the front one, each with a single atomic exchange of
+ * the index of the latest image. A renderer faster than the presenter overwrites frames never shown;
+ * a presenter faster than the renderer finds no new frame and presents nothing.
+ * <p>
+ * The images are created by {@link PolygonRenderer#createCompatibleImage(GraphicsConfiguration, int, int)}
+ * and the frames are presented the way {@link PolygonRenderer#commit(Graphics)} presents an opaque
+ * image: only the areas which changed since the frames the destination still shows are copied.
+ * <p>
+ * {@link #newRenderer()} and {@link #publish(PolygonRenderer)} are called from the rendering thread,
+ * the other methods from the presenting thread.
+ */
+public class TripleBuffer
+{
+	/** Bit of {@link #latest} set while the latest image holds a frame not yet presented. */
+	private static final int FRESH = 4;
+	/** Mask of the index of the latest image in {@link #latest}. */
+	private static final int INDEX = 3;
+
+	/** Width of the frames. */
+	private final int width;
+	/** Height of the frames. */
+	private final int height;
+	/** The three images. */
+	private final BufferedImage[] images = new BufferedImage[3];
+	/** The pixels of the images. */
+	private final int[][] pixels = new int[3][];
+	/** The bounds of the polygons of the frame held by each image. */
+	private final int[][] bounds = new int[3][4];
+	/** The number of the frame held by each image. */
+	private final long[] numbers = new long[3];
+	/** Index of the image holding the latest finished frame, and {@link #FRESH} if it was not presented. */
+	private final AtomicInteger latest = new AtomicInteger(1);
+	/** Index of the image being rendered, owned by the rendering thread. */
+	private int back = 0;
+	/** Number of the last frame published, owned by the rendering thread. */
+	private long published;
+	/** Index of the image presented, owned by the presenting thread. */
+	private int front = 2;
+	/** What the destination still shows of the frames presented, owned by the presenting thread. */
+	private final PresentHistory history = new PresentHistory();
+
+	/**
+	 * Constructs a triple buffer.
+	 * @param gc The configuration of the display the frames are presented on, or null.
+	 * @param width The width of the frames.
+	 * @param height The height of the frames.
+	 */
+	public TripleBuffer(GraphicsConfiguration gc, int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+		for(int i = 0; i < 3; i++)
+		{
+			images[i] = PolygonRenderer.createCompatibleImage(gc, width, height);
+			pixels[i] = ((DataBufferInt)images[i].getRaster().getDataBuffer()).getData();
+			bounds[i][0] = bounds[i][1] = Integer.MAX_VALUE;
+			bounds[i][2] = bounds[i][3] = Integer.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * Creates a renderer drawing into the back image, to be handed over with
+	 * {@link #publish(PolygonRenderer)}.
+	 * @return The renderer, whose perspective remains to be set.
+	 */
+	public PolygonRenderer newRenderer()
+	{
+		return new PolygonRenderer(images[back]);
+	}
+
+	/**
+	 * Makes the finished frame of a renderer the latest one, after {@link PolygonRenderer#commit()},
+	 * and makes the renderer draw the next frame into the image freed. Never waits.
+	 * @param renderer A renderer drawing into the back image.
+	 * @return The number of the frame, from 1.
+	 */
+	public long publish(PolygonRenderer renderer)
+	{
+		renderer.getBounds(bounds[back]);
+		numbers[back] = ++published;
+		back = latest.getAndSet(back | FRESH) & INDEX;
+		renderer.setColorBuffer(pixels[back]);
+		return published;
+	}
+
+	/**
+	 * Tests whether a frame was published since the last one presented.
+	 * @return true if {@link #present(Graphics)} would present a new frame.
+	 */
+	public boolean hasNewFrame()
+	{
+		return (latest.get() & FRESH) != 0;
+	}
+
+	/**
+	 * Presents the latest frame, if it was not presented yet, or the frame last presented if
+	 * {@link #invalidatePresentation()} was called since. Never waits.
+	 * @param g The destination, such as the back buffer of a {@link java.awt.image.BufferStrategy}.
+	 * @return true if a frame was presented.
+	 */
+	public boolean present(Graphics g)
+	{
+		if(hasNewFrame())
+			front = latest.getAndSet(front) & INDEX;
+		else if(!history.isInvalid())
+			return false;
+		history.present(g, images[front], width, height, bounds[front], null);
+		return true;
+	}
+
+	/**
+	 * Gets the number of the frame presented last.
+	 * @return The number of the frame, or 0 if none was presented.
+	 */
+	public long getPresentedFrame() {
+		return numbers[front];
+	}
+
+	/**
+	 * Sets the age of the contents of the destination, see {@link PolygonRenderer#setBufferAge(int)}.
+	 * @param bufferAge The age of the destination, between 0 and {@link PolygonRenderer#MAX_BUFFER_AGE}.
+	 */
+	public void setBufferAge(int bufferAge) {
+		history.setBufferAge(bufferAge);
+	}
+
+	/**
+	 * Makes the next {@link #present(Graphics)} present the whole viewport, even without a new frame,
+	 * when the destination lost its contents or was just created.
+	 */
+	public void invalidatePresentation() {
+		history.invalidate();
+	}
+}
@@ -24,6 +24,11 @@ public class Vertex {
 	 * The color of the vertex, represented as an integer (RGB).
 	 */
 	int color = COLOR_WHITE;
+	/**
+	 * The texture coordinates (u, v) at this vertex, normalized so that (0,0) is the top-left
+	 * and (1,1) the bottom-right corner of the texture image. Null if the vertex carries no UVs.
+	 */
+	float[] texCoord;
 
     // Getter for normal
     public float[] getNormal() {
@@ -49,6 +54,16 @@ public class Vertex {
     public void setColor(Color color) {
         this.color = color.getRGB();
     }
+
+    // Getter for texture coordinates (u, v)
+    public float[] getTexCoord() {
+        return texCoord;
+    }
+
+    // Setter for texture coordinates (u, v)
+    public void setTexCoord(float[] texCoord) {
+        this.texCoord = texCoord;
+    }
 	
 	/**
 	 * Default constructor. Initializes the vertex at the origin (0,0,0) with the default color and no normal.
@@ -116,7 +131,7 @@ public class Vertex {
 
 	/**
 	 * Sets the properties of this Vertex to match the properties of another Vertex.
-	 * This includes cloning the point and normal arrays.
+	 * This includes cloning the point, normal and texture coordinate arrays.
 	 * 
 	 * @param v The Vertex to copy properties from.
 	 */
@@ -125,12 +140,14 @@ public class Vertex {
 		this.color = v.color;
 		this.normal = v.normal != null?v.normal.clone():null;
 		this.point = v.point.clone();
+		this.texCoord = v.texCoord != null?v.texCoord.clone():null;
 	}
 	
 	/**
 	 * Resets the Vertex to its default state:
 	 * - Point coordinates are set to (0,0,0).
 	 * - Normal is set to null.
+	 * - Texture coordinates are set to null.
 	 * - Color is set to the default white color.
 	 */
 	public void reset()
@@ -138,6 +155,7 @@ public class Vertex {
 		Arrays.fill(point, 0);
 		if(normal != null)
 			normal = null;
+		texCoord = null;
 		color = COLOR_WHITE;		
 	}
 	
@@ -16,6 +16,8 @@ import java.awt.image.DataBufferInt;
  * <p>
  * Colors are retrieved from the underlying image data. Texture coordinates are masked to ensure they
  * wrap around if they go outside the image dimensions (assuming power-of-two dimensions for masking to work as wrap).
+ * Reduced resolution levels (mipmaps) of the image are built when it is set, optionally stored
+ * in a swizzled {@link TexelLayout} (see {@link #setLayout(TexelLayout)}).
  */
 public class VertexTexture extends Texture
 {
@@ -29,6 +31,10 @@ public class VertexTexture extends Texture
 	private int ymask;
 	/** Width of the texture image in pixels. */
 	private int w;
+	/** The reduced resolution levels of the image; level 0 is {@link #data} if the layout is row-major. */
+	private MipChain mips;
+	/** The order in which the texels are stored for sampling. */
+	private TexelLayout layout = TexelLayout.ROW_MAJOR;
 	
 	
 	/**
@@ -132,6 +138,8 @@ public class VertexTexture extends Texture
 	@Override
 	public int getColor(int x, int y)
 	{
+		if(layout != TexelLayout.ROW_MAJOR)
+			return mips.getColor(x, y, 0);
 		// Apply bitmask for coordinate wrapping (texture repeat)
 		// This works correctly as a modulo if width/height are powers of two.
 		x &= xmask; 
@@ -140,10 +148,40 @@ public class VertexTexture extends Texture
 		return data[w * y + x];
 	}
 	
+	@Override
+	public int getColor(int x, int y, int level)
+	{
+		return mips.getColor(x, y, level);
+	}
+	
+	@Override
+	public void sampleSpan(int u, int v, int du, int dv, int count, int level, int[] dst, int dstOff)
+	{
+		mips.sampleSpan(u, v, du, dv, count, level, dst, dstOff);
+	}
+	
+	@Override
+	public int getLevelCount()
+	{
+		return mips.getLevelCount();
+	}
+	
+	@Override
+	public int getWidth()
+	{
+		return w;
+	}
+	
+	@Override
+	public int getHeight()
+	{
+		return image.getHeight();
+	}
+	
 	/**
 	 * Sets the {@link BufferedImage} to be used as the texture source.
 	 * This also updates internal fields related to the image, such as its dimensions,
-	 * pixel data array, and masks for coordinate wrapping.
+	 * pixel data array, masks for coordinate wrapping and mipmap levels.
 	 * @param image The BufferedImage to use.
 	 */
 	public void setImage(BufferedImage image) 
@@ -156,5 +194,18 @@ public class VertexTexture extends Texture
 		this.ymask = image.getHeight() - 1;
 		// Get direct access to the integer pixel data of the image
 		this.data = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		// Build the reduced resolution levels used for minified polygons
+		this.mips = new MipChain(data, w, image.getHeight(), layout);
+	}
+	
+	/**
+	 * Sets the order in which texels are stored for sampling, rebuilding the stored texels.
+	 * The image itself always remains row-major.
+	 * @param layout The texel layout.
+	 */
+	public void setLayout(TexelLayout layout)
+	{
+		this.layout = layout;
+		this.mips = new MipChain(data, w, image.getHeight(), layout);
 	}
 }
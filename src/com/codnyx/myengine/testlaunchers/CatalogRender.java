@@ -0,0 +1,379 @@
+package com.codnyx.myengine.testlaunchers;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import com.codnyx.myengine.AffineTransformation;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.MeshletBuilder;
+import com.codnyx.myengine.MyMath;
+import com.codnyx.myengine.ObjParser;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+import com.codnyx.myengine.TextureCache;
+import com.codnyx.myengine.Vertex;
+
+/**
+ * A headless command line tool rendering preview images of every OBJ model of a directory, such as
+ * {@code res/}, from a list of camera poses.
+ * <p>
+ * The work is split in three stages, each with its own concurrency:
+ * <ul>
+ *   <li>Models are read and parsed on virtual threads (on a cached thread pool before Java 21), at most
+ *       {@code 2 * threads} models being loaded or rendered at a time, which bounds memory.</li>
+ *   <li>Views are rasterized on a fixed pool of {@code threads} platform threads, each drawing with its
+ *       own render context of one shared {@link RenderConfig}.</li>
+ *   <li>Finished frames are copied to images of a fixed pool and encoded to PNG files on virtual
+ *       threads, so that rasterization does not wait for the disk; when all the images are being
+ *       written, rasterization waits for one to be free.</li>
+ * </ul>
+ * Every model is scaled to fit the view, shaded by a light baked into its vertex colors, and drawn
+ * with a transparent background. Throughput is
+ * reported in frames and models per second.
+ * <p>
+ * Usage: {@code CatalogRender modelDir outputDir [poses.txt [size [threads]]]}. The poses file has one
+ * pose per line: yaw and pitch in degrees, then optionally the distance, 1 (the default) fitting the
+ * bounding sphere of the model in the view; '#' starts a comment. Without a file (or with "-"), eight
+ * views around the model are rendered. Images are 256x256 by default, one rasterizing thread per
+ * processor.
+ */
+public class CatalogRender
+{
+	/** Vertical field of view of the views. */
+	static final double FIELD_OF_VIEW = Math.PI / 4;
+	/** Direction towards the light baked into the models, in model coordinates: from the upper front left. */
+	private static final float[] LIGHT = {-0.408f, 0.816f, 0.408f};
+	/** Share of the light reaching surfaces facing away from it. */
+	private static final float AMBIENT = 0.35f;
+
+	/** The camera poses: yaw and pitch in radians, then the distance in multiples of the fitting one. */
+	private final float[][] poses;
+	/** Directory the images are written to. */
+	private final File outputDir;
+	/** The configuration of the views, shared by the render contexts. */
+	private final RenderConfig config;
+	/** The render context of each rasterizing thread. */
+	private final ThreadLocal<PolygonRenderer> contexts;
+	/** Texture cache of the models, decoding in the rasterizing threads so that no view shows placeholders. */
+	private final TextureCache textures = new TextureCache();
+	/** Images not being written, which receive the finished frames. */
+	private final BlockingQueue<BufferedImage> images;
+	/** Platform threads rasterizing the views. */
+	private final ExecutorService rasterizers;
+	/** Virtual threads reading the models and writing the images. */
+	private final ExecutorService io;
+	/** Bounds the number of models loaded and not yet fully written. */
+	private final Semaphore modelsInFlight;
+	/** Number of frames written. */
+	private final AtomicInteger frames = new AtomicInteger();
+	/** Number of models whose every view was written. */
+	private final AtomicInteger models = new AtomicInteger();
+
+	/**
+	 * Constructs the tool.
+	 * @param poses The camera poses: yaw and pitch in radians, then the relative distance.
+	 * @param outputDir The directory the images are written to.
+	 * @param size The width and height of the images.
+	 * @param threads The number of rasterizing threads.
+	 */
+	public CatalogRender(float[][] poses, File outputDir, int size, int threads)
+	{
+		this.poses = poses;
+		this.outputDir = outputDir;
+		this.config = new RenderConfig(size, size).withPerspective(FIELD_OF_VIEW, -30f, -1f);
+		this.contexts = ThreadLocal.withInitial(config::newContext);
+		this.images = new ArrayBlockingQueue<BufferedImage>(2 * threads);
+		for(int i = 0; i < 2 * threads; i++)
+			images.add(new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB));
+		this.rasterizers = Executors.newFixedThreadPool(threads);
+		this.io = newVirtualThreadExecutor("CatalogRender I/O");
+		this.modelsInFlight = new Semaphore(2 * threads);
+	}
+
+	/**
+	 * Creates an executor starting a virtual thread per task, or a cached thread pool on runtimes
+	 * without virtual threads (before Java 21).
+	 * @param name The name of the pooled threads.
+	 */
+	static ExecutorService newVirtualThreadExecutor(String name)
+	{
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/**
+	 * Renders every view of every model and waits until all the images are written.
+	 * @param files The OBJ files.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public void renderAll(File[] files) throws InterruptedException
+	{
+		CountDownLatch done = new CountDownLatch(files.length);
+		for(File file: files)
+		{
+			modelsInFlight.acquire();
+			io.execute(() -> load(file, done));
+		}
+		done.await();
+		rasterizers.shutdown();
+		io.shutdown();
+	}
+
+	/**
+	 * Parses a model, then submits its views to the rasterizing threads.
+	 */
+	private void load(File file, CountDownLatch done)
+	{
+		Mesh mesh;
+		try {
+			mesh = loadModel(file, textures);
+		} catch(IOException | RuntimeException e) {
+			System.err.println("CatalogRender: could not load " + file + ": " + e);
+			modelsInFlight.release();
+			done.countDown();
+			return;
+		}
+		String name = file.getName().substring(0, file.getName().length() - 4);
+		float scale = 1 / getRadius(mesh);
+		AtomicInteger remaining = new AtomicInteger(poses.length);
+		Runnable viewWritten = () -> {
+			frames.incrementAndGet();
+			if(remaining.decrementAndGet() == 0)
+			{
+				models.incrementAndGet();
+				modelsInFlight.release();
+				done.countDown();
+			}
+		};
+		for(int i = 0; i < poses.length; i++)
+		{
+			float[] pose = poses[i];
+			File output = new File(outputDir, String.format("%s_%02d.png", name, i));
+			rasterizers.execute(() -> render(mesh, scale, pose, output, viewWritten));
+		}
+	}
+
+	/**
+	 * Renders one view of a model in the render context of the calling thread, then hands the frame
+	 * over to a writing thread. A view that fails is logged and counted as done, so that its model
+	 * is still completed.
+	 */
+	private void render(Mesh mesh, float scale, float[] pose, File output, Runnable viewWritten)
+	{
+		BufferedImage image = null;
+		try {
+			PolygonRenderer context = contexts.get();
+			context.clean();
+			setView(context.getModelT(), scale, pose[0], pose[1], pose[2]);
+			mesh.render(context);
+			context.commit();
+			image = images.take();
+			int[] pixels = context.getColorBuffer();
+			System.arraycopy(pixels, 0, ((DataBufferInt)image.getRaster().getDataBuffer()).getData(), 0, pixels.length);
+			BufferedImage frame = image;
+			io.execute(() -> {
+				try {
+					ImageIO.write(frame, "png", output);
+				} catch(IOException e) {
+					System.err.println("CatalogRender: could not write " + output + ": " + e);
+				} finally {
+					images.add(frame);
+					viewWritten.run();
+				}
+			});
+			return; // The writing thread releases the image and completes the view
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(RuntimeException e) {
+			System.err.println("CatalogRender: could not render " + output + ": " + e);
+		}
+		if(image != null)
+			images.add(image);
+		viewWritten.run();
+	}
+
+	/**
+	 * Parses a model for rendering previews: optimized, split into meshlets and shaded.
+	 * @param file The OBJ file.
+	 * @param textures The cache decoding the textures of the model.
+	 * @return The mesh, centered on the origin.
+	 * @throws IOException If the file cannot be read.
+	 */
+	static Mesh loadModel(File file, TextureCache textures) throws IOException
+	{
+		ObjParser parser = new ObjParser();
+		parser.setTextureCache(textures);
+		parser.setOptimizeMesh(true);
+		Mesh mesh = parser.parseFile(file.getPath());
+		mesh.buildMeshlets(new MeshletBuilder());
+		shade(mesh);
+		return mesh;
+	}
+
+	/**
+	 * Sets up the model transformation of a view around a model centered on the origin.
+	 * @param modelT The model transformation to set.
+	 * @param scale The scale bringing the bounding sphere of the model to a radius of 1.
+	 * @param yaw The rotation of the model around the vertical axis, in radians.
+	 * @param pitch The rotation of the model around the horizontal axis, in radians.
+	 * @param distance The distance of the camera, 1 fitting the bounding sphere in a view of {@link #FIELD_OF_VIEW}.
+	 */
+	static void setView(AffineTransformation modelT, float scale, float yaw, float pitch, float distance)
+	{
+		modelT.loadIdentity().scaleOf(scale, scale, scale).rotateY(yaw).rotateX(pitch)
+				.translateTo(0, 0, -distance / (float)Math.sin(FIELD_OF_VIEW / 2));
+	}
+
+	/**
+	 * Bakes a diffuse light into the vertex colors of a mesh, since the renderer does not light, so
+	 * that the shapes of untextured models show. Done once, before the views share the mesh.
+	 */
+	static void shade(Mesh mesh)
+	{
+		Set<Vertex> shaded = Collections.newSetFromMap(new IdentityHashMap<Vertex, Boolean>());
+		for(Polygon p: mesh.polygons)
+		{
+			if(p == null)
+				continue;
+			for(Vertex v: p.getVertices())
+			{
+				if(!shaded.add(v))
+					continue;
+				float[] n = v.getNormal() != null ? v.getNormal() : p.getNormal();
+				float light = AMBIENT + (1 - AMBIENT) * Math.max(0, MyMath.dotProduct(n, LIGHT));
+				int c = v.getRGBColor();
+				v.setRGBColor(c & 0xFF000000 | (int)(((c >> 16) & 0xFF) * light) << 16
+						| (int)(((c >> 8) & 0xFF) * light) << 8 | (int)((c & 0xFF) * light));
+			}
+		}
+	}
+
+	/**
+	 * Computes the radius of the bounding sphere of a mesh centered on the origin, where the parser
+	 * moves the average of the vertices.
+	 */
+	static float getRadius(Mesh mesh)
+	{
+		float r2 = 0;
+		for(Polygon p: mesh.polygons)
+		{
+			if(p == null)
+				continue;
+			for(Vertex v: p.getVertices())
+				r2 = Math.max(r2, v.point[0]*v.point[0] + v.point[1]*v.point[1] + v.point[2]*v.point[2]);
+		}
+		return r2 > 0 ? (float)Math.sqrt(r2) : 1;
+	}
+
+	/**
+	 * Reads camera poses, one per line: yaw and pitch in degrees, then optionally the relative distance.
+	 * @param file The poses file.
+	 * @return The poses, angles in radians.
+	 * @throws IOException If the file cannot be read or a line is malformed.
+	 */
+	static float[][] readPoses(File file) throws IOException
+	{
+		List<float[]> poses = new ArrayList<float[]>();
+		try(BufferedReader reader = new BufferedReader(new FileReader(file)))
+		{
+			String line;
+			while((line = reader.readLine()) != null)
+			{
+				int comment = line.indexOf('#');
+				if(comment >= 0)
+					line = line.substring(0, comment);
+				line = line.trim();
+				if(line.isEmpty())
+					continue;
+				String[] tokens = line.split("\\s+");
+				try {
+					poses.add(new float[]{(float)Math.toRadians(Float.parseFloat(tokens[0])),
+							(float)Math.toRadians(Float.parseFloat(tokens[1])),
+							tokens.length > 2 ? Float.parseFloat(tokens[2]) : 1f});
+				} catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+					throw new IOException("Malformed pose: " + line);
+				}
+			}
+		}
+		return poses.toArray(new float[poses.size()][]);
+	}
+
+	/**
+	 * Renders the catalog.
+	 *
+	 * @param args The model directory and the output directory, then optionally the poses file,
+	 *        the size of the images and the number of rasterizing threads.
+	 * @throws IOException If the poses cannot be read or the output directory cannot be created.
+	 * @throws InterruptedException If interrupted while waiting for the images.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if(args.length < 2)
+		{
+			System.err.println("CatalogRender: usage: CatalogRender modelDir outputDir [poses.txt [size [threads]]]");
+			return;
+		}
+		File[] files = new File(args[0]).listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".obj"));
+		if(files == null)
+		{
+			System.err.println("CatalogRender: " + args[0] + " is not a directory");
+			return;
+		}
+		Arrays.sort(files);
+		File outputDir = new File(args[1]);
+		if(!outputDir.isDirectory() && !outputDir.mkdirs())
+			throw new IOException("Could not create " + outputDir);
+		float[][] poses;
+		if(args.length > 2 && !args[2].equals("-"))
+			poses = readPoses(new File(args[2]));
+		else
+		{
+			poses = new float[8][];
+			for(int i = 0; i < poses.length; i++)
+				poses[i] = new float[]{(float)(2 * Math.PI * i / poses.length), (float)Math.toRadians(20), 1f};
+		}
+		if(poses.length == 0)
+		{
+			System.err.println("CatalogRender: no camera pose");
+			return;
+		}
+		int size = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		CatalogRender catalog = new CatalogRender(poses, outputDir, size, threads);
+		long start = System.nanoTime();
+		catalog.renderAll(files);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d models, %d frames of %dx%d with %d threads in %.2f s: %.1f frames/s, %.2f models/s%n",
+				catalog.models.get(), catalog.frames.get(), size, size, threads, seconds,
+				catalog.frames.get() / seconds, catalog.models.get() / seconds);
+	}
+}
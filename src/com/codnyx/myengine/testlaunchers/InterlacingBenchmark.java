@@ -0,0 +1,125 @@
+package com.codnyx.myengine.testlaunchers;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import com.codnyx.myengine.AffineTransformation;
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.Interlacing;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.Vertex;
+
+/**
+ * A command line benchmark comparing the {@link Interlacing} patterns of {@link PolygonRenderer}.
+ * <p>
+ * A textured wall is rendered offscreen, with four smaller textured quads in front of it, and the
+ * scene transformation is passed to the renderer on every frame. The wall fills the viewport, or is
+ * drawn in three overlapping layers; the eye stands still, or turns a little on every frame. For each
+ * scene and pattern the time per frame, from {@link PolygonRenderer#clean()} to
+ * {@link PolygonRenderer#commit()} included, is printed: the best average of several runs of frames,
+ * the reconstruction of interlaced frames in parentheses.
+ * <p>
+ * Usage: {@code InterlacingBenchmark [frames]}, default 50 frames per run.
+ */
+public class InterlacingBenchmark
+{
+	/** Width of the offscreen viewport. */
+	private static final int WIDTH = 800;
+	/** Height of the offscreen viewport. */
+	private static final int HEIGHT = 600;
+	/** Number of runs timed, after as many run to warm up the JIT. */
+	private static final int RUNS = 5;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optional number of frames per run.
+	 */
+	public static void main(String[] args)
+	{
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+		// Random texels, so that reconstructed pixels rarely match by chance
+		int size = 1024;
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(1);
+		for(int y = 0; y < size; y++)
+			for(int x = 0; x < size; x++)
+				image.setRGB(x, y, 0xFF000000 | random.nextInt());
+		ImageTexture texture = new ImageTexture(image);
+		Polygon wall = createQuad(8, texture), small = createQuad(0.8f, texture);
+
+		System.out.println(WIDTH + "x" + HEIGHT + " pixels, ms per frame (reconstruction)");
+		StringBuilder header = new StringBuilder("scene\t\t");
+		for(Interlacing interlacing: Interlacing.values())
+			header.append('\t').append(interlacing);
+		System.out.println(header);
+		for(int layers = 1; layers <= 3; layers += 2)
+		{
+			for(int moving = 0; moving < 2; moving++)
+			{
+				StringBuilder line = new StringBuilder((layers == 1 ? "wall" : "3 walls") + (moving == 0 ? ", still" : ", moving"));
+				for(Interlacing interlacing: Interlacing.values())
+				{
+					PolygonRenderer renderer = new PolygonRenderer(WIDTH, HEIGHT);
+					renderer.setPerspective(Math.PI / 3, -30f, -1f);
+					renderer.setInterlacing(interlacing);
+					AffineTransformation eye = new AffineTransformation();
+					double best = Double.MAX_VALUE, bestCommit = 0;
+					int frame = 0;
+					for(int run = -RUNS; run < RUNS; run++)
+					{
+						long start = System.nanoTime(), commit = 0;
+						for(int f = 0; f < frames; f++, frame++)
+						{
+							eye.loadIdentity().rotateY(moving * (frame % 400) * 0.002f);
+							renderer.clean();
+							for(int l = 0; l < layers; l++)
+							{
+								renderer.getModelT().setTo(eye).translateTo(0.3f * l, 0, -8 + l);
+								renderer.render(wall);
+							}
+							for(int q = 0; q < 4; q++)
+							{
+								renderer.getModelT().setTo(eye).translateTo(-1.5f + q, 0.5f, -5);
+								renderer.render(small);
+							}
+							renderer.setSceneTransformation(eye);
+							long commitStart = System.nanoTime();
+							renderer.commit();
+							commit += System.nanoTime() - commitStart;
+						}
+						double ms = (System.nanoTime() - start) / 1e6 / frames;
+						if(run >= 0 && ms < best)
+						{
+							best = ms;
+							bestCommit = commit / 1e6 / frames;
+						}
+					}
+					line.append('\t').append(String.format("%.2f", best));
+					if(interlacing != Interlacing.NONE)
+						line.append(String.format(" (%.2f)", bestCommit));
+				}
+				System.out.println(line);
+			}
+		}
+	}
+
+	/**
+	 * Creates a square facing the eye, centered on the origin, mapped once with the texture.
+	 */
+	private static Polygon createQuad(float half, ImageTexture texture)
+	{
+		Vertex[] vs = {
+			new Vertex(new float[]{-half, -half, 0}), new Vertex(new float[]{half, -half, 0}),
+			new Vertex(new float[]{half, half, 0}), new Vertex(new float[]{-half, half, 0})
+		};
+		float[][] uvs = {{0, 1}, {1, 1}, {1, 0}, {0, 0}};
+		for(int i = 0; i < vs.length; i++)
+			vs[i].setTexCoord(uvs[i]);
+		Polygon quad = new Polygon(vs);
+		quad.texture = texture;
+		return quad;
+	}
+}
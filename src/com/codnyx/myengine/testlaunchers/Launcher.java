@@ -1,26 +1,31 @@
 package com.codnyx.myengine.testlaunchers;
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.GraphicsConfiguration;
+import java.awt.BufferCapabilities;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.image.VolatileImage;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.swing.JFrame;
 
 import com.codnyx.myengine.AffineTransformation;
 import com.codnyx.myengine.ColorUtils;
+import com.codnyx.myengine.FrameScheduler;
+import com.codnyx.myengine.Interlacing;
 import com.codnyx.myengine.MyMath;
 import com.codnyx.myengine.Polygon;
 import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.ResolutionController;
+import com.codnyx.myengine.TripleBuffer;
 
 /**
  * Abstract base class for creating test applications (launchers) for the 3D engine.
  * It provides a basic window (JFrame), a rendering loop (Runnable), and input handling
  * (KeyListener, MouseListener). Subclasses must implement {@link #init()} to set up
- * specific test scenes and {@link #doPaint(Graphics)} to define the rendering logic for each frame.
+ * specific test scenes and {@link #doPaint()} to define the rendering logic for each frame.
  * <p>
  * The launcher manages a {@link PolygonRenderer} for drawing polygons and an
  * {@link AffineTransformation} for model transformations. It also includes basic
@@ -37,15 +42,30 @@ public abstract class Launcher extends JFrame implements Runnable, KeyListener,
 	/** The polygon renderer instance used for drawing. Accessible to subclasses. */
 	protected PolygonRenderer renderer;
 	
-	/** If true, attempts to smooth the simulation rate by introducing sleeps. Defaults to false. */
-	private final static boolean SMOOTHSIMRATE = false;
-	/** If true, uses a {@link VolatileImage} as a back buffer for rendering. Defaults to false. */
-	private final static boolean USEVIRTUALIMAGE = false; // Note: VolatileImage usage requires careful handling of content loss.
+	/** Number of simulation steps per second, see {@link #update(float)}. */
+	private final static int UPDATES_PER_SECOND = 120;
+	/** Default target frame rate. */
+	private final static int TARGET_FPS = 60;
+	/** Time the rendering of a frame should take, in milliseconds: most of the frame interval, the rest presenting it. */
+	private final static double RENDER_BUDGET_MILLIS = 750.0 / TARGET_FPS;
+	/** Interval between updates of the FPS and camera text, in nanoseconds. */
+	private final static long HUD_INTERVAL = 500000000L;
+	/** Paces the rendering loop and runs the simulation steps. Subclasses may configure it in {@link #init()}. */
+	protected final FrameScheduler scheduler = new FrameScheduler(UPDATES_PER_SECOND);
+	/**
+	 * Lowers the resolution of the frames which take longer than {@value #RENDER_BUDGET_MILLIS} ms to render,
+	 * so that heavy scenes stay smooth. Subclasses may change its target or remove it from the {@link #renderer}.
+	 */
+	protected final ResolutionController resolution = new ResolutionController(RENDER_BUDGET_MILLIS);
 
 	/**
 	 * Constructs a new Launcher.
-	 * Initializes the {@link PolygonRenderer} with the specified perspective settings and viewport dimensions.
-	 * Sets up the JFrame, adds key and mouse listeners, and starts the rendering thread.
+	 * Initializes the {@link PolygonRenderer} with the specified perspective settings and viewport dimensions,
+	 * drawing into the opaque images of a {@link TripleBuffer}, in the pixel format of the display.
+	 * Sets up the JFrame, adds key and mouse listeners, and starts the rendering and presenting threads:
+	 * the next frame is rendered while the previous one is presented. Frames are rendered at
+	 * {@value #TARGET_FPS} per second, unless the subclass configures the {@link #scheduler} otherwise,
+	 * at a resolution lowered by the {@link #resolution} controller when they take too long.
 	 * 
 	 * @param yangle The vertical field of view angle in radians for the perspective projection.
 	 * @param z_min The distance to the near clipping plane.
@@ -55,14 +75,18 @@ public abstract class Launcher extends JFrame implements Runnable, KeyListener,
 	 */
 	public Launcher(double yangle, float z_min, float z_max, int width, int height)
 	{
-		this.renderer = new PolygonRenderer(width, height);
+		this.frames = new TripleBuffer(getGraphicsConfiguration(), width, height);
+		this.renderer = frames.newRenderer();
 		this.renderer.setPerspective(yangle, z_min, z_max);
+		this.renderer.setResolutionController(resolution);
 		this.a = renderer.getModelT(); // Get the model transformation matrix from the renderer
+		this.scheduler.setTargetFps(TARGET_FPS);
 		isRunning = true;
 		this.init(); // Call subclass-specific initialization
 		this.addKeyListener(this);
 		this.addMouseListener(this);
-		new Thread(this).start(); // Start the rendering loop in a new thread
+		new Thread(this, "Launcher render").start(); // Start the rendering loop in a new thread
+		presenter.start();
 	}
 	
 	/**
@@ -77,150 +101,207 @@ public abstract class Launcher extends JFrame implements Runnable, KeyListener,
 	
 	/** Current Z-translation of the camera (negative values move camera away from origin along Z). Modified by input keys. */
 	protected float ztr = -10; // Default camera Z position
-	/** Duration of the last frame in nanoseconds. */
+	/** Interval between the last two frames in nanoseconds. */
 	long framelength = 0;
-	/** VolatileImage used as a back buffer if USEVIRTUALIMAGE is true. */
-	private VolatileImage volatileImg;
+	/** Smoothed number of frames rendered per second, shown by the presenting thread. */
+	private volatile float fps;
+	/** Resolution scale of the last frame rendered, shown by the presenting thread. */
+	private volatile float scale = 1;
+	/** Interlacing of the frames, chosen with the 'I' key and applied by the rendering thread. */
+	private volatile Interlacing interlacing = Interlacing.NONE;
+	/** The frames handed from the rendering thread to the presenting thread. */
+	private final TripleBuffer frames;
+	/** The thread presenting the frames, see {@link #present()}. */
+	private final Thread presenter = new Thread(this::present, "Launcher present");
+	/** Whether the presenting thread must present the whole frame again. */
+	private volatile boolean repaintAll;
 	
 	/**
 	 * The main rendering loop.
-	 * Calculates FPS, handles frame rate smoothing (if enabled), and calls {@link #doPaint(Graphics)}
-	 * to render the scene. It uses a BufferStrategy for double buffering.
-	 * Displays FPS and camera Z position on screen.
+	 * Waits for the {@link #scheduler} to make the next frame due, runs the simulation steps
+	 * it returns with {@link #update(float)}, and calls {@link #doPaint()} to render the scene.
+	 * Each finished frame is handed to the presenting thread through the {@link TripleBuffer},
+	 * without waiting for it to be shown.
 	 */
 	@Override
 	public void run()
 	{
 		float fps = 0;
 		long oldTick = 0;
-		float maxfps = 0; // Tracks maximum FPS achieved during the session
+		boolean animating = true;
 		
 		while(isRunning)
 		{
-			// Calculate smoothed FPS
-			if(fps == 0) { // First frame or after a pause
-				if(oldTick != 0) {
-					framelength = System.nanoTime() - oldTick;
-					if (framelength > 0) fps = (float) (1e9 / (float)framelength); else fps = 0;
-				}
-			} else {
-				framelength = System.nanoTime() - oldTick;
-				if (framelength > 0) {
-					float newfps = (float) (1e9 / (float)framelength);
-					fps = 0.05f * newfps + 0.95f * fps; // Exponential moving average
-				}
-			}
-			
 			// If window is not visible, pause to save resources
 			if(!this.isVisible()) {
 				try {
 					Thread.sleep(1000); // Sleep for 1 second
-					oldTick = System.nanoTime(); // Reset tick to avoid large framelength on resume
+					oldTick = 0; // Avoid a large framelength on resume
 					continue;
 				} catch (InterruptedException e1) {
 					Thread.currentThread().interrupt(); // Restore interrupt status
-					e1.printStackTrace();
-					isRunning = false; // Optionally stop if interrupted
+					isRunning = false;
+					break;
 				}
 			}
 			
-			// Optional frame rate smoothing
-			if(SMOOTHSIMRATE && fps > 0) { // Avoid division by zero if fps is 0
-				try {
-					// Target frame duration based on current smoothed FPS, minus actual frame processing time
-					long targetFrameNanos = (long)(1e9 / fps);
-					long sleepMillis = (targetFrameNanos - framelength) / (long)1e6;
-					if(sleepMillis > 0) {
-						Thread.sleep(sleepMillis);
-					}
-				} catch (InterruptedException e1) {
-					Thread.currentThread().interrupt();
-					e1.printStackTrace();
+			int steps;
+			try {
+				steps = scheduler.awaitFrame();
+			} catch (InterruptedException e1) {
+				Thread.currentThread().interrupt(); // Restore interrupt status
+				isRunning = false;
+				break;
+			}
+			
+			// Calculate smoothed FPS
+			long tick = System.nanoTime();
+			if(oldTick != 0) {
+				framelength = tick - oldTick;
+				if (framelength > 0) {
+					float newfps = (float) (1e9 / (float)framelength);
+					fps = fps == 0 ? newfps : 0.05f * newfps + 0.95f * fps; // Exponential moving average
 				}
 			}
+			oldTick = tick;
+			this.fps = fps;
 			
-			oldTick = System.nanoTime(); // Record time before rendering
+			if(steps > 0) {
+				animating = false;
+				for(int i = 0; i < steps; i++)
+					animating |= update(scheduler.getStepSeconds());
+			}
+			if(animating)
+				scheduler.requestFrame(); // The scene still changes: render the next frame too
 			
-			Graphics g;
-			if(USEVIRTUALIMAGE)
-			{
-				// Ensure VolatileImage is valid and ready
-				createBackBuffer(); // Recreate if null or incompatible
-				do {
-					   GraphicsConfiguration gc = this.getGraphicsConfiguration();
-					   int valCode = volatileImg.validate(gc);
-					   
-					   if(valCode == VolatileImage.IMAGE_INCOMPATIBLE){
-						   createBackBuffer(); // Image lost due to display mode change, recreate
-					   }
-					  
-					   g = volatileImg.getGraphics(); // Get graphics from back buffer
-					   doPaint(g); // Call subclass's core paint method
+			if(renderer.getInterlacing() != interlacing)
+				renderer.setInterlacing(interlacing);
+			doPaint(); // Call subclass's core paint method
+			scale = (float)renderer.getRasterWidth() / renderer.getWidth();
+			frames.publish(renderer); // Hand the frame over and render the next one into a free image
+			LockSupport.unpark(presenter);
+		}
+	}
 	
-					   // Draw FPS and camera info
-					   g.setColor(Color.white);
-					   g.drawString(String.format("FPS: %.2f",fps), 50, 50);
-					   g.drawString(String.format("Camera z=%.2f ",-ztr), 50, 70);
-					   if(fps > maxfps) maxfps = fps;
-					   
-					   // Draw VolatileImage to the screen (using BufferStrategy from JFrame)
-					   Graphics screenGraphics = getBufferStrategy().getDrawGraphics();
-					   screenGraphics.drawImage(volatileImg, 0, 0, this);
-					   screenGraphics.dispose(); // Release system resources
+	/**
+	 * Advances the scene by one simulation step, at a fixed rate independent of the frame rate,
+	 * see {@link FrameScheduler}. Does nothing by default.
+	 * 
+	 * @param dt The duration of the step, in seconds.
+	 * @return true if the scene is animated and still changes, false if it only changes on input:
+	 *         with {@link FrameScheduler#setOnDemand(boolean) on-demand rendering}, no frame is then
+	 *         rendered until the next input.
+	 */
+	protected boolean update(float dt)
+	{
+		return false;
+	}
 	
-					   if (!getBufferStrategy().contentsLost()) {
-						   getBufferStrategy().show(); // Flip/show buffer
-					   }
-				  } while(volatileImg.contentsLost()); // Repeat if content was lost during rendering
+	/**
+	 * Makes the presenting thread present the whole frame again, when the window was exposed.
+	 * The frames are drawn by the presenting thread only.
+	 * @param g The graphics context, unused.
+	 */
+	@Override
+	public void paint(Graphics g)
+	{
+		repaintAll = true;
+		LockSupport.unpark(presenter);
+	}
+	
+	/**
+	 * The presenting loop, run by the {@link #presenter} thread.
+	 * Copies the latest frame rendered to the back buffer of the BufferStrategy, with the FPS, camera Z
+	 * position and resolution scale, refreshed twice a second, and shows it. Waits while no new frame was rendered, and tells the
+	 * {@link TripleBuffer} how old the contents of the back buffer are, so that only what changed
+	 * since is presented.
+	 */
+	private void present()
+	{
+		BufferStrategy strategy = null;
+		long hudTime = 0;
+		float hudZ = Float.NaN;
+		String hudFps = null, hudCamera = null, hudScale = null;
+		while(isRunning)
+		{
+			BufferStrategy current = getBufferStrategy();
+			if(current == null || !frames.hasNewFrame() && current == strategy && !repaintAll) {
+				// Nothing new to show: wait for the render thread
+				LockSupport.parkNanos(this, 100000000L);
+				continue;
 			}
-			else // Standard BufferStrategy rendering
+			if(current != strategy)
 			{
-				   g = getBufferStrategy().getDrawGraphics();
-				   try {
-					   doPaint(g); // Call subclass's core paint method
-	
-					   // Draw FPS and camera info
-					   g.setColor(Color.white);
-					   g.drawString(String.format("FPS: %.2f",fps), 50, 50);
-					   g.drawString(String.format("Camera z=%.2f ",-ztr), 50, 70);
-					   if(fps > maxfps) maxfps = fps;
-					   
-				   } finally {
-					   g.dispose(); // Always dispose graphics context
-				   }
-				   
-				   if (!getBufferStrategy().contentsLost()) {
-					   getBufferStrategy().show(); // Flip/show buffer
-				   }
+				// A new strategy: its buffers hold nothing yet
+				strategy = current;
+				frames.setBufferAge(getBufferAge(strategy.getCapabilities()));
+				frames.invalidatePresentation();
+			}
+			if(repaintAll) {
+				repaintAll = false;
+				frames.invalidatePresentation();
+			}
+			long now = System.nanoTime();
+			if(now - hudTime > HUD_INTERVAL || hudZ != ztr) {
+				// Format the text at a few Hz, not on every frame
+				hudTime = now;
+				hudZ = ztr;
+				hudFps = String.format("FPS: %.2f", fps);
+				hudCamera = String.format("Camera z=%.2f ", -hudZ);
+				hudScale = String.format("Resolution: %d%%", Math.round(scale * 100));
+				if(interlacing != Interlacing.NONE)
+					hudScale += interlacing == Interlacing.ROWS ? " rows" : " checker";
 			}
+			do {
+				do {
+					Graphics g = strategy.getDrawGraphics();
+					try {
+						frames.present(g);
+						
+						// Draw FPS and camera info over a box, as the back buffer is not cleared
+						g.setColor(Color.black);
+						g.fillRect(45, 35, 130, 62);
+						g.setColor(Color.white);
+						g.drawString(hudFps, 50, 50);
+						g.drawString(hudCamera, 50, 70);
+						g.drawString(hudScale, 50, 90);
+					} finally {
+						g.dispose(); // Always dispose graphics context
+					}
+					// A restored back buffer lost what older frames left in it: present everything again
+					if(strategy.contentsRestored())
+						frames.invalidatePresentation();
+				} while(strategy.contentsRestored());
+				strategy.show(); // Flip/show buffer
+				if(strategy.contentsLost())
+					frames.invalidatePresentation();
+			} while(strategy.contentsLost());
 		}
 	}
 
 	/**
-	 * Abstract method to be implemented by subclasses to perform the actual rendering
-	 * for each frame. This is where polygons are transformed and drawn using the
-	 * {@link #renderer}.
-	 * 
-	 * @param g The {@link Graphics} context to draw on. For double buffering, this will typically
-	 *          be the graphics from the back buffer.
+	 * Gets the age of the contents of the back buffers of a buffer strategy, for
+	 * {@link TripleBuffer#setBufferAge(int)}.
+	 * @param caps The capabilities of the strategy.
+	 * @return 1 if the back buffer holds the previous frame after a blit or a copying flip, 2 if the
+	 *         two buffers of a double-buffered flip swap with their contents, 0 if unknown.
 	 */
-	protected abstract void doPaint(Graphics g);
+	private static int getBufferAge(BufferCapabilities caps)
+	{
+		if(!caps.isPageFlipping() || caps.getFlipContents() == BufferCapabilities.FlipContents.COPIED)
+			return 1;
+		if(caps.getFlipContents() == BufferCapabilities.FlipContents.PRIOR)
+			return 2;
+		return 0;
+	}
 
 	/**
-	 * Creates or recreates the {@link VolatileImage} back buffer.
-	 * This is called if {@link #USEVIRTUALIMAGE} is true, initially or if the
-	 * VolatileImage becomes incompatible (e.g., due to display mode changes).
+	 * Abstract method to be implemented by subclasses to perform the actual rendering
+	 * for each frame. This is where polygons are transformed and drawn using the
+	 * {@link #renderer}, from {@link PolygonRenderer#clean()} to {@link PolygonRenderer#commit()}.
+	 * It is called from the rendering thread; the frame is presented by another thread.
 	 */
-	private void createBackBuffer() 
-	{
-		GraphicsConfiguration gc = getGraphicsConfiguration();
-		if (volatileImg == null || volatileImg.getWidth() != getWidth() || volatileImg.getHeight() != getHeight() || volatileImg.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
-			if (volatileImg != null) {
-				volatileImg.flush(); // Release resources of old image
-			}
-			volatileImg = gc.createCompatibleVolatileImage(getWidth(), getHeight());
-		}
-	}
+	protected abstract void doPaint();
 
 	/**
 	 * Handles key typed events. Currently empty.
@@ -237,6 +318,7 @@ public abstract class Launcher extends JFrame implements Runnable, KeyListener,
 	 * <ul>
 	 *   <li>Up arrow or 'W' key: Zooms in (increases {@link #ztr}).</li>
 	 *   <li>Down arrow or 'S' key: Zooms out (decreases {@link #ztr}).</li>
+	 *   <li>'I' key: Switches to the next {@link Interlacing} pattern of the frames.</li>
 	 * </ul>
 	 * @param e The KeyEvent.
 	 */
@@ -246,7 +328,10 @@ public abstract class Launcher extends JFrame implements Runnable, KeyListener,
 		if(e.getKeyCode() == KeyEvent.VK_UP || e.getKeyCode() == KeyEvent.VK_W)
 			this.ztr += .2f;
 		if(e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_S)
-			this.ztr -= .2f;		
+			this.ztr -= .2f;
+		if(e.getKeyCode() == KeyEvent.VK_I)
+			this.interlacing = Interlacing.values()[(interlacing.ordinal() + 1) % Interlacing.values().length];
+		scheduler.requestFrame();
 	}
 
 	/**
@@ -312,6 +397,7 @@ public abstract class Launcher extends JFrame implements Runnable, KeyListener,
 		// Ensure renderer is not null before calling hitTest
 		if (renderer != null) {
 			renderer.hitTest(x, y, handler);
+			scheduler.requestFrame(); // The hit test is run by the next frame
 		}
 	}
 
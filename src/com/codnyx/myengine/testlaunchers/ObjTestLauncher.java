@@ -1,6 +1,4 @@
 package com.codnyx.myengine.testlaunchers;
-import java.awt.Color;
-import java.awt.Graphics;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -8,7 +6,9 @@ import java.io.InputStreamReader;
 
 import javax.swing.JFrame;
 
+import com.codnyx.myengine.LodMesh;
 import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.MeshletBuilder;
 import com.codnyx.myengine.ObjParser;
 
 /**
@@ -39,7 +39,10 @@ public class ObjTestLauncher extends Launcher
 	}
 		
 	/**
-	 * Initializes the test scene by loading the "cow.obj" model from the classpath resources.
+	 * Initializes the test scene by loading the "cow.obj" model from the classpath resources,
+	 * with smooth normals and triangles reordered for vertex reuse and overdraw, and generates
+	 * its levels of detail so that the cow is drawn with fewer triangles when zoomed out,
+	 * each split into meshlets.
 	 * The loaded mesh is stored in the {@link #m} field.
 	 * If an IOException occurs during parsing, an error is printed to the console.
 	 */
@@ -54,7 +57,12 @@ public class ObjTestLauncher extends Launcher
 				return;
 			}
 			try {
-				this.m = new ObjParser().parseStream(new BufferedReader(new InputStreamReader(stream)));
+				ObjParser parser = new ObjParser();
+				parser.setOptimizeMesh(true);
+				parser.setDefaultSmoothingGroup(1); // The model has no smoothing groups
+				Mesh base = parser.parseStream(new BufferedReader(new InputStreamReader(stream)));
+				this.m = LodMesh.generate(base, 5, LodMesh.DEFAULT_RATIO, 200);
+				this.m.buildMeshlets(new MeshletBuilder()); // Cull back-facing clusters as a whole
 			} catch (IOException e) {
 				System.err.println("Error loading or parsing OBJ file /cow.obj:");
 				e.printStackTrace();
@@ -63,27 +71,33 @@ public class ObjTestLauncher extends Launcher
 	}	
 
 	// int counter = -1; // Unused field
-	/** The step size for angle increment per frame, used for rotation. */
+	/** The step size for angle increment per simulation step, used for rotation. */
 	final float angle_step = (float) (Math.PI/360);
-	/** Current angle of rotation, incremented each frame. */
+	/** Current angle of rotation, incremented each simulation step. */
 	float angle = 0;
 	
+	/**
+	 * Advances the rotation angle by one step.
+	 * @param dt The duration of the step, in seconds.
+	 * @return true: the scene is animated.
+	 */
+	@Override
+	protected boolean update(float dt)
+	{
+		angle += angle_step; // Increment rotation angle
+		return true;
+	}
+
 	/**
 	 * Renders the scene for the current frame.
-	 * It clears the renderer, sets a black background, updates the rotation angle,
+	 * It clears the renderer,
 	 * applies transformations (rotation and translation based on {@link #ztr}),
-	 * renders the loaded mesh ({@link #m}), and then commits the frame to the screen.
-	 * 
-	 * @param g The {@link Graphics} context to draw on (typically from the back buffer).
+	 * renders the loaded mesh ({@link #m}), and then completes the frame for the presenting thread.
 	 */
 	@Override
-	protected void doPaint(Graphics g) 
+	protected void doPaint() 
 	{
 		renderer.clean(); // Clear internal image and Z-buffer
-		g.setColor(Color.black);
-		g.fillRect(0, 0, getWidth(), getHeight()); // Use getWidth()/getHeight() for dynamic window size
-
-		angle += angle_step; // Increment rotation angle
 		
 		// Set up model transformation: identity -> rotate -> translate
 		a.loadIdentity();
@@ -93,10 +107,11 @@ public class ObjTestLauncher extends Launcher
 		a.translateTo(0,0,ztr); // Apply camera zoom translation
 		
 		if (m != null) { // Ensure mesh was loaded
-			m.render(renderer, g); // Render the mesh
+			m.render(renderer); // Render the mesh
 		}
-		
-		renderer.commit(g); // Draw the rendered image to the screen
+		renderer.setSceneTransformation(a); // The mesh is the whole scene: interlaced frames follow it
+
+		renderer.commit(); // Complete the frame, presented by the presenting thread
 	}
 
 	/**
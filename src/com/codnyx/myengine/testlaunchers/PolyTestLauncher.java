@@ -1,6 +1,5 @@
 package com.codnyx.myengine.testlaunchers;
 import java.awt.Color;
-import java.awt.Graphics;
 
 import javax.swing.JFrame;
 
@@ -78,26 +77,32 @@ public class PolyTestLauncher extends Launcher
 		face = new Polygon(new Vertex[]{fv1,fv2,fv3,fv4});
 	}	
 	
-	/** The step size for angle increment per frame, used for rotation. */
+	/** The step size for angle increment per simulation step, used for rotation. */
 	final float angle_step = (float) (Math.PI/360);
-	/** Current angle of rotation, incremented each frame. */
+	/** Current angle of rotation, incremented each simulation step. */
 	float angle = 0;
 	
+	/**
+	 * Advances the rotation angle by one step.
+	 * @param dt The duration of the step, in seconds.
+	 * @return true: the scene is animated.
+	 */
+	@Override
+	protected boolean update(float dt)
+	{
+		angle += angle_step; // Increment rotation angle
+		return true;
+	}
+
 	/**
 	 * Renders the scene for the current frame.
-	 * Clears the renderer, sets a black background, updates the rotation angle,
+	 * Clears the renderer,
 	 * and applies various transformations to the cube and the separate face before rendering them.
-	 * 
-	 * @param g The {@link Graphics} context to draw on (typically from the back buffer).
 	 */
 	@Override
-	protected void doPaint(Graphics g) 
+	protected void doPaint() 
 	{
 		renderer.clean(); // Clear image and Z-buffer
-		g.setColor(Color.black);
-		g.fillRect(0, 0, getWidth(), getHeight()); // Fill background
-
-		angle += angle_step; // Increment rotation angle
 		
 		// --- Render the Cube ---
 		a.loadIdentity(); // Reset model transformation matrix
@@ -106,7 +111,7 @@ public class PolyTestLauncher extends Launcher
 //		a.rotateZ(4*angle); // Optional Z rotation
 		a.translateTo(0,0,ztr); // Translate cube based on camera zoom
 		for(Polygon poly : cube) { // Use a different variable name to avoid conflict with 'face' field
-			if (poly != null) renderer.render(g,poly);
+			if (poly != null) renderer.render(poly);
 		}
 				
 		// --- Render the first instance of the separate face ---
@@ -114,16 +119,16 @@ public class PolyTestLauncher extends Launcher
 		a.rotateZ(angle);         // Rotate around Z
 		a.translateTo(5,0,ztr);   // Translate it to the right and apply camera zoom
 		a.rotateZ(angle);         // Rotate again around its new local Z (after translation)
-		if (face != null) renderer.render(g, face);
+		if (face != null) renderer.render(face);
 
 		// --- Render the second instance of the separate face ---
 		a.loadIdentity();
 		a.translateTo(0,0,ztr/2); // Translate closer to the camera
 		a.rotateY(angle);         // Rotate around Y
 		a.translateTo(0,0,ztr);   // Then translate it further back relative to its new orientation
-		if (face != null) renderer.render(g, face);
+		if (face != null) renderer.render(face);
 		
-		renderer.commit(g); // Draw the rendered image to the screen
+		renderer.commit(); // Complete the frame, presented by the presenting thread
 	}
 	
 	/**
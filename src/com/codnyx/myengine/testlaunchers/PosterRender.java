@@ -0,0 +1,66 @@
+package com.codnyx.myengine.testlaunchers;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+
+import com.codnyx.myengine.BandedRenderer;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.ObjParser;
+
+/**
+ * A command line tool rendering the cow model to a PPM image of any size with a {@link BandedRenderer},
+ * which only holds one band of the image in memory at a time.
+ * <p>
+ * Usage: {@code PosterRender output.ppm [width height [bandHeight]]}, defaults 7680x4320 and bands of
+ * {@link BandedRenderer#DEFAULT_BAND_BYTES}.
+ */
+public class PosterRender
+{
+	/**
+	 * Renders the poster.
+	 *
+	 * @param args The output file, then optionally the size of the image and the band height.
+	 * @throws IOException If the model cannot be read or the image cannot be written.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 1)
+		{
+			System.err.println("PosterRender: usage: PosterRender output.ppm [width height [bandHeight]]");
+			return;
+		}
+		int width = args.length > 2 ? Integer.parseInt(args[1]) : 7680;
+		int height = args.length > 2 ? Integer.parseInt(args[2]) : 4320;
+		BandedRenderer renderer = args.length > 3
+				? new BandedRenderer(width, height, Integer.parseInt(args[3]))
+				: new BandedRenderer(width, height);
+		renderer.setPerspective(Math.PI / 4, -30f, -1f);
+
+		InputStream stream = PosterRender.class.getResourceAsStream("/cow.obj");
+		if(stream == null)
+		{
+			System.err.println("PosterRender: could not find resource /cow.obj. Make sure it's in the classpath.");
+			return;
+		}
+		ObjParser parser = new ObjParser();
+		parser.setDefaultSmoothingGroup(1); // The model has no smoothing groups
+		Mesh cow = parser.parseStream(new BufferedReader(new InputStreamReader(stream)));
+
+		long start = System.nanoTime();
+		renderer.getModelT().loadIdentity().rotateY(0.6f).translateTo(0, 0, -9f);
+		renderer.add(cow);
+		try(OutputStream out = new BufferedOutputStream(new FileOutputStream(args[0]), 1 << 16))
+		{
+			renderer.render(new BandedRenderer.PpmSink(out, width, height));
+		}
+		Runtime runtime = Runtime.getRuntime();
+		System.out.printf("%dx%d in bands of %d rows: %.0f ms, %d MB of heap in use%n", width, height,
+				renderer.getBandHeight(), (System.nanoTime() - start) / 1e6,
+				(runtime.totalMemory() - runtime.freeMemory()) >> 20);
+	}
+}
@@ -0,0 +1,122 @@
+package com.codnyx.myengine.testlaunchers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A load generator for the {@link RenderServer}, measuring its throughput and latency on this machine.
+ * <p>
+ * Each connection sends its requests one after the other, waiting for each response (a closed loop),
+ * for random models of a list and random views among a few yaw angles, so that concurrent requests
+ * may share a batch or a render. When all the requests are answered, the throughput and the 50th, 99th
+ * percentiles and maximum of the latencies are reported.
+ * <p>
+ * Usage: {@code RenderLoadGenerator model[,model...] [connections [requests [raw|png [port]]]]}, defaults
+ * 16 connections of 200 requests for raw frames, on port {@value RenderServer#DEFAULT_PORT}.
+ */
+public class RenderLoadGenerator
+{
+	/** Number of distinct yaw angles of the views requested. */
+	private static final int YAWS = 8;
+
+	/**
+	 * Runs the load.
+	 *
+	 * @param args The model names, then optionally the number of connections, the number of requests
+	 *        per connection, the frame format and the port.
+	 * @throws Exception If a connection fails.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if(args.length < 1)
+		{
+			System.err.println("RenderLoadGenerator: usage: RenderLoadGenerator model[,model...] [connections [requests [raw|png [port]]]]");
+			return;
+		}
+		String[] models = args[0].split(",");
+		int connections = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		int format = args.length > 3 && args[3].equalsIgnoreCase("png") ? RenderServer.PNG : RenderServer.RAW;
+		int port = args.length > 4 ? Integer.parseInt(args[4]) : RenderServer.DEFAULT_PORT;
+
+		long[][] latencies = new long[connections][requests];
+		AtomicLong bytes = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		Thread[] threads = new Thread[connections];
+		Exception[] failures = new Exception[connections];
+		long start = System.nanoTime();
+		for(int c = 0; c < connections; c++)
+		{
+			int connection = c;
+			threads[c] = new Thread(() -> {
+				Random random = new Random(connection);
+				try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port))
+				{
+					socket.setTcpNoDelay(true);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+					DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+					byte[] data = new byte[0];
+					for(int i = 0; i < requests; i++)
+					{
+						long sent = System.nanoTime();
+						out.writeInt(i);
+						out.writeUTF(models[random.nextInt(models.length)]);
+						out.writeFloat((float)(2 * Math.PI * random.nextInt(YAWS) / YAWS));
+						out.writeFloat(0.35f);
+						out.writeFloat(1f);
+						out.writeByte(format);
+						out.flush();
+
+						int id = in.readInt();
+						int status = in.readInt();
+						in.readInt(); // width
+						in.readInt(); // height
+						int length = in.readInt();
+						if(data.length < length)
+							data = new byte[length];
+						in.readFully(data, 0, length);
+						latencies[connection][i] = System.nanoTime() - sent;
+						bytes.addAndGet(length);
+						if(id != i || status != RenderServer.OK)
+							errors.incrementAndGet();
+					}
+				} catch(IOException e) {
+					failures[connection] = e;
+				}
+			}, "RenderLoadGenerator " + c);
+			threads[c].start();
+		}
+		for(Thread t: threads)
+			t.join();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		for(Exception e: failures)
+			if(e != null)
+				throw e;
+
+		long[] all = new long[connections * requests];
+		for(int c = 0; c < connections; c++)
+			System.arraycopy(latencies[c], 0, all, c * requests, requests);
+		Arrays.sort(all);
+		System.out.printf("%d requests over %d connections in %.2f s: %.1f requests/s, %.1f MB/s, %d errors%n",
+				all.length, connections, seconds, all.length / seconds, bytes.get() / seconds / (1 << 20), errors.get());
+		System.out.printf("Latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", percentile(all, 50) / 1e6,
+				percentile(all, 99) / 1e6, all[all.length - 1] / 1e6);
+	}
+
+	/**
+	 * Returns a percentile of sorted values, by the nearest rank method.
+	 */
+	private static long percentile(long[] sorted, int p)
+	{
+		int rank = (int)Math.ceil(p / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)];
+	}
+}
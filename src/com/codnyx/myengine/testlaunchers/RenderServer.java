@@ -0,0 +1,466 @@
+package com.codnyx.myengine.testlaunchers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+import com.codnyx.myengine.TextureCache;
+
+/**
+ * A local render service: a TCP server rendering views of the OBJ models of a directory on request.
+ * <p>
+ * Each connection is served by an I/O thread (virtual threads on Java 21 and later) which reads
+ * requests and queues them by model. A fixed pool of rasterizing threads, each with its own render
+ * context of one shared {@link RenderConfig}, takes all the requests queued for the model waiting
+ * longest as one batch. Under load, requests thus coalesce into batches which keep a model in the
+ * processor caches, and requests in a batch for the same view share one render, from the model
+ * transformation and meshlet culling to the encoding. An idle server renders a request as soon as
+ * it arrives. When {@link #MAX_PENDING} requests are queued, connections stop being read, which pushes
+ * back on the clients.
+ * <p>
+ * The protocol is binary, big-endian. A request is: the request id (int), the model name
+ * (modified UTF-8, as written by {@link DataOutputStream#writeUTF(String)}: the file name without
+ * ".obj"), yaw, pitch and distance (floats, as in {@link CatalogRender}: radians, 1 fitting the model
+ * in the view), and the format (byte, {@link #RAW} or {@link #PNG}). Clients may send requests
+ * without waiting for the responses, which come in the order they are ready. A response is: the
+ * request id (int), the status ({@link #OK}, {@link #UNKNOWN_MODEL} or {@link #RENDER_FAILED}), the width and height of the
+ * frame (ints), the length of the frame data (int), then the data: ARGB ints row by row for
+ * {@link #RAW}, a PNG file for {@link #PNG}.
+ * <p>
+ * Usage: {@code RenderServer modelDir [port [size [threads]]]}, defaults {@value #DEFAULT_PORT},
+ * 256x256 frames and one rasterizing thread per processor. The server only listens on the loopback
+ * interface. See {@link RenderLoadGenerator} for a client.
+ */
+public class RenderServer
+{
+	/** The default port. */
+	public static final int DEFAULT_PORT = 7878;
+	/** Frame format: raw ARGB pixels. */
+	public static final int RAW = 0;
+	/** Frame format: PNG image. */
+	public static final int PNG = 1;
+	/** Response status: the frame follows. */
+	public static final int OK = 0;
+	/** Response status: no model of the requested name; no data follows. */
+	public static final int UNKNOWN_MODEL = 1;
+	/** Response status: rendering the batch of the request failed; no data follows. */
+	public static final int RENDER_FAILED = 2;
+	/** Maximum number of requests queued before connections stop being read. */
+	public static final int MAX_PENDING = 4096;
+
+	/** The models by name, never modified once loaded. */
+	private final Map<String, Mesh> models;
+	/** Scale of each model bringing its bounding sphere to a radius of 1. */
+	private final Map<String, Float> scales;
+	/** The configuration of the views, shared by the render contexts. */
+	private final RenderConfig config;
+	/** The render context of each rasterizing thread. */
+	private final ThreadLocal<PolygonRenderer> contexts;
+	/** Threads serving the connections and sending the responses. */
+	private final ExecutorService io = CatalogRender.newVirtualThreadExecutor("RenderServer I/O");
+	/** The requests waiting to be rendered, by model, the model waiting longest first. Guarded by this. */
+	private final LinkedHashMap<String, List<Request>> pending = new LinkedHashMap<String, List<Request>>();
+	/** Number of requests in {@link #pending}. Guarded by this. */
+	private int pendingCount;
+
+	/** Number of requests received. */
+	private final AtomicLong requests = new AtomicLong();
+	/** Number of batches rendered. */
+	private final AtomicLong batches = new AtomicLong();
+	/** Number of views rendered, smaller than the number of requests when batches share views. */
+	private final AtomicLong renders = new AtomicLong();
+
+	/**
+	 * Constructs a server and starts its rasterizing threads.
+	 * @param models The models by name, which are only read, by all the rasterizing threads.
+	 * @param size The width and height of the frames.
+	 * @param threads The number of rasterizing threads.
+	 */
+	public RenderServer(Map<String, Mesh> models, int size, int threads)
+	{
+		this.models = models;
+		this.scales = new HashMap<String, Float>();
+		for(Map.Entry<String, Mesh> e: models.entrySet())
+			scales.put(e.getKey(), 1 / CatalogRender.getRadius(e.getValue()));
+		this.config = new RenderConfig(size, size).withPerspective(CatalogRender.FIELD_OF_VIEW, -30f, -1f);
+		this.contexts = ThreadLocal.withInitial(config::newContext);
+		for(int i = 0; i < threads; i++)
+		{
+			Thread t = new Thread(this::rasterize, "RenderServer rasterizer " + i);
+			t.setDaemon(true);
+			t.start();
+		}
+	}
+
+	/**
+	 * Accepts connections until the socket is closed.
+	 * @param server The listening socket.
+	 * @throws IOException If accepting fails.
+	 */
+	public void serve(ServerSocket server) throws IOException
+	{
+		while(true)
+		{
+			Socket socket = server.accept();
+			socket.setTcpNoDelay(true);
+			io.execute(() -> readRequests(socket));
+		}
+	}
+
+	/**
+	 * Reads the requests of a connection until it is closed, queuing them by model.
+	 */
+	private void readRequests(Socket socket)
+	{
+		try(Socket s = socket)
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			Connection connection = new Connection(new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 1 << 16)));
+			while(true)
+			{
+				int id;
+				try {
+					id = in.readInt();
+				} catch(EOFException e) {
+					break;
+				}
+				String model = in.readUTF();
+				View view = new View(in.readFloat(), in.readFloat(), in.readFloat());
+				int format = in.readByte();
+				requests.incrementAndGet();
+				enqueue(new Request(connection, id, model, view, format));
+			}
+			// Wait for the responses still to come before closing
+			connection.awaitIdle();
+		} catch(IOException e) {
+			System.err.println("RenderServer: connection closed: " + e);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues a request, waiting while {@link #MAX_PENDING} requests are queued.
+	 */
+	private synchronized void enqueue(Request request) throws InterruptedException
+	{
+		while(pendingCount >= MAX_PENDING)
+			wait();
+		request.connection.started();
+		List<Request> batch = pending.get(request.model);
+		if(batch == null)
+			pending.put(request.model, batch = new ArrayList<Request>());
+		batch.add(request);
+		pendingCount++;
+		notifyAll();
+	}
+
+	/**
+	 * Takes all the requests queued for the model waiting longest, waiting for one if there are none.
+	 */
+	private synchronized List<Request> nextBatch() throws InterruptedException
+	{
+		while(pending.isEmpty())
+			wait();
+		Iterator<List<Request>> first = pending.values().iterator();
+		List<Request> batch = first.next();
+		first.remove();
+		pendingCount -= batch.size();
+		notifyAll();
+		return batch;
+	}
+
+	/**
+	 * The loop of a rasterizing thread.
+	 */
+	private void rasterize()
+	{
+		try {
+			while(true)
+			{
+				List<Request> batch = nextBatch();
+				try {
+					render(batch);
+				} catch(RuntimeException e) {
+					System.err.println("RenderServer: could not render " + batch.get(0).model + ": " + e);
+					// Every request must be answered, or its connection never closes
+					for(Request r: batch)
+						if(!r.answered)
+							respond(r, RENDER_FAILED, null);
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Renders a batch of requests for the same model, once per distinct view, and sends the responses.
+	 */
+	private void render(List<Request> batch)
+	{
+		batches.incrementAndGet();
+		String name = batch.get(0).model;
+		Mesh mesh = models.get(name);
+		if(mesh == null)
+		{
+			for(Request r: batch)
+				respond(r, UNKNOWN_MODEL, null);
+			return;
+		}
+		float scale = scales.get(name);
+		LinkedHashMap<View, List<Request>> views = new LinkedHashMap<View, List<Request>>();
+		for(Request r: batch)
+		{
+			List<Request> same = views.get(r.view);
+			if(same == null)
+				views.put(r.view, same = new ArrayList<Request>());
+			same.add(r);
+		}
+		PolygonRenderer context = contexts.get();
+		for(Map.Entry<View, List<Request>> e: views.entrySet())
+		{
+			View view = e.getKey();
+			context.clean();
+			CatalogRender.setView(context.getModelT(), scale, view.yaw, view.pitch, view.distance);
+			mesh.render(context);
+			context.commit();
+			renders.incrementAndGet();
+			byte[][] encoded = new byte[2][];
+			for(Request r: e.getValue())
+			{
+				int format = r.format == PNG ? PNG : RAW;
+				if(encoded[format] == null)
+					encoded[format] = encode(context, format);
+				respond(r, OK, encoded[format]);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the frame of a render context.
+	 */
+	private byte[] encode(PolygonRenderer context, int format)
+	{
+		if(format == RAW)
+		{
+			int[] pixels = context.getColorBuffer();
+			ByteBuffer bytes = ByteBuffer.allocate(4 * config.getWidth() * config.getHeight());
+			bytes.asIntBuffer().put(pixels, 0, config.getWidth() * config.getHeight());
+			return bytes.array();
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(context.getImage(), "png", out);
+		} catch(IOException e) {
+			throw new IllegalStateException(e); // Not thrown by in-memory streams
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Sends a response from an I/O thread, so that slow clients do not hold up the rasterizers.
+	 */
+	private void respond(Request request, int status, byte[] data)
+	{
+		request.answered = true;
+		io.execute(() -> request.connection.send(request.id, status, config.getWidth(), config.getHeight(), data));
+	}
+
+	/**
+	 * Returns a summary of the work done so far.
+	 * @return The numbers of requests, batches and renders.
+	 */
+	public String getStatistics()
+	{
+		long b = batches.get();
+		return String.format(Locale.ROOT, "%d requests, %d batches of %.1f requests, %d renders", requests.get(), b,
+				b > 0 ? requests.get() / (double)b : 0, renders.get());
+	}
+
+	/**
+	 * A connection: responses are written by several threads, one at a time.
+	 */
+	private static final class Connection
+	{
+		private final DataOutputStream out;
+		/** Number of requests received and not yet responded to. Guarded by this. */
+		private int inFlight;
+		/** False once writing failed. */
+		private volatile boolean open = true;
+
+		Connection(DataOutputStream out)
+		{
+			this.out = out;
+		}
+
+		synchronized void started()
+		{
+			inFlight++;
+		}
+
+		synchronized void send(int id, int status, int width, int height, byte[] data)
+		{
+			try {
+				if(open)
+				{
+					out.writeInt(id);
+					out.writeInt(status);
+					out.writeInt(width);
+					out.writeInt(height);
+					out.writeInt(data != null ? data.length : 0);
+					if(data != null)
+						out.write(data);
+					out.flush();
+				}
+			} catch(IOException e) {
+				open = false;
+			} finally {
+				inFlight--;
+				notifyAll();
+			}
+		}
+
+		synchronized void awaitIdle() throws InterruptedException
+		{
+			while(inFlight > 0)
+				wait();
+		}
+	}
+
+	/**
+	 * A camera pose, equal to another one with the same parameters.
+	 */
+	private static final class View
+	{
+		final float yaw, pitch, distance;
+
+		View(float yaw, float pitch, float distance)
+		{
+			this.yaw = yaw;
+			this.pitch = pitch;
+			this.distance = distance;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof View))
+				return false;
+			View v = (View)o;
+			return Float.compare(yaw, v.yaw) == 0 && Float.compare(pitch, v.pitch) == 0
+					&& Float.compare(distance, v.distance) == 0;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (Float.floatToIntBits(yaw) * 31 + Float.floatToIntBits(pitch)) * 31 + Float.floatToIntBits(distance);
+		}
+	}
+
+	/**
+	 * A request of a client.
+	 */
+	private static final class Request
+	{
+		final Connection connection;
+		final int id;
+		final String model;
+		final View view;
+		final int format;
+		/** True once a response is queued. Only used by the rasterizing thread of the batch. */
+		boolean answered;
+
+		Request(Connection connection, int id, String model, View view, int format)
+		{
+			this.connection = connection;
+			this.id = id;
+			this.model = model;
+			this.view = view;
+			this.format = format;
+		}
+	}
+
+	/**
+	 * Loads the models and serves requests.
+	 *
+	 * @param args The model directory, then optionally the port, the size of the frames and the
+	 *        number of rasterizing threads.
+	 * @throws IOException If the server socket cannot be opened.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 1)
+		{
+			System.err.println("RenderServer: usage: RenderServer modelDir [port [size [threads]]]");
+			return;
+		}
+		File[] files = new File(args[0]).listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".obj"));
+		if(files == null)
+		{
+			System.err.println("RenderServer: " + args[0] + " is not a directory");
+			return;
+		}
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+		int size = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		TextureCache textures = new TextureCache();
+		Map<String, Mesh> models = new HashMap<String, Mesh>();
+		for(File file: files)
+		{
+			try {
+				models.put(file.getName().substring(0, file.getName().length() - 4), CatalogRender.loadModel(file, textures));
+			} catch(IOException | RuntimeException e) {
+				System.err.println("RenderServer: could not load " + file + ": " + e);
+			}
+		}
+		RenderServer renderServer = new RenderServer(models, size, threads);
+		try(ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress()))
+		{
+			System.out.printf("Serving %d models as %dx%d frames with %d threads on port %d%n", models.size(),
+					size, size, threads, server.getLocalPort());
+			Thread statistics = new Thread(() -> {
+				String last = "";
+				try {
+					while(true)
+					{
+						Thread.sleep(5000);
+						String current = renderServer.getStatistics();
+						if(!current.equals(last))
+							System.out.println(current);
+						last = current;
+					}
+				} catch(InterruptedException e) {
+				}
+			}, "RenderServer statistics");
+			statistics.setDaemon(true);
+			statistics.start();
+			renderServer.serve(server);
+		}
+	}
+}
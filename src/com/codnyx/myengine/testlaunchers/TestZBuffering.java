@@ -1,7 +1,6 @@
 package com.codnyx.myengine.testlaunchers;
 
 import java.awt.Color;
-import java.awt.Graphics;
 
 import javax.swing.JFrame;
 
@@ -74,32 +73,28 @@ public class TestZBuffering extends Launcher
 
 	/**
 	 * Renders the scene for the current frame.
-	 * It clears the renderer, sets a black background, and then renders the two faces
+	 * It clears the renderer, then renders the two faces
 	 * with opposing Y-rotations and the standard camera translation ({@link #ztr}).
 	 * This setup ensures the faces intersect and test the Z-buffer.
-	 * 
-	 * @param g The {@link Graphics} context to draw on (typically from the back buffer).
 	 */
 	@Override
-	protected void doPaint(Graphics g)
+	protected void doPaint()
 	{
 		renderer.clean(); // Clear image and Z-buffer
-		g.setColor(Color.black);
-		g.fillRect(0, 0, getWidth(), getHeight()); // Fill background
 
 		// Render the first face (red), rotated by -angle around Y
 		a.loadIdentity();
 		a.rotateY(-angle);
 		a.translateTo(0,0,ztr); // Apply camera zoom
-		if (face1 != null) renderer.render(g, face1);
+		if (face1 != null) renderer.render(face1);
 
 		// Render the second face (blue), rotated by +angle around Y
 		a.loadIdentity();
 		a.rotateY(angle);
 		a.translateTo(0,0,ztr); // Apply camera zoom
-		if (face2 != null) renderer.render(g, face2);
+		if (face2 != null) renderer.render(face2);
 		
-		renderer.commit(g); // Draw the rendered image to the screen
+		renderer.commit(); // Complete the frame, presented by the presenting thread
 	}
 	
 	/**
@@ -0,0 +1,104 @@
+package com.codnyx.myengine.testlaunchers;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.TexelLayout;
+import com.codnyx.myengine.Vertex;
+
+/**
+ * A command line benchmark comparing the texel layouts of {@link ImageTexture} ({@link TexelLayout}).
+ * <p>
+ * A large textured quad is rendered offscreen, filling the viewport with about one texel per pixel,
+ * and rotated around the view axis in steps. At 0 degrees the spans walk along the rows of the
+ * texture, which favours the row-major layout; at 90 degrees they walk along its columns. For each
+ * angle and layout the average time per frame is printed.
+ * <p>
+ * Usage: {@code TextureLayoutBenchmark [textureSize [frames]]}, defaults 2048 and 40.
+ */
+public class TextureLayoutBenchmark
+{
+	/** Width of the offscreen viewport. */
+	private static final int WIDTH = 800;
+	/** Height of the offscreen viewport. */
+	private static final int HEIGHT = 600;
+	/** Distance of the quad from the eye. */
+	private static final float DISTANCE = 10;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Optional texture size (a power of two) and number of timed frames per measurement.
+	 */
+	public static void main(String[] args)
+	{
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+		int frames = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+
+		// Random texels, so that no layout benefits from repeating content
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(1);
+		for(int y = 0; y < size; y++)
+			for(int x = 0; x < size; x++)
+				image.setRGB(x, y, 0xFF000000 | random.nextInt());
+
+		PolygonRenderer renderer = new PolygonRenderer(WIDTH, HEIGHT);
+		double yangle = Math.PI / 4;
+		renderer.setPerspective(yangle, -30f, -1f);
+		// Quad side giving one texel per pixel at the given distance
+		float side = size / renderer.getProjT().getFocalLength() * DISTANCE;
+		TexelLayout[] layouts = TexelLayout.values();
+		Polygon[] quads = new Polygon[layouts.length];
+		for(int i = 0; i < layouts.length; i++)
+			quads[i] = createQuad(side / 2, new ImageTexture(image, layouts[i]));
+
+		System.out.println("Texture " + size + "x" + size + ", " + WIDTH + "x" + HEIGHT + " pixels, ms per frame");
+		StringBuilder header = new StringBuilder("angle");
+		for(TexelLayout layout: layouts)
+			header.append('\t').append(layout);
+		System.out.println(header);
+		// The first pass warms up the JIT and is not reported
+		for(int pass = 0; pass < 2; pass++)
+		{
+			for(int degrees = 0; degrees <= 90; degrees += 15)
+			{
+				StringBuilder line = new StringBuilder(Integer.toString(degrees));
+				for(int i = 0; i < layouts.length; i++)
+				{
+					float angle = (float)Math.toRadians(degrees);
+					long start = System.nanoTime();
+					for(int f = 0; f < frames; f++)
+					{
+						renderer.clean();
+						renderer.getModelT().loadIdentity().rotateZ(angle).translateTo(0, 0, -DISTANCE);
+						renderer.render(quads[i]);
+					}
+					double ms = (System.nanoTime() - start) / 1e6 / frames;
+					line.append('\t').append(String.format("%.2f", ms));
+				}
+				if(pass == 1)
+					System.out.println(line);
+			}
+		}
+	}
+
+	/**
+	 * Creates a square facing the eye, centered on the origin, mapped once with the texture.
+	 */
+	private static Polygon createQuad(float half, ImageTexture texture)
+	{
+		Vertex[] vs = {
+			new Vertex(new float[]{-half, -half, 0}), new Vertex(new float[]{half, -half, 0}),
+			new Vertex(new float[]{half, half, 0}), new Vertex(new float[]{-half, half, 0})
+		};
+		float[][] uvs = {{0, 1}, {1, 1}, {1, 0}, {0, 0}};
+		for(int i = 0; i < vs.length; i++)
+			vs[i].setTexCoord(uvs[i]);
+		Polygon quad = new Polygon(vs);
+		quad.texture = texture;
+		return quad;
+	}
+}
@@ -0,0 +1,80 @@
+package com.codnyx.myengine.tests;
+
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.RenderConfig;
+import com.codnyx.myengine.Vertex;
+
+import java.awt.Color;
+
+/**
+ * The view and the shapes shared by the tests of frame rendering and of meshes.
+ */
+final class RenderFixture {
+
+    /** Size of the test view, in pixels. */
+    static final int WIDTH = 80, HEIGHT = 60;
+
+    private RenderFixture() {
+    }
+
+    /** Returns a WIDTH x HEIGHT view, see {@link #config(int, int)}. */
+    static RenderConfig config() {
+        return config(WIDTH, HEIGHT);
+    }
+
+    /** Returns a view with a vertical field of 60 degrees, seeing from 1 to 30 units in front of the eye. */
+    static RenderConfig config(int width, int height) {
+        return new RenderConfig(width, height).withPerspective(Math.PI / 3, -30f, -1f);
+    }
+
+    /** Returns a square in the plane z=0, centered on the origin and facing the eye. */
+    static Polygon square(float half, Color color) {
+        return new Polygon(new float[][]{{-half, -half, 0}, {half, -half, 0}, {half, half, 0}, {-half, half, 0}}, color);
+    }
+
+    /** Returns a mesh of a single {@link #square(float, Color) square}. */
+    static Mesh squareMesh(float half, Color color) {
+        Mesh mesh = new Mesh();
+        mesh.addPolygon(square(half, color));
+        return mesh;
+    }
+
+    /**
+     * Returns a torus of radii 1 and 0.4 around the z axis, in triangles which share their vertices,
+     * so that every edge is shared.
+     * @param colored True to color the vertices by their position on the torus, false to leave them uncolored.
+     */
+    static Mesh torus(int rings, int sides, boolean colored) {
+        Vertex[][] grid = new Vertex[rings][sides];
+        for (int i = 0; i < rings; i++) {
+            for (int j = 0; j < sides; j++) {
+                double u = 2 * Math.PI * i / rings, v = 2 * Math.PI * j / sides;
+                float r = (float) (1 + 0.4 * Math.cos(v));
+                float[] point = {r * (float) Math.cos(u), r * (float) Math.sin(u), 0.4f * (float) Math.sin(v)};
+                grid[i][j] = colored
+                        ? new Vertex(point, new Color(Color.HSBtoRGB(i / (float) rings, 0.8f, 0.5f + 0.5f * j / sides)))
+                        : new Vertex(point);
+            }
+        }
+        Mesh mesh = new Mesh();
+        for (int i = 0; i < rings; i++) {
+            for (int j = 0; j < sides; j++) {
+                Vertex a = grid[i][j], b = grid[(i + 1) % rings][j];
+                Vertex c = grid[(i + 1) % rings][(j + 1) % sides], d = grid[i][(j + 1) % sides];
+                mesh.addPolygon(new Polygon(new Vertex[]{a, b, c}));
+                mesh.addPolygon(new Polygon(new Vertex[]{a, c, d}));
+            }
+        }
+        return mesh;
+    }
+
+    /** Counts the pixels that differ between two frames. */
+    static int differences(int[] a, int[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++)
+            if (a[i] != b[i])
+                count++;
+        return count;
+    }
+}
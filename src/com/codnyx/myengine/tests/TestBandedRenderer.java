@@ -0,0 +1,139 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.BandedRenderer;
+import com.codnyx.myengine.DepthFormat;
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.Vertex;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class TestBandedRenderer {
+
+    private static final int WIDTH = 90, HEIGHT = 70;
+
+    private Polygon createQuad(float side, float z, Color color) {
+        return new Polygon(new float[][]{{-side, -side, z}, {side, -side, z}, {side, side, z}, {-side, side, z}}, color);
+    }
+
+    private Polygon createTexturedQuad(float side, float z) {
+        BufferedImage img = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++)
+                img.setRGB(x, y, ((x + y) & 1) == 0 ? 0xFFFFFFFF : 0xFF0000FF);
+        float[][] corners = {{-side, -side, z}, {side, -side, z}, {side, side, z}, {-side, side, z}};
+        float[][] uvs = {{0, 1}, {1, 1}, {1, 0}, {0, 0}};
+        Vertex[] vertices = new Vertex[4];
+        for (int i = 0; i < 4; i++) {
+            vertices[i] = new Vertex(corners[i], Color.WHITE);
+            vertices[i].setTexCoord(uvs[i]);
+        }
+        Polygon p = new Polygon(vertices);
+        p.texture = new ImageTexture(img);
+        return p;
+    }
+
+    /** Draws the scene of the tests: a rotated quad, a textured one behind, and one crossing the near plane. */
+    private interface Scene {
+        void draw(com.codnyx.myengine.AffineTransformation modelT, java.util.function.Consumer<Polygon> sink);
+    }
+
+    private final Polygon red = createQuad(1f, 0, Color.RED);
+    private final Polygon textured = createTexturedQuad(1.5f, 0);
+    private final Polygon green = createQuad(3f, 0, Color.GREEN);
+
+    private final Scene scene = (modelT, sink) -> {
+        modelT.loadIdentity().rotateZ(0.3f).translateTo(0.4f, 0.7f, -4f);
+        sink.accept(red);
+        modelT.loadIdentity().rotateX(0.5f).translateTo(-0.5f, -0.2f, -5f);
+        sink.accept(textured);
+        modelT.loadIdentity().rotateX(-1.3f).translateTo(0, -2f, -2.5f);
+        sink.accept(green);
+    };
+
+    private int[] renderFull() {
+        PolygonRenderer renderer = new PolygonRenderer(WIDTH, HEIGHT);
+        renderer.setPerspective(Math.toRadians(60), -30f, -1f);
+        scene.draw(renderer.getModelT(), p -> renderer.render(null, p));
+        return ((DataBufferInt) renderer.getImage().getRaster().getDataBuffer()).getData().clone();
+    }
+
+    private int[] renderBanded(BandedRenderer banded) throws IOException {
+        int[] frame = new int[WIDTH * HEIGHT];
+        int[] next = {0};
+        banded.setPerspective(Math.toRadians(60), -30f, -1f);
+        scene.draw(banded.getModelT(), banded::add);
+        banded.render((y, rows, argb, scanline) -> {
+            assertEquals("Bands come in order", next[0], y);
+            assertEquals(WIDTH, scanline);
+            System.arraycopy(argb, 0, frame, y * WIDTH, rows * WIDTH);
+            next[0] = y + rows;
+        });
+        assertEquals(HEIGHT, next[0]);
+        return frame;
+    }
+
+    @Test
+    public void testBandsMatchFullFrame() throws IOException {
+        int[] reference = renderFull();
+        assertEquals(Color.RED.getRGB(), reference[(HEIGHT / 2 - 7) * WIDTH + WIDTH / 2 + 4]);
+        boolean textureSeen = false, greenSeen = false;
+        for (int pixel : reference) {
+            textureSeen |= pixel == 0xFF0000FF;
+            greenSeen |= pixel == Color.GREEN.getRGB();
+        }
+        assertTrue("The scene shows every quad", textureSeen && greenSeen);
+        for (int bandHeight : new int[]{1, 7, 16, HEIGHT})
+            assertArrayEquals("Band height " + bandHeight, reference, renderBanded(new BandedRenderer(WIDTH, HEIGHT, bandHeight)));
+    }
+
+    @Test
+    public void testRenderForgetsPolygons() throws IOException {
+        BandedRenderer banded = new BandedRenderer(WIDTH, HEIGHT, 10);
+        int[] first = renderBanded(banded);
+        int[] empty = new int[WIDTH * HEIGHT];
+        banded.render((y, rows, argb, scanline) -> System.arraycopy(argb, 0, empty, y * WIDTH, rows * WIDTH));
+        assertArrayEquals(new int[WIDTH * HEIGHT], empty);
+        assertArrayEquals(first, renderBanded(banded));
+    }
+
+    @Test
+    public void testBandHeightFitsBudget() {
+        assertEquals(256, BandedRenderer.getBandHeight(1024, DepthFormat.FLOAT32, 2 << 20));
+        assertEquals(341, BandedRenderer.getBandHeight(1024, DepthFormat.SHORT16, 2 << 20));
+        assertEquals(1, BandedRenderer.getBandHeight(1 << 20, DepthFormat.FLOAT32, 1024));
+        BandedRenderer banded = new BandedRenderer(15360, 8640);
+        assertEquals(17, banded.getBandHeight());
+        assertEquals(15360, banded.getRenderer().getImage().getWidth());
+        assertEquals(17, banded.getRenderer().getImage().getHeight());
+    }
+
+    @Test
+    public void testPpmSink() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BandedRenderer.PpmSink sink = new BandedRenderer.PpmSink(out, 2, 3);
+        sink.band(0, 2, new int[]{0xFF102030, 0, 0xFFFFFFFF, 0x00405060}, 2);
+        sink.band(2, 1, new int[]{0xFF000001, 0xFF010000, 1, 2}, 2);
+        byte[] header = "P6\n2 3\n255\n".getBytes("US-ASCII");
+        byte[] bytes = out.toByteArray();
+        assertEquals(header.length + 18, bytes.length);
+        for (int i = 0; i < header.length; i++)
+            assertEquals(header[i], bytes[i]);
+        int[] expected = {0x10, 0x20, 0x30, 0, 0, 0, 0xFF, 0xFF, 0xFF, 0x40, 0x50, 0x60, 0, 0, 1, 1, 0, 0};
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], bytes[header.length + i] & 0xFF);
+        try {
+            sink.band(1, 1, new int[2], 2);
+            fail("Bands must come in order");
+        } catch (IOException e) {
+        }
+    }
+}
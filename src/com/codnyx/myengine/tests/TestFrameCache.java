@@ -0,0 +1,166 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import static com.codnyx.myengine.tests.RenderFixture.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.AffineTransformation;
+import com.codnyx.myengine.DirectionalLight;
+import com.codnyx.myengine.FrameCache;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+
+import java.awt.Color;
+
+public class TestFrameCache {
+
+    private final RenderConfig config = RenderFixture.config();
+
+    private final Mesh background = squareMesh(4, Color.BLUE), small = squareMesh(0.4f, Color.RED), other = squareMesh(0.3f, Color.GREEN);
+    private final AffineTransformation backgroundT = new AffineTransformation().translateTo(0, 0, -6);
+    private final AffineTransformation smallT = new AffineTransformation().translateTo(-1, 0, -4);
+    private final AffineTransformation otherT = new AffineTransformation().translateTo(1, 1, -5);
+
+    private FrameCache.Result renderFrame(FrameCache cache) {
+        cache.begin();
+        cache.add(background, backgroundT);
+        cache.add(small, smallT);
+        cache.add(other, otherT);
+        return cache.render();
+    }
+
+    /** Renders the scene whole in a new renderer. */
+    private int[] reference() {
+        PolygonRenderer renderer = config.newContext();
+        renderFrame(new FrameCache(renderer));
+        renderer.commit();
+        return renderer.getColorBuffer();
+    }
+
+    @Test
+    public void testVersions() {
+        AffineTransformation t = new AffineTransformation();
+        int version = t.getVersion();
+        t.rotateY(0.5f);
+        assertTrue(t.getVersion() != version);
+        version = t.getVersion();
+        t.transform(new float[]{1, 2, 3});
+        t.pushState();
+        t.popState();
+        t.scaleOf(2, 2, 2);
+        t.setTo(new AffineTransformation());
+        assertEquals("Changes of the matrix are counted", version + 4, t.getVersion());
+
+        Mesh mesh = new Mesh();
+        version = mesh.getVersion();
+        mesh.addPolygon(new Polygon(new float[][]{{0, 0, 0}, {1, 0, 0}, {0, 1, 0}}, Color.RED));
+        mesh.markChanged();
+        assertEquals(version + 2, mesh.getVersion());
+
+        DirectionalLight light = new DirectionalLight();
+        version = light.getVersion();
+        light.markChanged();
+        assertEquals(version + 1, light.getVersion());
+    }
+
+    @Test
+    public void testUnchangedFramesAreReused() {
+        PolygonRenderer renderer = config.newContext();
+        FrameCache cache = new FrameCache(renderer);
+        assertEquals(FrameCache.Result.FULL, renderFrame(cache));
+        renderer.commit();
+        int[] first = renderer.getColorBuffer().clone();
+        assertArrayEquals(reference(), first);
+
+        assertEquals(FrameCache.Result.REUSED, renderFrame(cache));
+        renderer.commit();
+        assertArrayEquals(first, renderer.getColorBuffer());
+        int[] bounds = renderer.getBounds(new int[4]);
+        assertTrue("Nothing to present", bounds[0] > bounds[2]);
+    }
+
+    @Test
+    public void testChangedMeshesAreRedrawnInPlace() {
+        PolygonRenderer renderer = config.newContext();
+        FrameCache cache = new FrameCache(renderer);
+        renderFrame(cache);
+        int[] before = renderer.getBounds(new int[4]);
+
+        // The small quad moves over the background
+        smallT.translateTo(0.3f, 0.2f, 0);
+        assertEquals(FrameCache.Result.PARTIAL, renderFrame(cache));
+        renderer.commit();
+        assertArrayEquals(reference(), renderer.getColorBuffer());
+        int[] bounds = renderer.getBounds(new int[4]);
+        assertTrue("Only part of the frame is redrawn",
+                (bounds[2] - bounds[0] + 1) * (bounds[3] - bounds[1] + 1) < (before[2] - before[0] + 1) * (before[3] - before[1] + 1));
+
+        // Its colors change
+        small.polygons.getFirst().getVertices()[0].setColor(Color.YELLOW);
+        small.markChanged();
+        assertEquals(FrameCache.Result.PARTIAL, renderFrame(cache));
+        renderer.commit();
+        assertArrayEquals(reference(), renderer.getColorBuffer());
+
+        // The background moves: most of the frame changes
+        backgroundT.translateTo(0.5f, 0, 0);
+        assertEquals(FrameCache.Result.FULL, renderFrame(cache));
+        renderer.commit();
+        assertArrayEquals(reference(), renderer.getColorBuffer());
+    }
+
+    @Test
+    public void testSceneChangesRedrawTheWholeFrame() {
+        PolygonRenderer renderer = config.newContext();
+        FrameCache cache = new FrameCache(renderer);
+        DirectionalLight light = new DirectionalLight();
+        cache.begin();
+        cache.add(light);
+        cache.add(background, backgroundT);
+        assertEquals(FrameCache.Result.FULL, cache.render());
+
+        cache.begin();
+        cache.add(light);
+        cache.add(background, backgroundT);
+        assertEquals(FrameCache.Result.REUSED, cache.render());
+
+        light.markChanged();
+        cache.begin();
+        cache.add(light);
+        cache.add(background, backgroundT);
+        assertEquals(FrameCache.Result.FULL, cache.render());
+
+        assertEquals("A mesh was added", FrameCache.Result.FULL, renderFrame(cache));
+        assertEquals(FrameCache.Result.REUSED, renderFrame(cache));
+        renderer.setPerspective(Math.PI / 4, -30f, -1f);
+        assertEquals("The perspective changed", FrameCache.Result.FULL, renderFrame(cache));
+        cache.invalidate();
+        assertEquals(FrameCache.Result.FULL, renderFrame(cache));
+    }
+
+    @Test
+    public void testScissor() {
+        PolygonRenderer renderer = config.newContext();
+        renderer.clean();
+        renderer.setScissor(10, 20, 30, 5);
+        renderer.getModelT().setTo(backgroundT);
+        background.render(renderer);
+        renderer.resetScissor();
+        renderer.commit();
+        int[] pixels = renderer.getColorBuffer();
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < WIDTH; x++) {
+                boolean inside = x >= 10 && x < 40 && y >= 20 && y < 25;
+                int expected = inside ? Color.BLUE.getRGB() : 0;
+                assertEquals("Pixel " + x + "," + y, expected, pixels[y * WIDTH + x]);
+            }
+        int[] bounds = renderer.getBounds(new int[4]);
+        assertTrue("The bounds are those of the whole polygon", bounds[0] < 10 && bounds[2] >= 40);
+
+        renderer.clean(15, 21, 5, 2);
+        assertEquals(0, pixels[21 * WIDTH + 15]);
+        assertEquals(Color.BLUE.getRGB(), pixels[21 * WIDTH + 20]);
+    }
+}
@@ -0,0 +1,98 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.FrameScheduler;
+
+public class TestFrameScheduler {
+
+    @Test
+    public void testTargetFrameRate() throws InterruptedException {
+        FrameScheduler scheduler = new FrameScheduler(1000);
+        scheduler.setTargetFps(200);
+        assertEquals(200, scheduler.getTargetFps(), 1e-6);
+        assertEquals(0.001f, scheduler.getStepSeconds(), 1e-9f);
+        assertEquals("No simulation time before the first frame", 0, scheduler.awaitFrame());
+        long start = System.nanoTime();
+        int steps = 0;
+        for (int i = 0; i < 40; i++)
+            steps += scheduler.awaitFrame();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue("Frames are paced: " + elapsedMillis + " ms", elapsedMillis >= 195);
+        assertTrue("The simulation follows the real time: " + steps + " steps in " + elapsedMillis + " ms",
+                steps <= elapsedMillis + 1 && steps >= elapsedMillis / 2);
+        float interpolation = scheduler.getInterpolation();
+        assertTrue(interpolation >= 0 && interpolation < 1);
+    }
+
+    @Test
+    public void testUnlimitedFrameRate() throws InterruptedException {
+        FrameScheduler scheduler = new FrameScheduler(60);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++)
+            assertTrue(scheduler.awaitFrame() <= FrameScheduler.MAX_STEPS);
+        assertTrue("Frames are not paced", System.nanoTime() - start < 1000000000L);
+    }
+
+    @Test
+    public void testStallRunsAtMostMaxSteps() throws InterruptedException {
+        FrameScheduler scheduler = new FrameScheduler(1000);
+        scheduler.awaitFrame();
+        Thread.sleep(50);
+        assertEquals(FrameScheduler.MAX_STEPS, scheduler.awaitFrame());
+        assertTrue(scheduler.getInterpolation() < 1);
+    }
+
+    @Test
+    public void testOnDemand() throws Exception {
+        FrameScheduler scheduler = new FrameScheduler(1000);
+        scheduler.setOnDemand(true);
+        assertTrue(scheduler.isOnDemand());
+        scheduler.awaitFrame(); // The first frame is always due
+        Thread requester = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+            }
+            scheduler.requestFrame();
+        });
+        long start = System.nanoTime();
+        requester.start();
+        assertEquals("Simulation time does not run while idle", 0, scheduler.awaitFrame());
+        assertTrue("The frame waits for the request", System.nanoTime() - start >= 90000000L);
+        requester.join();
+
+        // A request made while rendering makes the next frame due at once
+        scheduler.requestFrame();
+        start = System.nanoTime();
+        scheduler.awaitFrame();
+        assertTrue(System.nanoTime() - start < 50000000L);
+
+        Thread stopper = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+            }
+            scheduler.setOnDemand(false);
+        });
+        stopper.start();
+        scheduler.awaitFrame(); // Released by leaving the on-demand mode
+        stopper.join();
+        assertFalse(scheduler.isOnDemand());
+    }
+
+    @Test
+    public void testInterrupt() {
+        FrameScheduler scheduler = new FrameScheduler(60);
+        scheduler.setOnDemand(true);
+        try {
+            scheduler.awaitFrame();
+            Thread.currentThread().interrupt();
+            scheduler.awaitFrame();
+            fail("Waiting is interrupted");
+        } catch (InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.FrameSequenceWriter;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+public class TestFrameSequenceWriter {
+
+    private static final int WIDTH = 40, HEIGHT = 30, FRAMES = 12;
+
+    private final RenderConfig config = RenderFixture.config(WIDTH, HEIGHT);
+    private final Polygon quad = RenderFixture.square(1, Color.ORANGE);
+
+    private void renderFrame(PolygonRenderer renderer, int frame) {
+        renderer.clean();
+        renderer.getModelT().loadIdentity().rotateZ(0.2f * frame).translateTo(0.1f * frame - 0.5f, 0, -4f);
+        renderer.render(quad);
+        renderer.commit();
+    }
+
+    private int[] reference(int frame) {
+        PolygonRenderer renderer = config.newContext();
+        renderFrame(renderer, frame);
+        return renderer.getColorBuffer();
+    }
+
+    @Test
+    public void testFramesAreWrittenWithoutCopies() throws IOException {
+        Map<Integer, int[]> frames = new ConcurrentHashMap<Integer, int[]>();
+        Map<int[], Boolean> buffers = new ConcurrentHashMap<int[], Boolean>();
+        FrameSequenceWriter writer = new FrameSequenceWriter(WIDTH, HEIGHT, 3, 2, (frame, argb, width, height) -> {
+            assertEquals(WIDTH, width);
+            assertEquals(HEIGHT, height);
+            buffers.put(argb, true);
+            frames.put(frame, argb.clone());
+        });
+        PolygonRenderer renderer = writer.newContext(config);
+        for (int i = 0; i < FRAMES; i++) {
+            renderFrame(renderer, i);
+            assertEquals(i, writer.swap(renderer));
+        }
+        writer.close();
+        assertEquals(FRAMES, writer.getWrittenFrames());
+        assertTrue("The buffers of the pool are reused", buffers.size() <= 3);
+        assertEquals(Color.ORANGE.getRGB(), frames.get(5)[WIDTH * (HEIGHT / 2) + WIDTH / 2]);
+        for (int i = 0; i < FRAMES; i++)
+            assertArrayEquals("Frame " + i, reference(i), frames.get(i));
+    }
+
+    @Test
+    public void testAlternatingDepthAcrossSwaps() throws IOException {
+        Map<Integer, int[]> frames = new ConcurrentHashMap<Integer, int[]>();
+        FrameSequenceWriter writer = new FrameSequenceWriter(WIDTH, HEIGHT, 2, 1,
+                (frame, argb, width, height) -> frames.put(frame, argb.clone()));
+        PolygonRenderer renderer = writer.newContext(config.withAlternatingDepth(true));
+        for (int i = 0; i < FRAMES; i++) {
+            renderFrame(renderer, i);
+            writer.swap(renderer);
+        }
+        writer.close();
+        for (int i = 0; i < FRAMES; i++)
+            assertArrayEquals("Frame " + i, reference(i), frames.get(i));
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FrameSequenceWriter writer = new FrameSequenceWriter(WIDTH, HEIGHT, 3, 1, (frame, argb, width, height) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        });
+        PolygonRenderer renderer = writer.newContext(config);
+        writer.swap(renderer);
+        writer.swap(renderer);
+        CountDownLatch swapped = new CountDownLatch(1);
+        Thread third = new Thread(() -> {
+            try {
+                writer.swap(renderer);
+                swapped.countDown();
+            } catch (IOException e) {
+            }
+        });
+        third.start();
+        assertFalse("All the buffers hold frames: the renderer waits", swapped.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(swapped.await(5, TimeUnit.SECONDS));
+        third.join();
+        writer.close();
+        assertEquals(3, writer.getWrittenFrames());
+    }
+
+    @Test
+    public void testErrorsAreReported() throws Exception {
+        FrameSequenceWriter writer = new FrameSequenceWriter(WIDTH, HEIGHT, 2, 1, (frame, argb, width, height) -> {
+            throw new IOException("Disk full");
+        });
+        PolygonRenderer renderer = writer.newContext(config);
+        writer.swap(renderer);
+        try {
+            writer.close();
+            fail("The error is reported");
+        } catch (IOException e) {
+            assertEquals("Disk full", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testPngAndRawFiles() throws IOException {
+        File dir = Files.createTempDirectory("frames").toFile();
+        try {
+            for (boolean png : new boolean[]{true, false}) {
+                FrameSequenceWriter writer = new FrameSequenceWriter(WIDTH, HEIGHT, 3, 2, png
+                        ? FrameSequenceWriter.png(dir, "frame%03d.png")
+                        : FrameSequenceWriter.raw(dir, "frame%03d.argb"));
+                PolygonRenderer renderer = writer.newContext(config);
+                for (int i = 0; i < 3; i++) {
+                    renderFrame(renderer, i);
+                    writer.swap(renderer);
+                }
+                writer.close();
+            }
+            int[] expected = reference(2);
+            BufferedImage image = ImageIO.read(new File(dir, "frame002.png"));
+            assertEquals(WIDTH, image.getWidth());
+            int[] pixels = image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+            assertArrayEquals(expected, pixels);
+            byte[] raw = Files.readAllBytes(new File(dir, "frame002.argb").toPath());
+            assertEquals(4 * WIDTH * HEIGHT, raw.length);
+            int i = WIDTH * (HEIGHT / 2) + WIDTH / 2;
+            int pixel = (raw[4 * i] & 0xFF) << 24 | (raw[4 * i + 1] & 0xFF) << 16 | (raw[4 * i + 2] & 0xFF) << 8 | (raw[4 * i + 3] & 0xFF);
+            assertEquals(expected[i], pixel);
+        } finally {
+            for (File f : dir.listFiles())
+                f.delete();
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.TexelLayout;
+
+import java.awt.image.BufferedImage;
+
+public class TestImageTexture {
+
+    private BufferedImage createImage(int w, int h, int type) {
+        BufferedImage img = new BufferedImage(w, h, type);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                img.setRGB(x, y, 0xFF000000 | (x << 8) | y);
+            }
+        }
+        return img;
+    }
+
+    @Test
+    public void testDimensions() {
+        ImageTexture tex = new ImageTexture(createImage(4, 2, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(4, tex.getWidth());
+        assertEquals(2, tex.getHeight());
+    }
+
+    @Test
+    public void testNonArgbImageIsConverted() {
+        ImageTexture tex = new ImageTexture(createImage(3, 3, BufferedImage.TYPE_INT_RGB));
+        assertEquals("Image should be converted to ARGB", BufferedImage.TYPE_INT_ARGB, tex.getImage().getType());
+        assertEquals(0xFF000201, tex.getColor(2, 1));
+    }
+
+    @Test
+    public void testArgbImageIsNotCopied() {
+        BufferedImage img = createImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        ImageTexture tex = new ImageTexture(img);
+        assertSame("ARGB images should be used directly", img, tex.getImage());
+    }
+
+    @Test
+    public void testGetColorInside() {
+        ImageTexture tex = new ImageTexture(createImage(4, 4, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(0xFF000000, tex.getColor(0, 0));
+        assertEquals(0xFF000302, tex.getColor(3, 2));
+    }
+
+    @Test
+    public void testGetColorWrapsPowerOfTwo() {
+        ImageTexture tex = new ImageTexture(createImage(4, 4, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(tex.getColor(1, 2), tex.getColor(5, 6));
+        assertEquals(tex.getColor(3, 3), tex.getColor(-1, -1));
+    }
+
+    @Test
+    public void testGetColorWrapsNonPowerOfTwo() {
+        ImageTexture tex = new ImageTexture(createImage(3, 5, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(tex.getColor(1, 2), tex.getColor(4, 7));
+        assertEquals(tex.getColor(2, 4), tex.getColor(-1, -1));
+    }
+
+    @Test
+    public void testSetImageReplacesTexels() {
+        ImageTexture tex = new ImageTexture(createImage(2, 2, BufferedImage.TYPE_INT_ARGB));
+        BufferedImage other = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        other.setRGB(0, 0, 0xFF123456);
+        tex.setImage(other);
+        assertEquals(1, tex.getWidth());
+        assertEquals(1, tex.getHeight());
+        assertEquals(0xFF123456, tex.getColor(7, 3));
+    }
+
+    @Test
+    public void testMipLevels() {
+        ImageTexture tex = new ImageTexture(createImage(4, 2, BufferedImage.TYPE_INT_ARGB));
+        assertEquals("4x2, 2x1 and 1x1 levels", 3, tex.getLevelCount());
+        assertEquals("Level 0 is the image", tex.getColor(3, 1), tex.getColor(3, 1, 0));
+        // Level 1 texel (0,0) averages texels (0,0), (1,0), (0,1) and (1,1), rounding half up
+        assertEquals(0xFF000101, tex.getColor(0, 0, 1));
+        assertEquals("Levels wrap like the image", tex.getColor(1, 0, 1), tex.getColor(3, -1, 1));
+        assertEquals(0xFF000201, tex.getColor(0, 0, 2));
+    }
+
+    @Test
+    public void testMipLevelsNonPowerOfTwo() {
+        ImageTexture tex = new ImageTexture(createImage(3, 5, BufferedImage.TYPE_INT_ARGB));
+        assertEquals("3x5, 1x2 and 1x1 levels", 3, tex.getLevelCount());
+        // The last column and row are repeated where a 2x2 block is incomplete
+        assertEquals(0xFF000103, tex.getColor(0, 1, 1));
+        assertEquals(tex.getColor(0, 0, 1), tex.getColor(0, 2, 1));
+    }
+
+    @Test
+    public void testSetImageRebuildsMipLevels() {
+        ImageTexture tex = new ImageTexture(createImage(8, 8, BufferedImage.TYPE_INT_ARGB));
+        assertEquals(4, tex.getLevelCount());
+        BufferedImage other = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 2; y++)
+            for (int x = 0; x < 2; x++)
+                other.setRGB(x, y, 0xFF0000FF);
+        tex.setImage(other);
+        assertEquals(2, tex.getLevelCount());
+        assertEquals(0xFF0000FF, tex.getColor(0, 0, 1));
+    }
+    @Test
+    public void testLayoutsSampleTheSameTexels() {
+        // 16x8 exercises the rectangular Z-order, 6x5 the padding of the tiled layout
+        int[][] sizes = {{16, 8}, {8, 16}, {6, 5}};
+        for (int[] size : sizes) {
+            BufferedImage img = createImage(size[0], size[1], BufferedImage.TYPE_INT_ARGB);
+            ImageTexture rowMajor = new ImageTexture(img);
+            for (TexelLayout layout : TexelLayout.values()) {
+                ImageTexture tex = new ImageTexture(img, layout);
+                assertEquals(rowMajor.getLevelCount(), tex.getLevelCount());
+                for (int level = 0; level < tex.getLevelCount(); level++)
+                    for (int y = -2; y < size[1] + 2; y++)
+                        for (int x = -2; x < size[0] + 2; x++)
+                            assertEquals(layout + " " + size[0] + "x" + size[1] + " level " + level,
+                                    rowMajor.getColor(x, y, level), tex.getColor(x, y, level));
+                assertEquals(rowMajor.getColor(5, 3), tex.getColor(5, 3));
+            }
+        }
+    }
+
+    @Test
+    public void testMortonFallsBackToTiledForNonPowerOfTwo() {
+        assertEquals(TexelLayout.MORTON,
+                new ImageTexture(createImage(8, 4, BufferedImage.TYPE_INT_ARGB), TexelLayout.MORTON).getLayout());
+        assertEquals(TexelLayout.TILED,
+                new ImageTexture(createImage(6, 4, BufferedImage.TYPE_INT_ARGB), TexelLayout.MORTON).getLayout());
+    }
+
+    @Test
+    public void testSetLayoutKeepsTexels() {
+        ImageTexture tex = new ImageTexture(createImage(8, 8, BufferedImage.TYPE_INT_ARGB));
+        int color = tex.getColor(6, 5);
+        tex.setLayout(TexelLayout.MORTON);
+        assertEquals(TexelLayout.MORTON, tex.getLayout());
+        assertEquals(color, tex.getColor(6, 5));
+        tex.setLayout(TexelLayout.ROW_MAJOR);
+        assertEquals(TexelLayout.ROW_MAJOR, tex.getLayout());
+        assertEquals(color, tex.getColor(6, 5));
+    }
+
+    @Test
+    public void testSwizzledTexturesKeepOneCopy() {
+        BufferedImage img = createImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        ImageTexture rowMajor = new ImageTexture(img), morton = new ImageTexture(img, TexelLayout.MORTON);
+        // Levels of 16x16 down to 1x1 texels, plus the swizzle tables of the Morton order
+        long levels = 4 * (256 + 64 + 16 + 4 + 1);
+        assertEquals(levels, rowMajor.getMemorySize());
+        assertEquals(levels + 4 * 2 * (16 + 8 + 4 + 2 + 1), morton.getMemorySize());
+        BufferedImage rebuilt = morton.getImage();
+        assertNotSame(img, rebuilt);
+        for (int y = 0; y < 16; y++)
+            for (int x = 0; x < 16; x++)
+                assertEquals(img.getRGB(x, y), rebuilt.getRGB(x, y));
+    }
+
+    @Test
+    public void testSampleSpanMatchesGetColor() {
+        int[][] sizes = {{16, 8}, {6, 5}};
+        for (int[] size : sizes) {
+            BufferedImage img = createImage(size[0], size[1], BufferedImage.TYPE_INT_ARGB);
+            for (TexelLayout layout : TexelLayout.values()) {
+                ImageTexture tex = new ImageTexture(img, layout);
+                for (int level = 0; level < tex.getLevelCount(); level++) {
+                    int[] dst = new int[40];
+                    // A diagonal run crossing the edges of the texture in both directions
+                    int u = -3 << 16, v = 7 << 16, du = 0x14000, dv = -0xC000;
+                    tex.sampleSpan(u, v, du, dv, dst.length, level, dst, 0);
+                    for (int i = 0; i < dst.length; i++)
+                        assertEquals(layout + " level " + level + " pixel " + i,
+                                tex.getColor((u + i * du) >> 16, (v + i * dv) >> 16, level), dst[i]);
+                }
+            }
+        }
+    }
+}
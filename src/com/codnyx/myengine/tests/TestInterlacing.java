@@ -0,0 +1,212 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import static com.codnyx.myengine.tests.RenderFixture.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.AffineTransformation;
+import com.codnyx.myengine.FrameCache;
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.Interlacing;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+import com.codnyx.myengine.Vertex;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+public class TestInterlacing {
+
+    private final RenderConfig config = RenderFixture.config();
+
+    /** Horizontal stripes, two pixels high at z=-4, of alternating colors. */
+    private Mesh stripes() {
+        Mesh mesh = new Mesh();
+        float h = 0.16f;
+        for (int i = 0; i < 12; i++) {
+            float y = -1 + i * h;
+            mesh.addPolygon(new Polygon(new float[][]{{-1, y, 0}, {1, y, 0}, {1, y + h, 0}, {-1, y + h, 0}},
+                    i % 2 == 0 ? Color.RED : Color.BLUE));
+        }
+        return mesh;
+    }
+
+    private final Mesh mesh = stripes();
+
+    private int[] render(PolygonRenderer renderer, AffineTransformation t, AffineTransformation scene) {
+        renderer.clean();
+        renderer.getModelT().setTo(t);
+        mesh.render(renderer);
+        if (scene != null)
+            renderer.setSceneTransformation(scene);
+        renderer.commit();
+        return renderer.getColorBuffer().clone();
+    }
+
+    @Test
+    public void testHalfOfThePixelsAreRasterized() {
+        AffineTransformation t = new AffineTransformation().translateTo(0, 0, -4);
+        PolygonRenderer full = config.newContext();
+        render(full, t, null);
+        int fullCount = 0;
+        for (float z : full.getDepthBuffer())
+            if (z != Float.POSITIVE_INFINITY)
+                fullCount++;
+
+        for (Interlacing interlacing : new Interlacing[]{Interlacing.ROWS, Interlacing.CHECKERBOARD}) {
+            PolygonRenderer renderer = config.newContext();
+            renderer.setInterlacing(interlacing);
+            assertEquals(interlacing, renderer.getInterlacing());
+            render(renderer, t, null);
+            int count = 0;
+            for (float z : renderer.getDepthBuffer())
+                if (z != Float.POSITIVE_INFINITY)
+                    count++;
+            assertEquals(interlacing + " rasterizes half of the pixels", fullCount / 2f, count, fullCount * 0.05f);
+        }
+    }
+
+    @Test
+    public void testStaticFramesAreReconstructedExactly() {
+        AffineTransformation t = new AffineTransformation().translateTo(0.1f, 0.05f, -4);
+        int[] expected = render(config.newContext(), t, null);
+        for (Interlacing interlacing : new Interlacing[]{Interlacing.ROWS, Interlacing.CHECKERBOARD}) {
+            PolygonRenderer renderer = config.newContext();
+            renderer.setInterlacing(interlacing);
+            int[] first = render(renderer, t, null);
+            assertEquals("The background stays clear", 0, first[0]);
+            assertTrue("The first frame is interpolated", differences(expected, first) < WIDTH * HEIGHT / 10);
+            assertTrue("Without the scene transformation, frames are interpolated",
+                    differences(expected, render(renderer, t, null)) > 0);
+            AffineTransformation scene = new AffineTransformation();
+            render(renderer, t, scene);
+            for (int frame = 0; frame < 3; frame++)
+                assertArrayEquals(interlacing + " frame " + frame, expected, render(renderer, t, scene));
+        }
+    }
+
+    @Test
+    public void testTexturedFrames() {
+        BufferedImage img = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++)
+                img.setRGB(x, y, ((x + y) & 1) == 0 ? 0xFFFFFFFF : 0xFF0000FF);
+        float[][] corners = {{-1, -1, 0}, {1, -1, 0}, {1, 1, 0}, {-1, 1, 0}};
+        float[][] uvs = {{0, 1}, {1, 1}, {1, 0}, {0, 0}};
+        Vertex[] vertices = new Vertex[4];
+        for (int i = 0; i < 4; i++) {
+            vertices[i] = new Vertex(corners[i], Color.WHITE);
+            vertices[i].setTexCoord(uvs[i]);
+        }
+        Polygon quad = new Polygon(vertices);
+        quad.texture = new ImageTexture(img);
+
+        PolygonRenderer full = config.newContext(), renderer = config.newContext();
+        renderer.setInterlacing(Interlacing.CHECKERBOARD);
+        for (PolygonRenderer r : new PolygonRenderer[]{full, renderer, renderer}) {
+            r.clean();
+            r.getModelT().loadIdentity().translateTo(0, 0, -3).rotateY(0.4f);
+            r.render(quad);
+            r.setSceneTransformation(new AffineTransformation());
+            r.commit();
+        }
+        assertTrue("Texels are sampled at the pixels rasterized: " + differences(full.getColorBuffer(), renderer.getColorBuffer()),
+                differences(full.getColorBuffer(), renderer.getColorBuffer()) < WIDTH * HEIGHT / 50);
+    }
+
+    @Test
+    public void testMovingFramesAreReprojected() {
+        AffineTransformation a = new AffineTransformation().translateTo(0, 0, -4);
+        AffineTransformation b = new AffineTransformation().translateTo(0, 0.31f, -4);
+        int[] expected = render(config.newContext(), b, null);
+
+        int[] mismatches = new int[2];
+        for (int k = 0; k < 2; k++) {
+            PolygonRenderer renderer = config.newContext();
+            renderer.setInterlacing(Interlacing.ROWS);
+            render(renderer, a, a);
+            render(renderer, a, a);
+            // The second renderer is told the scene did not move
+            mismatches[k] = differences(expected, render(renderer, b, k == 0 ? b : a));
+        }
+        assertTrue("Pixels are taken where the surface was: " + mismatches[0] + " differences, " + mismatches[1] + " without motion",
+                mismatches[0] * 4 < mismatches[1]);
+        assertTrue(mismatches[0] < WIDTH * HEIGHT / 20);
+    }
+
+    @Test
+    public void testSwappedColorBuffersReceiveWholeFrames() {
+        PolygonRenderer single = config.newContext(), swapped = config.newContext();
+        single.setInterlacing(Interlacing.CHECKERBOARD);
+        swapped.setInterlacing(Interlacing.CHECKERBOARD);
+        int[][] buffers = {new int[WIDTH * HEIGHT], new int[WIDTH * HEIGHT], new int[WIDTH * HEIGHT]};
+        for (int[] buffer : buffers)
+            Arrays.fill(buffer, 0xFFFFFFFF);
+        AffineTransformation scene = new AffineTransformation();
+        for (int frame = 0; frame < 8; frame++) {
+            // The stripes move across the frame, leaving the background behind them
+            AffineTransformation t = new AffineTransformation().translateTo(-1.5f + frame * 0.4f, 0, -6);
+            int[] expected = render(single, t, scene);
+            swapped.setColorBuffer(buffers[frame % 3]);
+            assertArrayEquals("Frame " + frame, expected, render(swapped, t, scene));
+        }
+        int[] bounds = single.getBounds(new int[4]);
+        int[] pixels = single.getColorBuffer();
+        for (int y = 0; y < HEIGHT; y++)
+            for (int x = 0; x < bounds[0]; x++)
+                assertEquals("The background is cleared", 0, pixels[y * WIDTH + x]);
+    }
+
+    @Test
+    public void testHitTestsAndIncompatibleModes() {
+        PolygonRenderer renderer = config.newContext();
+        renderer.setInterlacing(Interlacing.CHECKERBOARD);
+        final int[] hits = new int[1];
+        for (int frame = 0; frame < 2; frame++) {
+            renderer.hitTest(WIDTH / 2, HEIGHT / 2, new PolygonRenderer.HitTestHandler() {
+                @Override
+                public void hit(int x, int y, float z, int color, Polygon p) {
+                    assertEquals(WIDTH / 2, x);
+                    assertEquals(HEIGHT / 2, y);
+                    hits[0]++;
+                }
+
+                @Override
+                public void commit() {
+                }
+            });
+            render(renderer, new AffineTransformation().translateTo(0, 0, -4), null);
+        }
+        assertEquals("Hit tests are run on every frame", 2, hits[0]);
+
+        try {
+            renderer.setAlternatingDepth(true);
+            fail("Interlaced frames need cleared buffers");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            renderer.clean(0, 0, 10, 10);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        FrameCache cache = new FrameCache(renderer);
+        AffineTransformation t = new AffineTransformation().translateTo(0, 0, -4);
+        cache.begin();
+        cache.add(mesh, t);
+        assertEquals(FrameCache.Result.FULL, cache.render());
+        cache.begin();
+        cache.add(mesh, t);
+        assertEquals("Interlaced frames are drawn whole", FrameCache.Result.FULL, cache.render());
+
+        renderer.setInterlacing(Interlacing.NONE);
+        renderer.setAlternatingDepth(true);
+        try {
+            renderer.setInterlacing(Interlacing.ROWS);
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+}
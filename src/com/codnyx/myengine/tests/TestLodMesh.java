@@ -0,0 +1,74 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.AffineTransformation;
+import com.codnyx.myengine.LodMesh;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.PerspectiveTransformation;
+
+public class TestLodMesh {
+
+    @Test
+    public void testGenerate_Levels() {
+        Mesh base = RenderFixture.torus(32, 16, false);
+        LodMesh lod = LodMesh.generate(base, 4, 0.5f, 50);
+        assertEquals(4, lod.getLevelCount());
+        assertSame("Level 0 should be the base mesh", base, lod.getLevel(0));
+        assertSame(base.polygons, lod.polygons);
+        assertEquals(1024, lod.getTriangleCount(0));
+        for (int i = 1; i < lod.getLevelCount(); i++) {
+            assertTrue("Each level should have fewer triangles", lod.getTriangleCount(i) < lod.getTriangleCount(i - 1));
+            assertTrue("Each level should have about half the triangles",
+                lod.getTriangleCount(i) <= lod.getTriangleCount(i - 1) / 2 + 2);
+        }
+        assertEquals(1.4f, lod.getRadius(), 1e-3f);
+    }
+
+    @Test
+    public void testGenerate_StopsAtMinTriangles() {
+        LodMesh lod = LodMesh.generate(RenderFixture.torus(32, 16, false), 10, 0.5f, 200);
+        assertEquals("1024, 512, 256 triangles; 128 is below the minimum", 3, lod.getLevelCount());
+    }
+
+    @Test
+    public void testSelectLevel_ByDistance() {
+        LodMesh lod = LodMesh.generate(RenderFixture.torus(32, 16, false), 4, 0.5f, 50);
+        PerspectiveTransformation projT = new PerspectiveTransformation(Math.PI / 4, 800, 600, 0, 0, -30f, -1f);
+        AffineTransformation modelT = new AffineTransformation();
+
+        modelT.loadIdentity().translateTo(0, 0, -3);
+        assertEquals("A close object should use the full mesh", 0, lod.selectLevel(modelT, projT));
+
+        modelT.loadIdentity().translateTo(0, 0, -1000);
+        assertEquals("A distant object should use the coarsest level", lod.getLevelCount() - 1, lod.selectLevel(modelT, projT));
+        assertEquals(lod.getLevelCount() - 1, lod.getCurrentLevel());
+
+        modelT.loadIdentity().translateTo(0, 0, 0);
+        assertEquals("The eye inside the bounds should use the full mesh", 0, lod.selectLevel(modelT, projT));
+
+        int previous = 0;
+        for (int z = 3; z < 200; z += 5) {
+            modelT.loadIdentity().translateTo(0, 0, -z);
+            int level = lod.selectLevel(modelT, projT);
+            assertTrue("Levels should get coarser with distance", level >= previous);
+            previous = level;
+        }
+    }
+
+    @Test
+    public void testSelectLevel_PixelsPerTriangle() {
+        LodMesh lod = LodMesh.generate(RenderFixture.torus(32, 16, false), 4, 0.5f, 50);
+        PerspectiveTransformation projT = new PerspectiveTransformation(Math.PI / 4, 800, 600, 0, 0, -30f, -1f);
+        AffineTransformation modelT = new AffineTransformation();
+        modelT.loadIdentity().translateTo(0, 0, -20);
+        // Radius 1.4 at distance 20 projects to about 50 pixels: about 7900 square pixels
+        float radius = 1.4f * projT.getFocalLength() / 20;
+        float area = (float) Math.PI * radius * radius;
+        lod.setPixelsPerTriangle(area / 1024 * 0.99f);
+        assertEquals(0, lod.selectLevel(modelT, projT));
+        lod.setPixelsPerTriangle(area / 512 * 0.99f);
+        assertEquals(1, lod.selectLevel(modelT, projT));
+    }
+}
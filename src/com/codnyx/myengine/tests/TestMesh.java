@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.Meshlet;
+import com.codnyx.myengine.MeshletBuilder;
 import com.codnyx.myengine.Polygon;
 import com.codnyx.myengine.Vertex;
 import com.codnyx.myengine.PolygonRenderer;
@@ -198,4 +200,28 @@ public class TestMesh {
         // This implicitly means two calls in total with the expected arguments.
         // No need for an additional "times(2)" with a broader matcher if these pass.
     }
+
+    /**
+     * Tests the render method of a mesh split into meshlets.
+     * Verifies that the meshlets are handed to the renderer instead of individual polygons.
+     */
+    @Test
+    public void testRenderWithMeshlets() {
+        Mesh mesh = new Mesh();
+        Polygon poly1 = new Polygon(new Vertex[]{new Vertex(new float[]{0f,0f,0f}), new Vertex(new float[]{1f,0f,0f}), new Vertex(new float[]{0f,1f,0f})});
+        Polygon poly2 = new Polygon(new Vertex[]{new Vertex(new float[]{1f,1f,1f}), new Vertex(new float[]{2f,1f,1f}), new Vertex(new float[]{1f,2f,1f})});
+        mesh.addPolygon(poly1);
+        mesh.addPolygon(poly2);
+        mesh.buildMeshlets(new MeshletBuilder());
+        Meshlet[] meshlets = mesh.getMeshlets();
+        assertEquals("Unconnected polygons should be in separate meshlets", 2, meshlets.length);
+
+        PolygonRenderer mockRenderer = Mockito.mock(PolygonRenderer.class);
+        Graphics mockGraphics = Mockito.mock(Graphics.class);
+        mesh.render(mockRenderer, mockGraphics);
+
+        for (Meshlet m : meshlets)
+            Mockito.verify(mockRenderer, times(1)).render(mockGraphics, m);
+        Mockito.verify(mockRenderer, never()).render(any(Graphics.class), any(Polygon.class));
+    }
 }
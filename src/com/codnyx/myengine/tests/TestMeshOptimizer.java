@@ -0,0 +1,201 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.MeshOptimizer;
+import com.codnyx.myengine.ObjParser;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.Vertex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+
+public class TestMeshOptimizer {
+
+    private static final int GRID = 40;
+
+    // A GRID x GRID quad grid, triangulated, with rows emitted in an order that defeats the cache
+    private int[] createGridIndices() {
+        int[] indices = new int[GRID * GRID * 6];
+        int k = 0;
+        for (int i = 0; i < GRID; i++) {
+            int row = (i * 7) % GRID; // 7 is coprime with GRID, so every row is visited once
+            for (int col = 0; col < GRID; col++) {
+                int v = row * (GRID + 1) + col;
+                indices[k++] = v;
+                indices[k++] = v + 1;
+                indices[k++] = v + GRID + 1;
+                indices[k++] = v + 1;
+                indices[k++] = v + GRID + 2;
+                indices[k++] = v + GRID + 1;
+            }
+        }
+        return indices;
+    }
+
+    private float[][] createGridPositions() {
+        float[][] positions = new float[(GRID + 1) * (GRID + 1)][];
+        for (int y = 0; y <= GRID; y++)
+            for (int x = 0; x <= GRID; x++)
+                positions[y * (GRID + 1) + x] = new float[]{x, y, 0};
+        return positions;
+    }
+
+    // Triangles as rotation-invariant keys, to check that reordering preserves triangles and winding
+    private HashSet<String> triangleSet(int[] indices) {
+        HashSet<String> set = new HashSet<String>();
+        for (int t = 0; t < indices.length; t += 3) {
+            int a = indices[t], b = indices[t + 1], c = indices[t + 2];
+            while (a > b || a > c) { int tmp = a; a = b; b = c; c = tmp; }
+            set.add(a + "," + b + "," + c);
+        }
+        return set;
+    }
+
+    @Test
+    public void testComputeACMR() {
+        assertEquals(3.0f, MeshOptimizer.computeACMR(new int[]{0, 1, 2}, 16), 1e-6f);
+        assertEquals("Two triangles sharing an edge", 2.0f, MeshOptimizer.computeACMR(new int[]{0, 1, 2, 2, 1, 3}, 16), 1e-6f);
+        assertEquals(0.0f, MeshOptimizer.computeACMR(new int[0], 16), 1e-6f);
+        // With a cache of 3 entries, vertex 0 is evicted before being reused; with 5 it is not
+        assertEquals(3.0f, MeshOptimizer.computeACMR(new int[]{0, 1, 2, 3, 4, 0}, 3), 1e-6f);
+        assertEquals(5.0f / 2, MeshOptimizer.computeACMR(new int[]{0, 1, 2, 3, 4, 0}, 5), 1e-6f);
+    }
+
+    @Test
+    public void testReorderTriangles_ImprovesCacheReuse() {
+        int[] indices = createGridIndices();
+        float[][] positions = createGridPositions();
+        MeshOptimizer optimizer = new MeshOptimizer();
+        int[] result = optimizer.reorderTriangles(indices, positions, positions.length);
+
+        assertEquals(indices.length, result.length);
+        assertEquals("Reordering should preserve triangles and winding", triangleSet(indices), triangleSet(result));
+        float before = MeshOptimizer.computeACMR(indices, MeshOptimizer.DEFAULT_CACHE_SIZE);
+        float after = MeshOptimizer.computeACMR(result, MeshOptimizer.DEFAULT_CACHE_SIZE);
+        assertTrue("ACMR should improve: before " + before + ", after " + after, after < before * 0.8f);
+    }
+
+    @Test
+    public void testReorderTriangles_CacheOnly() {
+        int[] indices = createGridIndices();
+        MeshOptimizer optimizer = new MeshOptimizer();
+        optimizer.setOptimizeOverdraw(false);
+        int[] result = optimizer.reorderTriangles(indices, null, (GRID + 1) * (GRID + 1));
+        assertEquals(triangleSet(indices), triangleSet(result));
+        assertTrue(MeshOptimizer.computeACMR(result, 16) < MeshOptimizer.computeACMR(indices, 16));
+    }
+
+    @Test
+    public void testComputeTriangleOrder_IsPermutation() {
+        int[] indices = createGridIndices();
+        float[][] positions = createGridPositions();
+        int[] order = new MeshOptimizer().computeTriangleOrder(indices, positions, positions.length);
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            assertEquals("Each triangle should appear exactly once", i, sorted[i]);
+    }
+
+    @Test
+    public void testReorderVertices_FirstUseOrder() {
+        int[] indices = {4, 2, 0, 2, 4, 5};
+        int[] order = new MeshOptimizer().reorderVertices(indices, 6);
+        assertArrayEquals("Indices should be renumbered by first use", new int[]{0, 1, 2, 1, 0, 3}, indices);
+        assertArrayEquals("Unused vertices should follow in their original order", new int[]{4, 2, 0, 5, 1, 3}, order);
+    }
+
+    @Test
+    public void testOptimizeMesh_KeepsAllPolygons() {
+        float[][] positions = createGridPositions();
+        Vertex[] vertices = new Vertex[positions.length];
+        for (int i = 0; i < positions.length; i++)
+            vertices[i] = new Vertex(positions[i]);
+        int[] indices = createGridIndices();
+        Mesh mesh = new Mesh();
+        for (int t = 0; t < indices.length; t += 3)
+            mesh.addPolygon(new Polygon(new Vertex[]{vertices[indices[t]], vertices[indices[t + 1]], vertices[indices[t + 2]]}));
+        Polygon quad = new Polygon(new Vertex[]{vertices[0], vertices[1], vertices[2], vertices[3]});
+        mesh.addPolygon(quad);
+        mesh.addPolygon(null);
+        ArrayList<Polygon> original = new ArrayList<Polygon>(mesh.polygons);
+
+        new MeshOptimizer().optimize(mesh);
+
+        assertEquals(original.size(), mesh.polygons.size());
+        IdentityHashMap<Polygon, Boolean> seen = new IdentityHashMap<Polygon, Boolean>();
+        for (Polygon p : mesh.polygons)
+            if (p != null)
+                seen.put(p, Boolean.TRUE);
+        for (Polygon p : original)
+            if (p != null)
+                assertTrue("Every polygon should still be in the mesh", seen.containsKey(p));
+        assertSame("Non-triangles should be moved to the end", quad, mesh.polygons.get(mesh.polygons.size() - 2));
+        assertNull(mesh.polygons.getLast());
+        assertFalse("Triangles should be reordered", original.equals(new ArrayList<Polygon>(mesh.polygons)));
+    }
+
+    @Test
+    public void testObjParser_OptimizeMesh() throws IOException {
+        StringBuilder obj = new StringBuilder();
+        float[][] positions = createGridPositions();
+        for (float[] p : positions)
+            obj.append("v ").append(p[0]).append(' ').append(p[1]).append(' ').append(p[2]).append('\n');
+        int[] indices = createGridIndices();
+        for (int t = 0; t < indices.length; t += 3)
+            obj.append("f ").append(indices[t] + 1).append(' ').append(indices[t + 1] + 1).append(' ').append(indices[t + 2] + 1).append('\n');
+
+        ObjParser parser = new ObjParser();
+        parser.setBalanceVertices(false);
+        parser.setComputeNormals(false);
+        Mesh plain = parser.parseStream(new BufferedReader(new StringReader(obj.toString())));
+        parser.setOptimizeMesh(true);
+        assertTrue(parser.isOptimizeMesh());
+        Mesh optimized = parser.parseStream(new BufferedReader(new StringReader(obj.toString())));
+
+        assertEquals(plain.polygons.size(), optimized.polygons.size());
+        assertEquals("Optimized mesh should contain the same triangles", positionSet(plain), positionSet(optimized));
+        assertTrue("Optimized mesh should reuse vertices better",
+            acmr(optimized) < acmr(plain) * 0.8f);
+    }
+
+    private HashSet<String> positionSet(Mesh mesh) {
+        HashSet<String> set = new HashSet<String>();
+        for (Polygon p : mesh.polygons) {
+            StringBuilder sb = new StringBuilder();
+            Vertex[] vs = p.getVertices();
+            int first = 0;
+            for (int i = 1; i < vs.length; i++)
+                if (Arrays.toString(vs[i].point).compareTo(Arrays.toString(vs[first].point)) < 0)
+                    first = i;
+            for (int i = 0; i < vs.length; i++)
+                sb.append(Arrays.toString(vs[(first + i) % vs.length].point));
+            set.add(sb.toString());
+        }
+        return set;
+    }
+
+    private float acmr(Mesh mesh) {
+        IdentityHashMap<Vertex, Integer> ids = new IdentityHashMap<Vertex, Integer>();
+        int[] indices = new int[mesh.polygons.size() * 3];
+        int k = 0;
+        for (Polygon p : mesh.polygons) {
+            for (Vertex v : p.getVertices()) {
+                Integer id = ids.get(v);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(v, id);
+                }
+                indices[k++] = id;
+            }
+        }
+        return MeshOptimizer.computeACMR(indices, MeshOptimizer.DEFAULT_CACHE_SIZE);
+    }
+}
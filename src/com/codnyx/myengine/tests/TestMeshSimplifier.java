@@ -0,0 +1,153 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.MeshSimplifier;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.Texture;
+import com.codnyx.myengine.Vertex;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+public class TestMeshSimplifier {
+
+    private static final float DELTA = 1e-4f;
+
+    // A flat size x size grid of triangles in the z = 0 plane, spanning [0,size] x [0,size]
+    private Mesh createGrid(int size, Texture texture) {
+        Vertex[] vertices = new Vertex[(size + 1) * (size + 1)];
+        for (int y = 0; y <= size; y++)
+            for (int x = 0; x <= size; x++)
+                vertices[y * (size + 1) + x] = new Vertex(new float[]{x, y, 0}, new float[]{0, 0, 1});
+        Mesh mesh = new Mesh();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+                Polygon a = new Polygon(new Vertex[]{vertices[v], vertices[v + 1], vertices[v + size + 1]});
+                Polygon b = new Polygon(new Vertex[]{vertices[v + 1], vertices[v + size + 2], vertices[v + size + 1]});
+                a.texture = b.texture = texture;
+                mesh.addPolygon(a);
+                mesh.addPolygon(b);
+            }
+        }
+        return mesh;
+    }
+
+    // A unit sphere made by subdividing the faces of an octahedron
+    private Mesh createSphere(int subdivisions) {
+        float[][] corners = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+        int[][] faces = {{0, 2, 4}, {2, 1, 4}, {1, 3, 4}, {3, 0, 4}, {2, 0, 5}, {1, 2, 5}, {3, 1, 5}, {0, 3, 5}};
+        HashMap<String, Vertex> shared = new HashMap<String, Vertex>();
+        Mesh mesh = new Mesh();
+        int n = subdivisions;
+        for (int[] f : faces) {
+            float[] a = corners[f[0]], b = corners[f[1]], c = corners[f[2]];
+            Vertex[][] grid = new Vertex[n + 1][];
+            for (int i = 0; i <= n; i++) {
+                grid[i] = new Vertex[n + 1 - i];
+                for (int j = 0; j <= n - i; j++) {
+                    float u = (float) i / n, v = (float) j / n, w = 1 - u - v;
+                    float[] p = new float[3];
+                    for (int k = 0; k < 3; k++)
+                        p[k] = a[k] * w + b[k] * u + c[k] * v;
+                    float l = (float) Math.sqrt(p[0] * p[0] + p[1] * p[1] + p[2] * p[2]);
+                    for (int k = 0; k < 3; k++)
+                        p[k] = Math.round(p[k] / l * 1e5f) / 1e5f;
+                    String key = p[0] + "," + p[1] + "," + p[2];
+                    Vertex vertex = shared.get(key);
+                    if (vertex == null) {
+                        vertex = new Vertex(p, p.clone());
+                        shared.put(key, vertex);
+                    }
+                    grid[i][j] = vertex;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n - i; j++) {
+                    mesh.addPolygon(new Polygon(new Vertex[]{grid[i][j], grid[i + 1][j], grid[i][j + 1]}));
+                    if (j < n - i - 1)
+                        mesh.addPolygon(new Polygon(new Vertex[]{grid[i + 1][j], grid[i + 1][j + 1], grid[i][j + 1]}));
+                }
+            }
+        }
+        return mesh;
+    }
+
+    @Test
+    public void testSimplify_ReachesTarget() {
+        Mesh sphere = createSphere(8);
+        int before = sphere.polygons.size();
+        assertEquals(8 * 64, before);
+        Mesh simplified = new MeshSimplifier().simplify(sphere, 100);
+        assertTrue("Expected at most 100 triangles, got " + simplified.polygons.size(), simplified.polygons.size() <= 100);
+        assertTrue("Collapses remove one or two triangles at a time", simplified.polygons.size() >= 98);
+        assertEquals("The input mesh should not be modified", before, sphere.polygons.size());
+    }
+
+    @Test
+    public void testSimplify_KeepsShape() {
+        Mesh simplified = new MeshSimplifier().simplify(createSphere(8), 100);
+        for (Polygon p : simplified.polygons) {
+            for (Vertex v : p.getVertices()) {
+                float l = (float) Math.sqrt(v.point[0] * v.point[0] + v.point[1] * v.point[1] + v.point[2] * v.point[2]);
+                assertTrue("Vertex should stay close to the sphere, at distance " + l, l > 0.85f && l < 1.15f);
+            }
+            // Triangles should still face outwards
+            float[] c = p.getCenter();
+            float[] n = p.getNormal();
+            assertTrue("Triangle should not be flipped", c[0] * n[0] + c[1] * n[1] + c[2] * n[2] > 0);
+        }
+    }
+
+    @Test
+    public void testSimplify_FlatGridKeepsBoundary() {
+        Texture texture = new ImageTexture(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB));
+        Mesh simplified = new MeshSimplifier().simplify(createGrid(8, texture), 2);
+        assertEquals("A flat square needs only two triangles", 2, simplified.polygons.size());
+        float area = 0;
+        for (Polygon p : simplified.polygons) {
+            assertSame("Polygons should keep their texture", texture, p.texture);
+            Vertex[] v = p.getVertices();
+            for (Vertex vertex : v) {
+                assertEquals("Vertices should stay in the plane", 0, vertex.point[2], DELTA);
+                assertTrue("Vertices should stay on the corners of the square",
+                    (Math.abs(vertex.point[0]) < DELTA || Math.abs(vertex.point[0] - 8) < DELTA)
+                    && (Math.abs(vertex.point[1]) < DELTA || Math.abs(vertex.point[1] - 8) < DELTA));
+                assertArrayEquals("Vertices should keep their normal", new float[]{0, 0, 1}, vertex.getNormal(), DELTA);
+            }
+            float ax = v[1].point[0] - v[0].point[0], ay = v[1].point[1] - v[0].point[1];
+            float bx = v[2].point[0] - v[0].point[0], by = v[2].point[1] - v[0].point[1];
+            area += (ax * by - ay * bx) / 2;
+        }
+        assertEquals("The square should be covered with the same winding", 64, area, DELTA);
+    }
+
+    @Test
+    public void testSimplify_SharesVertices() {
+        Mesh simplified = new MeshSimplifier().simplify(createSphere(8), 100);
+        IdentityHashMap<Vertex, Boolean> vertices = new IdentityHashMap<Vertex, Boolean>();
+        for (Polygon p : simplified.polygons)
+            for (Vertex v : p.getVertices())
+                vertices.put(v, Boolean.TRUE);
+        // A closed triangle mesh has about half as many vertices as triangles
+        assertTrue("Vertices should be shared between triangles, found " + vertices.size(), vertices.size() < 60);
+    }
+
+    @Test
+    public void testSimplify_QuadsAndNulls() {
+        Vertex[] v = {
+            new Vertex(new float[]{0, 0, 0}), new Vertex(new float[]{1, 0, 0}),
+            new Vertex(new float[]{1, 1, 0}), new Vertex(new float[]{0, 1, 0})
+        };
+        Mesh mesh = new Mesh();
+        mesh.addPolygon(new Polygon(v));
+        mesh.addPolygon(null);
+        Mesh simplified = new MeshSimplifier().simplify(mesh, 10);
+        assertEquals("Quads are triangulated", 2, simplified.polygons.size());
+    }
+}
@@ -0,0 +1,135 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.Meshlet;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.Vertex;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.reflect.Field;
+
+public class TestMeshlet {
+
+    private static final float DELTA = 1e-5f;
+
+    // A size x size grid of triangles spanning [-1,1]^2 in the z = 0 plane, facing +z (or -z if flipped)
+    private Polygon[] createPatch(int size, boolean flipped) {
+        Polygon[] polygons = new Polygon[size * size * 2];
+        int k = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float x0 = -1 + 2f * x / size, x1 = -1 + 2f * (x + 1) / size;
+                float y0 = -1 + 2f * y / size, y1 = -1 + 2f * (y + 1) / size;
+                Vertex a = new Vertex(new float[]{x0, y0, 0}), b = new Vertex(new float[]{x1, y0, 0});
+                Vertex c = new Vertex(new float[]{x1, y1, 0}), d = new Vertex(new float[]{x0, y1, 0});
+                polygons[k++] = flipped ? new Polygon(new Vertex[]{c, b, a}) : new Polygon(new Vertex[]{a, b, c});
+                polygons[k++] = flipped ? new Polygon(new Vertex[]{d, c, a}) : new Polygon(new Vertex[]{a, c, d});
+            }
+        }
+        return polygons;
+    }
+
+    private PolygonRenderer createRenderer() {
+        PolygonRenderer renderer = new PolygonRenderer(100, 100);
+        renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+        return renderer;
+    }
+
+    private int[] getPixels(PolygonRenderer renderer) throws Exception {
+        Field field = PolygonRenderer.class.getDeclaredField("image");
+        field.setAccessible(true);
+        BufferedImage image = (BufferedImage) field.get(renderer);
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    public void testBoundingSphere() {
+        Meshlet meshlet = new Meshlet(createPatch(4, false));
+        assertArrayEquals(new float[]{0, 0, 0}, meshlet.getCenter(), DELTA);
+        assertEquals((float) Math.sqrt(2), meshlet.getRadius(), DELTA);
+        assertEquals(32, meshlet.getPolygons().length);
+    }
+
+    @Test
+    public void testNormalCone() {
+        Meshlet flat = new Meshlet(createPatch(4, false));
+        assertArrayEquals("A flat patch has a cone along its normal", new float[]{0, 0, 1}, flat.getConeAxis(), DELTA);
+        assertEquals("A flat patch has a zero angle cone", 0, flat.getConeCutoff(), 1e-3f);
+
+        Polygon[] front = createPatch(1, false), back = createPatch(1, true);
+        Meshlet both = new Meshlet(new Polygon[]{front[0], front[1], back[0], back[1]});
+        assertTrue("Opposite normals have no cone", both.getConeCutoff() > 1);
+
+        // A tilted triangle: the cone axis is halfway and the half angle 22.5 degrees
+        Vertex a = new Vertex(new float[]{0, 0, 0}), b = new Vertex(new float[]{1, 0, 0}), c = new Vertex(new float[]{0, 1, 1});
+        Meshlet tilted = new Meshlet(new Polygon[]{front[0], new Polygon(new Vertex[]{a, b, c})});
+        assertEquals((float) Math.sin(Math.PI / 8), tilted.getConeCutoff(), 1e-4f);
+    }
+
+    @Test
+    public void testIsCulled_BackFacing() {
+        PolygonRenderer renderer = createRenderer();
+        Meshlet front = new Meshlet(createPatch(4, false));
+        Meshlet back = new Meshlet(createPatch(4, true));
+        renderer.getModelT().loadIdentity().translateTo(0, 0, -5);
+        assertFalse("A patch facing the eye should not be culled", renderer.isCulled(front));
+        assertTrue("A patch facing away should be culled", renderer.isCulled(back));
+
+        renderer.getModelT().loadIdentity().rotateY((float) Math.PI).translateTo(0, 0, -5);
+        assertTrue(renderer.isCulled(front));
+        assertFalse(renderer.isCulled(back));
+
+        // Seen at a grazing angle, some polygons may face the eye: the cluster must not be culled
+        renderer.getModelT().loadIdentity().rotateY((float) Math.toRadians(89)).translateTo(0, 0, -5);
+        assertFalse(renderer.isCulled(front));
+    }
+
+    @Test
+    public void testIsCulled_OutsideFrustum() {
+        PolygonRenderer renderer = createRenderer();
+        Meshlet front = new Meshlet(createPatch(4, false));
+        renderer.getModelT().loadIdentity().translateTo(20, 0, -5);
+        assertTrue("Right of the frustum", renderer.isCulled(front));
+        renderer.getModelT().loadIdentity().translateTo(0, -20, -5);
+        assertTrue("Below the frustum", renderer.isCulled(front));
+        renderer.getModelT().loadIdentity().translateTo(0, 0, -50);
+        assertTrue("Beyond the far plane", renderer.isCulled(front));
+        renderer.getModelT().loadIdentity().translateTo(0, 0, 5);
+        assertTrue("Behind the eye", renderer.isCulled(front));
+        renderer.getModelT().loadIdentity().translateTo(5.5f, 0, -5);
+        assertFalse("Partly inside the frustum", renderer.isCulled(front));
+    }
+
+    @Test
+    public void testIsCulled_ScaledModel() {
+        PolygonRenderer renderer = createRenderer();
+        Meshlet front = new Meshlet(createPatch(4, false));
+        // At x = 8 the unit patch is outside, but scaled by 3 it reaches into the frustum
+        renderer.getModelT().loadIdentity().translateTo(8, 0, -5);
+        assertTrue(renderer.isCulled(front));
+        renderer.getModelT().loadIdentity().scaleOf(3, 3, 3).translateTo(8, 0, -5);
+        assertFalse(renderer.isCulled(front));
+    }
+
+    @Test
+    public void testRender_MatchesPolygons() throws Exception {
+        Polygon[] polygons = createPatch(4, false);
+        PolygonRenderer expected = createRenderer();
+        PolygonRenderer actual = createRenderer();
+        expected.getModelT().loadIdentity().rotateY(0.3f).translateTo(0.2f, 0, -3);
+        actual.getModelT().loadIdentity().rotateY(0.3f).translateTo(0.2f, 0, -3);
+        for (Polygon p : polygons)
+            expected.render(null, p);
+        actual.render(null, new Meshlet(polygons));
+        int[] pixels = getPixels(actual);
+        assertArrayEquals(getPixels(expected), pixels);
+        boolean drawn = false;
+        for (int pixel : pixels)
+            drawn |= pixel != 0;
+        assertTrue("The meshlet should have been drawn", drawn);
+    }
+}
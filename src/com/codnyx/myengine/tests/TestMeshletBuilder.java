@@ -0,0 +1,103 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.Meshlet;
+import com.codnyx.myengine.MeshletBuilder;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.Vertex;
+
+import java.util.IdentityHashMap;
+
+public class TestMeshletBuilder {
+
+    // A UV sphere of unit radius with shared vertices
+    private Mesh createSphere(int rings, int segments) {
+        Vertex[][] grid = new Vertex[rings + 1][segments];
+        for (int i = 0; i <= rings; i++) {
+            double theta = Math.PI * i / rings;
+            for (int j = 0; j < segments; j++) {
+                double phi = 2 * Math.PI * j / segments;
+                grid[i][j] = new Vertex(new float[]{
+                    (float) (Math.sin(theta) * Math.cos(phi)), (float) Math.cos(theta), (float) (Math.sin(theta) * Math.sin(phi))});
+            }
+        }
+        Mesh mesh = new Mesh();
+        for (int i = 0; i < rings; i++) {
+            for (int j = 0; j < segments; j++) {
+                Vertex a = grid[i][j], b = grid[i][(j + 1) % segments];
+                Vertex c = grid[i + 1][(j + 1) % segments], d = grid[i + 1][j];
+                if (i > 0)
+                    mesh.addPolygon(new Polygon(new Vertex[]{a, b, c}));
+                if (i < rings - 1)
+                    mesh.addPolygon(new Polygon(new Vertex[]{a, c, d}));
+            }
+        }
+        return mesh;
+    }
+
+    @Test
+    public void testBuild_CoversAllPolygons() {
+        Mesh mesh = createSphere(24, 32);
+        mesh.addPolygon(null);
+        Meshlet[] meshlets = new MeshletBuilder().build(mesh);
+        IdentityHashMap<Polygon, Boolean> seen = new IdentityHashMap<Polygon, Boolean>();
+        for (Meshlet m : meshlets) {
+            assertTrue("Meshlets should not be empty", m.getPolygons().length > 0);
+            assertTrue("Meshlets should respect the size limit", m.getPolygons().length <= MeshletBuilder.DEFAULT_MAX_POLYGONS);
+            for (Polygon p : m.getPolygons())
+                assertNull("Each polygon should be in one meshlet", seen.put(p, Boolean.TRUE));
+        }
+        assertEquals("Every polygon but the null one should be in a meshlet", mesh.polygons.size() - 1, seen.size());
+    }
+
+    @Test
+    public void testBuild_CompactClusters() {
+        Mesh mesh = createSphere(24, 32);
+        MeshletBuilder builder = new MeshletBuilder();
+        builder.setMaxPolygons(64);
+        Meshlet[] meshlets = builder.build(mesh);
+        int withCone = 0;
+        float radius = 0;
+        for (Meshlet m : meshlets) {
+            if (m.getConeCutoff() <= 1)
+                withCone++;
+            radius += m.getRadius();
+        }
+        assertEquals("Every patch of a sphere should have a normal cone", meshlets.length, withCone);
+        assertTrue("Clusters should be compact, average radius " + radius / meshlets.length,
+            radius / meshlets.length < 0.5f);
+    }
+
+    @Test
+    public void testBuild_ConeAngleLimit() {
+        Mesh mesh = createSphere(24, 32);
+        MeshletBuilder narrow = new MeshletBuilder();
+        narrow.setMaxConeAngle((float) Math.toRadians(20));
+        MeshletBuilder wide = new MeshletBuilder();
+        wide.setMaxConeAngle((float) Math.PI);
+        wide.setMaxPolygons(Integer.MAX_VALUE);
+        Meshlet[] single = wide.build(mesh);
+        assertEquals("Without limits the whole sphere is one cluster", 1, single.length);
+        assertTrue("A closed mesh has no normal cone", single[0].getConeCutoff() > 1);
+        Meshlet[] meshlets = narrow.build(mesh);
+        for (Meshlet m : meshlets)
+            assertTrue("Cones should stay narrow, cutoff " + m.getConeCutoff(), m.getConeCutoff() < Math.sin(Math.toRadians(45)));
+    }
+
+    @Test
+    public void testMesh_BuildMeshlets() {
+        Mesh mesh = createSphere(8, 8);
+        assertNull(mesh.getMeshlets());
+        mesh.buildMeshlets(new MeshletBuilder());
+        assertNotNull(mesh.getMeshlets());
+        mesh.setMeshlets(null);
+        assertNull(mesh.getMeshlets());
+
+        mesh.buildMeshlets(new MeshletBuilder());
+        mesh.addPolygon(createSphere(4, 4).polygons.getFirst());
+        assertNull("Meshlets would not draw an added polygon", mesh.getMeshlets());
+    }
+}
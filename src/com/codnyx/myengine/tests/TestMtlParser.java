@@ -0,0 +1,104 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codnyx.myengine.ColorUtils;
+import com.codnyx.myengine.Material;
+import com.codnyx.myengine.MtlParser;
+import com.codnyx.myengine.TextureCache;
+import com.codnyx.myengine.Vertex;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import javax.imageio.ImageIO;
+
+public class TestMtlParser {
+
+    private File dir;
+    private URL base;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("mtltest").toFile();
+        BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, 0xFF00FF00);
+        ImageIO.write(img, "png", new File(dir, "tex.png"));
+        base = new File(dir, "test.mtl").toURI().toURL();
+    }
+
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles())
+            f.delete();
+        dir.delete();
+    }
+
+    private HashMap<String, Material> parse(MtlParser parser, String content) throws IOException {
+        return parser.parseStream(new BufferedReader(new StringReader(content)), base);
+    }
+
+    @Test
+    public void testDiffuseColor() throws IOException {
+        HashMap<String, Material> materials = parse(new MtlParser(new TextureCache()),
+            "# comment\n" +
+            "newmtl red\n" +
+            "Kd 1.0 0.0 0.0\n" +
+            "newmtl plain\n");
+        assertEquals(2, materials.size());
+        assertEquals(ColorUtils.getRGB(255, 255, 0, 0), materials.get("red").diffuseColor);
+        assertEquals("Default diffuse color should be white", Vertex.COLOR_WHITE, materials.get("plain").diffuseColor);
+        assertNull(materials.get("plain").diffuseMap);
+    }
+
+    @Test
+    public void testDiffuseMapIsSharedThroughCache() throws IOException {
+        TextureCache cache = new TextureCache();
+        HashMap<String, Material> materials = parse(new MtlParser(cache),
+            "newmtl a\n" +
+            "map_Kd tex.png\n" +
+            "newmtl b\n" +
+            "map_Kd -s 1 1 1 tex.png\n");
+        assertNotNull(materials.get("a").diffuseMap);
+        assertSame("Materials using the same image should share the texture",
+            materials.get("a").diffuseMap, materials.get("b").diffuseMap);
+        assertEquals(1, cache.size());
+        assertEquals(0xFF00FF00, materials.get("a").diffuseMap.getColor(0, 0));
+    }
+
+    @Test
+    public void testMissingDiffuseMap() throws IOException {
+        HashMap<String, Material> materials = parse(new MtlParser(new TextureCache()),
+            "newmtl a\n" +
+            "map_Kd missing.png\n");
+        assertNotNull(materials.get("a"));
+        assertNull("A missing texture should leave the material untextured", materials.get("a").diffuseMap);
+    }
+
+    @Test
+    public void testStatementsBeforeNewmtlAreIgnored() throws IOException {
+        HashMap<String, Material> materials = parse(new MtlParser(new TextureCache()),
+            "Kd 1 0 0\n" +
+            "newmtl a\n");
+        assertEquals(1, materials.size());
+        assertEquals(Vertex.COLOR_WHITE, materials.get("a").diffuseColor);
+    }
+
+    @Test
+    public void testParseFile() throws IOException {
+        File mtl = new File(dir, "test.mtl");
+        Files.write(mtl.toPath(), "newmtl a\nKd 0 0 1\nmap_Kd tex.png\n".getBytes());
+        HashMap<String, Material> materials = new MtlParser(new TextureCache()).parse(mtl.toURI().toURL());
+        assertEquals(ColorUtils.getRGB(255, 0, 0, 255), materials.get("a").diffuseColor);
+        assertNotNull(materials.get("a").diffuseMap);
+    }
+}
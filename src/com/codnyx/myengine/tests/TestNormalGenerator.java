@@ -0,0 +1,145 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.NormalGenerator;
+
+public class TestNormalGenerator {
+
+    private static final float DELTA = 1e-5f;
+
+    // Two triangles meeting at a ridge along the y axis: one in the plane z = -x, one in z = x
+    private static final float[][] RIDGE = {
+        {0, 0, 0}, {0, 1, 0}, {-1, 0, 1}, {1, 0, 1}
+    };
+    private static final int[] RIDGE_TRIANGLES = {0, 1, 2, 1, 0, 3};
+
+    private void assertNormal(String message, float x, float y, float z, NormalGenerator.Result r, int corner) {
+        float[] n = r.normals[r.cornerNormals[corner]];
+        assertEquals(message + " x", x, n[0], DELTA);
+        assertEquals(message + " y", y, n[1], DELTA);
+        assertEquals(message + " z", z, n[2], DELTA);
+    }
+
+    @Test
+    public void testFlatGroup() {
+        NormalGenerator.Result r = new NormalGenerator().generate(RIDGE, RIDGE_TRIANGLES, new int[]{0, 0});
+        float s = (float) Math.sqrt(0.5);
+        for (int c = 0; c < 3; c++) {
+            assertNormal("First face corner " + c, s, 0, s, r, c);
+            assertNormal("Second face corner " + c, -s, 0, s, r, c + 3);
+        }
+        assertEquals("Flat faces should share one normal per face", 2, r.normals.length);
+    }
+
+    @Test
+    public void testSmoothGroup() {
+        NormalGenerator.Result r = new NormalGenerator().generate(RIDGE, RIDGE_TRIANGLES, new int[]{1, 1});
+        float s = (float) Math.sqrt(0.5);
+        // Shared ridge vertices average both faces
+        assertNormal("Shared vertex 0", 0, 0, 1, r, 0);
+        assertNormal("Shared vertex 1", 0, 0, 1, r, 1);
+        assertNormal("Shared vertex 1 (second face)", 0, 0, 1, r, 3);
+        // Vertices used by one face only keep its normal
+        assertNormal("Unshared vertex 2", s, 0, s, r, 2);
+        assertNormal("Unshared vertex 3", -s, 0, s, r, 5);
+        assertEquals("Corners with equal normals should share them", r.cornerNormals[0], r.cornerNormals[3]);
+    }
+
+    @Test
+    public void testNullGroupsSmoothEverything() {
+        NormalGenerator.Result r = new NormalGenerator().generate(RIDGE, RIDGE_TRIANGLES, null);
+        assertNormal("Shared vertex 0", 0, 0, 1, r, 0);
+    }
+
+    @Test
+    public void testDifferentGroupsAreNotSmoothed() {
+        NormalGenerator.Result r = new NormalGenerator().generate(RIDGE, RIDGE_TRIANGLES, new int[]{1, 2});
+        float s = (float) Math.sqrt(0.5);
+        assertNormal("Vertex 0 of group 1", s, 0, s, r, 0);
+        assertNormal("Vertex 0 of group 2", -s, 0, s, r, 4);
+    }
+
+    @Test
+    public void testCreaseAngle() {
+        NormalGenerator generator = new NormalGenerator();
+        generator.setCreaseAngle((float) Math.toRadians(60)); // The ridge is a 90 degree crease
+        NormalGenerator.Result r = generator.generate(RIDGE, RIDGE_TRIANGLES, new int[]{1, 1});
+        float s = (float) Math.sqrt(0.5);
+        assertNormal("Vertex 0 across the crease", s, 0, s, r, 0);
+        assertNormal("Vertex 0 across the crease (second face)", -s, 0, s, r, 4);
+
+        generator.setCreaseAngle((float) Math.toRadians(120));
+        r = generator.generate(RIDGE, RIDGE_TRIANGLES, new int[]{1, 1});
+        assertNormal("Vertex 0 below the crease angle", 0, 0, 1, r, 0);
+    }
+
+    @Test
+    public void testWeldsCoincidentPositions() {
+        // Same ridge, but the second face uses duplicated copies of the shared positions
+        float[][] positions = {
+            {0, 0, 0}, {0, 1, 0}, {-1, 0, 1}, {1, 0, 1}, {0, 0, 0}, {0, 1.0000001f, 0}
+        };
+        int[] triangles = {0, 1, 2, 5, 4, 3};
+        NormalGenerator.Result r = new NormalGenerator().generate(positions, triangles, new int[]{1, 1});
+        assertNormal("Welded vertex", 0, 0, 1, r, 0);
+        assertNormal("Welded vertex (duplicate)", 0, 0, 1, r, 4);
+
+        NormalGenerator noWeld = new NormalGenerator();
+        noWeld.setWeldTolerance(0);
+        r = noWeld.generate(positions, triangles, new int[]{1, 1});
+        float s = (float) Math.sqrt(0.5);
+        assertNormal("Vertex 1 is not an exact duplicate", s, 0, s, r, 1);
+        assertNormal("Exact duplicates are still welded", 0, 0, 1, r, 0);
+    }
+
+    @Test
+    public void testAreaWeighting() {
+        // A large and a small face sharing vertex 0; the large face dominates
+        float[][] positions = {{0, 0, 0}, {10, 0, 0}, {0, 10, 0}, {0, 0, 1}, {0, -1, 0}};
+        int[] triangles = {0, 1, 2, 0, 3, 4};
+        NormalGenerator.Result r = new NormalGenerator().generate(positions, triangles, null);
+        float[] n = r.normals[r.cornerNormals[0]];
+        // Large face normal (0,0,1) with area 50, small face normal (1,0,0) with area 0.5
+        assertEquals(0.5f / (float) Math.sqrt(50 * 50 + 0.5f * 0.5f), n[0], DELTA);
+        assertEquals(50f / (float) Math.sqrt(50 * 50 + 0.5f * 0.5f), n[2], DELTA);
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        // A bumpy grid large enough to be split between workers
+        int size = 100;
+        float[][] positions = new float[(size + 1) * (size + 1)][];
+        for (int y = 0; y <= size; y++)
+            for (int x = 0; x <= size; x++)
+                positions[y * (size + 1) + x] = new float[]{x, y, (float) Math.sin(x * 0.3) * (float) Math.cos(y * 0.2)};
+        int[] triangles = new int[size * size * 6];
+        int[] groups = new int[size * size * 2];
+        int k = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+                triangles[k++] = v; triangles[k++] = v + 1; triangles[k++] = v + size + 1;
+                triangles[k++] = v + 1; triangles[k++] = v + size + 2; triangles[k++] = v + size + 1;
+                groups[(y * size + x) * 2] = groups[(y * size + x) * 2 + 1] = x < size / 2 ? 1 : 0;
+            }
+        }
+        for (float crease : new float[]{(float) Math.PI, (float) Math.toRadians(30)}) {
+            NormalGenerator serial = new NormalGenerator();
+            serial.setParallelism(1);
+            serial.setCreaseAngle(crease);
+            NormalGenerator parallel = new NormalGenerator();
+            parallel.setParallelism(4);
+            parallel.setCreaseAngle(crease);
+            NormalGenerator.Result rs = serial.generate(positions, triangles, groups);
+            NormalGenerator.Result rp = parallel.generate(positions, triangles, groups);
+            for (int c = 0; c < triangles.length; c++) {
+                float[] ns = rs.normals[rs.cornerNormals[c]];
+                float[] np = rp.normals[rp.cornerNormals[c]];
+                for (int i = 0; i < 3; i++)
+                    assertEquals("Corner " + c, ns[i], np[i], DELTA);
+            }
+        }
+    }
+}
@@ -6,14 +6,19 @@ import org.junit.Test;
 import com.codnyx.myengine.Mesh;
 import com.codnyx.myengine.ObjParser;
 import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.TextureCache;
 import com.codnyx.myengine.Vertex;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.awt.image.BufferedImage;
+import javax.imageio.ImageIO;
 
 public class TestObjParser {
 
@@ -134,7 +139,14 @@ public class TestObjParser {
         assertEquals("Polygon should have 3 vertices", 3, p1.getVertices().length);
         assertVertexPosition(p1.getVertices()[0], 1.0f, 0.0f, 0.0f, "P1V1");
         assertVertexNormal(p1.getVertices()[0], 0.0f, 0.0f, 1.0f, "P1V1 Normal");
-        // Texture coordinates are parsed for VertexData uniqueness but not stored on Vertex object by current parser
+        // Texture coordinates are stored with v flipped so that (0,0) is the top-left of the image
+        assertNotNull("Texture coordinates should be stored on the vertex", p1.getVertices()[0].getTexCoord());
+        assertEquals(0.0f, p1.getVertices()[0].getTexCoord()[0], DELTA);
+        assertEquals(1.0f, p1.getVertices()[0].getTexCoord()[1], DELTA);
+        assertEquals(1.0f, p1.getVertices()[1].getTexCoord()[0], DELTA);
+        assertEquals(1.0f, p1.getVertices()[1].getTexCoord()[1], DELTA);
+        assertEquals(0.0f, p1.getVertices()[2].getTexCoord()[0], DELTA);
+        assertEquals(0.0f, p1.getVertices()[2].getTexCoord()[1], DELTA);
     }
     
     @Test
@@ -406,4 +418,161 @@ public class TestObjParser {
         assertVertexPosition(p1.getVertices()[1], 0.0f, 0.0f, 0.0f, "BadIndexP1V2 (defaulted)");
         assertVertexPosition(p1.getVertices()[2], 0.0f, 0.0f, 0.0f, "BadIndexP1V3 (defaulted)");
     }
+
+    @Test
+    public void testParseFaces_WithoutTexCoords() throws IOException {
+        String objContent =
+            "v 1.0 0.0 0.0\n" +
+            "v 0.0 1.0 0.0\n" +
+            "v 0.0 0.0 1.0\n" +
+            "f 1 2 3\n";
+
+        ObjParser parser = new ObjParser();
+        Mesh mesh = parser.parseStream(new BufferedReader(new StringReader(objContent)));
+        for (Vertex v : mesh.polygons.get(0).getVertices()) {
+            assertNull("Vertices without 'vt' should have no texture coordinates", v.getTexCoord());
+        }
+        assertNull(mesh.polygons.get(0).texture);
+    }
+
+    @Test
+    public void testParseFile_Materials() throws IOException {
+        File dir = Files.createTempDirectory("objtest").toFile();
+        try {
+            BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+            ImageIO.write(img, "png", new File(dir, "tex.png"));
+            Files.write(new File(dir, "test.mtl").toPath(), (
+                "newmtl textured\n" +
+                "map_Kd tex.png\n" +
+                "newmtl red\n" +
+                "Kd 1 0 0\n").getBytes(StandardCharsets.UTF_8));
+            File obj = new File(dir, "test.obj");
+            Files.write(obj.toPath(), (
+                "mtllib test.mtl\n" +
+                "v 0.0 0.0 0.0\n" +
+                "v 1.0 0.0 0.0\n" +
+                "v 1.0 1.0 0.0\n" +
+                "v 0.0 1.0 0.0\n" +
+                "vt 0.0 0.0\n" +
+                "vt 1.0 0.0\n" +
+                "vt 1.0 1.0\n" +
+                "vt 0.0 1.0\n" +
+                "usemtl textured\n" +
+                "f 1/1 2/2 3/3\n" +
+                "f 1/1 3/3 4/4\n" +
+                "usemtl red\n" +
+                "f 1 3 2\n").getBytes(StandardCharsets.UTF_8));
+
+            ObjParser parser = new ObjParser();
+            parser.setBalanceVertices(false);
+            parser.setTextureCache(new TextureCache());
+            Mesh mesh = parser.parseFile(obj.getPath());
+
+            assertEquals(3, mesh.polygons.size());
+            Polygon p1 = mesh.polygons.get(0);
+            Polygon p2 = mesh.polygons.get(1);
+            Polygon p3 = mesh.polygons.get(2);
+            assertNotNull("Polygons using a textured material should have its texture", p1.texture);
+            assertSame("Polygons of the same material should share one texture", p1.texture, p2.texture);
+            assertNull("Polygons using an untextured material should have no texture", p3.texture);
+            assertEquals(0xFFFF0000, p3.getVertices()[0].getRGBColor());
+            assertNull("The base location should be restored after parsing a file", parser.getBaseLocation());
+        } finally {
+            for (File f : dir.listFiles())
+                f.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testSmoothingGroups() throws IOException {
+        String objContent =
+            "v 0.0 0.0 0.0\n" +
+            "v 0.0 1.0 0.0\n" +
+            "v -1.0 0.0 1.0\n" +
+            "v 1.0 0.0 1.0\n" +
+            "s 1\n" +
+            "f 1 2 3\n" +
+            "f 2 1 4\n" +
+            "s off\n" +
+            "f 1 2 3\n";
+
+        ObjParser parser = new ObjParser();
+        parser.setBalanceVertices(false);
+        Mesh mesh = parser.parseStream(new BufferedReader(new StringReader(objContent)));
+        assertEquals(3, mesh.polygons.size());
+        float s = (float) Math.sqrt(0.5);
+        // Smoothed faces average their normals on the shared edge
+        assertVertexNormal(mesh.polygons.get(0).getVertices()[0], 0.0f, 0.0f, 1.0f, "Smoothed shared vertex");
+        assertVertexNormal(mesh.polygons.get(0).getVertices()[2], s, 0.0f, s, "Smoothed unshared vertex");
+        assertSame("Smoothed faces should share vertices", mesh.polygons.get(0).getVertices()[0], mesh.polygons.get(1).getVertices()[1]);
+        // 's off' faces are flat
+        for (Vertex v : mesh.polygons.get(2).getVertices())
+            assertVertexNormal(v, s, 0.0f, s, "Flat vertex");
+    }
+
+    @Test
+    public void testDefaultSmoothingGroup() throws IOException {
+        String objContent =
+            "v 0.0 0.0 0.0\n" +
+            "v 0.0 1.0 0.0\n" +
+            "v -1.0 0.0 1.0\n" +
+            "v 1.0 0.0 1.0\n" +
+            "f 1 2 3\n" +
+            "f 2 1 4\n";
+
+        ObjParser parser = new ObjParser();
+        parser.setBalanceVertices(false);
+        Mesh flat = parser.parseStream(new BufferedReader(new StringReader(objContent)));
+        float s = (float) Math.sqrt(0.5);
+        assertVertexNormal(flat.polygons.get(0).getVertices()[0], s, 0.0f, s, "Flat by default");
+
+        parser.setDefaultSmoothingGroup(1);
+        assertEquals(1, parser.getDefaultSmoothingGroup());
+        Mesh smooth = parser.parseStream(new BufferedReader(new StringReader(objContent)));
+        assertVertexNormal(smooth.polygons.get(0).getVertices()[0], 0.0f, 0.0f, 1.0f, "Smoothed with default group");
+    }
+
+    @Test
+    public void testCreaseAngle() throws IOException {
+        String objContent =
+            "v 0.0 0.0 0.0\n" +
+            "v 0.0 1.0 0.0\n" +
+            "v -1.0 0.0 1.0\n" +
+            "v 1.0 0.0 1.0\n" +
+            "s 1\n" +
+            "f 1 2 3\n" +
+            "f 2 1 4\n";
+
+        ObjParser parser = new ObjParser();
+        parser.setBalanceVertices(false);
+        parser.getNormalGenerator().setCreaseAngle((float) Math.toRadians(45));
+        Mesh mesh = parser.parseStream(new BufferedReader(new StringReader(objContent)));
+        float s = (float) Math.sqrt(0.5);
+        assertVertexNormal(mesh.polygons.get(0).getVertices()[0], s, 0.0f, s, "Vertex on a crease keeps its face normal");
+        assertVertexNormal(mesh.polygons.get(1).getVertices()[1], -s, 0.0f, s, "Vertex on a crease keeps its face normal");
+    }
+
+    @Test
+    public void testMoreThanShortIndices() throws IOException {
+        // A strip of flat triangles: each gets its own generated normal, past the range of a short
+        int triangles = 40000;
+        StringBuilder objContent = new StringBuilder();
+        for (int i = 0; i < triangles / 2 + 1; i++)
+            objContent.append("v ").append(i).append(" 0.0 0.0\nv ").append(i).append(" 1.0 0.0\n");
+        for (int i = 0; i < triangles / 2; i++) {
+            int a = 2 * i + 1;
+            objContent.append("f ").append(a).append(' ').append(a + 2).append(' ').append(a + 1).append('\n');
+            objContent.append("f ").append(a + 1).append(' ').append(a + 2).append(' ').append(a + 3).append('\n');
+        }
+
+        ObjParser parser = new ObjParser();
+        parser.setBalanceVertices(false);
+        Mesh mesh = parser.parseStream(new BufferedReader(new StringReader(objContent.toString())));
+        assertEquals(triangles, mesh.polygons.size());
+        Polygon last = mesh.polygons.getLast();
+        assertPolygonHasVertex(last, new float[]{triangles / 2, 1.0f, 0.0f}, "Last vertex");
+        for (Vertex v : last.getVertices())
+            assertVertexNormal(v, 0.0f, 0.0f, 1.0f, "Generated normal of the last triangle");
+    }
 }
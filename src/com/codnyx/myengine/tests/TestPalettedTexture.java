@@ -0,0 +1,77 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.PalettedTexture;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+public class TestPalettedTexture {
+
+    @Test
+    public void testFewColorsAreExact() {
+        int[] colors = {0xFF000000, 0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFFFFFF};
+        BufferedImage img = new BufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++)
+                img.setRGB(x, y, colors[(x + 3 * y) % colors.length]);
+        PalettedTexture tex = new PalettedTexture(img);
+        assertEquals(colors.length, tex.getPalette().length);
+        for (int y = 0; y < 8; y++)
+            for (int x = 0; x < 8; x++)
+                assertEquals(img.getRGB(x, y), tex.getColor(x, y));
+        assertEquals("Wrapping", tex.getColor(1, 1), tex.getColor(9, -7));
+    }
+
+    @Test
+    public void testManyColorsAreApproximated() {
+        BufferedImage img = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(3);
+        for (int y = 0; y < 64; y++)
+            for (int x = 0; x < 64; x++)
+                img.setRGB(x, y, random.nextInt());
+        ImageTexture reference = new ImageTexture(img);
+        PalettedTexture tex = new PalettedTexture(img);
+        assertEquals(PalettedTexture.MAX_COLORS, tex.getPalette().length);
+        assertEquals(reference.getLevelCount(), tex.getLevelCount());
+        long error = 0;
+        for (int y = 0; y < 64; y++)
+            for (int x = 0; x < 64; x++) {
+                int e = reference.getColor(x, y), a = tex.getColor(x, y);
+                for (int shift = 0; shift < 24; shift += 8)
+                    error += Math.abs(((e >> shift) & 0xff) - ((a >> shift) & 0xff));
+            }
+        // 256 colors cover random RGB colors in cells of about 40 levels per channel
+        assertTrue("Mean channel error " + error / (64.0 * 64 * 3), error / (64.0 * 64 * 3) < 16);
+    }
+
+    @Test
+    public void testLevelsUseThePalette() {
+        BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(0, 0, 0xFFFF0000);
+        img.setRGB(1, 0, 0xFFFF0000);
+        img.setRGB(0, 1, 0xFF0000FF);
+        img.setRGB(1, 1, 0xFF0000FF);
+        PalettedTexture tex = new PalettedTexture(img);
+        assertEquals(2, tex.getLevelCount());
+        int average = tex.getColor(0, 0, 1);
+        assertTrue(average == 0xFFFF0000 || average == 0xFF0000FF);
+        assertEquals("4 indices, 1 index and 2 palette colors", 4 + 1 + 2 * 4, tex.getMemorySize());
+    }
+
+    @Test
+    public void testSampleSpanMatchesGetColor() {
+        BufferedImage img = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 6; y++)
+            for (int x = 0; x < 8; x++)
+                img.setRGB(x, y, (x * 30 << 16) | (y * 40 << 8) | 0x55);
+        PalettedTexture tex = new PalettedTexture(img);
+        int[] dst = new int[20];
+        tex.sampleSpan(-2 << 16, 1 << 16, 0x18000, 0x8000, dst.length, 1, dst, 0);
+        for (int i = 0; i < dst.length; i++)
+            assertEquals(tex.getColor((-0x20000 + i * 0x18000) >> 16, (0x10000 + i * 0x8000) >> 16, 1), dst[i]);
+    }
+}
@@ -215,5 +215,24 @@ public class TestPerspectiveTransformation {
         PerspectiveTransformation pt = new PerspectiveTransformation(Math.toRadians(60), 800, 600, 0, 0, 0.1f, 1000f);
         assertEquals("getZMin", 0.1f, pt.getZMin(), DELTA);
         assertEquals("getZMax", 1000f, pt.getZMax(), DELTA);
+        // tan(30 degrees) = 1/sqrt(3), so the focal length is 300 * sqrt(3)
+        assertEquals("getFocalLength", 300f * (float) Math.sqrt(3), pt.getFocalLength(), 1e-3f);
+    }
+
+    @Test
+    public void testIsSphereOutside() {
+        // 90 degree vertical field of view on a square viewport: the side planes are at 45 degrees
+        PerspectiveTransformation pt = new PerspectiveTransformation(Math.toRadians(90), 100, 100, 0, 0, -30f, -1f);
+        assertFalse("Centered", pt.isSphereOutside(new float[]{0, 0, -10}, 1));
+        assertTrue("Closer than the near plane", pt.isSphereOutside(new float[]{0, 0, -0.5f}, 0.4f));
+        assertFalse("Crossing the near plane", pt.isSphereOutside(new float[]{0, 0, -0.5f}, 0.6f));
+        assertTrue("Beyond the far plane", pt.isSphereOutside(new float[]{0, 0, -32}, 1));
+        assertFalse("Crossing the far plane", pt.isSphereOutside(new float[]{0, 0, -30.5f}, 1));
+        // At z = -10 the frustum spans x in [-10, 10]; a sphere of radius 1 reaches sqrt(2) further out
+        assertFalse("Crossing the right plane", pt.isSphereOutside(new float[]{11.4f, 0, -10}, 1));
+        assertTrue("Right of the right plane", pt.isSphereOutside(new float[]{11.5f, 0, -10}, 1));
+        assertTrue("Left of the left plane", pt.isSphereOutside(new float[]{-11.5f, 0, -10}, 1));
+        assertTrue("Above the top plane", pt.isSphereOutside(new float[]{0, 11.5f, -10}, 1));
+        assertTrue("Below the bottom plane", pt.isSphereOutside(new float[]{0, -11.5f, -10}, 1));
     }
 }
@@ -267,6 +267,51 @@ public class TestPolygonRenderer {
         );
     }
     
+    @Test
+    public void testOpaqueCommitPresentsChangedAreas() throws Exception {
+        BufferedImage image = PolygonRenderer.createCompatibleImage(null, 10, 10);
+        PolygonRenderer renderer = new PolygonRenderer(image);
+        assertSame("The renderer draws into the image", ((java.awt.image.DataBufferInt) image.getRaster().getDataBuffer()).getData(), renderer.getColorBuffer());
+        java.awt.image.ImageObserver observer = (java.awt.image.ImageObserver) getPrivateField(renderer, "observer");
+        int[] bounds = (int[]) getPrivateField(renderer, "bounds");
+        renderer.setBufferAge(2);
+
+        Graphics g = Mockito.mock(Graphics.class);
+        renderer.clean();
+        bounds[0] = 1; bounds[1] = 2; bounds[2] = 3; bounds[3] = 4;
+        renderer.commit(g);
+        Mockito.verify(g).drawImage(image, 0, 0, 10, 10, 0, 0, 10, 10, observer);
+
+        g = Mockito.mock(Graphics.class);
+        renderer.clean();
+        bounds[0] = 5; bounds[1] = 5; bounds[2] = 6; bounds[3] = 6;
+        renderer.commit(g);
+        Mockito.verify(g).drawImage(image, 1, 2, 7, 7, 1, 2, 7, 7, observer);
+
+        g = Mockito.mock(Graphics.class);
+        renderer.clean();
+        bounds[0] = 7; bounds[1] = 7; bounds[2] = 12; bounds[3] = 8;
+        renderer.commit(g);
+        Mockito.verify(g).drawImage(image, 1, 2, 10, 9, 1, 2, 10, 9, observer);
+
+        g = Mockito.mock(Graphics.class);
+        renderer.clean();
+        renderer.commit(g);
+        Mockito.verify(g).drawImage(image, 5, 5, 10, 9, 5, 5, 10, 9, observer);
+
+        g = Mockito.mock(Graphics.class);
+        renderer.invalidatePresentation();
+        renderer.clean();
+        renderer.commit(g);
+        Mockito.verify(g).drawImage(image, 0, 0, 10, 10, 0, 0, 10, 10, observer);
+
+        try {
+            new PolygonRenderer(new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR));
+            fail("The renderer cannot draw into the image");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+    
     // --- Test hitTest() ---
     @Test
     public void testHitTest() throws Exception {
@@ -333,4 +378,225 @@ public class TestPolygonRenderer {
         renderer.commit(Mockito.mock(Graphics.class)); // This calls handler.commit()
         assertTrue("HitTestHandler.commit() should be called", mockHandler.commitCalled);
     }
+
+    // --- Test render() - Mipmapping ---
+    // A quad facing the eye at z = -10, textured with a one-texel checkerboard that it minifies about 6 times
+    private Polygon createCheckerQuad(Texture texture) {
+        Vertex[] vs = {
+            new Vertex(new float[]{-1f, -1f, -10f}), new Vertex(new float[]{1f, -1f, -10f}),
+            new Vertex(new float[]{1f, 1f, -10f}), new Vertex(new float[]{-1f, 1f, -10f})
+        };
+        float[][] uvs = {{0, 0}, {1, 0}, {1, 1}, {0, 1}};
+        for (int i = 0; i < vs.length; i++)
+            vs[i].setTexCoord(uvs[i]);
+        Polygon quad = new Polygon(vs);
+        quad.texture = texture;
+        return quad;
+    }
+
+    private int[] renderCheckerQuad(Texture texture) throws Exception {
+        PolygonRenderer renderer = new PolygonRenderer(100, 100);
+        renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+        renderer.render(Mockito.mock(Graphics.class), createCheckerQuad(texture));
+        BufferedImage image = (BufferedImage) getPrivateField(renderer, "image");
+        return ((java.awt.image.DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    public void testRender_MipmappedTextureIsFiltered() throws Exception {
+        BufferedImage checker = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++)
+            for (int x = 0; x < 64; x++)
+                checker.setRGB(x, y, ((x + y) & 1) == 0 ? 0xFF000000 : 0xFFFFFFFF);
+
+        int drawn = 0;
+        for (int pixel : renderCheckerQuad(new com.codnyx.myengine.ImageTexture(checker))) {
+            if (pixel == 0)
+                continue;
+            drawn++;
+            assertEquals("Minified checkerboard should be sampled from an averaged level", 0xFF808080, pixel);
+        }
+        assertTrue("The quad should cover about 10x10 pixels", drawn > 60);
+
+        // Without reduced levels the same quad aliases to black and white pixels
+        final com.codnyx.myengine.ImageTexture full = new com.codnyx.myengine.ImageTexture(checker);
+        Texture single = new Texture() {
+            @Override
+            public int getColor(int x, int y) { return full.getColor(x, y); }
+            @Override
+            public int getWidth() { return 64; }
+            @Override
+            public int getHeight() { return 64; }
+        };
+        for (int pixel : renderCheckerQuad(single))
+            assertTrue(pixel == 0 || pixel == 0xFF000000 || pixel == 0xFFFFFFFF);
+    }
+
+    // --- Test depth formats ---
+    @Test
+    public void testSetDepthFormatReallocatesBuffer() throws Exception {
+        PolygonRenderer renderer = new PolygonRenderer(10, 5);
+        assertEquals(com.codnyx.myengine.DepthFormat.FLOAT32, renderer.getDepthFormat());
+        renderer.setDepthFormat(com.codnyx.myengine.DepthFormat.SHORT16);
+        assertNull("The float buffer should be released", getPrivateField(renderer, "zBuffer"));
+        short[] shorts = (short[]) getPrivateField(renderer, "zBuffer16");
+        assertEquals(50, shorts.length);
+        assertEquals("Cleared to the far plane", (short) 0xFFFF, shorts[0]);
+        renderer.setDepthFormat(com.codnyx.myengine.DepthFormat.INT24);
+        assertNull(getPrivateField(renderer, "zBuffer16"));
+        int[] ints = (int[]) getPrivateField(renderer, "zBuffer24");
+        ints[3] = 0;
+        renderer.clean();
+        assertEquals(0xFFFFFF, ints[3]);
+    }
+
+    private Polygon createColoredQuad(float z, Color color) {
+        return new Polygon(new float[][]{{-1f, -1f, z}, {1f, -1f, z}, {1f, 1f, z}, {-1f, 1f, z}}, color);
+    }
+
+    private int[] renderOverlappingQuads(com.codnyx.myengine.DepthFormat format, boolean nearFirst) throws Exception {
+        PolygonRenderer renderer = new PolygonRenderer(60, 60);
+        renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+        renderer.setDepthFormat(format);
+        Polygon near = createColoredQuad(-5f, Color.RED);
+        Polygon far = createColoredQuad(-5.05f, Color.BLUE);
+        renderer.getModelT().loadIdentity().translateTo(0.5f, 0, 0);
+        renderer.render(Mockito.mock(Graphics.class), nearFirst ? near : far);
+        renderer.getModelT().loadIdentity();
+        renderer.render(Mockito.mock(Graphics.class), nearFirst ? far : near);
+        BufferedImage image = (BufferedImage) getPrivateField(renderer, "image");
+        return ((java.awt.image.DataBufferInt) image.getRaster().getDataBuffer()).getData().clone();
+    }
+
+    @Test
+    public void testRender_IntegerDepthFormatsMatchFloat() throws Exception {
+        for (boolean nearFirst : new boolean[]{true, false}) {
+            int[] reference = renderOverlappingQuads(com.codnyx.myengine.DepthFormat.FLOAT32, nearFirst);
+            assertEquals("The near quad covers the center", Color.RED.getRGB(), reference[30 * 60 + 32]);
+            for (com.codnyx.myengine.DepthFormat format : com.codnyx.myengine.DepthFormat.values())
+                assertArrayEquals(format + (nearFirst ? ", near first" : ", far first"),
+                        reference, renderOverlappingQuads(format, nearFirst));
+        }
+    }
+
+    // --- Test alternating depth ranges ---
+    private void renderFrame(PolygonRenderer renderer, int frame) {
+        Graphics g = Mockito.mock(Graphics.class);
+        // The quads move and swap depth order from frame to frame, and odd frames leave part of the screen empty
+        Polygon near = createColoredQuad(-5f - 0.05f * (frame % 2), Color.RED);
+        Polygon far = createColoredQuad(-5.05f + 0.05f * (frame % 2), Color.BLUE);
+        renderer.getModelT().loadIdentity().translateTo(0.5f - 0.25f * frame, 0.1f * frame, 0);
+        renderer.render(g, near);
+        renderer.getModelT().loadIdentity().translateTo(frame % 2 == 0 ? 0 : -1.5f, 0, 0);
+        renderer.render(g, far);
+    }
+
+    @Test
+    public void testAlternatingDepthMatchesClearedFrames() throws Exception {
+        for (com.codnyx.myengine.DepthFormat format : com.codnyx.myengine.DepthFormat.values()) {
+            PolygonRenderer cleared = new PolygonRenderer(70, 60);
+            PolygonRenderer alternating = new PolygonRenderer(70, 60);
+            for (PolygonRenderer renderer : new PolygonRenderer[]{cleared, alternating}) {
+                renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+                renderer.setDepthFormat(format);
+            }
+            alternating.setAlternatingDepth(true);
+            assertTrue(alternating.isAlternatingDepth());
+            for (int frame = 0; frame < 5; frame++) {
+                cleared.clean();
+                alternating.clean();
+                renderFrame(cleared, frame);
+                renderFrame(alternating, frame);
+                alternating.resolve();
+                BufferedImage expected = (BufferedImage) getPrivateField(cleared, "image");
+                BufferedImage actual = (BufferedImage) getPrivateField(alternating, "image");
+                assertArrayEquals(format + ", frame " + frame,
+                        ((java.awt.image.DataBufferInt) expected.getRaster().getDataBuffer()).getData(),
+                        ((java.awt.image.DataBufferInt) actual.getRaster().getDataBuffer()).getData());
+            }
+        }
+    }
+
+    @Test
+    public void testAlternatingDepthDoesNotClearCoveredTiles() throws Exception {
+        PolygonRenderer renderer = new PolygonRenderer(64, 64);
+        renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+        renderer.setAlternatingDepth(true);
+        Polygon cover = new Polygon(new float[][]{{-10f, -10f, -5f}, {10f, -10f, -5f}, {10f, 10f, -5f}, {-10f, 10f, -5f}}, Color.GREEN);
+        renderer.clean();
+        renderer.render(Mockito.mock(Graphics.class), cover);
+        int[] tileWrites = (int[]) getPrivateField(renderer, "tileWrites");
+        assertEquals(4, tileWrites.length);
+        for (int writes : tileWrites)
+            assertEquals("Every pixel of the tile is drawn once", 32 * 32, writes);
+        renderer.resolve();
+        float[] zBuffer = (float[]) getPrivateField(renderer, "zBuffer");
+        float depth = zBuffer[100];
+        assertTrue("The pixel is drawn", depth != 0.5f);
+        renderer.clean();
+        assertEquals("The depth buffer is not cleared", depth, zBuffer[100], 0f);
+        renderer.render(Mockito.mock(Graphics.class), cover);
+        assertTrue("Consecutive frames use opposite halves of the range", (zBuffer[100] - 0.5f) * (depth - 0.5f) < 0);
+        assertEquals(32 * 32, tileWrites[0]);
+        BufferedImage image = (BufferedImage) getPrivateField(renderer, "image");
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(10, 10));
+    }
+
+    // --- Test headless rendering ---
+    @Test
+    public void testHeadlessRenderIntoCallerBuffers() throws Exception {
+        int[] reference = renderOverlappingQuads(com.codnyx.myengine.DepthFormat.FLOAT32, true);
+        int[] color = new int[60 * 60];
+        float[] depth = new float[60 * 60];
+        java.util.Arrays.fill(color, 0x12345678);
+        PolygonRenderer renderer = new PolygonRenderer(60, 60, color, depth);
+        assertEquals("The buffers are cleared", 0, color[0]);
+        assertEquals(Float.POSITIVE_INFINITY, depth[0], 0f);
+        assertNull("No image is created", getPrivateField(renderer, "image"));
+        renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+        renderer.getModelT().loadIdentity().translateTo(0.5f, 0, 0);
+        renderer.render(createColoredQuad(-5f, Color.RED));
+        renderer.getModelT().loadIdentity();
+        renderer.render(createColoredQuad(-5.05f, Color.BLUE));
+        MockHitTestHandler handler = new MockHitTestHandler();
+        renderer.hitTest(30, 30, handler);
+        renderer.commit();
+        assertTrue(handler.commitCalled);
+        assertArrayEquals(reference, color);
+        assertSame(color, renderer.getColorBuffer());
+        assertSame(depth, renderer.getDepthBuffer());
+        assertTrue(depth[30 * 60 + 32] < 1);
+        BufferedImage image = renderer.getImage();
+        assertEquals(Color.RED.getRGB(), image.getRGB(32, 30));
+        color[0] = Color.GREEN.getRGB();
+        assertEquals("The image shares the color buffer", Color.GREEN.getRGB(), image.getRGB(0, 0));
+    }
+
+    @Test
+    public void testHeadlessIntBufferTargets() throws Exception {
+        int[] reference = renderOverlappingQuads(com.codnyx.myengine.DepthFormat.FLOAT32, false);
+        int[] array = new int[60 * 60];
+        PolygonRenderer wrapped = new PolygonRenderer(60, 60, java.nio.IntBuffer.wrap(array), null);
+        assertSame("An array at offset 0 is drawn into directly", array, wrapped.getColorBuffer());
+
+        java.nio.IntBuffer direct = java.nio.ByteBuffer.allocateDirect(4 * 60 * 60 + 8).asIntBuffer();
+        direct.position(2);
+        PolygonRenderer renderer = new PolygonRenderer(60, 60, direct, null);
+        renderer.setPerspective(Math.toRadians(90), -30f, -1f);
+        renderer.getModelT().loadIdentity().translateTo(0.5f, 0, 0);
+        renderer.render(createColoredQuad(-5.05f, Color.BLUE));
+        renderer.getModelT().loadIdentity();
+        renderer.render(createColoredQuad(-5f, Color.RED));
+        assertEquals("Pixels are copied on commit", 0, direct.get(2 + 30 * 60 + 32));
+        renderer.commit();
+        assertEquals("The position is kept", 2, direct.position());
+        for (int i = 0; i < reference.length; i++)
+            assertEquals(reference[i], direct.get(2 + i));
+
+        try {
+            new PolygonRenderer(60, 60, new int[100], null);
+            fail("The color buffer is too small");
+        } catch (IllegalArgumentException e) {
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import static com.codnyx.myengine.tests.RenderFixture.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.DepthFormat;
+import com.codnyx.myengine.LodMesh;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TestRenderConfig {
+
+    private static final int VIEWS = 24;
+
+    /** Renders one view of the mesh, the camera distance and angle depending on the view index. */
+    private int[] renderView(PolygonRenderer context, Mesh mesh, int view) {
+        context.clean();
+        context.getModelT().loadIdentity().rotateX(0.3f * view).rotateY(0.7f).translateTo(0, 0, -3f - view);
+        mesh.render(context);
+        context.commit();
+        return context.getColorBuffer().clone();
+    }
+
+    @Test
+    public void testConfigurationCopies() {
+        RenderConfig config = new RenderConfig(WIDTH, HEIGHT);
+        assertNull(config.getProjT());
+        RenderConfig perspective = config.withPerspective(Math.PI / 3, -30f, -1f);
+        RenderConfig shorts = perspective.withDepthFormat(DepthFormat.SHORT16).withAlternatingDepth(true);
+        assertNull("Configurations are immutable", config.getProjT());
+        assertEquals(DepthFormat.FLOAT32, perspective.getDepthFormat());
+        assertFalse(perspective.isAlternatingDepth());
+        assertSame(perspective.getProjT(), shorts.getProjT());
+
+        PolygonRenderer context = shorts.newContext();
+        assertSame("Contexts share the projection", shorts.getProjT(), context.getProjT());
+        assertEquals(DepthFormat.SHORT16, context.getDepthFormat());
+        assertTrue(context.isAlternatingDepth());
+        assertEquals(WIDTH * HEIGHT, context.getColorBuffer().length);
+        assertNotSame(context.getColorBuffer(), shorts.newContext().getColorBuffer());
+
+        int[] color = new int[WIDTH * HEIGHT];
+        float[] depth = new float[WIDTH * HEIGHT];
+        PolygonRenderer own = perspective.newContext(color, depth);
+        assertSame(color, own.getColorBuffer());
+        assertSame(depth, own.getDepthBuffer());
+        try {
+            perspective.newContext(new int[10], null);
+            fail("The color buffer is too small");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testConcurrentContextsMatchSequentialRenders() throws Exception {
+        Mesh torus = torus(48, 24, true);
+        final LodMesh mesh = LodMesh.generate(torus, 4, 0.5f, 50);
+        final RenderConfig config = RenderFixture.config();
+
+        PolygonRenderer sequential = config.newContext();
+        int[][] expected = new int[VIEWS][];
+        for (int view = 0; view < VIEWS; view++)
+            expected[view] = renderView(sequential, mesh, view);
+        assertFalse("Views differ", java.util.Arrays.equals(expected[0], expected[VIEWS - 1]));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 3; round++) {
+                List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+                for (int view = 0; view < VIEWS; view++) {
+                    final int v = view;
+                    results.add(pool.submit(() -> {
+                        PolygonRenderer context = config.newContext();
+                        int[] frame = null;
+                        // Several frames per context, so that the threads overlap
+                        for (int i = 0; i < 4; i++)
+                            frame = renderView(context, mesh, v);
+                        return frame;
+                    }));
+                }
+                for (int view = 0; view < VIEWS; view++)
+                    assertArrayEquals("View " + view, expected[view], results.get(view).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import static com.codnyx.myengine.tests.RenderFixture.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.AffineTransformation;
+import com.codnyx.myengine.FrameCache;
+import com.codnyx.myengine.Mesh;
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.RenderConfig;
+import com.codnyx.myengine.ResolutionController;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+public class TestResolutionScale {
+
+    private final RenderConfig config = RenderFixture.config();
+
+    private final Polygon quad = square(1, Color.ORANGE);
+
+    private void renderQuad(PolygonRenderer renderer, float x) {
+        renderer.clean();
+        renderer.getModelT().loadIdentity().translateTo(x, 0, -4f);
+        renderer.render(quad);
+        renderer.commit();
+    }
+
+    @Test
+    public void testControllerHoldsTheTargetFrameTime() {
+        ResolutionController controller = new ResolutionController(10);
+        assertEquals(ResolutionController.MAX_SCALE, controller.getScale(), 0);
+        assertEquals("Frames on target keep the scale", 1f, controller.update(10500000L), 0);
+
+        // Frames four times too slow: the pixel count is quartered, to half the resolution
+        float scale = 1;
+        for (int i = 0; i < 20; i++)
+            scale = controller.update((long) (40000000L * scale * scale));
+        assertEquals(0.5f, scale, 0.05f);
+
+        // Far too slow: the scale stops at its minimum
+        for (int i = 0; i < 10; i++)
+            scale = controller.update(1000000000L);
+        assertEquals(ResolutionController.MIN_SCALE, scale, 0);
+
+        // Fast frames raise the scale back gradually
+        for (int i = 0; i < 100; i++) {
+            float previous = scale;
+            scale = controller.update(1000000L);
+            assertTrue("The scale rises by small steps", scale <= previous + 0.05f + 1e-6f);
+        }
+        assertEquals(ResolutionController.MAX_SCALE, scale, 0);
+
+        controller.update(1000000000L);
+        controller.reset();
+        assertEquals(ResolutionController.MAX_SCALE, controller.getScale(), 0);
+    }
+
+    @Test
+    public void testFramesAreUpscaled() {
+        PolygonRenderer full = config.newContext();
+        renderQuad(full, 0);
+        PolygonRenderer scaled = config.newContext();
+        scaled.setRenderScale(0.5f);
+        assertEquals("The scale applies from the next frame", WIDTH, scaled.getRasterWidth());
+        renderQuad(scaled, 0);
+        assertEquals(WIDTH / 2, scaled.getRasterWidth());
+        assertEquals(HEIGHT / 2, scaled.getRasterHeight());
+        assertSame(config.getProjT(), scaled.getProjT());
+
+        int[] expected = full.getColorBuffer(), pixels = scaled.getColorBuffer().clone();
+        assertEquals(Color.ORANGE.getRGB(), pixels[HEIGHT / 2 * WIDTH + WIDTH / 2]);
+        assertEquals(0, pixels[0]);
+        assertEquals(0, pixels[WIDTH * HEIGHT - 1]);
+        int differences = differences(expected, pixels);
+        assertTrue("Only the edges differ: " + differences, differences < 4 * (WIDTH + HEIGHT));
+
+        int[] bounds = scaled.getBounds(new int[4]), fullBounds = full.getBounds(new int[4]);
+        assertEquals("The first frame upscaled into the color buffer is whole", WIDTH - 1, bounds[2] - bounds[0]);
+        renderQuad(scaled, 0);
+        assertArrayEquals(pixels, scaled.getColorBuffer());
+        scaled.getBounds(bounds);
+        assertTrue("The bounds are those of the upscaled pixels",
+                bounds[0] <= fullBounds[0] && bounds[1] <= fullBounds[1] && bounds[2] >= fullBounds[2] && bounds[3] >= fullBounds[3]);
+        assertTrue(bounds[2] - bounds[0] < WIDTH / 2);
+    }
+
+    @Test
+    public void testPartialUpscalesMatchWholeOnes() {
+        PolygonRenderer renderer = config.newContext();
+        renderer.setRenderScale(0.6f);
+        renderQuad(renderer, 0);
+
+        // The quad moves: its previous area is upscaled too, cleared
+        renderQuad(renderer, 1.5f);
+        PolygonRenderer reference = config.newContext();
+        reference.setRenderScale(0.6f);
+        renderQuad(reference, 1.5f);
+        assertArrayEquals(reference.getColorBuffer(), renderer.getColorBuffer());
+
+        // A new color buffer holds none of the previous frames
+        int[] buffer = new int[WIDTH * HEIGHT];
+        Arrays.fill(buffer, 0xFFFFFFFF);
+        renderer.setColorBuffer(buffer);
+        renderQuad(renderer, 1.5f);
+        assertArrayEquals(reference.getColorBuffer(), buffer);
+
+        // Frames redrawn in part by a frame cache
+        renderer.setColorBuffer(new int[WIDTH * HEIGHT]);
+        FrameCache cache = new FrameCache(renderer);
+        Mesh background = squareMesh(4, Color.BLUE), small = squareMesh(0.4f, Color.RED);
+        AffineTransformation backgroundT = new AffineTransformation().translateTo(0, 0, -6);
+        AffineTransformation smallT = new AffineTransformation().translateTo(-1, 0, -4);
+        for (int frame = 0; frame < 3; frame++) {
+            smallT.translateTo(0.2f, 0, 0);
+            cache.begin();
+            cache.add(background, backgroundT);
+            cache.add(small, smallT);
+            assertEquals(frame == 0 ? FrameCache.Result.FULL : FrameCache.Result.PARTIAL, cache.render());
+            renderer.commit();
+
+            PolygonRenderer whole = config.newContext();
+            whole.setRenderScale(0.6f);
+            FrameCache wholeCache = new FrameCache(whole);
+            wholeCache.begin();
+            wholeCache.add(background, backgroundT);
+            wholeCache.add(small, smallT);
+            wholeCache.render();
+            whole.commit();
+            assertArrayEquals("Frame " + frame, whole.getColorBuffer(), renderer.getColorBuffer());
+        }
+    }
+
+    @Test
+    public void testControllerDrivesTheRenderer() {
+        PolygonRenderer renderer = config.newContext();
+        ResolutionController controller = new ResolutionController(1e-6);
+        renderer.setResolutionController(controller);
+        assertSame(controller, renderer.getResolutionController());
+        renderQuad(renderer, 0);
+        assertEquals(WIDTH, renderer.getRasterWidth());
+        assertTrue("A slow frame lowers the scale", renderer.getRenderScale() < 1);
+        for (int i = 0; i < 5; i++)
+            renderQuad(renderer, 0);
+        assertEquals(ResolutionController.MIN_SCALE, renderer.getRenderScale(), 0);
+        assertEquals(WIDTH / 2, renderer.getRasterWidth());
+        assertEquals(Color.ORANGE.getRGB(), renderer.getColorBuffer()[HEIGHT / 2 * WIDTH + WIDTH / 2]);
+
+        renderer.setResolutionController(null);
+        renderer.setRenderScale(1);
+        renderQuad(renderer, 0);
+        assertEquals(WIDTH, renderer.getRasterWidth());
+        try {
+            renderer.setRenderScale(0.2f);
+            fail("The scale is at least " + ResolutionController.MIN_SCALE);
+        } catch (IllegalArgumentException e) {
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.ImageTexture;
+import com.codnyx.myengine.Rgb565Texture;
+
+import java.awt.image.BufferedImage;
+
+public class TestRgb565Texture {
+
+    private BufferedImage createImage(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < h; y++)
+            for (int x = 0; x < w; x++)
+                img.setRGB(x, y, 0xFF000000 | (x * 40 << 16) | (y * 30 << 8) | ((x + y) * 20));
+        return img;
+    }
+
+    @Test
+    public void testPackUnpackExtremes() {
+        assertEquals(0xFFFFFFFF, Rgb565Texture.unpack(Rgb565Texture.pack(0xFFFFFFFF)));
+        assertEquals(0xFF000000, Rgb565Texture.unpack(Rgb565Texture.pack(0xFF000000)));
+        assertEquals(0xFFFF0000, Rgb565Texture.unpack(Rgb565Texture.pack(0xFFFF0000)));
+        assertEquals((short)0xF800, Rgb565Texture.pack(0xFFFF0000));
+        assertEquals((short)0x07E0, Rgb565Texture.pack(0xFF00FF00));
+        assertEquals((short)0x001F, Rgb565Texture.pack(0xFF0000FF));
+    }
+
+    @Test
+    public void testSamplesAreCloseToTheImage() {
+        BufferedImage img = createImage(6, 5);
+        ImageTexture reference = new ImageTexture(img);
+        Rgb565Texture tex = new Rgb565Texture(img);
+        assertEquals(6, tex.getWidth());
+        assertEquals(5, tex.getHeight());
+        assertEquals(reference.getLevelCount(), tex.getLevelCount());
+        for (int level = 0; level < tex.getLevelCount(); level++)
+            for (int y = -1; y < 6; y++)
+                for (int x = -1; x < 7; x++) {
+                    int expected = reference.getColor(x, y, level), actual = tex.getColor(x, y, level);
+                    assertEquals(0xFF, actual >>> 24);
+                    assertEquals("red", (expected >> 16) & 0xff, (actual >> 16) & 0xff, 4);
+                    assertEquals("green", (expected >> 8) & 0xff, (actual >> 8) & 0xff, 2);
+                    assertEquals("blue", expected & 0xff, actual & 0xff, 4);
+                }
+    }
+
+    @Test
+    public void testWrapsPowerOfTwo() {
+        Rgb565Texture tex = new Rgb565Texture(createImage(4, 4));
+        assertEquals(tex.getColor(1, 2), tex.getColor(5, -2));
+    }
+
+    @Test
+    public void testMemoryIsHalfOfArgb() {
+        Rgb565Texture tex = new Rgb565Texture(createImage(8, 8));
+        // 8x8, 4x4, 2x2 and 1x1 levels of 2 bytes
+        assertEquals(2 * (64 + 16 + 4 + 1), tex.getMemorySize());
+    }
+
+    @Test
+    public void testSampleSpanMatchesGetColor() {
+        BufferedImage img = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 6; y++)
+            for (int x = 0; x < 8; x++)
+                img.setRGB(x, y, (x * 30 << 16) | (y * 40 << 8) | 0x55);
+        Rgb565Texture tex = new Rgb565Texture(img);
+        int[] dst = new int[20];
+        tex.sampleSpan(-2 << 16, 1 << 16, 0x18000, 0x8000, dst.length, 1, dst, 0);
+        for (int i = 0; i < dst.length; i++)
+            assertEquals(tex.getColor((-0x20000 + i * 0x18000) >> 16, (0x10000 + i * 0x8000) >> 16, 1), dst[i]);
+    }
+}
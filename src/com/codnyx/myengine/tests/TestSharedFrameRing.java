@@ -0,0 +1,167 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.SharedFrameRing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class TestSharedFrameRing {
+
+    private static final int WIDTH = 16, HEIGHT = 8, PIXELS = WIDTH * HEIGHT;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("framering", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private int[] frame(int value) {
+        int[] argb = new int[PIXELS];
+        Arrays.fill(argb, value);
+        argb[0] = ~value;
+        return argb;
+    }
+
+    @Test
+    public void testFileLayout() throws IOException {
+        try (SharedFrameRing ring = SharedFrameRing.create(file.toPath(), WIDTH, HEIGHT, 3, false)) {
+            assertEquals(0, ring.getLatestSequence());
+            assertEquals(1, ring.publish(frame(7), null));
+            assertEquals(2, ring.publish(frame(8), null));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            map.order(ByteOrder.nativeOrder());
+            assertEquals(SharedFrameRing.MAGIC, map.getInt(0));
+            assertEquals(SharedFrameRing.VERSION, map.getInt(4));
+            assertEquals(WIDTH, map.getInt(8));
+            assertEquals(HEIGHT, map.getInt(12));
+            assertEquals(3, map.getInt(16));
+            assertEquals(0, map.getInt(20));
+            long slotBytes = map.getLong(24);
+            assertEquals(0, slotBytes % 64);
+            assertTrue(slotBytes >= SharedFrameRing.SLOT_HEADER_BYTES + 4 * PIXELS);
+            assertEquals(SharedFrameRing.HEADER_BYTES + 3 * slotBytes, raf.length());
+            assertEquals(2, map.getLong(32));
+            int slot1 = (int) (SharedFrameRing.HEADER_BYTES + slotBytes);
+            assertEquals("Frame 2 is in the second slot", 2, map.getLong(slot1));
+            assertEquals(~8, map.getInt(slot1 + SharedFrameRing.SLOT_HEADER_BYTES));
+            assertEquals(8, map.getInt(slot1 + SharedFrameRing.SLOT_HEADER_BYTES + 4));
+            assertEquals("The third slot was never written", 0, map.getLong((int) (SharedFrameRing.HEADER_BYTES + 2 * slotBytes)));
+        }
+    }
+
+    @Test
+    public void testReadAndOverwrite() throws IOException {
+        try (SharedFrameRing writer = SharedFrameRing.create(file.toPath(), WIDTH, HEIGHT, 3, true);
+             SharedFrameRing reader = SharedFrameRing.open(file.toPath())) {
+            assertEquals(WIDTH, reader.getWidth());
+            assertEquals(HEIGHT, reader.getHeight());
+            assertEquals(3, reader.getSlots());
+            assertTrue(reader.hasDepth());
+            int[] argb = new int[PIXELS];
+            float[] depth = new float[PIXELS];
+            assertFalse("Nothing published yet", reader.read(1, argb, depth));
+
+            float[] z = new float[PIXELS];
+            for (int i = 1; i <= 4; i++) {
+                Arrays.fill(z, i / 10f);
+                writer.publish(frame(i), z);
+            }
+            assertEquals(4, reader.getLatestSequence());
+            assertFalse("Frame 1 was overwritten by frame 4", reader.read(1, argb, depth));
+            assertTrue(reader.read(3, argb, depth));
+            assertArrayEquals(frame(3), argb);
+            assertEquals(0.3f, depth[PIXELS - 1], 0);
+            assertTrue(reader.read(4, argb, null));
+            assertArrayEquals(frame(4), argb);
+
+            IntBuffer inPlace = reader.getColor(4);
+            assertEquals(PIXELS, inPlace.remaining());
+            assertEquals(~4, inPlace.get(0));
+            assertEquals(4, inPlace.get(PIXELS - 1));
+            assertTrue(reader.isAvailable(4));
+            try {
+                writer.publish(frame(5), null);
+                fail("The ring has depth");
+            } catch (IllegalArgumentException e) {
+            }
+        }
+    }
+
+    @Test
+    public void testPublishRenderer() throws IOException {
+        int[] color = new int[PIXELS];
+        float[] depth = new float[PIXELS];
+        PolygonRenderer renderer = new PolygonRenderer(WIDTH, HEIGHT, color, depth);
+        Arrays.fill(color, 0xFF123456);
+        Arrays.fill(depth, 0.25f);
+        try (SharedFrameRing writer = SharedFrameRing.create(file.toPath(), WIDTH, HEIGHT, 2, true);
+             SharedFrameRing reader = SharedFrameRing.open(file.toPath())) {
+            long sequence = writer.publish(renderer);
+            int[] argb = new int[PIXELS];
+            float[] z = new float[PIXELS];
+            assertTrue(reader.read(sequence, argb, z));
+            assertArrayEquals(color, argb);
+            assertArrayEquals(depth, z, 0);
+        }
+    }
+
+    @Test
+    public void testOpenRejectsOtherFiles() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(128);
+        }
+        try {
+            SharedFrameRing.open(file.toPath());
+            fail("Not a ring");
+        } catch (IOException e) {
+        }
+    }
+
+    @Test
+    public void testConcurrentReaderNeverSeesTornFrames() throws Exception {
+        final int frames = 3000;
+        try (SharedFrameRing writer = SharedFrameRing.create(file.toPath(), WIDTH, HEIGHT, 2, false);
+             SharedFrameRing reader = SharedFrameRing.open(file.toPath())) {
+            Thread producer = new Thread(() -> {
+                for (int i = 1; i <= frames; i++)
+                    writer.publish(frame(i), null);
+            });
+            producer.start();
+            int[] argb = new int[PIXELS];
+            int reads = 0;
+            long last = 0;
+            while (last < frames) {
+                long sequence = reader.getLatestSequence();
+                assertTrue("Sequence numbers only grow", sequence >= last);
+                last = sequence;
+                if (sequence > 0 && reader.read(sequence, argb, null)) {
+                    assertArrayEquals("Frame " + sequence, frame((int) sequence), argb);
+                    reads++;
+                }
+            }
+            producer.join();
+            assertTrue(reads > 0);
+            assertTrue(reader.read(frames, argb, null));
+        }
+    }
+}
@@ -115,4 +115,13 @@ public class TestTexture {
         assertTrue(texInstance instanceof Texture);
         assertTrue(texInstance instanceof MockConcreteTexture);
     }
+
+    @Test
+    public void testDefaultSampleSpanSteps16_16Coordinates() {
+        Texture tex = new MockConcreteTexture(4, 1, new int[]{10, 11, 12, 13});
+        int[] dst = new int[6];
+        // From x = 0.5, half a texel per pixel, written from index 1
+        tex.sampleSpan(0x8000, 0, 0x8000, 0, 5, 0, dst, 1);
+        assertArrayEquals(new int[]{0, 10, 11, 11, 12, 12}, dst);
+    }
 }
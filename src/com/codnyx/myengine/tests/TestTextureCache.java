@@ -0,0 +1,175 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codnyx.myengine.CachedTexture;
+import com.codnyx.myengine.TexelLayout;
+import com.codnyx.myengine.TextureCache;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+public class TestTextureCache {
+
+    private File imageFile;
+
+    private File otherFile;
+
+    @Before
+    public void setUp() throws IOException {
+        imageFile = File.createTempFile("texcache", ".png");
+        BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        img.setRGB(1, 0, 0xFFFF0000);
+        ImageIO.write(img, "png", imageFile);
+        otherFile = File.createTempFile("texcache", ".png");
+        BufferedImage other = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 64; y++)
+            for (int x = 0; x < 64; x++)
+                other.setRGB(x, y, 0xFF0000FF);
+        ImageIO.write(other, "png", otherFile);
+    }
+
+    @After
+    public void tearDown() {
+        imageFile.delete();
+        otherFile.delete();
+    }
+
+    @Test
+    public void testSameLocationReturnsSameTexture() throws IOException {
+        TextureCache cache = new TextureCache();
+        CachedTexture t1 = cache.get(imageFile.getPath());
+        CachedTexture t2 = cache.get(imageFile.toURI().toURL());
+        assertSame("Texture should be decoded once and shared", t1, t2);
+        assertEquals(1, cache.size());
+        assertEquals(0xFFFF0000, t1.getColor(1, 0));
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        TextureCache cache = new TextureCache();
+        CachedTexture t1 = cache.get(imageFile.getPath());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNotSame("A cleared cache should decode again", t1, cache.get(imageFile.getPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException {
+        new TextureCache().get(new File(imageFile.getParentFile(), "does_not_exist_texcache.png").getPath());
+    }
+
+    @Test
+    public void testDefaultInstance() {
+        assertNotNull(TextureCache.getDefault());
+        assertSame(TextureCache.getDefault(), TextureCache.getDefault());
+    }
+
+    @Test
+    public void testTexelsAreDecodedOnFirstUse() throws IOException {
+        TextureCache cache = new TextureCache();
+        CachedTexture t = cache.get(otherFile.getPath());
+        assertEquals("The header gives the dimensions", 64, t.getWidth());
+        assertEquals(7, t.getLevelCount());
+        assertFalse(t.isResident());
+        assertEquals(0, cache.getResidentBytes());
+        t.prepare();
+        assertTrue(t.isResident());
+        assertEquals(1, cache.getMisses());
+        assertTrue(cache.getResidentBytes() >= 64 * 64 * 4);
+        t.prepare();
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsReducedThenEvicted() throws IOException {
+        TextureCache cache = new TextureCache();
+        CachedTexture small = cache.get(imageFile.getPath());
+        CachedTexture large = cache.get(otherFile.getPath());
+        small.prepare();
+        large.prepare();
+        long largeBytes = large.load().getMemorySize();
+        // Room for the large texture and the reduced levels of the small one
+        cache.setBudget(largeBytes + 10);
+        assertEquals(1, cache.getReductions());
+        assertEquals(0, cache.getEvictions());
+        assertFalse(small.isResident());
+        // Level 1 averages one opaque red texel with three transparent ones
+        assertEquals("The reduced level is still sampled", 0x40400000, small.getColor(0, 0, 1));
+        assertEquals(0xFF0000FF, large.getColor(5, 5));
+
+        cache.setBudget(largeBytes);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(largeBytes, cache.getResidentBytes());
+        // Using the small texture again loads it and pushes the large one out
+        small.prepare();
+        assertTrue(small.isResident());
+        assertEquals(0xFFFF0000, small.getColor(1, 0));
+        assertFalse(large.isResident());
+        assertTrue(cache.getResidentBytes() <= largeBytes);
+    }
+
+    @Test
+    public void testUsesOrderTheReductions() throws IOException {
+        TextureCache cache = new TextureCache();
+        cache.setLayout(TexelLayout.TILED);
+        CachedTexture small = cache.get(imageFile.getPath());
+        CachedTexture large = cache.get(otherFile.getPath());
+        small.prepare();
+        large.prepare();
+        small.prepare();
+        // The large texture is now the least recently used
+        cache.setBudget(cache.getResidentBytes() - 1);
+        assertEquals(1, cache.getReductions());
+        assertTrue(small.isResident());
+        assertFalse(large.isResident());
+        for (int level = 1; level < large.getLevelCount(); level++)
+            assertEquals("Reduced levels keep their texels", 0xFF0000FF, large.getColor(level, 3, level));
+    }
+
+    @Test
+    public void testBackgroundLoading() throws Exception {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET, true);
+        cache.setPlaceholderColor(0xFF123456);
+        CachedTexture t = cache.get(otherFile.getPath());
+        t.prepare();
+        for (int i = 0; i < 500 && !t.isResident(); i++) {
+            assertEquals("Sampled as a placeholder while loading", 0xFF123456, t.getColor(0, 0));
+            Thread.sleep(10);
+        }
+        assertTrue(t.isResident());
+        assertEquals(0xFF0000FF, t.getColor(0, 0));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testClearedHandlesArePlaceholders() throws IOException {
+        TextureCache cache = new TextureCache();
+        CachedTexture t = cache.get(otherFile.getPath());
+        t.prepare();
+        cache.clear();
+        assertEquals(0, cache.getResidentBytes());
+        assertEquals(TextureCache.DEFAULT_PLACEHOLDER_COLOR, t.getColor(0, 0));
+        assertFalse(t.isResident());
+    }
+
+    @Test
+    public void testSampleSpan() throws IOException {
+        TextureCache cache = new TextureCache(TextureCache.DEFAULT_BUDGET, false);
+        CachedTexture t = cache.get(imageFile.getPath());
+        int[] dst = new int[3];
+        t.sampleSpan(0, 0, 0x10000, 0, 3, 0, dst, 0);
+        assertArrayEquals("Loads on first use", new int[]{t.getColor(0, 0), 0xFFFF0000, t.getColor(0, 0)}, dst);
+        cache.clear();
+        t.sampleSpan(0, 0, 0x10000, 0, 3, 0, dst, 0);
+        int gray = TextureCache.DEFAULT_PLACEHOLDER_COLOR;
+        assertArrayEquals(new int[]{gray, gray, gray}, dst);
+    }
+}
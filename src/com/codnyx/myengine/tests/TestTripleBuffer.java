@@ -0,0 +1,110 @@
+package com.codnyx.myengine.tests;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.codnyx.myengine.Polygon;
+import com.codnyx.myengine.PolygonRenderer;
+import com.codnyx.myengine.TripleBuffer;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class TestTripleBuffer {
+
+    private static final int WIDTH = 40, HEIGHT = 30;
+
+    private final Polygon quad = new Polygon(new float[][]{{-1, -1, 0}, {1, -1, 0}, {1, 1, 0}, {-1, 1, 0}}, Color.ORANGE);
+
+    private int pixel(BufferedImage image, int x, int y) {
+        return image.getRGB(x, y) & 0xFFFFFF;
+    }
+
+    @Test
+    public void testFramesAreExchangedWithoutCopies() {
+        TripleBuffer frames = new TripleBuffer(null, WIDTH, HEIGHT);
+        PolygonRenderer renderer = frames.newRenderer();
+        renderer.setPerspective(Math.PI / 3, -30f, -1f);
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics g = screen.createGraphics();
+
+        Set<int[]> buffers = new HashSet<int[]>();
+        for (int i = 0; i < 5; i++) {
+            buffers.add(renderer.getColorBuffer());
+            renderer.clean();
+            renderer.getModelT().loadIdentity().translateTo(0.4f * i - 1, 0, -4f);
+            renderer.render(quad);
+            renderer.commit();
+            assertEquals(i + 1, frames.publish(renderer));
+        }
+        assertEquals("Until a frame is presented, the renderer alternates between two images", 2, buffers.size());
+
+        assertTrue(frames.hasNewFrame());
+        assertTrue("The first presentation is whole", frames.present(g));
+        assertEquals("Frames never presented are skipped", 5, frames.getPresentedFrame());
+        assertFalse(frames.hasNewFrame());
+        assertFalse("No new frame to present", frames.present(g));
+        int[] expected = renderer.getBounds(new int[4]);
+        assertEquals(Color.ORANGE.getRGB() & 0xFFFFFF, pixel(screen, (expected[0] + expected[2]) / 2, HEIGHT / 2));
+
+        // The quad moves away: its previous area is presented too, cleared
+        renderer.clean();
+        renderer.getModelT().loadIdentity().translateTo(-3f, 0, -4f);
+        renderer.render(quad);
+        renderer.commit();
+        frames.publish(renderer);
+        buffers.add(renderer.getColorBuffer());
+        assertEquals("The image presented before is rendered into", 3, buffers.size());
+        assertTrue(frames.present(g));
+        assertEquals(6, frames.getPresentedFrame());
+        assertEquals(0, pixel(screen, (expected[0] + expected[2]) / 2, HEIGHT / 2));
+        assertEquals(Color.ORANGE.getRGB() & 0xFFFFFF, pixel(screen, 0, HEIGHT / 2));
+
+        Arrays.fill(((java.awt.image.DataBufferInt) screen.getRaster().getDataBuffer()).getData(), 0xFFFFFF);
+        frames.invalidatePresentation();
+        assertTrue("A lost destination is presented again", frames.present(g));
+        assertEquals(6, frames.getPresentedFrame());
+        assertEquals(0, pixel(screen, WIDTH - 1, HEIGHT - 1));
+        g.dispose();
+    }
+
+    @Test
+    public void testConcurrentFramesAreNeverTorn() throws Exception {
+        final int count = 2000;
+        TripleBuffer frames = new TripleBuffer(null, WIDTH, HEIGHT);
+        frames.setBufferAge(0);
+        PolygonRenderer renderer = frames.newRenderer();
+        Thread render = new Thread(() -> {
+            for (int i = 1; i <= count; i++) {
+                // Each frame is filled with its number, written one pixel at a time
+                int[] pixels = renderer.getColorBuffer();
+                for (int j = 0; j < WIDTH * HEIGHT; j++)
+                    pixels[j] = i;
+                frames.publish(renderer);
+            }
+        });
+        render.start();
+        BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics g = screen.createGraphics();
+        int[] shown = ((java.awt.image.DataBufferInt) screen.getRaster().getDataBuffer()).getData();
+        long last = 0;
+        int presented = 0;
+        while (last < count) {
+            if (!frames.present(g) || frames.getPresentedFrame() == 0)
+                continue;
+            long frame = frames.getPresentedFrame();
+            assertTrue("Frames are presented in order", frame > last);
+            last = frame;
+            for (int j = 0; j < shown.length; j++)
+                assertEquals("Frame " + frame, frame, shown[j]);
+            presented++;
+        }
+        render.join();
+        g.dispose();
+        assertTrue(presented > 0);
+    }
+}
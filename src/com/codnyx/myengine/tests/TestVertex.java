@@ -156,4 +156,20 @@ public class TestVertex {
         assertNull("Normal after reset should be null", v.getNormal());
         assertEquals("Color after reset should be COLOR_WHITE", Vertex.COLOR_WHITE, v.getRGBColor());
     }
+
+    @Test
+    public void testTexCoord() {
+        Vertex v = new Vertex();
+        assertNull("Texture coordinates should be null by default", v.getTexCoord());
+        float[] uv = {0.25f, 0.75f};
+        v.setTexCoord(uv);
+        assertSame(uv, v.getTexCoord());
+
+        Vertex copy = new Vertex(v);
+        assertFloatArrayEquals("setTo texCoord", uv, copy.getTexCoord(), DELTA);
+        assertNotSame("setTo texCoord should be a clone", uv, copy.getTexCoord());
+
+        v.reset();
+        assertNull("Texture coordinates after reset should be null", v.getTexCoord());
+    }
 }
@@ -208,4 +208,20 @@ public class TestVertexTexture {
         // u_pix = (texV0 - texV1) * dims = 0. Constructor has: if (dot_uu_2d == 0) { u[0]=1; }
         assertIntArrayEquals("2D u vector when texUV0=texUV1", new int[]{1, 0}, vt_collinear_u_pix.u);
     }
+
+    @Test
+    public void testMipLevels() {
+        int R = Color.RED.getRGB(); int G = Color.GREEN.getRGB();
+        int B = Color.BLUE.getRGB(); int W = Color.WHITE.getRGB();
+        BufferedImage testImg = createTestImage(2, 2, new int[]{R, G, B, W});
+        Polygon poly = new Polygon(new Vertex[]{
+            new Vertex(new float[]{0f, 2f, 0f}), new Vertex(new float[]{0f, 0f, 0f}), new Vertex(new float[]{2f, 0f, 0f})});
+        VertexTexture vt = new VertexTexture(testImg, poly, new float[][]{{0f, 1f}, {0f, 0f}, {1f, 0f}});
+
+        assertEquals("2x2 and 1x1 levels", 2, vt.getLevelCount());
+        assertEquals(G, vt.getColor(1, 0, 0));
+        // Red + green + blue + white, averaged per channel: (128, 128, 128)
+        assertEquals(0xFF808080, vt.getColor(0, 0, 1));
+        assertEquals("Level 1 wraps", vt.getColor(0, 0, 1), vt.getColor(5, -3, 1));
+    }
 }